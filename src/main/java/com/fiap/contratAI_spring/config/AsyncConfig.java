@@ -0,0 +1,87 @@
+package com.fiap.contratAI_spring.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@EnableScheduling
+public class AsyncConfig {
+
+    public static final String LLM_STREAM_EXECUTOR = "llmStreamExecutor";
+    public static final String LLM_CHUNK_EXECUTOR = "llmChunkExecutor";
+    public static final String ANALYSIS_BATCH_EXECUTOR = "analysisBatchExecutor";
+
+    /**
+     * Executor dedicado às gerações em streaming (SSE).
+     * Libera a thread do Tomcat enquanto os tokens do Ollama são repassados ao cliente.
+     * Com {@code spring.threads.virtual.enabled=true} cada geração roda em uma virtual thread
+     * e a concorrência passa a ser limitada apenas por {@code ollama.max-in-flight}.
+     */
+    @Bean(name = LLM_STREAM_EXECUTOR)
+    public TaskExecutor llmStreamExecutor(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${llm.stream.executor.core-size:4}") int coreSize,
+            @Value("${llm.stream.executor.max-size:32}") int maxSize,
+            @Value("${llm.stream.executor.queue-capacity:100}") int queueCapacity) {
+        if (virtualThreads) {
+            return new VirtualThreadTaskExecutor("llm-stream-");
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(Math.max(coreSize, maxSize));
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("llm-stream-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor das análises por trecho (map-reduce). O paralelismo por contrato é limitado em
+     * {@code ContractAIService}; aqui fica o teto global de trechos em andamento.
+     */
+    @Bean(name = LLM_CHUNK_EXECUTOR)
+    public TaskExecutor llmChunkExecutor(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${analysis.chunked.executor.max-size:16}") int maxSize) {
+        if (virtualThreads) {
+            return new VirtualThreadTaskExecutor("llm-chunk-");
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(Integer.MAX_VALUE);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("llm-chunk-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor das análises de um lote da fila ({@code analysis.batch.enabled=true}). Separado do de trechos,
+     * que as próprias análises usam, para que um lote cheio não espere por trechos presos atrás dele.
+     */
+    @Bean(name = ANALYSIS_BATCH_EXECUTOR)
+    public TaskExecutor analysisBatchExecutor(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${analysis.batch.executor.max-size:${analysis.batch.size:10}}") int maxSize) {
+        if (virtualThreads) {
+            return new VirtualThreadTaskExecutor("analysis-batch-");
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(1, maxSize));
+        executor.setMaxPoolSize(Math.max(1, maxSize));
+        executor.setQueueCapacity(Integer.MAX_VALUE);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("analysis-batch-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -1,31 +1,69 @@
 package com.fiap.contratAI_spring.config;
 
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.amqp.core.AcknowledgeMode;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
 import org.springframework.amqp.core.DirectExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.listener.ConditionalRejectingErrorHandler;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.util.ErrorHandler;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 public class RabbitMQConfig {
 
     public static final String EXCHANGE_NAME = "contract.analysis.exchange";
     public static final String QUEUE_NAME = "contract.analysis.queue";
     public static final String ROUTING_KEY = "contract.analysis.key";
+    public static final String BATCH_CONTAINER_FACTORY = "batchRabbitListenerContainerFactory";
+
+    /**
+     * Exchange das filas de retry e da DLQ. Cada fila de retry tem TTL fixo e devolve as mensagens
+     * expiradas para {@link #EXCHANGE_NAME}.
+     */
+    public static final String RETRY_EXCHANGE_NAME = "contract.analysis.retry.exchange";
+    public static final String DEAD_LETTER_QUEUE_NAME = "contract.analysis.dlq";
+    public static final String DEAD_LETTER_ROUTING_KEY = "contract.analysis.dead";
+
+    /**
+     * Ids dos containers da fila de análise, usados para pausá-los quando o circuit breaker abre.
+     */
+    public static final String ANALYSIS_LISTENER_ID = "contractAnalysis";
+    public static final String ANALYSIS_BATCH_LISTENER_ID = "contractAnalysisBatch";
+
+    /**
+     * Maior prioridade de mensagem ({@code x-max-priority}) quando {@code analysis.priority.enabled=true}.
+     */
+    public static final int MAX_PRIORITY = 9;
 
     @Bean
     public DirectExchange exchange() {
         return new DirectExchange(EXCHANGE_NAME);
     }
 
+    /**
+     * Com {@code analysis.priority.enabled=true} a fila é declarada com {@code x-max-priority}.
+     * O RabbitMQ não altera argumentos de uma fila existente: apague a fila antes de ligar ou desligar.
+     */
     @Bean
-    public Queue contractAnalysisQueue() {
-        return new Queue(QUEUE_NAME, true);
+    public Queue contractAnalysisQueue(@Value("${analysis.priority.enabled:false}") boolean priorityEnabled) {
+        QueueBuilder builder = QueueBuilder.durable(QUEUE_NAME);
+        if (priorityEnabled) {
+            builder.maxPriority(MAX_PRIORITY);
+        }
+        return builder.build();
     }
 
     @Bean
@@ -35,15 +73,118 @@ public class RabbitMQConfig {
                 .with(ROUTING_KEY);
     }
 
+    /**
+     * Uma fila por atraso de {@code analysis.retry.delays-ms}, com o atraso no nome: mudar os atrasos cria
+     * filas novas em vez de conflitar com o {@code x-message-ttl} das existentes. A fila de espera do
+     * fair-share ({@code analysis.fair-share.defer-ms}) segue o mesmo modelo.
+     */
+    @Bean
+    public Declarables analysisRetryTopology(@Value("${analysis.retry.delays-ms:5000,30000,120000}") List<Long> retryDelaysMs,
+                                             @Value("${analysis.fair-share.defer-ms:2000}") long deferMs) {
+        List<Declarable> declarables = new ArrayList<>();
+        DirectExchange retryExchange = new DirectExchange(RETRY_EXCHANGE_NAME);
+        declarables.add(retryExchange);
+        for (Long delay : retryDelaysMs) {
+            addDelayQueue(declarables, retryExchange, retryQueueName(delay), delay);
+        }
+        addDelayQueue(declarables, retryExchange, deferQueueName(deferMs), deferMs);
+        Queue deadLetterQueue = QueueBuilder.durable(DEAD_LETTER_QUEUE_NAME).build();
+        declarables.add(deadLetterQueue);
+        declarables.add(BindingBuilder.bind(deadLetterQueue).to(retryExchange).with(DEAD_LETTER_ROUTING_KEY));
+        return new Declarables(declarables);
+    }
+
+    /**
+     * Nome (e routing key) da fila de retry com o atraso informado.
+     */
+    public static String retryQueueName(long delayMs) {
+        return "contract.analysis.retry." + delayMs + "ms";
+    }
+
+    /**
+     * Nome (e routing key) da fila de espera do fair-share: a mensagem de um usuário no limite passa
+     * {@code delayMs} nela e volta ao fim da fila principal, em vez de voltar à cabeça da fila e ser
+     * entregue de novo em seguida.
+     */
+    public static String deferQueueName(long delayMs) {
+        return "contract.analysis.deferred." + delayMs + "ms";
+    }
+
+    /**
+     * Fila com TTL fixo, ligada a {@code exchange} pelo próprio nome, que devolve as mensagens expiradas
+     * para a fila principal.
+     */
+    private static void addDelayQueue(List<Declarable> declarables, DirectExchange exchange, String name, long delayMs) {
+        Queue queue = QueueBuilder.durable(name)
+                .ttl((int) Math.min(Integer.MAX_VALUE, delayMs))
+                .deadLetterExchange(EXCHANGE_NAME)
+                .deadLetterRoutingKey(ROUTING_KEY)
+                .build();
+        declarables.add(queue);
+        declarables.add(BindingBuilder.bind(queue).to(exchange).with(name));
+    }
+
+    /**
+     * Consumidores da fila de análise. O container inicia com {@code concurrent} consumidores,
+     * sobe até {@code max} enquanto houver mensagens e desliga os ociosos quando a fila esvazia.
+     * O limite real de chamadas ao Ollama é do {@code AdaptiveConcurrencyLimiter} ({@code llm.limiter.*}).
+     * Com {@code spring.threads.virtual.enabled=true} os consumidores rodam em virtual threads.
+     */
     @Bean
-    public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(ConnectionFactory connectionFactory) {
+    public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            @Value("${analysis.consumers.concurrent:1}") int concurrentConsumers,
+            @Value("${analysis.consumers.max:1}") int maxConcurrentConsumers,
+            @Value("${analysis.consumers.prefetch:1}") int prefetch,
+            @Value("${analysis.consumers.start-interval-ms:10000}") long startConsumerMinInterval,
+            @Value("${analysis.consumers.stop-interval-ms:60000}") long stopConsumerMinInterval,
+            @Value("${analysis.consumers.idle-trigger:10}") int consecutiveIdleTrigger,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setDefaultRequeueRejected(false);
+        factory.setErrorHandler(errorHandler());
+        factory.setConcurrentConsumers(Math.max(1, concurrentConsumers));
+        factory.setMaxConcurrentConsumers(Math.max(concurrentConsumers, maxConcurrentConsumers));
+        factory.setPrefetchCount(Math.max(1, prefetch));
+        factory.setStartConsumerMinInterval(startConsumerMinInterval);
+        factory.setStopConsumerMinInterval(stopConsumerMinInterval);
+        factory.setConsecutiveActiveTrigger(1);
+        factory.setConsecutiveIdleTrigger(consecutiveIdleTrigger);
+        if (virtualThreads) {
+            factory.setTaskExecutor(new VirtualThreadTaskExecutor("rabbit-analysis-"));
+        }
+        return factory;
+    }
+
+    /**
+     * Consumidores do modo em lote ({@code analysis.batch.enabled=true}). Cada entrega ao listener
+     * reúne até {@code analysis.batch.size} mensagens, ou as que chegarem em
+     * {@code analysis.batch.receive-timeout-ms}. O paralelismo das análises fica dentro do lote,
+     * por isso o padrão é um único consumidor. A confirmação é manual: o listener confirma cada mensagem
+     * e devolve à fila só as que não conseguiu reagendar nem mandar para a DLQ.
+     */
+    @Bean(name = BATCH_CONTAINER_FACTORY)
+    public SimpleRabbitListenerContainerFactory batchRabbitListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            @Value("${analysis.batch.size:10}") int batchSize,
+            @Value("${analysis.batch.receive-timeout-ms:1000}") long receiveTimeoutMs,
+            @Value("${analysis.batch.consumers:1}") int consumers,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
         SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
         factory.setConnectionFactory(connectionFactory);
         factory.setDefaultRequeueRejected(false);
         factory.setErrorHandler(errorHandler());
-        factory.setConcurrentConsumers(1);
-        factory.setMaxConcurrentConsumers(1);
-        factory.setPrefetchCount(1);
+        factory.setBatchListener(true);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(Math.max(1, batchSize));
+        factory.setReceiveTimeout(receiveTimeoutMs);
+        factory.setPrefetchCount(Math.max(1, batchSize));
+        factory.setConcurrentConsumers(Math.max(1, consumers));
+        if (virtualThreads) {
+            factory.setTaskExecutor(new VirtualThreadTaskExecutor("rabbit-analysis-batch-"));
+        }
         return factory;
     }
 
@@ -55,6 +196,10 @@ public class RabbitMQConfig {
     public static class CustomFatalExceptionStrategy extends ConditionalRejectingErrorHandler.DefaultExceptionStrategy {
         @Override
         public boolean isFatal(Throwable t) {
+            // mensagens que o fair-share não conseguiu mandar para a fila de espera voltam para a fila
+            for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+                if (cause instanceof ImmediateRequeueAmqpException) return false;
+            }
             return true;
         }
     }
@@ -1,8 +1,12 @@
 package com.fiap.contratAI_spring.config;
 
+import com.fiap.contratAI_spring.service.CachingAuthenticationProvider;
+import com.fiap.contratAI_spring.service.CredentialCache;
 import com.fiap.contratAI_spring.service.CustomUserDetailsService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -19,9 +23,11 @@ import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 public class SecurityConfig {
 
     private final CustomUserDetailsService userDetailsService;
+    private final CredentialCache credentialCache;
 
-    public SecurityConfig(CustomUserDetailsService userDetailsService) {
+    public SecurityConfig(CustomUserDetailsService userDetailsService, CredentialCache credentialCache) {
         this.userDetailsService = userDetailsService;
+        this.credentialCache = credentialCache;
     }
 
     @Bean
@@ -29,6 +35,17 @@ public class SecurityConfig {
         return new BCryptPasswordEncoder();
     }
 
+    /**
+     * Provider do httpBasic: credenciais repetidas são validadas pelo {@link CredentialCache}
+     * sem consultar o banco nem rodar o BCrypt a cada requisição.
+     */
+    @Bean
+    public AuthenticationProvider authenticationProvider() {
+        DaoAuthenticationProvider daoProvider = new DaoAuthenticationProvider(userDetailsService);
+        daoProvider.setPasswordEncoder(passwordEncoder());
+        return new CachingAuthenticationProvider(daoProvider, credentialCache);
+    }
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
 
@@ -53,7 +70,7 @@ public class SecurityConfig {
                         .anyRequest().authenticated()
                 )
 
-                .userDetailsService(userDetailsService);
+                .authenticationProvider(authenticationProvider());
 
         return http.build();
     }
@@ -0,0 +1,72 @@
+package com.fiap.contratAI_spring.controller;
+
+import com.fiap.contratAI_spring.dto.DeadLetterDTO;
+import com.fiap.contratAI_spring.queue.AnalysisDeadLetterService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/admin/analysis")
+@Tag(name = "Administração da análise", description = "Inspeção e replay das análises que falharam definitivamente")
+@SecurityRequirement(name = "basicAuth")
+public class AnalysisAdminController {
+
+    private static final int MAX_LIMIT = 500;
+
+    private final AnalysisDeadLetterService deadLetterService;
+
+    public AnalysisAdminController(AnalysisDeadLetterService deadLetterService) {
+        this.deadLetterService = deadLetterService;
+    }
+
+    @Operation(
+            summary = "Listar a DLQ de análise",
+            description = "Lista as mensagens da dead-letter queue (sem o conteúdo do contrato), com o número de tentativas " +
+                    "e o último erro. As mensagens permanecem na fila. Apenas ADMIN."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Mensagens retornadas", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Não autenticado", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Sem permissão", content = @Content)
+    })
+    @GetMapping("/dead-letters")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<DeadLetterDTO>> listDeadLetters(@RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(deadLetterService.inspect(clamp(limit)));
+    }
+
+    @Operation(
+            summary = "Reenviar mensagens da DLQ",
+            description = "Republica na fila de análise até 'limit' mensagens da DLQ (ou só as do 'contractId' informado), " +
+                    "com o contador de tentativas zerado, e volta os contratos para PENDING. Apenas ADMIN."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Ids dos contratos reenviados", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Não autenticado", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Sem permissão", content = @Content)
+    })
+    @PostMapping("/dead-letters/replay")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, List<Long>>> replayDeadLetters(@RequestParam(defaultValue = "50") int limit,
+                                                                     @RequestParam(required = false) Long contractId) {
+        return ResponseEntity.ok(Map.of("replayed", deadLetterService.replay(clamp(limit), contractId)));
+    }
+
+    private static int clamp(int limit) {
+        return Math.max(1, Math.min(MAX_LIMIT, limit));
+    }
+}
@@ -1,12 +1,27 @@
 package com.fiap.contratAI_spring.controller;
 
+import com.fiap.contratAI_spring.config.AsyncConfig;
+import com.fiap.contratAI_spring.dto.AnalysisBatchDTO;
+import com.fiap.contratAI_spring.dto.AnalysisJobDTO;
 import com.fiap.contratAI_spring.dto.ContractDTO;
+import com.fiap.contratAI_spring.dto.ContractSummaryDTO;
 import com.fiap.contratAI_spring.dto.GenerateContractRequest;
+import com.fiap.contratAI_spring.dto.KeysetPageDTO;
+import com.fiap.contratAI_spring.dto.RevisionDTO;
+import com.fiap.contratAI_spring.dto.SearchResultDTO;
+import com.fiap.contratAI_spring.llm.LlmUnavailableException;
 import com.fiap.contratAI_spring.model.Contract;
 import com.fiap.contratAI_spring.model.GeneratedContract;
+import com.fiap.contratAI_spring.model.enums.ContractStatus;
 import com.fiap.contratAI_spring.repository.ContractRepository;
 import com.fiap.contratAI_spring.repository.GeneratedContractRepository;
+import com.fiap.contratAI_spring.search.ContractKind;
+import com.fiap.contratAI_spring.search.ContractSearchIndex;
+import com.fiap.contratAI_spring.service.AnalysisJobService;
+import com.fiap.contratAI_spring.service.BulkAnalysisService;
 import com.fiap.contratAI_spring.service.ContractAIService;
+import com.fiap.contratAI_spring.service.ContractContentStore;
+import com.fiap.contratAI_spring.service.RevisionAnalysisService;
 import com.fiap.contratAI_spring.service.UserService;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -18,11 +33,19 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -30,6 +53,18 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/v1/contracts")
@@ -37,21 +72,49 @@ import org.springframework.web.bind.annotation.*;
 @SecurityRequirement(name = "basicAuth")
 public class ContractController {
 
+        private static final Logger log = LoggerFactory.getLogger(ContractController.class);
+
+        private static final int MAX_STATUS_WAIT_SECONDS = 60;
+        private static final int MAX_SUMMARY_PAGE_SIZE = 200;
+        private static final int MAX_SEARCH_PAGE_SIZE = 100;
+        private static final int MAX_SEARCH_DEPTH = 1000;
+
         private final ContractAIService contractAIService;
         private final ContractRepository contractRepository;
         private final GeneratedContractRepository generatedContractRepository;
         private final UserService userService;
+        private final AnalysisJobService analysisJobService;
+        private final BulkAnalysisService bulkAnalysisService;
+        private final ContractContentStore contentStore;
+        private final ContractSearchIndex searchIndex;
+        private final RevisionAnalysisService revisionAnalysisService;
+        private final TaskExecutor llmStreamExecutor;
+        private final long streamTimeoutMs;
 
         public ContractController(
                         ContractAIService contractAIService,
                         ContractRepository contractRepository,
                         GeneratedContractRepository generatedContractRepository,
-                        UserService userService) {
+                        UserService userService,
+                        AnalysisJobService analysisJobService,
+                        BulkAnalysisService bulkAnalysisService,
+                        ContractContentStore contentStore,
+                        ContractSearchIndex searchIndex,
+                        RevisionAnalysisService revisionAnalysisService,
+                        @Qualifier(AsyncConfig.LLM_STREAM_EXECUTOR) TaskExecutor llmStreamExecutor,
+                        @Value("${contracts.stream.timeout-ms:600000}") long streamTimeoutMs) {
 
                 this.contractAIService = contractAIService;
                 this.contractRepository = contractRepository;
                 this.generatedContractRepository = generatedContractRepository;
                 this.userService = userService;
+                this.analysisJobService = analysisJobService;
+                this.bulkAnalysisService = bulkAnalysisService;
+                this.contentStore = contentStore;
+                this.searchIndex = searchIndex;
+                this.revisionAnalysisService = revisionAnalysisService;
+                this.llmStreamExecutor = llmStreamExecutor;
+                this.streamTimeoutMs = streamTimeoutMs;
         }
 
     @Operation(
@@ -67,7 +130,9 @@ public class ContractController {
             ),
             @ApiResponse(responseCode = "400", description = "Campo 'terms' inválido", content = @Content),
             @ApiResponse(responseCode = "401", description = "Não autenticado", content = @Content),
-            @ApiResponse(responseCode = "403", description = "Sem permissão", content = @Content)
+            @ApiResponse(responseCode = "403", description = "Sem permissão", content = @Content),
+            @ApiResponse(responseCode = "429", description = "Capacidade do LLM esgotada (ver Retry-After)", content = @Content),
+            @ApiResponse(responseCode = "503", description = "LLM indisponível (ver Retry-After)", content = @Content)
     })
     @PostMapping("/generate")
     @PreAuthorize("hasAnyRole('CLIENT', 'LAWYER', 'ADMIN')")
@@ -80,40 +145,105 @@ public class ContractController {
 
                 String generated = contractAIService.generateContract(request.terms());
 
+                saveGeneratedContract(request.terms(), generated, userService.getUserId(userDetails));
+
+                return ResponseEntity.ok(generated);
+    }
+
+    @Operation(
+            summary = "Gerar contrato usando IA (streaming)",
+            description = "Gera um contrato e envia os tokens via Server-Sent Events à medida que o modelo os produz. " +
+                    "Eventos: 'token' (fragmento de texto), 'done' (id do contrato salvo) e 'error'. " +
+                    "Disponível para CLIENT, LAWYER e ADMIN."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Stream de tokens iniciado",
+                    content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)
+            ),
+            @ApiResponse(responseCode = "400", description = "Campo 'terms' inválido", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Não autenticado", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Sem permissão", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Capacidade de streaming esgotada", content = @Content)
+    })
+    @PostMapping(value = "/generate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('CLIENT', 'LAWYER', 'ADMIN')")
+    public SseEmitter generateContractStream(@RequestBody GenerateContractRequest request,
+                                             @AuthenticationPrincipal UserDetails userDetails) {
+
+        if (request.terms() == null || request.terms().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "O campo 'terms' é obrigatório.");
+        }
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        Long userId = userService.getUserId(userDetails);
+
+        try {
+            llmStreamExecutor.execute(() -> {
                 try {
-                        com.fiap.contratAI_spring.model.User owner = userService.getUserByUsername(userDetails.getUsername());
-                        GeneratedContract gen = new GeneratedContract();
-                        gen.setContent(generated);
-                        String title = request.terms();
-                        if (title != null && title.length() > 120) {
-                                title = title.substring(0, 120);
+                    String generated = contractAIService.generateContractStream(request.terms(), token -> {
+                        try {
+                            emitter.send(SseEmitter.event().name("token").data(token));
+                        } catch (IOException e) {
+                            // cliente desconectou: interrompe a leitura do stream do Ollama, se ninguém mais aguarda a mesma geração
+                            throw new UncheckedIOException(e);
                         }
-                        gen.setTitle("Contrato gerado: " + (title == null ? "" : title));
-                        gen.setOwner(owner);
-                        gen.setStatus(com.fiap.contratAI_spring.model.enums.ContractStatus.ANALYZED);
-                        gen.setSourceTerms(request.terms());
+                    });
 
-                        generatedContractRepository.save(gen);
+                    Long id = saveGeneratedContract(request.terms(), generated, userId);
+
+                    emitter.send(SseEmitter.event().name("done").data(id == null ? "" : String.valueOf(id)));
+                    emitter.complete();
+                } catch (UncheckedIOException e) {
+                    log.info("Cliente encerrou o stream de geração: {}", e.getMessage());
+                    emitter.completeWithError(e);
+                } catch (LlmUnavailableException e) {
+                    // o stream já respondeu 200: o tempo de espera vai no campo 'retry' do evento
+                    log.info("Geração em streaming recusada: {}", e.getMessage());
+                    try {
+                        emitter.send(SseEmitter.event().name("error")
+                                .reconnectTime(Math.max(1, e.getRetryAfterSeconds()) * 1000)
+                                .data("Serviço de IA ocupado. Tente novamente em " + Math.max(1, e.getRetryAfterSeconds()) + "s."));
+                        emitter.complete();
+                    } catch (IOException | IllegalStateException sendError) {
+                        emitter.completeWithError(e);
+                    }
                 } catch (Exception e) {
-                        System.err.println("Falha ao salvar contrato gerado: " + e.getMessage());
+                    log.error("Falha na geração em streaming: {}", e.getMessage(), e);
+                    try {
+                        emitter.send(SseEmitter.event().name("error").data("Falha ao gerar contrato."));
+                        emitter.complete();
+                    } catch (IOException | IllegalStateException sendError) {
+                        emitter.completeWithError(e);
+                    }
                 }
+            });
+        } catch (TaskRejectedException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Muitas gerações simultâneas. Tente novamente.");
+        }
 
-                return ResponseEntity.ok(generated);
+        return emitter;
     }
 
     @Operation(
             summary = "Analisar contrato (AI)",
-            description = "Envia contrato para análise via RabbitMQ. Apenas LAWYER e ADMIN."
+            description = "Cria o contrato em PENDING e o envia para análise via RabbitMQ. Apenas LAWYER e ADMIN. " +
+                    "Retorna o id do job e o header Location com o endpoint de status."
     )
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "202", description = "Enviado para análise", content = @Content),
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Enviado para análise",
+                    content = @Content(schema = @Schema(implementation = AnalysisJobDTO.class))
+            ),
             @ApiResponse(responseCode = "400", description = "Contrato vazio", content = @Content),
             @ApiResponse(responseCode = "401", description = "Não autenticado", content = @Content),
             @ApiResponse(responseCode = "403", description = "Sem permissão", content = @Content)
     })
     @PostMapping("/analyze")
     @PreAuthorize("hasAnyRole('LAWYER', 'ADMIN')")
-    public ResponseEntity<String> analyzeContract(
+    public ResponseEntity<?> analyzeContract(
             @RequestBody String rawContract,
             @AuthenticationPrincipal UserDetails userDetails) {
 
@@ -121,11 +251,197 @@ public class ContractController {
             return ResponseEntity.badRequest().body("O contrato enviado está vazio.");
         }
 
-        Long userId = userService.getUserIdByUsername(userDetails.getUsername());
-        contractAIService.sendContractForAnalysis(rawContract, userId);
+        Long userId = userService.getUserId(userDetails);
+        AnalysisJobDTO job = analysisJobService.submit(rawContract, userId, userDetails.getAuthorities());
+
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/v1/contracts/{id}/status")
+                .buildAndExpand(job.id())
+                .toUri();
+
+        return ResponseEntity.accepted()
+                .location(location)
+                .body(job);
+    }
+
+    @Operation(
+            summary = "Analisar contratos em lote (upload)",
+            description = "Recebe arquivos .txt/.md ou ZIPs com eles na parte 'files', cria um contrato em PENDING por arquivo " +
+                    "e os envia para análise com prioridade de lote. Arquivos em outros formatos, vazios ou grandes demais são " +
+                    "ignorados e listados na resposta. Apenas LAWYER e ADMIN. " +
+                    "Retorna o progresso do lote e o header Location com o endpoint de acompanhamento."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Lote enviado para análise",
+                    content = @Content(schema = @Schema(implementation = AnalysisBatchDTO.class))
+            ),
+            @ApiResponse(responseCode = "400", description = "Nenhum arquivo analisável no upload", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Não autenticado", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Sem permissão", content = @Content)
+    })
+    @PostMapping(value = "/analyze/bulk", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAnyRole('LAWYER', 'ADMIN')")
+    public ResponseEntity<AnalysisBatchDTO> analyzeContractsBulk(
+            @RequestPart("files") List<MultipartFile> files,
+            @AuthenticationPrincipal UserDetails userDetails) throws IOException {
+
+        Long userId = userService.getUserId(userDetails);
+        AnalysisBatchDTO batch = bulkAnalysisService.submit(files, userId);
+        if (batch.totalContracts() == 0) {
+            return ResponseEntity.badRequest().body(batch);
+        }
+
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/v1/contracts/batches/{id}")
+                .buildAndExpand(batch.id())
+                .toUri();
+
+        return ResponseEntity.accepted()
+                .location(location)
+                .body(batch);
+    }
+
+    @Operation(
+            summary = "Progresso do lote de análise",
+            description = "Retorna quantos contratos do lote estão pendentes, analisados e com falha. " +
+                    "Disponível para o dono do lote e ADMIN."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Progresso atual",
+                    content = @Content(schema = @Schema(implementation = AnalysisBatchDTO.class))
+            ),
+            @ApiResponse(responseCode = "401", description = "Não autenticado", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Lote não encontrado", content = @Content)
+    })
+    @GetMapping("/batches/{id}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'LAWYER', 'CLIENT')")
+    public ResponseEntity<AnalysisBatchDTO> getBatchProgress(@PathVariable Long id,
+                                                             @AuthenticationPrincipal UserDetails userDetails) {
+
+        AnalysisBatchDTO batch = bulkAnalysisService.progress(id)
+                .filter(b -> isAdmin(userDetails) || b.ownerId().equals(userService.getUserId(userDetails)))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Lote não encontrado."));
+
+        return ResponseEntity.ok(batch);
+    }
+
+    @Operation(
+            summary = "Enviar revisão de contrato",
+            description = "Registra uma nova versão do contrato {id} e a analisa de forma incremental: só as cláusulas novas " +
+                    "ou alteradas vão para o LLM, e as demais mantêm a análise do original. Apenas LAWYER e ADMIN, " +
+                    "sobre contratos próprios (ADMIN em qualquer um). Retorna a revisão e o header Location para acompanhá-la."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Revisão registrada e enviada para análise",
+                    content = @Content(schema = @Schema(implementation = RevisionDTO.class))
+            ),
+            @ApiResponse(responseCode = "400", description = "Revisão vazia", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Não autenticado", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Sem permissão", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Contrato original não encontrado", content = @Content)
+    })
+    @PostMapping("/{id}/revisions")
+    @PreAuthorize("hasAnyRole('LAWYER', 'ADMIN')")
+    public ResponseEntity<?> submitRevision(
+            @PathVariable Long id,
+            @RequestBody String revisedContract,
+            @Parameter(description = "Título da revisão (padrão: título do original)")
+            @RequestParam(required = false) String title,
+            @AuthenticationPrincipal UserDetails userDetails) {
+
+        if (revisedContract == null || revisedContract.isBlank()) {
+            return ResponseEntity.badRequest().body("A revisão enviada está vazia.");
+        }
+
+        RevisionDTO revision = revisionAnalysisService
+                .submit(id, revisedContract, title, userService.getUserId(userDetails), userDetails.getAuthorities())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contrato não encontrado."));
+
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/v1/contracts/revisions/{id}")
+                .buildAndExpand(revision.id())
+                .toUri();
 
         return ResponseEntity.accepted()
-                .body("Análise enviada. O resultado será disponibilizado posteriormente.");
+                .location(location)
+                .body(revision);
+    }
+
+    @Operation(
+            summary = "Detalhar revisão",
+            description = "Retorna a revisão com o status e, quando concluída, a análise incremental e a contagem de " +
+                    "cláusulas alteradas, removidas e enviadas ao LLM. Disponível para o dono da revisão e ADMIN."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Revisão encontrada",
+                    content = @Content(schema = @Schema(implementation = RevisionDTO.class))
+            ),
+            @ApiResponse(responseCode = "401", description = "Não autenticado", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Revisão não encontrada", content = @Content)
+    })
+    @GetMapping("/revisions/{id}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'LAWYER', 'CLIENT')")
+    public ResponseEntity<RevisionDTO> getRevision(@PathVariable Long id,
+                                                   @AuthenticationPrincipal UserDetails userDetails) {
+
+        RevisionDTO revision = revisionAnalysisService.find(id)
+                .filter(r -> isAdmin(userDetails) || r.ownerId().equals(userService.getUserId(userDetails)))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Revisão não encontrada."));
+
+        return ResponseEntity.ok(revision);
+    }
+
+    @Operation(
+            summary = "Status da análise",
+            description = "Retorna apenas o status do contrato, sem o conteúdo. " +
+                    "Com 'waitSeconds' > 0 a requisição aguarda (long-poll) até a análise sair de PENDING ou o tempo esgotar. " +
+                    "Disponível para o dono do contrato e ADMIN."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Status atual",
+                    content = @Content(schema = @Schema(implementation = AnalysisJobDTO.class))
+            ),
+            @ApiResponse(responseCode = "401", description = "Não autenticado", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Contrato não encontrado", content = @Content)
+    })
+    @GetMapping("/{id}/status")
+    @PreAuthorize("hasAnyRole('ADMIN', 'LAWYER', 'CLIENT')")
+    public DeferredResult<ResponseEntity<AnalysisJobDTO>> getAnalysisStatus(
+            @PathVariable Long id,
+            @Parameter(description = "Tempo máximo de espera pela conclusão (0 a " + MAX_STATUS_WAIT_SECONDS + " segundos)")
+            @RequestParam(defaultValue = "0") int waitSeconds,
+            @AuthenticationPrincipal UserDetails userDetails) {
+
+        AnalysisJobDTO job = analysisJobService.findJob(id)
+                .filter(j -> canSee(j, userDetails))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contrato não encontrado."));
+
+        int wait = Math.max(0, Math.min(waitSeconds, MAX_STATUS_WAIT_SECONDS));
+        DeferredResult<ResponseEntity<AnalysisJobDTO>> result = new DeferredResult<>(wait * 1000L);
+
+        if (wait == 0 || job.status() != ContractStatus.PENDING) {
+            result.setResult(ResponseEntity.ok(job));
+            return result;
+        }
+
+        CompletableFuture<AnalysisJobDTO> finished = analysisJobService.awaitCompletion(id);
+        result.onTimeout(() -> result.setResult(ResponseEntity.ok(
+                analysisJobService.findJob(id).orElse(job))));
+        // timeout, erro ou cliente desconectado: libera o registro de espera
+        result.onCompletion(() -> analysisJobService.stopWaiting(id, finished));
+        finished.thenAccept(done -> result.setResult(ResponseEntity.ok(done)));
+
+        return result;
     }
 
     @Operation(
@@ -141,18 +457,144 @@ public class ContractController {
     @PreAuthorize("hasAnyRole('ADMIN', 'LAWYER', 'CLIENT')")
     public ResponseEntity<Page<ContractDTO>> getAllContracts(@ParameterObject Pageable pageable) {
 
-        Page<ContractDTO> page = contractRepository.findAll(pageable)
-                .map(c -> new ContractDTO(
-                        c.getId(),
-                        c.getTitle(),
-                        c.getContent(),
-                        c.getStatus().name(),
-                        c.getCreatedAt(),
-                        c.getOwner().getId(),
-                        c.getOwner().getName(),
-                        c.getOwner().getEmail()
-                ));
+        Page<ContractDTO> page = contractRepository.findPageWithContent(pageable)
+                .map(c -> new ContractDTO(c, contentStore.content(c)));
 
         return ResponseEntity.ok(page);
     }
+
+    @Operation(
+            summary = "Buscar contratos",
+            description = "Busca textual em contratos analisados, gerados e alterados, por relevância, com as cláusulas " +
+                    "que casaram destacadas com <mark>. Cada termo precisa aparecer na mesma cláusula ou no título; " +
+                    "aceita \"frase exata\", -excluir, prefixo* e a | b. Acentos e plurais são ignorados. " +
+                    "Cada usuário vê só os próprios contratos; ADMIN pode filtrar por 'ownerId' ou buscar em todos."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Página de resultados",
+                    content = @Content(schema = @Schema(implementation = SearchResultDTO.class))
+            ),
+            @ApiResponse(responseCode = "400", description = "Parâmetro 'q' ausente ou página além do limite", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Não autenticado", content = @Content)
+    })
+    @GetMapping("/search")
+    @PreAuthorize("hasAnyRole('ADMIN', 'LAWYER', 'CLIENT')")
+    public ResponseEntity<SearchResultDTO> searchContracts(
+            @RequestParam String q,
+            @RequestParam(required = false) ContractKind kind,
+            @Parameter(description = "Apenas para ADMIN") @RequestParam(required = false) Long ownerId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @AuthenticationPrincipal UserDetails userDetails) {
+
+        if (q.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "O parâmetro 'q' é obrigatório.");
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_SEARCH_PAGE_SIZE));
+        int pageNumber = Math.max(0, page);
+        if ((long) pageNumber * pageSize >= MAX_SEARCH_DEPTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Só os primeiros " + MAX_SEARCH_DEPTH + " resultados são paginados; refine a busca.");
+        }
+        Long owner = isAdmin(userDetails) ? ownerId : userService.getUserId(userDetails);
+
+        return ResponseEntity.ok(searchIndex.search(q, owner, kind, pageNumber, pageSize));
+    }
+
+    @Operation(
+            summary = "Listar contratos (resumo)",
+            description = "Lista contratos sem o conteúdo, mais recentes primeiro, com paginação por keyset. " +
+                    "Para a próxima página envie 'nextCreatedAt' e 'nextId' da resposta como 'afterCreatedAt' e 'afterId'. " +
+                    "Permitido para qualquer usuário autenticado."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Página retornada", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Cursor incompleto", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Não autenticado", content = @Content)
+    })
+    @GetMapping("/summary")
+    @PreAuthorize("hasAnyRole('ADMIN', 'LAWYER', 'CLIENT')")
+    public ResponseEntity<KeysetPageDTO<ContractSummaryDTO>> getContractSummaries(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterCreatedAt,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "20") int size) {
+
+        if ((afterCreatedAt == null) != (afterId == null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Informe 'afterCreatedAt' e 'afterId' juntos.");
+        }
+
+        int pageSize = Math.max(1, Math.min(size, MAX_SUMMARY_PAGE_SIZE));
+        // busca um item a mais para saber se existe próxima página
+        List<ContractSummaryDTO> rows = contractRepository.findSummaryPage(afterCreatedAt, afterId, pageSize + 1);
+
+        boolean hasNext = rows.size() > pageSize;
+        List<ContractSummaryDTO> items = hasNext ? rows.subList(0, pageSize) : rows;
+        ContractSummaryDTO last = items.isEmpty() ? null : items.get(items.size() - 1);
+
+        return ResponseEntity.ok(new KeysetPageDTO<>(
+                items,
+                hasNext,
+                hasNext ? last.createdAt() : null,
+                hasNext ? last.id() : null));
+    }
+
+    @Operation(
+            summary = "Detalhar contrato",
+            description = "Retorna o contrato completo, incluindo o conteúdo. Disponível para o dono do contrato e ADMIN."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Contrato encontrado", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Não autenticado", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Contrato não encontrado", content = @Content)
+    })
+    @GetMapping("/{id}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'LAWYER', 'CLIENT')")
+    public ResponseEntity<ContractDTO> getContract(@PathVariable Long id,
+                                                   @AuthenticationPrincipal UserDetails userDetails) {
+
+        Contract c = contractRepository.findWithOwnerById(id)
+                .filter(contract -> isAdmin(userDetails)
+                        || contract.getOwner().getId().equals(userService.getUserId(userDetails)))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contrato não encontrado."));
+
+        return ResponseEntity.ok(new ContractDTO(c, contentStore.content(c)));
+    }
+
+        /**
+         * Persiste o contrato gerado. Falhas são registradas e não interrompem a resposta ao usuário.
+         *
+         * @return id do {@link GeneratedContract} salvo, ou {@code null} em caso de falha
+         */
+        private Long saveGeneratedContract(String terms, String generated, Long userId) {
+                try {
+                        com.fiap.contratAI_spring.model.User owner = userService.getUserReference(userId);
+                        GeneratedContract gen = new GeneratedContract();
+                        contentStore.setContent(gen, generated);
+                        String title = terms;
+                        if (title != null && title.length() > 120) {
+                                title = title.substring(0, 120);
+                        }
+                        gen.setTitle("Contrato gerado: " + (title == null ? "" : title));
+                        gen.setOwner(owner);
+                        gen.setStatus(com.fiap.contratAI_spring.model.enums.ContractStatus.ANALYZED);
+                        gen.setSourceTerms(terms);
+
+                        return generatedContractRepository.save(gen).getId();
+                } catch (Exception e) {
+                        log.error("Falha ao salvar contrato gerado: {}", e.getMessage(), e);
+                        return null;
+                }
+        }
+
+        private boolean canSee(AnalysisJobDTO job, UserDetails userDetails) {
+                return isAdmin(userDetails)
+                        || job.ownerId().equals(userService.getUserId(userDetails));
+        }
+
+        private static boolean isAdmin(UserDetails userDetails) {
+                return userDetails.getAuthorities().stream()
+                        .anyMatch(a -> "ROLE_ADMIN".equals(a.getAuthority()));
+        }
 }
@@ -0,0 +1,43 @@
+package com.fiap.contratAI_spring.controller;
+
+import com.fiap.contratAI_spring.llm.LlmOverloadedException;
+import com.fiap.contratAI_spring.llm.LlmUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Traduz a indisponibilidade do LLM em respostas que o cliente sabe tratar: 429 quando o limite de
+ * chamadas simultâneas está cheio e 503 quando o circuit breaker está aberto, ambos com {@code Retry-After}.
+ */
+@RestControllerAdvice
+public class LlmExceptionHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmExceptionHandler.class);
+
+    @ExceptionHandler(LlmOverloadedException.class)
+    public ResponseEntity<String> handleOverloaded(LlmOverloadedException e) {
+        log.info("Requisição recusada por falta de capacidade do LLM: {}", e.getMessage());
+        return withRetryAfter(HttpStatus.TOO_MANY_REQUESTS, e)
+                .body("Muitas gerações simultâneas. Tente novamente em " + e.getRetryAfterSeconds() + "s.");
+    }
+
+    @ExceptionHandler(LlmUnavailableException.class)
+    public ResponseEntity<String> handleUnavailable(LlmUnavailableException e) {
+        log.warn("Requisição recusada com o LLM indisponível: {}", e.getMessage());
+        return withRetryAfter(HttpStatus.SERVICE_UNAVAILABLE, e)
+                .body("Serviço de IA temporariamente indisponível. Tente novamente mais tarde.");
+    }
+
+    private static ResponseEntity.BodyBuilder withRetryAfter(HttpStatus status, LlmUnavailableException e) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(status);
+        if (e.getRetryAfterSeconds() > 0) {
+            builder.header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+        }
+        return builder;
+    }
+}
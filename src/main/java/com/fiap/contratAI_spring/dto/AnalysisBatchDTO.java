@@ -0,0 +1,20 @@
+package com.fiap.contratAI_spring.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Progresso agregado de um lote de análise: quantos contratos ainda estão na fila, quantos foram
+ * analisados e quantos falharam, além dos arquivos do upload que foram ignorados.
+ */
+public record AnalysisBatchDTO(
+        Long id,
+        Long ownerId,
+        LocalDateTime createdAt,
+        int totalContracts,
+        long pending,
+        long analyzed,
+        long failed,
+        int skippedFiles,
+        List<String> skipped
+) {}
@@ -0,0 +1,12 @@
+package com.fiap.contratAI_spring.dto;
+
+import com.fiap.contratAI_spring.model.enums.ContractStatus;
+
+import java.time.LocalDateTime;
+
+public record AnalysisJobDTO(
+        Long id,
+        ContractStatus status,
+        LocalDateTime createdAt,
+        Long ownerId
+) {}
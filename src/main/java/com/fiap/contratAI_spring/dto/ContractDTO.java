@@ -1,5 +1,7 @@
 package com.fiap.contratAI_spring.dto;
 
+import com.fiap.contratAI_spring.model.Contract;
+
 import java.time.LocalDateTime;
 
 public record ContractDTO(
@@ -11,4 +13,20 @@ public record ContractDTO(
         Long ownerId,
         String ownerName,
         String ownerEmail
-) {}
+) {
+    /**
+     * @param content conteúdo já resolvido por {@link com.fiap.contratAI_spring.service.ContractContentStore#content(Contract)}
+     */
+    public ContractDTO(Contract c, String content) {
+        this(
+                c.getId(),
+                c.getTitle(),
+                content,
+                c.getStatus().name(),
+                c.getCreatedAt(),
+                c.getOwner().getId(),
+                c.getOwner().getName(),
+                c.getOwner().getEmail()
+        );
+    }
+}
@@ -0,0 +1,23 @@
+package com.fiap.contratAI_spring.dto;
+
+import com.fiap.contratAI_spring.model.enums.ContractStatus;
+import com.fiap.contratAI_spring.search.ContractKind;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record ContractSearchHitDTO(
+        ContractKind kind,
+        Long id,
+        String title,
+        ContractStatus status,
+        LocalDateTime createdAt,
+        Long ownerId,
+        float score,
+        List<ClauseMatch> clauses
+) {
+    /**
+     * Cláusula do contrato que casou com a busca, com os termos destacados em {@code <mark>}.
+     */
+    public record ClauseMatch(int number, String heading, String highlight) {}
+}
@@ -0,0 +1,15 @@
+package com.fiap.contratAI_spring.dto;
+
+import com.fiap.contratAI_spring.model.enums.ContractStatus;
+
+import java.time.LocalDateTime;
+
+public record ContractSummaryDTO(
+        Long id,
+        String title,
+        ContractStatus status,
+        LocalDateTime createdAt,
+        Long ownerId,
+        String ownerName,
+        String ownerEmail
+) {}
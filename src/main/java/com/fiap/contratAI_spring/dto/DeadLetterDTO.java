@@ -0,0 +1,15 @@
+package com.fiap.contratAI_spring.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mensagem de análise na DLQ, sem o conteúdo do contrato.
+ */
+public record DeadLetterDTO(
+        Long contractId,
+        Long userId,
+        int attempts,
+        String error,
+        LocalDateTime deadLetteredAt,
+        int sizeChars
+) {}
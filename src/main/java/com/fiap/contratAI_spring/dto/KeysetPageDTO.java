@@ -0,0 +1,15 @@
+package com.fiap.contratAI_spring.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Página de uma listagem por keyset (seek). Para buscar a próxima página, envie
+ * {@code nextCreatedAt} e {@code nextId} como {@code afterCreatedAt} e {@code afterId}.
+ */
+public record KeysetPageDTO<T>(
+        List<T> items,
+        boolean hasNext,
+        LocalDateTime nextCreatedAt,
+        Long nextId
+) {}
@@ -0,0 +1,21 @@
+package com.fiap.contratAI_spring.dto;
+
+import com.fiap.contratAI_spring.model.enums.ContractStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Revisão de um contrato e sua análise incremental ({@code analysis} é {@code null} enquanto PENDING).
+ */
+public record RevisionDTO(
+        Long id,
+        Long originalContractId,
+        Long ownerId,
+        String title,
+        ContractStatus status,
+        LocalDateTime createdAt,
+        Integer changedClauses,
+        Integer removedClauses,
+        Integer analyzedClauses,
+        String analysis
+) {}
@@ -0,0 +1,10 @@
+package com.fiap.contratAI_spring.dto;
+
+import java.util.List;
+
+public record SearchResultDTO(
+        List<ContractSearchHitDTO> items,
+        long totalHits,
+        int page,
+        int size
+) {}
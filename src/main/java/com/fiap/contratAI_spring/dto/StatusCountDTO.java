@@ -0,0 +1,8 @@
+package com.fiap.contratAI_spring.dto;
+
+import com.fiap.contratAI_spring.model.enums.ContractStatus;
+
+public record StatusCountDTO(
+        ContractStatus status,
+        Long count
+) {}
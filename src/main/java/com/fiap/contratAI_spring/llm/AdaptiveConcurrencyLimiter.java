@@ -0,0 +1,274 @@
+package com.fiap.contratAI_spring.llm;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limite adaptativo (AIMD) de chamadas simultâneas ao LLM, no lugar do semáforo fixo.
+ *
+ * <p>O Ollama não recusa requisições quando está cheio: enfileira internamente e a latência de todas
+ * cresce. Por isso o limite é guiado pela latência observada, normalizada pelo tamanho da resposta
+ * (a geração domina o tempo): enquanto a latência por caractere fica até {@code llm.limiter.latency-tolerance}
+ * vezes a mínima recente, o limite sobe em +1 a cada "janela" de {@code limite} respostas; acima disso,
+ * ou em caso de erro/timeout, cai para {@code limite × llm.limiter.backoff-ratio}. O limite começa em
+ * {@code ollama.max-in-flight} e fica entre {@code llm.limiter.min-limit} e {@code llm.limiter.max-limit}.
+ *
+ * <p>Sem vaga, quem chama espera até o prazo informado em {@link #acquire(long)} e então falha com
+ * {@link LlmOverloadedException}, com uma estimativa de {@code Retry-After}. Se já houver
+ * {@code llm.limiter.max-queue} chamadas esperando, falha na hora.
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    /**
+     * Respostas mais curtas que isto não alimentam o limite: a latência delas é quase só o prefill.
+     */
+    static final int MIN_SAMPLE_CHARS = 64;
+
+    /**
+     * A latência mínima de referência é recalculada a cada tantas amostras, para acompanhar mudanças
+     * de modelo ou de hardware.
+     */
+    private static final int BASELINE_WINDOW = 100;
+
+    private static final long MAX_RETRY_AFTER_SECONDS = 600;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final double backoffRatio;
+    private final int maxQueue;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Counter rejected;
+
+    private double limit;
+    private int inFlight;
+    private int waiting;
+    private double baselineNanosPerChar = Double.NaN;
+    private double windowMinNanosPerChar = Double.MAX_VALUE;
+    private int windowSamples;
+    private double avgLatencyNanos;
+
+    public AdaptiveConcurrencyLimiter(@Value("${ollama.max-in-flight:4}") int initialLimit,
+                                      @Value("${llm.limiter.max-limit:8}") int maxLimit,
+                                      @Value("${llm.limiter.min-limit:1}") int minLimit,
+                                      @Value("${llm.limiter.latency-tolerance:2.0}") double latencyTolerance,
+                                      @Value("${llm.limiter.backoff-ratio:0.9}") double backoffRatio,
+                                      @Value("${llm.limiter.max-queue:100}") int maxQueue,
+                                      MeterRegistry meterRegistry) {
+        this.maxLimit = Math.max(Math.max(1, initialLimit), maxLimit);
+        this.minLimit = Math.max(1, Math.min(this.maxLimit, minLimit));
+        this.latencyTolerance = Math.max(1.0, latencyTolerance);
+        this.backoffRatio = Math.min(0.99, Math.max(0.1, backoffRatio));
+        this.maxQueue = Math.max(0, maxQueue);
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+
+        Gauge.builder("llm.limiter.limit", this, AdaptiveConcurrencyLimiter::limit)
+                .description("Limite atual de chamadas simultâneas ao LLM")
+                .register(meterRegistry);
+        Gauge.builder("llm.limiter.inflight", this, AdaptiveConcurrencyLimiter::inFlight)
+                .description("Chamadas ao LLM em andamento")
+                .register(meterRegistry);
+        Gauge.builder("llm.limiter.queued", this, AdaptiveConcurrencyLimiter::waiting)
+                .description("Chamadas aguardando vaga no limite do LLM")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("llm.limiter.rejected")
+                .description("Chamadas recusadas por falta de vaga no limite do LLM")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reserva uma vaga, esperando no máximo {@code maxWaitMs} (0 = não espera). Toda vaga deve terminar
+     * em {@link Permit#onSuccess(int)}, {@link Permit#onDropped()} ou {@link Permit#onIgnore()}.
+     *
+     * @throws LlmOverloadedException se não houver vaga dentro do prazo
+     */
+    public Permit acquire(long maxWaitMs) throws InterruptedException {
+        lock.lock();
+        try {
+            if (inFlight >= currentLimit()) {
+                if (maxWaitMs <= 0 || waiting >= maxQueue) {
+                    throw reject();
+                }
+                long remaining = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+                waiting++;
+                try {
+                    while (inFlight >= currentLimit()) {
+                        if (remaining <= 0) {
+                            throw reject();
+                        }
+                        remaining = available.awaitNanos(remaining);
+                    }
+                } finally {
+                    waiting--;
+                }
+            }
+            inFlight++;
+            return new Permit(inFlight);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int limit() {
+        lock.lock();
+        try {
+            return currentLimit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int waiting() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deve ser chamado com o lock.
+     */
+    private int currentLimit() {
+        return Math.max(minLimit, (int) limit);
+    }
+
+    /**
+     * Deve ser chamado com o lock.
+     */
+    private LlmOverloadedException reject() {
+        rejected.increment();
+        // tempo para esvaziar a fila à frente, com a latência média atual
+        int slots = currentLimit();
+        long estimateNanos = (long) (avgLatencyNanos * (waiting + 1) / slots);
+        long seconds = Math.min(MAX_RETRY_AFTER_SECONDS, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(estimateNanos)));
+        return new LlmOverloadedException("Capacidade do LLM esgotada (" + inFlight + " chamadas em andamento).", seconds);
+    }
+
+    private void release(int inFlightAtStart, long latencyNanos, int responseChars, boolean dropped, boolean ignored) {
+        int before;
+        int after;
+        lock.lock();
+        try {
+            inFlight--;
+            before = currentLimit();
+            if (dropped) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (!ignored) {
+                avgLatencyNanos = avgLatencyNanos == 0 ? latencyNanos : avgLatencyNanos * 0.9 + latencyNanos * 0.1;
+                if (responseChars >= MIN_SAMPLE_CHARS) {
+                    adjust(latencyNanos / (double) responseChars, inFlightAtStart);
+                }
+            }
+            after = currentLimit();
+            if (after > before) {
+                available.signalAll();
+            } else {
+                available.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (after < before) {
+            log.info("Limite de chamadas ao LLM reduzido de {} para {}", before, after);
+        } else if (after > before) {
+            log.debug("Limite de chamadas ao LLM ampliado de {} para {}", before, after);
+        }
+    }
+
+    /**
+     * Deve ser chamado com o lock.
+     */
+    private void adjust(double nanosPerChar, int inFlightAtStart) {
+        windowMinNanosPerChar = Math.min(windowMinNanosPerChar, nanosPerChar);
+        if (++windowSamples >= BASELINE_WINDOW) {
+            baselineNanosPerChar = windowMinNanosPerChar;
+            windowMinNanosPerChar = Double.MAX_VALUE;
+            windowSamples = 0;
+        }
+        if (Double.isNaN(baselineNanosPerChar) || nanosPerChar < baselineNanosPerChar) {
+            baselineNanosPerChar = nanosPerChar;
+        }
+
+        if (nanosPerChar > baselineNanosPerChar * latencyTolerance) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (inFlightAtStart * 2 >= currentLimit()) {
+            // só cresce se o limite estava sendo usado; ociosidade não prova que há capacidade sobrando
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    /**
+     * Vaga reservada por {@link #acquire(long)}. Liberar mais de uma vez não tem efeito.
+     */
+    public final class Permit {
+
+        private final int inFlightAtStart;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * Chamada concluída; a latência alimenta o limite.
+         */
+        public void onSuccess(int responseChars) {
+            onSuccess(responseChars, System.nanoTime() - startNanos);
+        }
+
+        void onSuccess(int responseChars, long latencyNanos) {
+            if (markReleased()) {
+                release(inFlightAtStart, latencyNanos, responseChars, false, false);
+            }
+        }
+
+        /**
+         * Erro ou timeout do LLM: reduz o limite.
+         */
+        public void onDropped() {
+            if (markReleased()) {
+                release(inFlightAtStart, 0, 0, true, false);
+            }
+        }
+
+        /**
+         * Chamada interrompida por motivo alheio ao LLM (ex.: cliente desconectou): só libera a vaga.
+         */
+        public void onIgnore() {
+            if (markReleased()) {
+                release(inFlightAtStart, 0, 0, false, true);
+            }
+        }
+
+        private boolean markReleased() {
+            return released.compareAndSet(false, true);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.fiap.contratAI_spring.llm;
+
+/**
+ * Backend de embeddings usado na detecção de contratos quase duplicados
+ * ({@link com.fiap.contratAI_spring.service.DuplicateAnalysisService}). Segue o {@code llm.provider}:
+ * Ollama (endpoint /api/embed) por padrão, ou um stub local sem rede.
+ */
+public interface EmbeddingProvider {
+
+    /**
+     * Nome do modelo de embedding; vetores de modelos diferentes não são comparados.
+     */
+    String modelName();
+
+    /**
+     * Vetor do texto, normalizado para norma 1 (similaridade de cosseno = produto escalar).
+     *
+     * @throws RuntimeException se o backend falhar ou retornar resposta inválida
+     */
+    float[] embed(String text);
+
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm == 0) {
+            throw new IllegalArgumentException("Embedding com norma zero");
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        float[] unit = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = vector[i] * scale;
+        }
+        return unit;
+    }
+}
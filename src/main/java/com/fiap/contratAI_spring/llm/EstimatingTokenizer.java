@@ -0,0 +1,79 @@
+package com.fiap.contratAI_spring.llm;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link Tokenizer} sem vocabulário, para quando o arquivo do modelo não está disponível
+ * ({@code llm.tokenizer=estimate}, o padrão). Cada palavra custa um token a cada
+ * {@code llm.tokenizer.chars-per-token} letras (no mínimo um), cada pontuação ou símbolo custa um
+ * token e espaços saem de graça, o que acompanha melhor o texto jurídico (palavras longas, muita
+ * pontuação e numeração) do que dividir o total de caracteres por uma razão fixa.
+ */
+@Component
+@ConditionalOnProperty(name = "llm.tokenizer", havingValue = "estimate", matchIfMissing = true)
+public class EstimatingTokenizer implements Tokenizer {
+
+    private final double charsPerToken;
+
+    public EstimatingTokenizer(@Value("${llm.tokenizer.chars-per-token:3.5}") double charsPerToken) {
+        if (charsPerToken <= 0) {
+            throw new IllegalArgumentException("llm.tokenizer.chars-per-token deve ser positivo.");
+        }
+        this.charsPerToken = charsPerToken;
+    }
+
+    @Override
+    public String name() {
+        return "estimate(" + charsPerToken + " chars/token)";
+    }
+
+    @Override
+    public boolean isEstimate() {
+        return true;
+    }
+
+    @Override
+    public int count(CharSequence text) {
+        return scan(text, Integer.MAX_VALUE)[0];
+    }
+
+    @Override
+    public int prefixLength(CharSequence text, int maxTokens) {
+        return scan(text, maxTokens)[1];
+    }
+
+    /**
+     * @return tokens contados e caracteres consumidos até o fim do texto ou até o próximo token passar de {@code maxTokens}
+     */
+    private int[] scan(CharSequence text, int maxTokens) {
+        int length = text.length();
+        int tokens = 0;
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            int end = i + 1;
+            int cost;
+            if (Character.isWhitespace(c)) {
+                cost = 0;
+            } else if (Character.isLetterOrDigit(c)) {
+                while (end < length && Character.isLetterOrDigit(text.charAt(end))) end++;
+                cost = (int) Math.ceil((end - i) / charsPerToken);
+            } else {
+                cost = 1;
+            }
+            if (tokens + cost > maxTokens) {
+                // palavra que não cabe inteira entra até onde couber
+                if (cost > 1 && tokens < maxTokens) {
+                    i += (int) ((maxTokens - tokens) * charsPerToken);
+                    tokens = maxTokens;
+                }
+                return new int[]{tokens, i};
+            }
+            tokens += cost;
+            i = end;
+        }
+        return new int[]{tokens, length};
+    }
+}
@@ -0,0 +1,172 @@
+package com.fiap.contratAI_spring.llm;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Circuit breaker das chamadas ao {@link LlmProvider}.
+ *
+ * <p>Após {@code llm.circuit.failure-threshold} falhas seguidas o circuito abre e as chamadas falham
+ * imediatamente com {@link LlmUnavailableException} durante {@code llm.circuit.open-ms}. Depois disso
+ * uma única chamada de teste é liberada (HALF_OPEN): sucesso fecha o circuito, falha o abre de novo.
+ * Ouvintes registrados em {@link #addListener} são avisados a cada mudança de estado
+ * (ex.: para pausar os consumidores da fila).
+ */
+@Component
+public class LlmCircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmCircuitBreaker.class);
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Consumer<State>> listeners = new CopyOnWriteArrayList<>();
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private boolean probeInFlight;
+
+    public LlmCircuitBreaker(@Value("${llm.circuit.failure-threshold:5}") int failureThreshold,
+                             @Value("${llm.circuit.open-ms:30000}") long openMs,
+                             MeterRegistry meterRegistry) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, openMs));
+        Gauge.builder("llm.circuit.state", this, breaker -> breaker.state().ordinal())
+                .description("Estado do circuit breaker do LLM (0=fechado, 1=meio-aberto, 2=aberto)")
+                .register(meterRegistry);
+    }
+
+    public void addListener(Consumer<State> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Estado atual; um circuito aberto há mais de {@code llm.circuit.open-ms} passa a HALF_OPEN.
+     */
+    public State state() {
+        State changed;
+        lock.lock();
+        try {
+            changed = expireOpen();
+        } finally {
+            lock.unlock();
+        }
+        notifyListeners(changed);
+        return changed != null ? changed : currentState();
+    }
+
+    /**
+     * Libera a chamada ou falha com {@link LlmCircuitOpenException}. Toda chamada liberada deve
+     * terminar em {@link #onSuccess()} ou {@link #onFailure(Throwable)}.
+     */
+    public void acquirePermission() {
+        State changed = null;
+        lock.lock();
+        try {
+            changed = expireOpen();
+            if (state == State.OPEN || (state == State.HALF_OPEN && probeInFlight)) {
+                throw new LlmCircuitOpenException("LLM indisponível (circuit breaker aberto).", retryAfterSeconds());
+            }
+            if (state == State.HALF_OPEN) {
+                probeInFlight = true;
+            }
+        } finally {
+            lock.unlock();
+            notifyListeners(changed);
+        }
+    }
+
+    public void onSuccess() {
+        State changed = null;
+        lock.lock();
+        try {
+            consecutiveFailures = 0;
+            probeInFlight = false;
+            if (state != State.CLOSED) {
+                state = State.CLOSED;
+                changed = State.CLOSED;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (changed != null) {
+            log.info("Circuit breaker do LLM fechado");
+        }
+        notifyListeners(changed);
+    }
+
+    public void onFailure(Throwable error) {
+        State changed = null;
+        lock.lock();
+        try {
+            consecutiveFailures++;
+            boolean probeFailed = state == State.HALF_OPEN;
+            probeInFlight = false;
+            if (probeFailed || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+                state = State.OPEN;
+                openedAtNanos = System.nanoTime();
+                changed = State.OPEN;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (changed != null) {
+            log.warn("Circuit breaker do LLM aberto após {} falha(s) seguidas: {}", consecutiveFailures, error.getMessage());
+        }
+        notifyListeners(changed);
+    }
+
+    private State currentState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deve ser chamado com o lock. Tempo até a próxima chamada de teste, arredondado para cima.
+     */
+    private long retryAfterSeconds() {
+        if (state != State.OPEN) return 1;
+        long remainingNanos = openNanos - (System.nanoTime() - openedAtNanos);
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remainingNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    /**
+     * Deve ser chamado com o lock. Retorna o novo estado se houve transição.
+     */
+    private State expireOpen() {
+        if (state == State.OPEN && System.nanoTime() - openedAtNanos >= openNanos) {
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+            return State.HALF_OPEN;
+        }
+        return null;
+    }
+
+    private void notifyListeners(State changed) {
+        if (changed == null) return;
+        for (Consumer<State> listener : listeners) {
+            try {
+                listener.accept(changed);
+            } catch (RuntimeException e) {
+                log.warn("Falha ao notificar mudança do circuit breaker: {}", e.getMessage());
+            }
+        }
+    }
+}
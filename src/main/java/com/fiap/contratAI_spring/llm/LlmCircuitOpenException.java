@@ -0,0 +1,12 @@
+package com.fiap.contratAI_spring.llm;
+
+/**
+ * Chamada recusada pelo {@link LlmCircuitBreaker} sem chegar ao LLM (circuito aberto, ou a chamada de teste
+ * do HALF_OPEN já em andamento). Na fila de análise a mensagem volta pela fila de espera sem contar tentativa.
+ */
+public class LlmCircuitOpenException extends LlmUnavailableException {
+
+    public LlmCircuitOpenException(String message, long retryAfterSeconds) {
+        super(message, retryAfterSeconds);
+    }
+}
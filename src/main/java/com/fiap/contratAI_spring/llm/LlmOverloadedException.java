@@ -0,0 +1,13 @@
+package com.fiap.contratAI_spring.llm;
+
+/**
+ * O limite adaptativo de chamadas ao LLM está cheio e o prazo de espera acabou (ou a fila de espera
+ * está lotada). Na API vira 429 com {@code Retry-After}; na fila de análise, um retry como qualquer
+ * outra {@link LlmUnavailableException}.
+ */
+public class LlmOverloadedException extends LlmUnavailableException {
+
+    public LlmOverloadedException(String message, long retryAfterSeconds) {
+        super(message, retryAfterSeconds);
+    }
+}
@@ -0,0 +1,34 @@
+package com.fiap.contratAI_spring.llm;
+
+import java.util.function.Consumer;
+
+/**
+ * Backend de geração de texto usado pelo {@link com.fiap.contratAI_spring.service.ContractAIService}.
+ * Selecionado por {@code llm.provider} ({@code ollama} por padrão, ou {@code stub} para testes locais).
+ * Implementações recebem o prompt já sanitizado e truncado; cache, limite de concorrência e
+ * templates ficam no serviço.
+ */
+public interface LlmProvider {
+
+    /**
+     * Nome do modelo, usado na chave do cache de respostas.
+     */
+    String modelName();
+
+    /**
+     * Gera a resposta completa para o prompt.
+     *
+     * @param operation operação (tag das métricas)
+     * @throws RuntimeException se o backend falhar ou retornar resposta inválida
+     */
+    String generate(String operation, String prompt);
+
+    /**
+     * Gera a resposta repassando cada fragmento a {@code onToken} assim que chega.
+     * Se {@code onToken} lançar exceção, a geração é abortada.
+     *
+     * @param operation operação (tag das métricas)
+     * @return texto completo concatenado
+     */
+    String generateStream(String operation, String prompt, Consumer<String> onToken);
+}
@@ -0,0 +1,31 @@
+package com.fiap.contratAI_spring.llm;
+
+/**
+ * Falha transitória do LLM: circuit breaker aberto ou capacidade esgotada. A operação pode ser
+ * repetida mais tarde — o listener da fila reagenda a análise em vez de marcá-la como FAILED.
+ */
+public class LlmUnavailableException extends RuntimeException {
+
+    /**
+     * Sugestão de espera antes de tentar de novo, em segundos (0 quando desconhecida).
+     */
+    private final long retryAfterSeconds;
+
+    public LlmUnavailableException(String message) {
+        this(message, 0);
+    }
+
+    public LlmUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = Math.max(0, retryAfterSeconds);
+    }
+
+    public LlmUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+        this.retryAfterSeconds = 0;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,115 @@
+package com.fiap.contratAI_spring.llm;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.ConnectException;
+
+/**
+ * {@link EmbeddingProvider} do Ollama (endpoint /api/embed), nos mesmos hosts do {@link OllamaEndpointPool}.
+ * O texto inteiro é embutido: ele vai em trechos de até {@code ollama.embedding-max-chars} (o modelo de
+ * embedding trunca no seu contexto) em uma única chamada, e o vetor do contrato é a média dos vetores dos
+ * trechos, ponderada pelo tamanho de cada um. Assim uma cláusula alterada no fim do contrato também pesa.
+ */
+@Component
+@ConditionalOnProperty(name = "llm.provider", havingValue = "ollama", matchIfMissing = true)
+public class OllamaEmbeddingProvider implements EmbeddingProvider {
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    private final OllamaEndpointPool pool;
+    private final String modelName;
+    private final int maxChars;
+
+    public OllamaEmbeddingProvider(OllamaEndpointPool pool,
+                                   @Value("${ollama.embedding-model:nomic-embed-text}") String modelName,
+                                   @Value("${ollama.embedding-max-chars:8000}") int maxChars) {
+        this.pool = pool;
+        this.modelName = modelName;
+        this.maxChars = Math.max(1, maxChars);
+    }
+
+    @Override
+    public String modelName() {
+        return modelName;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        OllamaEndpointPool.Endpoint endpoint = pool.acquire(null);
+        boolean reachable = true;
+        try (Response response = pool.httpClient().newCall(buildEmbedRequest(endpoint.baseUrl(), text)).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("Erro na chamada de embedding do Ollama: HTTP " + response.code());
+            }
+            return parseEmbedding(JsonParser.parseReader(body.charStream()).getAsJsonObject(), text.length(), maxChars);
+        } catch (ConnectException e) {
+            reachable = false;
+            throw new RuntimeException("Erro ao chamar embedding do Ollama: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao chamar embedding do Ollama: " + e.getMessage(), e);
+        } finally {
+            pool.release(endpoint, reachable);
+        }
+    }
+
+    Request buildEmbedRequest(String baseUrl, String text) {
+        JsonObject requestBody = new JsonObject();
+        requestBody.addProperty("model", modelName);
+        JsonArray input = new JsonArray();
+        for (int start = 0; start < text.length(); start += maxChars) {
+            input.add(text.substring(start, Math.min(text.length(), start + maxChars)));
+        }
+        if (input.isEmpty()) {
+            input.add("");
+        }
+        requestBody.add("input", input);
+
+        return new Request.Builder()
+                .url(baseUrl + "/api/embed")
+                .post(RequestBody.create(requestBody.toString(), JSON))
+                .build();
+    }
+
+    /**
+     * Média dos vetores dos trechos (cada um normalizado), ponderada pelo número de caracteres do trecho.
+     */
+    static float[] parseEmbedding(JsonObject response, int textLength, int chunkChars) {
+        JsonArray embeddings = response.getAsJsonArray("embeddings");
+        if (embeddings == null || embeddings.isEmpty()) {
+            throw new IllegalStateException("Resposta de embedding do Ollama sem 'embeddings'");
+        }
+        float[] pooled = null;
+        for (int chunk = 0; chunk < embeddings.size(); chunk++) {
+            JsonArray values = embeddings.get(chunk).getAsJsonArray();
+            float[] vector = new float[values.size()];
+            int i = 0;
+            for (JsonElement value : values) {
+                vector[i++] = value.getAsFloat();
+            }
+            vector = EmbeddingProvider.normalize(vector);
+            if (pooled == null) {
+                pooled = new float[vector.length];
+            } else if (vector.length != pooled.length) {
+                throw new IllegalStateException("Embeddings do Ollama com dimensões diferentes entre trechos");
+            }
+            float weight = Math.max(1, Math.min(chunkChars, textLength - chunk * chunkChars));
+            for (i = 0; i < vector.length; i++) {
+                pooled[i] += vector[i] * weight;
+            }
+        }
+        return EmbeddingProvider.normalize(pooled);
+    }
+}
@@ -0,0 +1,186 @@
+package com.fiap.contratAI_spring.llm;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Conjunto de hosts Ollama ({@code ollama.base-urls}) atrás de um único {@link OkHttpClient}
+ * com pool de conexões keep-alive.
+ *
+ * <p>Cada chamada vai para o host saudável com menos requisições em andamento
+ * (least-outstanding-requests); empates são desfeitos em round-robin. Um host é marcado como
+ * indisponível quando uma conexão falha e volta a receber tráfego quando o health check
+ * periódico em {@code /api/tags} responder. Se nenhum host estiver saudável, todos são tentados.
+ *
+ * <p>Com virtual threads, as chamadas síncronas do OkHttp 4 (HTTP/1.1) não prendem a thread ao carrier:
+ * os blocos {@code synchronized} do pool de conexões e do dispatcher são curtos e não fazem I/O, e a
+ * leitura do corpo acontece fora deles. O {@code VirtualThreadGenerationLoadTest} confere isso pelo
+ * evento JFR {@code jdk.VirtualThreadPinned}.
+ */
+@Component
+@ConditionalOnProperty(name = "llm.provider", havingValue = "ollama", matchIfMissing = true)
+public class OllamaEndpointPool {
+
+    private static final Logger log = LoggerFactory.getLogger(OllamaEndpointPool.class);
+
+    private final List<Endpoint> endpoints;
+    private final OkHttpClient httpClient;
+    private final OkHttpClient healthCheckClient;
+    private final AtomicInteger nextStart = new AtomicInteger();
+
+    public OllamaEndpointPool(
+            @Value("${ollama.base-urls:${ollama.base-url:http://localhost:11434}}") List<String> baseUrls,
+            MeterRegistry meterRegistry,
+            @Value("${ollama.pool.max-idle-connections:16}") int maxIdleConnections,
+            @Value("${ollama.pool.keep-alive-minutes:5}") long keepAliveMinutes,
+            @Value("${ollama.health-check.timeout-ms:2000}") long healthCheckTimeoutMs,
+            @Value("${okhttp.connect-timeout-seconds:30}") long connectTimeoutSeconds,
+            @Value("${okhttp.read-timeout-seconds:300}") long readTimeoutSeconds,
+            @Value("${okhttp.write-timeout-seconds:30}") long writeTimeoutSeconds
+    ) {
+        List<Endpoint> configured = new ArrayList<>();
+        for (String url : baseUrls) {
+            String trimmed = url.trim();
+            if (trimmed.isEmpty()) continue;
+            configured.add(new Endpoint(trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed));
+        }
+        if (configured.isEmpty()) {
+            throw new IllegalArgumentException("Nenhum host Ollama configurado em 'ollama.base-urls'.");
+        }
+        this.endpoints = List.copyOf(configured);
+
+        this.httpClient = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMinutes, TimeUnit.MINUTES))
+                .connectTimeout(connectTimeoutSeconds, TimeUnit.SECONDS)
+                .readTimeout(readTimeoutSeconds, TimeUnit.SECONDS)
+                .writeTimeout(writeTimeoutSeconds, TimeUnit.SECONDS)
+                .build();
+        this.healthCheckClient = httpClient.newBuilder()
+                .callTimeout(healthCheckTimeoutMs, TimeUnit.MILLISECONDS)
+                .build();
+
+        for (Endpoint endpoint : endpoints) {
+            Gauge.builder("llm.endpoint.outstanding", endpoint.outstanding, AtomicInteger::get)
+                    .description("Requisições em andamento por host Ollama")
+                    .tag("endpoint", endpoint.baseUrl)
+                    .register(meterRegistry);
+            Gauge.builder("llm.endpoint.healthy", endpoint, e -> e.healthy ? 1 : 0)
+                    .tag("endpoint", endpoint.baseUrl)
+                    .register(meterRegistry);
+        }
+        log.info("Pool Ollama com {} host(s): {}", endpoints.size(), endpoints.stream().map(Endpoint::baseUrl).toList());
+    }
+
+    public OkHttpClient httpClient() {
+        return httpClient;
+    }
+
+    public int size() {
+        return endpoints.size();
+    }
+
+    public List<Endpoint> endpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Escolhe o host para a próxima chamada e incrementa seu contador de requisições em andamento.
+     * Deve ser sempre seguido de {@link #release}.
+     *
+     * @param exclude host a evitar (ex.: o que acabou de recusar a conexão), ou {@code null}
+     */
+    public Endpoint acquire(Endpoint exclude) {
+        Endpoint chosen = pick(exclude, true);
+        if (chosen == null) {
+            chosen = pick(exclude, false);
+        }
+        if (chosen == null) {
+            chosen = endpoints.get(0);
+        }
+        chosen.outstanding.incrementAndGet();
+        return chosen;
+    }
+
+    /**
+     * @param reachable {@code false} quando não foi possível conectar; o host sai do rodízio até o próximo health check
+     */
+    public void release(Endpoint endpoint, boolean reachable) {
+        endpoint.outstanding.decrementAndGet();
+        if (!reachable && endpoint.healthy) {
+            endpoint.healthy = false;
+            log.warn("Host Ollama {} marcado como indisponível", endpoint.baseUrl);
+        }
+    }
+
+    private Endpoint pick(Endpoint exclude, boolean healthyOnly) {
+        int size = endpoints.size();
+        int start = Math.floorMod(nextStart.getAndIncrement(), size);
+        Endpoint best = null;
+        int bestOutstanding = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            Endpoint candidate = endpoints.get((start + i) % size);
+            if (candidate == exclude || (healthyOnly && !candidate.healthy)) continue;
+            int outstanding = candidate.outstanding.get();
+            if (outstanding < bestOutstanding) {
+                best = candidate;
+                bestOutstanding = outstanding;
+            }
+        }
+        return best;
+    }
+
+    @Scheduled(initialDelayString = "${ollama.health-check.interval-ms:10000}",
+            fixedDelayString = "${ollama.health-check.interval-ms:10000}")
+    public void checkHealth() {
+        for (Endpoint endpoint : endpoints) {
+            boolean healthy;
+            Request request = new Request.Builder().url(endpoint.baseUrl + "/api/tags").get().build();
+            try (Response response = healthCheckClient.newCall(request).execute()) {
+                healthy = response.isSuccessful();
+            } catch (Exception e) {
+                healthy = false;
+            }
+            if (healthy != endpoint.healthy) {
+                log.info("Host Ollama {} agora {}", endpoint.baseUrl, healthy ? "disponível" : "indisponível");
+            }
+            endpoint.healthy = healthy;
+        }
+    }
+
+    public static final class Endpoint {
+        private final String baseUrl;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private volatile boolean healthy = true;
+
+        private Endpoint(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        public String baseUrl() {
+            return baseUrl;
+        }
+
+        public int outstanding() {
+            return outstanding.get();
+        }
+
+        public boolean healthy() {
+            return healthy;
+        }
+    }
+}
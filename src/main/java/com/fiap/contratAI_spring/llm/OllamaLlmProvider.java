@@ -0,0 +1,226 @@
+package com.fiap.contratAI_spring.llm;
+
+import com.fiap.contratAI_spring.service.LlmMetrics;
+import com.google.gson.JsonObject;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Consumer;
+
+/**
+ * {@link LlmProvider} do Ollama (endpoint /api/generate), distribuindo as chamadas entre os hosts
+ * do {@link OllamaEndpointPool}. Falhas de conexão são repetidas uma vez em outro host;
+ * qualquer outro erro é repassado ao chamador. Cada requisição leva {@code options.num_ctx}
+ * ({@code ollama.num-ctx}), o mesmo contexto usado pelo {@link PromptBudgeter} para dimensionar o prompt,
+ * e os tokens contados pelo modelo vão para as métricas.
+ */
+@Component
+@ConditionalOnProperty(name = "llm.provider", havingValue = "ollama", matchIfMissing = true)
+public class OllamaLlmProvider implements LlmProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(OllamaLlmProvider.class);
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    /**
+     * Capacidade inicial do buffer que acumula os fragmentos do streaming (evita as primeiras realocações).
+     */
+    private static final int STREAM_BUFFER_INITIAL_CHARS = 8 * 1024;
+
+    private final OllamaEndpointPool pool;
+    private final LlmMetrics metrics;
+    private final String modelName;
+    private final int contextTokens;
+
+    public OllamaLlmProvider(OllamaEndpointPool pool,
+                             LlmMetrics metrics,
+                             @Value("${ollama.model:gpt-oss:20b}") String modelName,
+                             @Value("${ollama.num-ctx:8192}") int contextTokens) {
+        this.pool = pool;
+        this.metrics = metrics;
+        this.modelName = modelName;
+        this.contextTokens = contextTokens;
+    }
+
+    @Override
+    public String modelName() {
+        return modelName;
+    }
+
+    /**
+     * Faz a chamada HTTP ao serviço Ollama (sem streaming).
+     * Faz parsing seguro da resposta e trata erros comuns.
+     */
+    @Override
+    public String generate(String operation, String prompt) {
+        Instant start = Instant.now();
+        log.debug("Chamando Ollama (model='{}') promptLen={}", modelName, prompt.length());
+
+        try {
+            return withEndpoint(endpoint -> {
+                Request request = buildGenerateRequest(endpoint.baseUrl(), prompt, false);
+
+                Timer.Sample roundTrip = metrics.start();
+                String outcome = "io_error";
+                try (Response response = pool.httpClient().newCall(request).execute()) {
+                    ResponseBody responseBody = response.body();
+                    if (!response.isSuccessful() || responseBody == null) {
+                        outcome = "http_error";
+                        String errorBody = responseBody != null ? responseBody.string() : "";
+                        log.error("Ollama {} retornou status não-sucesso: {} body={}", endpoint.baseUrl(), response.code(), errorBody);
+                        throw new IOException("Erro na chamada Ollama: HTTP " + response.code());
+                    }
+                    outcome = "success";
+                    metrics.recordRoundTrip(operation, outcome, roundTrip);
+                    roundTrip = null;
+
+                    // o corpo é decodificado enquanto chega; o tempo de transferência entra no parse
+                    Timer.Sample parse = metrics.start();
+                    OllamaResponseReader.Usage usage = new OllamaResponseReader.Usage();
+                    String result;
+                    try {
+                        result = OllamaResponseReader.readGenerate(responseBody.charStream(), usage);
+                    } finally {
+                        metrics.recordParse(operation, parse);
+                    }
+                    recordUsage(operation, usage);
+                    return result;
+                } finally {
+                    if (roundTrip != null) {
+                        metrics.recordRoundTrip(operation, outcome, roundTrip);
+                    }
+                }
+            });
+        } catch (IOException e) {
+            log.error("Erro na chamada ao Ollama: {}", e.getMessage(), e);
+            throw new RuntimeException("Erro ao chamar API do Ollama: " + e.getMessage(), e);
+        } finally {
+            log.debug("Tempo total chamada Ollama: {}ms", Duration.between(start, Instant.now()).toMillis());
+        }
+    }
+
+    /**
+     * Chama o endpoint com {@code "stream": true} e consome o NDJSON conforme chega.
+     * Se {@code onToken} lançar exceção (ex.: cliente desconectou), a resposta é fechada e a geração abortada.
+     */
+    @Override
+    public String generateStream(String operation, String prompt, Consumer<String> onToken) {
+        Instant start = Instant.now();
+        log.debug("Chamando Ollama em streaming (model='{}') promptLen={}", modelName, prompt.length());
+
+        try {
+            return withEndpoint(endpoint -> {
+                Request request = buildGenerateRequest(endpoint.baseUrl(), prompt, true);
+
+                Timer.Sample roundTrip = metrics.start();
+                String outcome = "io_error";
+                try (Response response = pool.httpClient().newCall(request).execute()) {
+                    ResponseBody responseBody = response.body();
+                    if (!response.isSuccessful() || responseBody == null) {
+                        outcome = "http_error";
+                        String errorBody = responseBody != null ? responseBody.string() : "";
+                        log.error("Ollama {} retornou status não-sucesso: {} body={}", endpoint.baseUrl(), response.code(), errorBody);
+                        throw new IOException("Erro na chamada Ollama: HTTP " + response.code());
+                    }
+
+                    OllamaResponseReader.Usage usage = new OllamaResponseReader.Usage();
+                    String result;
+                    try {
+                        result = OllamaResponseReader.readStream(responseBody.charStream(), STREAM_BUFFER_INITIAL_CHARS,
+                                () -> {
+                                    Duration firstToken = Duration.between(start, Instant.now());
+                                    metrics.recordFirstToken(operation, firstToken);
+                                    log.debug("Primeiro token do Ollama em {}ms", firstToken.toMillis());
+                                },
+                                onToken, usage);
+                    } catch (OllamaResponseReader.OllamaStreamErrorException ex) {
+                        outcome = "llm_error";
+                        throw ex;
+                    }
+                    recordUsage(operation, usage);
+
+                    outcome = "success";
+                    log.debug("Stream do Ollama finalizado com {} chars em {}ms", result.length(), Duration.between(start, Instant.now()).toMillis());
+                    return result;
+                } finally {
+                    metrics.recordRoundTrip(operation, outcome, roundTrip);
+                }
+            });
+        } catch (IOException e) {
+            log.error("Erro no streaming do Ollama: {}", e.getMessage(), e);
+            throw new RuntimeException("Erro ao chamar API do Ollama: " + e.getMessage(), e);
+        }
+    }
+
+    Request buildGenerateRequest(String baseUrl, String prompt, boolean stream) {
+        JsonObject requestBody = new JsonObject();
+        requestBody.addProperty("model", modelName);
+        requestBody.addProperty("prompt", prompt);
+        requestBody.addProperty("stream", stream);
+        JsonObject options = new JsonObject();
+        options.addProperty("num_ctx", contextTokens);
+        requestBody.add("options", options);
+
+        RequestBody body = RequestBody.create(requestBody.toString(), JSON);
+
+        return new Request.Builder()
+                .url(baseUrl + "/api/generate")
+                .post(body)
+                .build();
+    }
+
+    private void recordUsage(String operation, OllamaResponseReader.Usage usage) {
+        metrics.recordTokenUsage(operation, usage.promptTokens, usage.completionTokens);
+        if (usage.promptTokens >= contextTokens) {
+            // o Ollama corta o início do prompt para caber no contexto em vez de falhar
+            log.warn("Prompt de '{}' ocupou {} tokens, todo o contexto de {}; o início pode ter sido descartado. "
+                    + "Revise llm.budget.safety-margin ou o tokenizador.", operation, usage.promptTokens, contextTokens);
+        }
+    }
+
+    /**
+     * Executa a chamada no host escolhido pelo pool. Se a conexão for recusada, tenta uma vez outro host.
+     */
+    private String withEndpoint(EndpointCall call) throws IOException {
+        OllamaEndpointPool.Endpoint endpoint = pool.acquire(null);
+        boolean reachable = true;
+        try {
+            return call.execute(endpoint);
+        } catch (ConnectException e) {
+            reachable = false;
+            if (pool.size() < 2) throw e;
+            log.warn("Falha ao conectar em {}: {}. Tentando outro host.", endpoint.baseUrl(), e.getMessage());
+        } finally {
+            pool.release(endpoint, reachable);
+        }
+
+        OllamaEndpointPool.Endpoint retry = pool.acquire(endpoint);
+        reachable = true;
+        try {
+            return call.execute(retry);
+        } catch (ConnectException e) {
+            reachable = false;
+            throw e;
+        } finally {
+            pool.release(retry, reachable);
+        }
+    }
+
+    @FunctionalInterface
+    private interface EndpointCall {
+        String execute(OllamaEndpointPool.Endpoint endpoint) throws IOException;
+    }
+}
@@ -0,0 +1,153 @@
+package com.fiap.contratAI_spring.llm;
+
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.function.Consumer;
+
+/**
+ * Decodifica as respostas de /api/generate direto do corpo HTTP com {@link JsonReader},
+ * sem materializar o corpo inteiro em uma String nem montar a árvore {@code JsonObject}.
+ * Apenas {@code response}, {@code error}, {@code done} e as contagens de tokens ({@code prompt_eval_count},
+ * {@code eval_count}) são lidos; os demais campos (context, métricas de duração etc.) são descartados sem
+ * alocação de valores.
+ */
+final class OllamaResponseReader {
+
+    private OllamaResponseReader() {
+    }
+
+    /**
+     * Lê a resposta sem streaming ({@code "stream": false}): um único objeto JSON.
+     *
+     * @return conteúdo do campo {@code response}
+     * @throws IOException se o JSON for inválido, contiver {@code error} ou não contiver {@code response}
+     */
+    static String readGenerate(Reader body) throws IOException {
+        return readGenerate(body, new Usage());
+    }
+
+    /**
+     * Como {@link #readGenerate(Reader)}, guardando em {@code usage} os tokens informados pelo Ollama.
+     */
+    static String readGenerate(Reader body, Usage usage) throws IOException {
+        try (JsonReader reader = new JsonReader(body)) {
+            String response = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "response" -> response = nextNullableString(reader);
+                    case "error" -> throw new IOException("Erro da API Ollama: " + readError(reader));
+                    case "prompt_eval_count" -> usage.promptTokens = reader.nextInt();
+                    case "eval_count" -> usage.completionTokens = reader.nextInt();
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (response == null) {
+                throw new IOException("Resposta inesperada da API Ollama.");
+            }
+            return response;
+        } catch (MalformedJsonException | IllegalStateException ex) {
+            throw new IOException("Resposta inválida do Ollama: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Lê a resposta em streaming ({@code "stream": true}): NDJSON, um objeto por linha.
+     * Os fragmentos são repassados a {@code onToken} e acumulados em um único buffer.
+     *
+     * @param expectedChars capacidade inicial do buffer de resultado
+     * @param onFirstToken chamado uma vez, antes do primeiro fragmento não vazio
+     * @return texto completo concatenado
+     */
+    static String readStream(Reader body, int expectedChars, Runnable onFirstToken, Consumer<String> onToken) throws IOException {
+        return readStream(body, expectedChars, onFirstToken, onToken, new Usage());
+    }
+
+    /**
+     * Como {@link #readStream(Reader, int, Runnable, Consumer)}, guardando em {@code usage} os tokens
+     * informados na última linha do stream.
+     */
+    static String readStream(Reader body, int expectedChars, Runnable onFirstToken, Consumer<String> onToken,
+                             Usage usage) throws IOException {
+        StringBuilder result = new StringBuilder(Math.max(16, expectedChars));
+        try (JsonReader reader = new JsonReader(body)) {
+            // lenient permite vários valores JSON de topo no mesmo fluxo
+            reader.setLenient(true);
+            boolean done = false;
+            while (!done && reader.peek() != JsonToken.END_DOCUMENT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "response" -> {
+                            String token = nextNullableString(reader);
+                            if (token != null && !token.isEmpty()) {
+                                if (result.isEmpty()) {
+                                    onFirstToken.run();
+                                }
+                                result.append(token);
+                                onToken.accept(token);
+                            }
+                        }
+                        case "error" -> throw new OllamaStreamErrorException(readError(reader));
+                        case "done" -> done = nextBooleanOrFalse(reader);
+                        case "prompt_eval_count" -> usage.promptTokens = reader.nextInt();
+                        case "eval_count" -> usage.completionTokens = reader.nextInt();
+                        default -> reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            }
+        } catch (MalformedJsonException | IllegalStateException ex) {
+            throw new IOException("Resposta inválida do Ollama: " + ex.getMessage(), ex);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Tokens do prompt e da resposta contados pelo modelo; {@code -1} se o Ollama não informou
+     * (o {@code prompt_eval_count} some quando o prompt inteiro veio do cache de contexto).
+     */
+    static final class Usage {
+        int promptTokens = -1;
+        int completionTokens = -1;
+    }
+
+    /**
+     * Erro reportado pelo Ollama no meio do stream (distinto de falha de I/O para as métricas).
+     */
+    static final class OllamaStreamErrorException extends IOException {
+        OllamaStreamErrorException(String error) {
+            super("Erro da API Ollama: " + error);
+        }
+    }
+
+    private static String nextNullableString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    /**
+     * {@code done} fora do formato esperado (null, string) conta como {@code false} e é consumido.
+     */
+    private static boolean nextBooleanOrFalse(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.BOOLEAN) {
+            return reader.nextBoolean();
+        }
+        reader.skipValue();
+        return false;
+    }
+
+    private static String readError(JsonReader reader) throws IOException {
+        return JsonParser.parseReader(reader).toString();
+    }
+}
@@ -0,0 +1,209 @@
+package com.fiap.contratAI_spring.llm;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Orçamento de tokens dos prompts: o prompt mais a resposta esperada precisam caber no contexto do modelo
+ * ({@code ollama.num-ctx}, também enviado ao Ollama como {@code num_ctx}), senão o Ollama descarta o início
+ * do prompt sem avisar. Substitui o corte por {@code ollama.max-prompt-chars}, que não sabia quantos tokens
+ * cada caractere custa.
+ *
+ * <p>O espaço do prompt de cada operação é {@code (num-ctx − saída) × (1 − llm.budget.safety-margin)}, onde a
+ * saída é {@code llm.budget.output-tokens} ou o valor da operação em {@code llm.budget.output-tokens-by-operation}
+ * ({@code generate=2048,analyze-clause=256}). A margem absorve a diferença entre o {@link Tokenizer} local e o do modelo.
+ * Com o {@link VocabularyTokenizer} as contagens de textos longos ficam em um LRU pelo SHA-256 do conteúdo
+ * ({@code llm.tokenizer.cache-entries}), já que o mesmo contrato é contado de novo a cada reanálise, revisão ou
+ * reentrega da fila. A estimativa do {@link EstimatingTokenizer} é uma varredura só, do custo do próprio hash,
+ * e não passa pelo cache.
+ */
+@Component
+public class PromptBudgeter {
+
+    private static final Logger log = LoggerFactory.getLogger(PromptBudgeter.class);
+
+    /**
+     * Abaixo deste tamanho contar é mais barato que calcular o hash, então o texto não passa pelo cache.
+     */
+    static final int CACHE_MIN_CHARS = 2048;
+
+    /**
+     * Folga por marcador do template, para valores curtos como o número do trecho.
+     */
+    private static final int PLACEHOLDER_SLACK_TOKENS = 4;
+
+    private final Tokenizer tokenizer;
+    private final int contextTokens;
+    private final int defaultOutputTokens;
+    private final Map<String, Integer> outputTokensByOperation = new HashMap<>();
+    private final double safetyMargin;
+    private final int cacheEntries;
+
+    private final Map<String, Integer> counts = new LinkedHashMap<>(64, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Integer> templateTokens = new ConcurrentHashMap<>();
+
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+
+    public PromptBudgeter(Tokenizer tokenizer,
+                          MeterRegistry meterRegistry,
+                          @Value("${ollama.num-ctx:8192}") int contextTokens,
+                          @Value("${llm.budget.output-tokens:1024}") int outputTokens,
+                          @Value("${llm.budget.output-tokens-by-operation:}") String outputTokensByOperation,
+                          @Value("${llm.budget.safety-margin:0.05}") double safetyMargin,
+                          @Value("${llm.tokenizer.cache-entries:1024}") int cacheEntries) {
+        if (safetyMargin < 0 || safetyMargin >= 1) {
+            throw new IllegalArgumentException("llm.budget.safety-margin deve estar entre 0 e 1.");
+        }
+        this.tokenizer = tokenizer;
+        this.contextTokens = contextTokens;
+        this.defaultOutputTokens = Math.max(0, outputTokens);
+        this.safetyMargin = safetyMargin;
+        this.cacheEntries = Math.max(1, cacheEntries);
+        for (String entry : outputTokensByOperation.split(",")) {
+            if (entry.isBlank()) continue;
+            int equals = entry.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException("llm.budget.output-tokens-by-operation inválido: " + entry
+                        + " (use <operação>=<tokens>)");
+            }
+            this.outputTokensByOperation.put(entry.substring(0, equals).trim(), Integer.parseInt(entry.substring(equals + 1).trim()));
+        }
+        for (String operation : this.outputTokensByOperation.keySet()) {
+            promptTokens(operation); // falha na subida se a saída não deixar espaço para o prompt
+        }
+        promptTokens("");
+
+        this.cacheHits = Counter.builder("llm.tokenizer.cache").tag("result", "hit").register(meterRegistry);
+        this.cacheMisses = Counter.builder("llm.tokenizer.cache").tag("result", "miss").register(meterRegistry);
+
+        log.info("Orçamento de prompt: contexto de {} tokens, {} tokens reservados para a resposta ({}), tokenizador {}",
+                contextTokens, defaultOutputTokens, this.outputTokensByOperation, tokenizer.name());
+        if (tokenizer.isEstimate()) {
+            log.warn("Tokenizador {} ativo: os orçamentos de prompt são estimativas e podem passar de ollama.num-ctx "
+                    + "além de llm.budget.safety-margin; configure llm.tokenizer=vocabulary com llm.tokenizer.vocab-path "
+                    + "para contar pelo vocabulário do modelo.", tokenizer.name());
+        }
+    }
+
+    public Tokenizer tokenizer() {
+        return tokenizer;
+    }
+
+    public int contextTokens() {
+        return contextTokens;
+    }
+
+    /**
+     * Tokens de {@code text}; com um tokenizador de vocabulário, textos longos são contados uma vez por conteúdo.
+     */
+    public int count(CharSequence text) {
+        if (text.length() < CACHE_MIN_CHARS || tokenizer.isEstimate()) {
+            return tokenizer.count(text);
+        }
+        String key = hash(text);
+        lock.lock();
+        try {
+            Integer cached = counts.get(key);
+            if (cached != null) {
+                cacheHits.increment();
+                return cached;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        cacheMisses.increment();
+        int tokens = tokenizer.count(text);
+        lock.lock();
+        try {
+            counts.put(key, tokens);
+            if (counts.size() > cacheEntries) {
+                counts.remove(counts.keySet().iterator().next());
+            }
+        } finally {
+            lock.unlock();
+        }
+        return tokens;
+    }
+
+    /**
+     * Tokens disponíveis para o prompt inteiro da operação.
+     */
+    public int promptTokens(String operation) {
+        int output = outputTokensByOperation.getOrDefault(operation, defaultOutputTokens);
+        int available = (int) ((contextTokens - (long) output) * (1 - safetyMargin));
+        if (available <= 0) {
+            throw new IllegalStateException("ollama.num-ctx (" + contextTokens + ") não comporta os " + output
+                    + " tokens reservados para a resposta de '" + operation + "'.");
+        }
+        return available;
+    }
+
+    /**
+     * Tokens que sobram para os valores dos marcadores depois do texto fixo do template.
+     */
+    public int available(String operation, PromptTemplate template) {
+        return Math.max(1, promptTokens(operation) - templateTokens(template));
+    }
+
+    /**
+     * Tokens do texto fixo do template, mais uma folga por marcador.
+     */
+    public int templateTokens(PromptTemplate template) {
+        return templateTokens.computeIfAbsent(template.id(), id -> {
+            Map<String, String> empty = new HashMap<>();
+            template.placeholders().forEach(name -> empty.put(name, ""));
+            return tokenizer.count(template.render(Integer.MAX_VALUE, empty))
+                    + PLACEHOLDER_SLACK_TOKENS * template.placeholders().size();
+        });
+    }
+
+    /**
+     * {@code value} inteiro se couber em {@code maxTokens}; senão o maior prefixo que cabe.
+     *
+     * @param operation operação (para o log)
+     */
+    public CharSequence fit(String operation, CharSequence value, int maxTokens) {
+        int tokens = count(value);
+        if (tokens <= maxTokens) {
+            return value;
+        }
+        int length = tokenizer.prefixLength(value, maxTokens);
+        log.warn("Entrada de '{}' com {} tokens excede o orçamento de {}; truncada em {} de {} caracteres.",
+                operation, tokens, maxTokens, length, value.length());
+        return value.subSequence(0, length);
+    }
+
+    /**
+     * Caracteres de {@code text} que equivalem a {@code tokens}, pela densidade média do próprio texto.
+     */
+    public int charsFor(CharSequence text, int textTokens, int tokens) {
+        if (textTokens <= 0) return tokens;
+        return (int) Math.min(Integer.MAX_VALUE, (long) tokens * text.length() / textTokens);
+    }
+
+    private static String hash(CharSequence text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.fiap.contratAI_spring.llm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Template de prompt pré-compilado em trechos fixos intercalados com marcadores {@code {{nome}}}.
+ *
+ * <p>A renderização calcula o tamanho final, aloca o {@link StringBuilder} uma vez e copia cada valor
+ * sanitizado (quebras CRLF/CR viram LF, caracteres nulos saem) e truncado no limite em uma única passada.
+ * Substitui o {@code String.format} seguido de vários {@code replace} e do {@code substring} do limite,
+ * que copiavam o contrato inteiro a cada etapa.
+ */
+public final class PromptTemplate {
+
+    private static final Logger log = LoggerFactory.getLogger(PromptTemplate.class);
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{\\{\\s*([a-zA-Z][a-zA-Z0-9_-]*)\\s*}}");
+
+    private final String name;
+    private final int version;
+    private final String id;
+    /** Trechos fixos, já sanitizados: {@code literals[i]} vem antes de {@code placeholders[i]}. */
+    private final String[] literals;
+    private final String[] placeholders;
+    private final int literalLength;
+
+    private PromptTemplate(String name, int version, String[] literals, String[] placeholders) {
+        this.name = name;
+        this.version = version;
+        this.id = name + "-v" + version;
+        this.literals = literals;
+        this.placeholders = placeholders;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    public static PromptTemplate compile(String name, int version, String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        String sanitized = sanitize(source, Integer.MAX_VALUE);
+        Matcher matcher = PLACEHOLDER.matcher(sanitized);
+        int start = 0;
+        while (matcher.find()) {
+            literals.add(sanitized.substring(start, matcher.start()));
+            placeholders.add(matcher.group(1));
+            start = matcher.end();
+        }
+        literals.add(sanitized.substring(start));
+        return new PromptTemplate(name, version, literals.toArray(String[]::new), placeholders.toArray(String[]::new));
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int version() {
+        return version;
+    }
+
+    /**
+     * Identificador da versão ({@code analyze-v1}), usado na chave do cache de respostas e nas métricas.
+     */
+    public String id() {
+        return id;
+    }
+
+    public List<String> placeholders() {
+        return List.of(placeholders);
+    }
+
+    /**
+     * Tamanho do template sem os valores dos marcadores.
+     */
+    public int literalLength() {
+        return literalLength;
+    }
+
+    /**
+     * Monta o prompt com os valores sanitizados, truncando em {@code maxChars}.
+     *
+     * @param values valor de cada marcador; o que não for {@link CharSequence} passa por {@link String#valueOf}
+     * @throws IllegalArgumentException se faltar o valor de algum marcador
+     */
+    public String render(int maxChars, Map<String, ?> values) {
+        CharSequence[] resolved = new CharSequence[placeholders.length];
+        long length = literalLength;
+        for (int i = 0; i < placeholders.length; i++) {
+            Object value = values.get(placeholders[i]);
+            if (value == null) {
+                throw new IllegalArgumentException("Valor ausente para {{" + placeholders[i] + "}} no template " + id);
+            }
+            resolved[i] = value instanceof CharSequence text ? text : String.valueOf(value);
+            length += resolved[i].length();
+        }
+
+        StringBuilder prompt = new StringBuilder((int) Math.min(length, maxChars));
+        boolean complete = append(prompt, literals[0], maxChars);
+        for (int i = 0; i < placeholders.length && complete; i++) {
+            complete = appendSanitized(prompt, resolved[i], maxChars) && append(prompt, literals[i + 1], maxChars);
+        }
+        if (!complete) {
+            log.warn("Prompt do template {} excedeu {} caracteres ({} antes da sanitização); truncado.", id, maxChars, length);
+        }
+        return prompt.toString();
+    }
+
+    /**
+     * Texto com quebras de linha normalizadas para LF e sem caracteres nulos, com no máximo {@code maxChars}.
+     */
+    public static String sanitize(CharSequence text, int maxChars) {
+        if (text == null) return "";
+        StringBuilder out = new StringBuilder(Math.min(text.length(), maxChars));
+        appendSanitized(out, text, maxChars);
+        return out.toString();
+    }
+
+    /**
+     * Copia {@code value} sanitizado para {@code out} em trechos contíguos até {@code out} chegar a {@code limit}.
+     *
+     * @return {@code false} se o texto foi truncado
+     */
+    static boolean appendSanitized(StringBuilder out, CharSequence value, int limit) {
+        // String.indexOf é vetorizado pela JVM: os trechos sem CR/NUL são localizados e copiados em bloco
+        String text = value.toString();
+        int length = text.length();
+        int runStart = 0;
+        int nextCr = text.indexOf('\r');
+        int nextNul = text.indexOf('\u0000');
+        while (nextCr >= 0 || nextNul >= 0) {
+            int special = nextNul < 0 || (nextCr >= 0 && nextCr < nextNul) ? nextCr : nextNul;
+            if (!append(out, text, runStart, special, limit)) return false;
+            runStart = special + 1;
+            if (special == nextCr) {
+                // CRLF: o LF segue no próximo trecho; CR sozinho vira LF
+                if (special + 1 == length || text.charAt(special + 1) != '\n') {
+                    if (out.length() >= limit) return false;
+                    out.append('\n');
+                }
+                nextCr = text.indexOf('\r', runStart);
+            } else {
+                nextNul = text.indexOf('\u0000', runStart);
+            }
+        }
+        return append(out, text, runStart, length, limit);
+    }
+
+    private static boolean append(StringBuilder out, CharSequence text, int limit) {
+        return append(out, text, 0, text.length(), limit);
+    }
+
+    private static boolean append(StringBuilder out, CharSequence text, int from, int to, int limit) {
+        int room = limit - out.length();
+        if (to - from <= room) {
+            out.append(text, from, to);
+            return true;
+        }
+        out.append(text, from, from + Math.max(0, room));
+        return false;
+    }
+}
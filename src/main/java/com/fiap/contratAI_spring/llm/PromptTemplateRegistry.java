@@ -0,0 +1,152 @@
+package com.fiap.contratAI_spring.llm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Templates de prompt versionados, carregados na subida de {@code llm.prompts.location}
+ * (padrão {@code classpath*:prompts/*.tmpl}) e pré-compilados em {@link PromptTemplate}.
+ *
+ * <p>Cada arquivo se chama {@code <nome>-v<versão>.tmpl}. Por padrão vale a maior versão de cada nome;
+ * {@code llm.prompts.versions=analyze=analyze-v1} fixa uma versão e
+ * {@code llm.prompts.experiments=analyze=analyze-v2:10} manda 10% das entradas para outra (teste A/B).
+ * A escolha da variante é determinística pela entrada, então o mesmo contrato cai sempre na mesma versão e
+ * continua encontrando a resposta no cache. O id da versão entra na chave do cache e nas métricas.
+ */
+@Component
+public class PromptTemplateRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(PromptTemplateRegistry.class);
+
+    private static final Pattern FILE_NAME = Pattern.compile("([a-z0-9]+(?:-[a-z0-9]+)*)-v(\\d+)\\.tmpl");
+
+    private record Experiment(PromptTemplate variant, int percent) {}
+
+    private final Map<String, NavigableMap<Integer, PromptTemplate>> versions = new HashMap<>();
+    private final Map<String, PromptTemplate> active = new HashMap<>();
+    private final Map<String, Experiment> experiments = new HashMap<>();
+
+    public PromptTemplateRegistry(@Value("${llm.prompts.location:classpath*:prompts/*.tmpl}") String location,
+                                  @Value("${llm.prompts.versions:}") String pinnedVersions,
+                                  @Value("${llm.prompts.experiments:}") String experimentVariants) throws IOException {
+        for (Resource resource : new PathMatchingResourcePatternResolver().getResources(location)) {
+            Matcher matcher = FILE_NAME.matcher(String.valueOf(resource.getFilename()));
+            if (!matcher.matches()) {
+                log.warn("Template de prompt ignorado (use <nome>-v<versão>.tmpl): {}", resource.getFilename());
+                continue;
+            }
+            String source;
+            try (InputStream in = resource.getInputStream()) {
+                source = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            PromptTemplate template = PromptTemplate.compile(matcher.group(1), Integer.parseInt(matcher.group(2)), source);
+            versions.computeIfAbsent(template.name(), n -> new TreeMap<>()).put(template.version(), template);
+        }
+        versions.forEach((name, byVersion) -> active.put(name, byVersion.lastEntry().getValue()));
+
+        for (Map.Entry<String, String> pin : entries(pinnedVersions, "llm.prompts.versions").entrySet()) {
+            active.put(pin.getKey(), version(pin.getKey(), pin.getValue()));
+        }
+        for (Map.Entry<String, String> experiment : entries(experimentVariants, "llm.prompts.experiments").entrySet()) {
+            String[] parts = experiment.getValue().split(":");
+            int percent = parts.length == 2 ? Integer.parseInt(parts[1].trim()) : -1;
+            if (percent < 0 || percent > 100) {
+                throw new IllegalArgumentException("llm.prompts.experiments inválido para " + experiment.getKey()
+                        + ": use <nome>=<versão>:<percentual de 0 a 100>");
+            }
+            experiments.put(experiment.getKey(), new Experiment(version(experiment.getKey(), parts[0]), percent));
+        }
+
+        log.info("Templates de prompt: {}{}", active.values().stream().map(PromptTemplate::id).sorted().toList(),
+                experiments.isEmpty() ? "" : " (experimentos: " + experiments.entrySet().stream()
+                        .map(e -> e.getValue().variant().id() + " em " + e.getValue().percent() + "%").sorted().toList() + ")");
+    }
+
+    /**
+     * Versão ativa do template, sem considerar experimentos.
+     *
+     * @throws IllegalStateException se não houver template com esse nome
+     */
+    public PromptTemplate get(String name) {
+        PromptTemplate template = active.get(name);
+        if (template == null) {
+            throw new IllegalStateException("Template de prompt não encontrado: " + name);
+        }
+        return template;
+    }
+
+    /**
+     * Versão a usar para {@code input}: a variante do experimento para o percentual configurado das entradas,
+     * a versão ativa para as demais.
+     */
+    public PromptTemplate select(String name, CharSequence input) {
+        Experiment experiment = experiments.get(name);
+        if (experiment != null && bucket(input) < experiment.percent()) {
+            return experiment.variant();
+        }
+        return get(name);
+    }
+
+    /**
+     * Confere na subida que o template existe e que todas as versões em uso declaram exatamente estes marcadores.
+     */
+    public void require(String name, String... placeholders) {
+        List<String> expected = List.of(placeholders);
+        PromptTemplate template = get(name);
+        Experiment experiment = experiments.get(name);
+        for (PromptTemplate candidate : experiment == null ? List.of(template) : List.of(template, experiment.variant())) {
+            if (!candidate.placeholders().stream().distinct().sorted().toList().equals(expected.stream().sorted().toList())) {
+                throw new IllegalStateException("Template " + candidate.id() + " deve usar os marcadores " + expected
+                        + ", mas usa " + candidate.placeholders());
+            }
+        }
+    }
+
+    private PromptTemplate version(String name, String id) {
+        NavigableMap<Integer, PromptTemplate> byVersion = versions.get(name);
+        Matcher matcher = FILE_NAME.matcher(id.trim() + ".tmpl");
+        PromptTemplate template = byVersion != null && matcher.matches() && matcher.group(1).equals(name)
+                ? byVersion.get(Integer.parseInt(matcher.group(2)))
+                : null;
+        if (template == null) {
+            throw new IllegalArgumentException("Versão de prompt não encontrada para " + name + ": " + id);
+        }
+        return template;
+    }
+
+    private static Map<String, String> entries(String property, String propertyName) {
+        Map<String, String> entries = new HashMap<>();
+        for (String entry : property.split(",")) {
+            if (entry.isBlank()) continue;
+            int equals = entry.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException(propertyName + " inválido: " + entry + " (use <nome>=<versão>)");
+            }
+            entries.put(entry.substring(0, equals).trim(), entry.substring(equals + 1).trim());
+        }
+        return entries;
+    }
+
+    /**
+     * Faixa de 0 a 99 estável para a mesma entrada.
+     */
+    private static int bucket(CharSequence input) {
+        int hash = input.toString().hashCode() * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), 100);
+    }
+}
@@ -0,0 +1,41 @@
+package com.fiap.contratAI_spring.llm;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * {@link EmbeddingProvider} local, sem rede ({@code llm.provider=stub}): espalha os trigramas de palavras do
+ * texto em {@link #DIMENSIONS} posições por hashing. Não captura sinônimos, mas textos que diferem só em
+ * nomes e valores ficam muito próximos, o suficiente para testes e desenvolvimento.
+ */
+@Component
+@ConditionalOnProperty(name = "llm.provider", havingValue = "stub")
+public class StubEmbeddingProvider implements EmbeddingProvider {
+
+    static final int DIMENSIONS = 256;
+
+    @Override
+    public String modelName() {
+        return "stub-hash-" + DIMENSIONS;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+        String[] words = normalized.split("[^\\p{L}\\p{N}]+");
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < words.length; i++) {
+            String shingle = words[i] + ' ' + (i + 1 < words.length ? words[i + 1] : "") + ' ' + (i + 2 < words.length ? words[i + 2] : "");
+            int hash = shingle.hashCode();
+            // o sinal vem de outro bit do hash, para colisões se anularem em vez de somarem
+            vector[Math.floorMod(hash, DIMENSIONS)] += (hash & 0x4000_0000) == 0 ? 1 : -1;
+        }
+        vector[0] += 1e-3f; // texto vazio: evita norma zero
+        return EmbeddingProvider.normalize(vector);
+    }
+}
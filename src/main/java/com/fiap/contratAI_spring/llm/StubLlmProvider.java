@@ -0,0 +1,59 @@
+package com.fiap.contratAI_spring.llm;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Consumer;
+
+/**
+ * {@link LlmProvider} local, sem rede, para desenvolvimento e testes de carga
+ * ({@code llm.provider=stub}). Responde um texto fixo após {@code llm.stub.latency-ms}.
+ */
+@Component
+@ConditionalOnProperty(name = "llm.provider", havingValue = "stub")
+public class StubLlmProvider implements LlmProvider {
+
+    static final String RESPONSE = """
+            ANÁLISE (stub)
+            1. Pontos de atenção: nenhum identificado pelo provedor local.
+            2. Riscos: não avaliados.
+            3. Recomendações: configure llm.provider=ollama para análises reais.
+            """;
+
+    private final long latencyMs;
+
+    public StubLlmProvider(@Value("${llm.stub.latency-ms:0}") long latencyMs) {
+        this.latencyMs = Math.max(0, latencyMs);
+    }
+
+    @Override
+    public String modelName() {
+        return "stub";
+    }
+
+    @Override
+    public String generate(String operation, String prompt) {
+        simulateLatency();
+        return RESPONSE;
+    }
+
+    @Override
+    public String generateStream(String operation, String prompt, Consumer<String> onToken) {
+        simulateLatency();
+        for (String line : RESPONSE.split("(?<=\n)")) {
+            onToken.accept(line);
+        }
+        return RESPONSE;
+    }
+
+    private void simulateLatency() {
+        if (latencyMs == 0) return;
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrompido aguardando o provedor stub.", e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.fiap.contratAI_spring.llm;
+
+/**
+ * Contagem local de tokens, usada pelo {@link PromptBudgeter} para caber o prompt no contexto do modelo.
+ * Selecionado por {@code llm.tokenizer}: {@code vocabulary} ({@link VocabularyTokenizer}, vocabulário do
+ * modelo lido de arquivo) ou {@code estimate} ({@link EstimatingTokenizer}, sem arquivo).
+ */
+public interface Tokenizer {
+
+    /**
+     * Identificação do tokenizador para logs.
+     */
+    String name();
+
+    int count(CharSequence text);
+
+    /**
+     * Maior prefixo de {@code text}, em caracteres, que cabe em {@code maxTokens} tokens.
+     */
+    int prefixLength(CharSequence text, int maxTokens);
+
+    /**
+     * {@code true} se a contagem é uma estimativa, e não a do vocabulário do modelo.
+     */
+    default boolean isEstimate() {
+        return false;
+    }
+}
@@ -0,0 +1,305 @@
+package com.fiap.contratAI_spring.llm;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * {@link Tokenizer} com o vocabulário do modelo ({@code llm.tokenizer=vocabulary}), lido de
+ * {@code llm.tokenizer.vocab-path}: o {@code tokenizer.json} do Hugging Face (BPE, WordPiece ou Unigram)
+ * ou um arquivo com um token por linha (o que vier depois de um TAB, como a pontuação do
+ * {@code .vocab} do SentencePiece, é ignorado).
+ *
+ * <p>Os tokens vão para uma trie e o texto é segmentado pelo token mais longo a cada posição; caracteres
+ * fora do vocabulário custam um token por byte UTF-8, como no fallback de bytes dos tokenizadores BPE.
+ * Não aplica as regras de merge do BPE, então a contagem é uma aproximação (tipicamente a poucos por cento
+ * da real); a margem de {@code llm.budget.safety-margin} cobre a diferença. Vocabulários byte-level (GPT-2,
+ * {@code Ġ} no lugar do espaço) são decodificados de volta para UTF-8; no SentencePiece, {@code ▁} vira espaço.
+ */
+@Component
+@ConditionalOnProperty(name = "llm.tokenizer", havingValue = "vocabulary")
+public class VocabularyTokenizer implements Tokenizer {
+
+    private static final Logger log = LoggerFactory.getLogger(VocabularyTokenizer.class);
+
+    private static final int ROOT = 0;
+    private static final long EMPTY = -1L;
+
+    /** Tokens especiais e de byte ({@code <s>}, {@code <0xE7>}, {@code [CLS]}), que não aparecem no texto. */
+    private static final Pattern SPECIAL = Pattern.compile("<[^>]*>|\\[[A-Z]+]");
+
+    private final String name;
+    private final int vocabularySize;
+
+    /** Transições da trie: chave {@code (nó << 16) | caractere} em endereçamento aberto. */
+    private long[] keys;
+    private int[] targets;
+    private int transitions;
+    private boolean[] terminal = new boolean[1024];
+    private int nodes = 1;
+    private int maxTokenChars;
+
+    @Autowired
+    public VocabularyTokenizer(@Value("${llm.tokenizer.vocab-path}") String location) throws IOException {
+        this(location, load(resource(location)));
+        log.info("Tokenizador carregado de {}: {} tokens (maior com {} caracteres)", location, vocabularySize, maxTokenChars);
+    }
+
+    VocabularyTokenizer(String name, Collection<String> tokens) {
+        this.name = name;
+        this.keys = new long[1 << 12];
+        this.targets = new int[1 << 12];
+        Arrays.fill(keys, EMPTY);
+        int added = 0;
+        for (String token : tokens) {
+            if (!token.isEmpty() && insert(token)) added++;
+        }
+        if (added == 0) {
+            throw new IllegalArgumentException("Vocabulário vazio: " + name);
+        }
+        this.vocabularySize = added;
+    }
+
+    @Override
+    public String name() {
+        return "vocabulary(" + name + ")";
+    }
+
+    @Override
+    public int count(CharSequence text) {
+        return scan(text, Integer.MAX_VALUE)[0];
+    }
+
+    @Override
+    public int prefixLength(CharSequence text, int maxTokens) {
+        return scan(text, maxTokens)[1];
+    }
+
+    /**
+     * @return tokens contados e caracteres consumidos até o fim do texto ou até o próximo token passar de {@code maxTokens}
+     */
+    private int[] scan(CharSequence text, int maxTokens) {
+        int length = text.length();
+        int tokens = 0;
+        int i = 0;
+        while (i < length) {
+            int node = ROOT;
+            int longest = 0;
+            int limit = Math.min(length, i + maxTokenChars);
+            for (int j = i; j < limit; j++) {
+                node = child(node, text.charAt(j));
+                if (node < 0) break;
+                if (terminal[node]) longest = j + 1 - i;
+            }
+            int cost = 1;
+            if (longest == 0) {
+                int codePoint = Character.codePointAt(text, i);
+                cost = utf8Length(codePoint);
+                longest = Character.charCount(codePoint);
+            }
+            if (tokens + cost > maxTokens) break;
+            tokens += cost;
+            i += longest;
+        }
+        return new int[]{tokens, i};
+    }
+
+    private boolean insert(String token) {
+        int node = ROOT;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            int next = child(node, c);
+            if (next < 0) {
+                next = nodes++;
+                if (next == terminal.length) {
+                    terminal = Arrays.copyOf(terminal, next * 2);
+                }
+                put(node, c, next);
+            }
+            node = next;
+        }
+        maxTokenChars = Math.max(maxTokenChars, token.length());
+        boolean added = !terminal[node];
+        terminal[node] = true;
+        return added;
+    }
+
+    private int child(int node, char c) {
+        long key = ((long) node << 16) | c;
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+            long existing = keys[slot];
+            if (existing == key) return targets[slot];
+            if (existing == EMPTY) return -1;
+        }
+    }
+
+    private void put(int node, char c, int target) {
+        if (++transitions * 2 > keys.length) {
+            long[] oldKeys = keys;
+            int[] oldTargets = targets;
+            keys = new long[oldKeys.length * 2];
+            targets = new int[oldKeys.length * 2];
+            Arrays.fill(keys, EMPTY);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) place(oldKeys[i], oldTargets[i]);
+            }
+        }
+        place(((long) node << 16) | c, target);
+    }
+
+    private void place(long key, int target) {
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (keys[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        targets[slot] = target;
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static int utf8Length(int codePoint) {
+        return codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+    }
+
+    // -------------------------
+    // leitura do vocabulário
+    // -------------------------
+
+    private static Resource resource(String location) {
+        if (location == null || location.isBlank()) {
+            throw new IllegalArgumentException("llm.tokenizer=vocabulary exige llm.tokenizer.vocab-path.");
+        }
+        return location.startsWith("classpath:")
+                ? new DefaultResourceLoader().getResource(location)
+                : new FileSystemResource(location.startsWith("file:") ? location.substring(5) : location);
+    }
+
+    static List<String> load(Resource resource) throws IOException {
+        List<String> raw = new ArrayList<>();
+        try (Reader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            if (String.valueOf(resource.getFilename()).endsWith(".json")) {
+                readHuggingFaceVocab(new JsonReader(reader), raw);
+            } else {
+                ((BufferedReader) reader).lines().forEach(line -> {
+                    int tab = line.indexOf('\t');
+                    raw.add(tab >= 0 ? line.substring(0, tab) : line);
+                });
+            }
+        }
+        return decode(raw);
+    }
+
+    /**
+     * Lê {@code model.vocab} do {@code tokenizer.json}: objeto token → id (BPE, WordPiece) ou lista de
+     * pares [token, pontuação] (Unigram).
+     */
+    private static void readHuggingFaceVocab(JsonReader json, List<String> tokens) throws IOException {
+        json.beginObject();
+        while (json.hasNext()) {
+            if (!json.nextName().equals("model")) {
+                json.skipValue();
+                continue;
+            }
+            json.beginObject();
+            while (json.hasNext()) {
+                if (!json.nextName().equals("vocab")) {
+                    json.skipValue();
+                } else if (json.peek() == JsonToken.BEGIN_OBJECT) {
+                    json.beginObject();
+                    while (json.hasNext()) {
+                        tokens.add(json.nextName());
+                        json.skipValue();
+                    }
+                    json.endObject();
+                } else {
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        json.beginArray();
+                        tokens.add(json.nextString());
+                        while (json.hasNext()) json.skipValue();
+                        json.endArray();
+                    }
+                    json.endArray();
+                }
+            }
+            json.endObject();
+        }
+        json.endObject();
+    }
+
+    /**
+     * Converte os tokens para o texto que representam.
+     */
+    static List<String> decode(List<String> raw) {
+        boolean byteLevel = raw.stream().anyMatch(token -> token.indexOf('Ġ') >= 0);
+        char[] byteOf = byteLevel ? gpt2ByteDecoder() : null;
+        CharsetDecoder utf8 = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        List<String> tokens = new ArrayList<>(raw.size());
+        for (String token : raw) {
+            if (SPECIAL.matcher(token).matches()) continue;
+            if (byteLevel) {
+                byte[] bytes = new byte[token.length()];
+                boolean valid = true;
+                for (int i = 0; i < token.length() && valid; i++) {
+                    char c = token.charAt(i);
+                    valid = c < byteOf.length && byteOf[c] != Character.MAX_VALUE;
+                    if (valid) bytes[i] = (byte) byteOf[c];
+                }
+                try {
+                    // fragmentos de um caractere multibyte ficam de fora: o fallback de bytes os conta
+                    if (valid) tokens.add(utf8.decode(ByteBuffer.wrap(bytes)).toString());
+                } catch (CharacterCodingException e) {
+                    // ignorado
+                }
+            } else {
+                tokens.add((token.startsWith("##") ? token.substring(2) : token).replace('▁', ' '));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Inverso do {@code bytes_to_unicode} do GPT-2: caractere do vocabulário → byte.
+     */
+    private static char[] gpt2ByteDecoder() {
+        char[] byteOf = new char[512];
+        Arrays.fill(byteOf, Character.MAX_VALUE);
+        int extra = 0;
+        for (int b = 0; b < 256; b++) {
+            boolean printable = (b >= '!' && b <= '~') || (b >= 0xA1 && b <= 0xAC) || (b >= 0xAE && b <= 0xFF);
+            byteOf[printable ? b : 256 + extra++] = (char) b;
+        }
+        return byteOf;
+    }
+}
@@ -1,6 +1,7 @@
 package com.fiap.contratAI_spring.model;
 
 import com.fiap.contratAI_spring.model.enums.ContractStatus;
+import com.fiap.contratAI_spring.search.ContractIndexingListener;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -9,6 +10,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "altered_contracts")
+@EntityListeners(ContractIndexingListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -19,9 +21,27 @@ public class AlteredContract {
     @SequenceGenerator(name = "altered_contract_seq_gen", sequenceName = "ALTERED_CONTRACT_SEQ", allocationSize = 1)
     private Long id;
 
+    /**
+     * Conteúdo inline; no modo {@code compressed} fica em {@link #contentBlob}.
+     * Leia e grave via {@link com.fiap.contratAI_spring.service.ContractContentStore}.
+     */
     @Lob
     private String content;
 
+    @OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    @JoinColumn(name = "content_blob_id")
+    private ContentBlob contentBlob;
+
+    /**
+     * Análise incremental da revisão; no modo {@code compressed} fica em {@link #analysisBlob}.
+     */
+    @Lob
+    private String analysis;
+
+    @OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    @JoinColumn(name = "analysis_blob_id")
+    private ContentBlob analysisBlob;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User owner;
@@ -34,4 +54,14 @@ public class AlteredContract {
     private ContractStatus status;
 
     private Long originalContractId;
+
+    /**
+     * Cláusulas novas ou alteradas em relação ao original, removidas do original e, entre as alteradas,
+     * as que precisaram de chamada ao LLM (as demais vieram do cache de cláusulas).
+     */
+    private Integer changedClauses;
+
+    private Integer removedClauses;
+
+    private Integer analyzedClauses;
 }
@@ -0,0 +1,46 @@
+package com.fiap.contratAI_spring.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import java.time.LocalDateTime;
+
+/**
+ * Envio em lote de contratos para análise (upload multipart/ZIP). O progresso não é gravado aqui:
+ * sai da contagem por status dos {@link Contract}s que apontam para o lote.
+ */
+@Entity
+@Table(name = "analysis_batches")
+@Getter
+@Setter
+@NoArgsConstructor
+public class AnalysisBatch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "analysis_batch_seq_gen")
+    @SequenceGenerator(name = "analysis_batch_seq_gen", sequenceName = "ANALYSIS_BATCH_SEQ", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User owner;
+
+    /**
+     * Contratos criados a partir do upload.
+     */
+    private int totalContracts;
+
+    /**
+     * Arquivos ignorados (formato não suportado, vazios ou grandes demais).
+     */
+    private int skippedFiles;
+
+    /**
+     * Nomes dos arquivos ignorados, um por linha, com o motivo.
+     */
+    @Lob
+    private String skippedDetails;
+
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
@@ -0,0 +1,40 @@
+package com.fiap.contratAI_spring.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import java.time.LocalDateTime;
+
+/**
+ * Análise do LLM para uma cláusula isolada, reaproveitada na análise incremental de revisões.
+ */
+@Entity
+@Table(name = "clause_findings")
+@Getter
+@Setter
+@NoArgsConstructor
+public class ClauseFinding {
+
+    /**
+     * SHA-256 (hex) de modelo + versão do template + impressão digital da cláusula.
+     */
+    @Id
+    @Column(length = 64)
+    private String findingKey;
+
+    /**
+     * {@link com.fiap.contratAI_spring.service.ContractChunker#clauseFingerprint(String)}.
+     */
+    @Column(length = 64)
+    private String fingerprint;
+
+    private String modelName;
+
+    private String templateVersion;
+
+    @Lob
+    private String finding;
+
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
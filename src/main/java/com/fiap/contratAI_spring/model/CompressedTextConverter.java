@@ -0,0 +1,75 @@
+package com.fiap.contratAI_spring.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Grava textos como UTF-8 comprimido com GZIP quando compensa.
+ * O primeiro byte indica o formato ({@link #RAW} ou {@link #GZIP}), então textos curtos ou
+ * incompressíveis ficam sem compressão e os dois formatos convivem na mesma coluna.
+ */
+@Converter
+public class CompressedTextConverter implements AttributeConverter<String, byte[]> {
+
+    static final byte RAW = 0;
+    static final byte GZIP = 1;
+
+    /**
+     * Abaixo disso o cabeçalho do GZIP (~20 bytes) costuma anular o ganho.
+     */
+    private static final int MIN_COMPRESS_BYTES = 256;
+
+    @Override
+    public byte[] convertToDatabaseColumn(String text) {
+        if (text == null) return null;
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        if (utf8.length >= MIN_COMPRESS_BYTES) {
+            byte[] compressed = gzip(utf8);
+            if (compressed.length < utf8.length) {
+                return compressed;
+            }
+        }
+        byte[] raw = new byte[utf8.length + 1];
+        raw[0] = RAW;
+        System.arraycopy(utf8, 0, raw, 1, utf8.length);
+        return raw;
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] data) {
+        if (data == null) return null;
+        if (data.length == 0) return "";
+        return switch (data[0]) {
+            case RAW -> new String(data, 1, data.length - 1, StandardCharsets.UTF_8);
+            case GZIP -> new String(gunzip(data), StandardCharsets.UTF_8);
+            default -> throw new IllegalStateException("Formato de texto comprimido desconhecido: " + data[0]);
+        };
+    }
+
+    private static byte[] gzip(byte[] utf8) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(utf8.length / 4 + 64);
+        out.write(GZIP);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out, 8192)) {
+            gzip.write(utf8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] data) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data, 1, data.length - 1), 8192)) {
+            return gzip.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao descomprimir texto armazenado.", e);
+        }
+    }
+}
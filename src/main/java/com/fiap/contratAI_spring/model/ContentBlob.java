@@ -0,0 +1,43 @@
+package com.fiap.contratAI_spring.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import java.time.LocalDateTime;
+
+/**
+ * Corpo de texto grande (contrato original, análise ou contrato gerado) guardado fora da linha
+ * da entidade dona e comprimido por {@link CompressedTextConverter}. As entidades apontam para cá
+ * com associações LAZY, então listagens nunca leem esta tabela.
+ */
+@Entity
+@Table(name = "content_blobs")
+@Getter
+@Setter
+@NoArgsConstructor
+public class ContentBlob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "content_blob_seq_gen")
+    @SequenceGenerator(name = "content_blob_seq_gen", sequenceName = "CONTENT_BLOB_SEQ", allocationSize = 50)
+    private Long id;
+
+    @Lob
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(name = "data")
+    private String text;
+
+    /**
+     * Tamanho do texto em caracteres, sem precisar descomprimir.
+     */
+    private int textLength;
+
+    /**
+     * SHA-256 (hex) do texto em UTF-8.
+     */
+    @Column(length = 64)
+    private String sha256;
+
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
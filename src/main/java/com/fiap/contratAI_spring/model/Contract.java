@@ -1,6 +1,7 @@
 package com.fiap.contratAI_spring.model;
 
 import com.fiap.contratAI_spring.model.enums.ContractStatus;
+import com.fiap.contratAI_spring.search.ContractIndexingListener;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -8,7 +9,11 @@ import lombok.Setter;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "contracts")
+@Table(name = "contracts", indexes = {
+        @Index(name = "idx_contracts_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_contracts_batch_id", columnList = "batch_id")
+})
+@EntityListeners(ContractIndexingListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -16,16 +21,36 @@ public class Contract {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "contract_seq_gen")
-    @SequenceGenerator(name = "contract_seq_gen", sequenceName = "CONTRACT_SEQ", allocationSize = 1)
+    @SequenceGenerator(name = "contract_seq_gen", sequenceName = "CONTRACT_SEQ", allocationSize = 50)
     private Long id;
 
+    /**
+     * Conteúdo inline (modo {@code inline} e contratos antigos): texto original seguido da análise.
+     * No modo {@code compressed} fica nulo e os textos vão para {@link #originalBlob} e {@link #analysisBlob}.
+     * Leia e grave sempre via {@link com.fiap.contratAI_spring.service.ContractContentStore}.
+     */
     @Lob
     private String content;
 
+    @OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    @JoinColumn(name = "original_blob_id")
+    private ContentBlob originalBlob;
+
+    @OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    @JoinColumn(name = "analysis_blob_id")
+    private ContentBlob analysisBlob;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User owner;
 
+    /**
+     * Lote de upload de onde o contrato veio, ou {@code null} se enviado individualmente.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "batch_id")
+    private AnalysisBatch batch;
+
     private String title;
 
     private LocalDateTime createdAt = LocalDateTime.now();
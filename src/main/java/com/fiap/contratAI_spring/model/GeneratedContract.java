@@ -1,6 +1,7 @@
 package com.fiap.contratAI_spring.model;
 
 import com.fiap.contratAI_spring.model.enums.ContractStatus;
+import com.fiap.contratAI_spring.search.ContractIndexingListener;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -9,6 +10,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "generated_contracts")
+@EntityListeners(ContractIndexingListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -16,12 +18,20 @@ public class GeneratedContract {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "generated_contract_seq_gen")
-    @SequenceGenerator(name = "generated_contract_seq_gen", sequenceName = "GENERATED_CONTRACT_SEQ", allocationSize = 1)
+    @SequenceGenerator(name = "generated_contract_seq_gen", sequenceName = "GENERATED_CONTRACT_SEQ", allocationSize = 50)
     private Long id;
 
+    /**
+     * Conteúdo inline; no modo {@code compressed} fica em {@link #contentBlob}.
+     * Leia e grave via {@link com.fiap.contratAI_spring.service.ContractContentStore}.
+     */
     @Lob
     private String content;
 
+    @OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    @JoinColumn(name = "content_blob_id")
+    private ContentBlob contentBlob;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User owner;
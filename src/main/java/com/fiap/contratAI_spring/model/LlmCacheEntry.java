@@ -0,0 +1,31 @@
+package com.fiap.contratAI_spring.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "llm_cache_entries")
+@Getter
+@Setter
+@NoArgsConstructor
+public class LlmCacheEntry {
+
+    /**
+     * SHA-256 (hex) de modelo + versão do template + prompt sanitizado.
+     */
+    @Id
+    @Column(length = 64)
+    private String cacheKey;
+
+    private String modelName;
+
+    private String templateVersion;
+
+    @Lob
+    private String response;
+
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
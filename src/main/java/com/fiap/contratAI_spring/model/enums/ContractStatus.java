@@ -3,4 +3,5 @@ package com.fiap.contratAI_spring.model.enums;
 public enum ContractStatus {
     PENDING,
     ANALYZED,
+    FAILED,
 }
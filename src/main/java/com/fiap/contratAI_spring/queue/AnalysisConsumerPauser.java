@@ -0,0 +1,148 @@
+package com.fiap.contratAI_spring.queue;
+
+import com.fiap.contratAI_spring.config.RabbitMQConfig;
+import com.fiap.contratAI_spring.llm.LlmCircuitBreaker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pausa os consumidores da fila de análise enquanto o {@link LlmCircuitBreaker} estiver aberto, para que
+ * uma queda do Ollama não esvazie o backlog em falhas e retries. As mensagens ficam na fila; quando o
+ * circuito passa a HALF_OPEN um único container volta, com um consumidor, e a primeira análise serve de
+ * teste. Os demais, e a concorrência configurada, só voltam quando o circuito fecha.
+ */
+@Component
+public class AnalysisConsumerPauser {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisConsumerPauser.class);
+
+    private static final List<String> LISTENER_IDS = List.of(
+            RabbitMQConfig.ANALYSIS_LISTENER_ID, RabbitMQConfig.ANALYSIS_BATCH_LISTENER_ID);
+
+    private final LlmCircuitBreaker circuitBreaker;
+    private final RabbitListenerEndpointRegistry registry;
+    private final int concurrentConsumers;
+    private final int maxConcurrentConsumers;
+    private final int batchConsumers;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, MessageListenerContainer> paused = new LinkedHashMap<>();
+    /** Container religado para a chamada de teste do HALF_OPEN, ou {@code null}. */
+    private String probing;
+
+    public AnalysisConsumerPauser(LlmCircuitBreaker circuitBreaker, RabbitListenerEndpointRegistry registry,
+                                  @Value("${analysis.consumers.concurrent:1}") int concurrentConsumers,
+                                  @Value("${analysis.consumers.max:1}") int maxConcurrentConsumers,
+                                  @Value("${analysis.batch.consumers:1}") int batchConsumers) {
+        this.circuitBreaker = circuitBreaker;
+        this.registry = registry;
+        this.concurrentConsumers = Math.max(1, concurrentConsumers);
+        this.maxConcurrentConsumers = Math.max(this.concurrentConsumers, maxConcurrentConsumers);
+        this.batchConsumers = Math.max(1, batchConsumers);
+        circuitBreaker.addListener(state -> {
+            // o aviso vem da thread do consumidor; parar o container nela travaria a parada
+            if (state == LlmCircuitBreaker.State.OPEN) {
+                Thread.ofVirtual().name("analysis-consumer-pause").start(this::pause);
+            } else if (state == LlmCircuitBreaker.State.CLOSED) {
+                Thread.ofVirtual().name("analysis-consumer-resume").start(this::resumeIfClosed);
+            }
+        });
+    }
+
+    /**
+     * Com o circuito em HALF_OPEN religa um consumidor para a chamada de teste; fechado, religa todos.
+     */
+    @Scheduled(initialDelayString = "${llm.circuit.probe-interval-ms:5000}",
+            fixedDelayString = "${llm.circuit.probe-interval-ms:5000}")
+    public void resumeIfClosed() {
+        LlmCircuitBreaker.State state = circuitBreaker.state();
+        if (state == LlmCircuitBreaker.State.OPEN) return;
+        // parada e retomada sob o mesmo lock, para uma não desfazer a outra pela metade
+        lock.lock();
+        try {
+            if (paused.isEmpty()) return;
+            if (state == LlmCircuitBreaker.State.HALF_OPEN) {
+                startProbe();
+                return;
+            }
+            log.info("Circuit breaker do LLM fechado: retomando {} consumidor(es) da fila de análise", paused.size());
+            paused.forEach((id, container) -> {
+                restoreConcurrency(id, container);
+                if (!container.isRunning()) {
+                    container.start();
+                }
+            });
+            paused.clear();
+            probing = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isPaused() {
+        lock.lock();
+        try {
+            return !paused.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deve ser chamado com o lock.
+     */
+    private void startProbe() {
+        if (probing != null) return;
+        Map.Entry<String, MessageListenerContainer> first = paused.entrySet().iterator().next();
+        if (first.getValue() instanceof SimpleMessageListenerContainer container) {
+            container.setConcurrentConsumers(1);
+            container.setMaxConcurrentConsumers(1);
+        }
+        log.info("Circuit breaker do LLM meio-aberto: retomando um consumidor da fila de análise para teste");
+        probing = first.getKey();
+        first.getValue().start();
+    }
+
+    private void restoreConcurrency(String id, MessageListenerContainer listenerContainer) {
+        if (!(listenerContainer instanceof SimpleMessageListenerContainer container)) return;
+        if (RabbitMQConfig.ANALYSIS_BATCH_LISTENER_ID.equals(id)) {
+            container.setMaxConcurrentConsumers(batchConsumers);
+            container.setConcurrentConsumers(batchConsumers);
+        } else {
+            container.setMaxConcurrentConsumers(maxConcurrentConsumers);
+            container.setConcurrentConsumers(concurrentConsumers);
+        }
+    }
+
+    private void pause() {
+        lock.lock();
+        try {
+            if (circuitBreaker.state() != LlmCircuitBreaker.State.OPEN) return;
+            Map<String, MessageListenerContainer> toStop = new LinkedHashMap<>();
+            for (String id : LISTENER_IDS) {
+                MessageListenerContainer container = registry.getListenerContainer(id);
+                // o container do teste falhou junto com a chamada: volta a parar
+                if (container != null && container.isRunning() && (!paused.containsKey(id) || id.equals(probing))) {
+                    toStop.put(id, container);
+                }
+            }
+            probing = null;
+            if (toStop.isEmpty()) return;
+            log.warn("Circuit breaker do LLM aberto: pausando {} consumidor(es) da fila de análise", toStop.size());
+            toStop.values().forEach(MessageListenerContainer::stop);
+            paused.putAll(toStop);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.fiap.contratAI_spring.queue;
+
+import com.fiap.contratAI_spring.config.RabbitMQConfig;
+import com.fiap.contratAI_spring.dto.DeadLetterDTO;
+import com.fiap.contratAI_spring.model.enums.ContractStatus;
+import com.fiap.contratAI_spring.queue.ContractAnalysisListener.AnalysisMessage;
+import com.fiap.contratAI_spring.repository.AlteredContractRepository;
+import com.fiap.contratAI_spring.repository.ContractRepository;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.GetResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inspeção e replay da DLQ de análise ({@link RabbitMQConfig#DEAD_LETTER_QUEUE_NAME}).
+ *
+ * <p>As mensagens são lidas com {@code basic.get} sem ack: na inspeção todas voltam para a fila ao final;
+ * no replay o contrato (ou a revisão) de cada mensagem selecionada volta a PENDING antes de ela ser republicada na fila
+ * principal (com o contador de tentativas zerado), e a mensagem só sai da DLQ depois do confirm do broker
+ * para a cópia, em até {@code analysis.retry.confirm-timeout-ms}.
+ */
+@Service
+public class AnalysisDeadLetterService {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisDeadLetterService.class);
+
+    private final RabbitTemplate rabbitTemplate;
+    private final ContractRepository contractRepository;
+    private final AlteredContractRepository alteredContractRepository;
+    private final long confirmTimeoutMs;
+
+    public AnalysisDeadLetterService(RabbitTemplate rabbitTemplate, ContractRepository contractRepository,
+                                     AlteredContractRepository alteredContractRepository,
+                                     @Value("${analysis.retry.confirm-timeout-ms:10000}") long confirmTimeoutMs) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.contractRepository = contractRepository;
+        this.alteredContractRepository = alteredContractRepository;
+        this.confirmTimeoutMs = Math.max(1, confirmTimeoutMs);
+    }
+
+    public List<DeadLetterDTO> inspect(int limit) {
+        return rabbitTemplate.execute(channel -> {
+            List<DeadLetterDTO> result = new ArrayList<>();
+            long lastTag = -1;
+            try {
+                for (int i = 0; i < limit; i++) {
+                    GetResponse response = channel.basicGet(RabbitMQConfig.DEAD_LETTER_QUEUE_NAME, false);
+                    if (response == null) break;
+                    lastTag = response.getEnvelope().getDeliveryTag();
+                    result.add(toDto(response));
+                }
+            } finally {
+                if (lastTag >= 0) {
+                    channel.basicNack(lastTag, true, true);
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Republica até {@code limit} mensagens da DLQ na fila de análise.
+     *
+     * @param contractId só as mensagens deste contrato, ou {@code null} para todas
+     * @return ids dos contratos reenviados
+     */
+    public List<Long> replay(int limit, Long contractId) {
+        List<Long> replayed = rabbitTemplate.execute(channel -> {
+            List<Long> ids = new ArrayList<>();
+            List<Long> skippedTags = new ArrayList<>();
+            try {
+                for (int i = 0; i < limit; i++) {
+                    GetResponse response = channel.basicGet(RabbitMQConfig.DEAD_LETTER_QUEUE_NAME, false);
+                    if (response == null) break;
+                    long tag = response.getEnvelope().getDeliveryTag();
+                    AnalysisMessage message = messageOf(response);
+                    Long messageContractId = message != null ? message.contractId() : null;
+                    if (contractId != null && !contractId.equals(messageContractId)) {
+                        skippedTags.add(tag);
+                        continue;
+                    }
+                    // PENDING antes da publicação: gravado depois, sobrescreveria o ANALYZED de uma análise rápida
+                    ContractStatus previous = markPending(message);
+                    try {
+                        republish(channel, response);
+                        channel.waitForConfirmsOrDie(confirmTimeoutMs);
+                    } catch (Exception e) {
+                        restoreStatus(message, previous);
+                        channel.basicNack(tag, false, true);
+                        throw e;
+                    }
+                    channel.basicAck(tag, false);
+                    if (messageContractId != null) {
+                        ids.add(messageContractId);
+                    }
+                }
+            } finally {
+                for (Long tag : skippedTags) {
+                    channel.basicNack(tag, false, true);
+                }
+            }
+            return ids;
+        });
+
+        log.info("Replay da DLQ: {} mensagem(ns) reenviada(s) para análise", replayed.size());
+        return replayed;
+    }
+
+    /**
+     * Volta a PENDING o contrato ou a revisão da mensagem e retorna o status anterior
+     * ({@code null} se a mensagem não aponta para nenhum registro).
+     */
+    private ContractStatus markPending(AnalysisMessage message) {
+        if (message == null) return null;
+        if (message.revision()) {
+            return alteredContractRepository.findById(message.revisionId()).map(revision -> {
+                ContractStatus previous = revision.getStatus();
+                revision.setStatus(ContractStatus.PENDING);
+                alteredContractRepository.save(revision);
+                return previous;
+            }).orElse(null);
+        }
+        if (message.contractId() == null) return null;
+        return contractRepository.findById(message.contractId()).map(contract -> {
+            ContractStatus previous = contract.getStatus();
+            contract.setStatus(ContractStatus.PENDING);
+            contractRepository.save(contract);
+            return previous;
+        }).orElse(null);
+    }
+
+    /**
+     * Desfaz {@link #markPending} quando a mensagem não foi republicada e continua na DLQ.
+     */
+    private void restoreStatus(AnalysisMessage message, ContractStatus previous) {
+        if (message == null || previous == null) return;
+        if (message.revision()) {
+            alteredContractRepository.findById(message.revisionId()).ifPresent(revision -> {
+                if (revision.getStatus() != ContractStatus.PENDING) return;
+                revision.setStatus(previous);
+                alteredContractRepository.save(revision);
+            });
+            return;
+        }
+        if (message.contractId() == null) return;
+        contractRepository.findById(message.contractId()).ifPresent(contract -> {
+            if (contract.getStatus() != ContractStatus.PENDING) return;
+            contract.setStatus(previous);
+            contractRepository.save(contract);
+        });
+    }
+
+    private static void republish(Channel channel, GetResponse response) throws IOException {
+        AMQP.BasicProperties original = response.getProps();
+        Map<String, Object> headers = new HashMap<>();
+        if (original.getHeaders() != null) {
+            original.getHeaders().forEach((name, value) -> {
+                if (!name.startsWith("x-analysis-") && !name.startsWith("x-death")
+                        && !name.startsWith("x-first-death") && !name.startsWith("x-last-death")) {
+                    headers.put(name, value);
+                }
+            });
+        }
+        AMQP.BasicProperties properties = original.builder().headers(headers).build();
+        channel.basicPublish(RabbitMQConfig.EXCHANGE_NAME, RabbitMQConfig.ROUTING_KEY, properties, response.getBody());
+    }
+
+    private static DeadLetterDTO toDto(GetResponse response) {
+        String body = new String(response.getBody(), StandardCharsets.UTF_8);
+        Map<String, Object> headers = response.getProps().getHeaders() != null ? response.getProps().getHeaders() : Map.of();
+        Long userId = null;
+        Long contractId = null;
+        try {
+            ContractAnalysisListener.AnalysisMessage message = ContractAnalysisListener.parseMessage(body);
+            contractId = message.contractId();
+            userId = message.userId();
+        } catch (RuntimeException e) {
+            // corpo inválido: é justamente o que a inspeção precisa mostrar
+        }
+        Object attempts = headers.get(AnalysisRetryPublisher.ATTEMPT_HEADER);
+        Object error = headers.get(AnalysisRetryPublisher.ERROR_HEADER);
+        Object deadLetteredAt = headers.get(AnalysisRetryPublisher.DEAD_LETTERED_AT_HEADER);
+        return new DeadLetterDTO(
+                contractId,
+                userId,
+                attempts instanceof Number n ? n.intValue() : 0,
+                error != null ? error.toString() : null,
+                deadLetteredAt instanceof Number n
+                        ? LocalDateTime.ofInstant(Instant.ofEpochMilli(n.longValue()), ZoneId.systemDefault())
+                        : null,
+                body.length());
+    }
+
+    private static AnalysisMessage messageOf(GetResponse response) {
+        try {
+            return ContractAnalysisListener.parseMessage(new String(response.getBody(), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.fiap.contratAI_spring.queue;
+
+import com.fiap.contratAI_spring.config.RabbitMQConfig;
+import com.fiap.contratAI_spring.llm.LlmCircuitOpenException;
+import com.fiap.contratAI_spring.llm.LlmUnavailableException;
+import com.google.gson.JsonParseException;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Destino das mensagens de análise que falharam.
+ *
+ * <p>Falhas transitórias (LLM indisponível, timeout, erro de I/O) voltam para a fila principal depois
+ * de passar pela fila de retry do próximo atraso de {@code analysis.retry.delays-ms}, com backoff crescente.
+ * Falhas permanentes, e transitórias sem tentativas restantes, vão para a DLQ
+ * ({@link RabbitMQConfig#DEAD_LETTER_QUEUE_NAME}) com o erro nos headers, para inspeção e replay.
+ * Mensagens adiadas pelo fair-share, e as recusadas pelo circuit breaker do LLM, passam pela fila de espera
+ * sem contar tentativa.
+ *
+ * <p>Toda publicação espera o confirm do broker ({@code spring.rabbitmq.publisher-confirm-type=CORRELATED})
+ * por até {@code analysis.retry.confirm-timeout-ms}; sem confirmação lança {@link AmqpException} e quem
+ * chamou não deve confirmar a mensagem original.
+ */
+@Component
+public class AnalysisRetryPublisher {
+
+    public static final String ATTEMPT_HEADER = "x-analysis-attempt";
+    public static final String ERROR_HEADER = "x-analysis-error";
+    public static final String DEAD_LETTERED_AT_HEADER = "x-analysis-dead-lettered-at";
+
+    private static final int MAX_ERROR_CHARS = 500;
+
+    public enum Outcome { RETRY, DEFERRED, DEAD_LETTER }
+
+    private final RabbitTemplate rabbitTemplate;
+    private final List<Long> retryDelaysMs;
+    private final long deferMs;
+    private final long confirmTimeoutMs;
+
+    public AnalysisRetryPublisher(RabbitTemplate rabbitTemplate,
+                                  @Value("${analysis.retry.delays-ms:5000,30000,120000}") List<Long> retryDelaysMs,
+                                  @Value("${analysis.fair-share.defer-ms:2000}") long deferMs,
+                                  @Value("${analysis.retry.confirm-timeout-ms:10000}") long confirmTimeoutMs) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.retryDelaysMs = List.copyOf(retryDelaysMs);
+        this.deferMs = deferMs;
+        this.confirmTimeoutMs = Math.max(1, confirmTimeoutMs);
+    }
+
+    /**
+     * Reagenda ou envia para a DLQ a mensagem que falhou.
+     *
+     * @param original mensagem recebida (headers e prioridade são preservados)
+     * @param body corpo a republicar; pode diferir do original (ex.: com o contractId criado no processamento)
+     */
+    public Outcome handleFailure(Message original, String body, Throwable error) {
+        if (isCircuitOpen(error)) {
+            // o LLM nem foi chamado: a mensagem espera o circuito sem gastar tentativa
+            defer(original, body);
+            return Outcome.DEFERRED;
+        }
+        int attempt = attempt(original);
+        if (isTransient(error) && attempt < retryDelaysMs.size()) {
+            long delay = retryDelaysMs.get(attempt);
+            Message retry = copy(original, body)
+                    .setHeader(ATTEMPT_HEADER, attempt + 1)
+                    .build();
+            send(RabbitMQConfig.retryQueueName(delay), retry);
+            return Outcome.RETRY;
+        }
+
+        Message dead = copy(original, body)
+                .setHeader(ATTEMPT_HEADER, attempt)
+                .setHeader(ERROR_HEADER, describe(error))
+                .setHeader(DEAD_LETTERED_AT_HEADER, System.currentTimeMillis())
+                .build();
+        send(RabbitMQConfig.DEAD_LETTER_ROUTING_KEY, dead);
+        return Outcome.DEAD_LETTER;
+    }
+
+    /**
+     * Adia a mensagem de um usuário no limite do {@link FairShareGate}: depois de {@code analysis.fair-share.defer-ms}
+     * na fila de espera ela volta ao fim da fila principal, com o mesmo contador de tentativas.
+     */
+    public void defer(Message original, String body) {
+        send(RabbitMQConfig.deferQueueName(deferMs), copy(original, body).build());
+    }
+
+    /**
+     * Tentativas já feitas antes desta entrega (0 na primeira).
+     */
+    public static int attempt(Message message) {
+        Object value = message.getMessageProperties().getHeader(ATTEMPT_HEADER);
+        return value instanceof Number n ? n.intValue() : 0;
+    }
+
+    static boolean isCircuitOpen(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof LlmCircuitOpenException) return true;
+        }
+        return false;
+    }
+
+    static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            // mensagem malformada (o Gson embrulha um MalformedJsonException, que é IOException) não melhora com retry
+            if (cause instanceof JsonParseException) return false;
+            if (cause instanceof LlmUnavailableException
+                    || cause instanceof IOException
+                    || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void send(String routingKey, Message message) {
+        CorrelationData correlation = new CorrelationData();
+        rabbitTemplate.send(RabbitMQConfig.RETRY_EXCHANGE_NAME, routingKey, message, correlation);
+        CorrelationData.Confirm confirm;
+        try {
+            confirm = correlation.getFuture().get(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmqpException("Interrompido aguardando confirmação do broker para " + routingKey, e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new AmqpException("Sem confirmação do broker para " + routingKey, e);
+        }
+        if (!confirm.isAck()) {
+            throw new AmqpException("Broker recusou a mensagem para " + routingKey + ": " + confirm.getReason());
+        }
+    }
+
+    private static MessageBuilder copy(Message original, String body) {
+        MessageProperties properties = original.getMessageProperties();
+        MessageBuilder builder = MessageBuilder.withBody(body.getBytes(StandardCharsets.UTF_8));
+        builder.setContentType(properties.getContentType() != null ? properties.getContentType() : MessageProperties.CONTENT_TYPE_TEXT_PLAIN);
+        builder.setContentEncoding(StandardCharsets.UTF_8.name());
+        builder.setDeliveryMode(properties.getDeliveryMode() != null ? properties.getDeliveryMode() : MessageProperties.DEFAULT_DELIVERY_MODE);
+        if (properties.getPriority() != null) {
+            builder.setPriority(properties.getPriority());
+        }
+        properties.getHeaders().forEach((name, value) -> {
+            if (!name.startsWith("x-death") && !name.startsWith("x-first-death") && !name.startsWith("x-last-death")) {
+                builder.setHeader(name, value);
+            }
+        });
+        return builder;
+    }
+
+    private static String describe(Throwable error) {
+        Throwable root = error;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        String text = error.getClass().getSimpleName() + ": " + error.getMessage();
+        if (root != error) {
+            text += " (causa: " + root.getClass().getSimpleName() + ": " + root.getMessage() + ")";
+        }
+        return text.length() > MAX_ERROR_CHARS ? text.substring(0, MAX_ERROR_CHARS) : text;
+    }
+}
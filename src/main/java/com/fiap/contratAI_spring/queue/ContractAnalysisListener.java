@@ -1,81 +1,700 @@
 package com.fiap.contratAI_spring.queue;
 
+import com.fiap.contratAI_spring.config.AsyncConfig;
 import com.fiap.contratAI_spring.config.RabbitMQConfig;
 import com.fiap.contratAI_spring.model.Contract;
 import com.fiap.contratAI_spring.model.User;
 import com.fiap.contratAI_spring.model.enums.ContractStatus;
 import com.fiap.contratAI_spring.repository.ContractRepository;
 import com.fiap.contratAI_spring.repository.UserRepository;
+import com.fiap.contratAI_spring.service.AnalysisJobService;
 import com.fiap.contratAI_spring.service.ContractAIService;
+import com.fiap.contratAI_spring.service.ContractContentStore;
+import com.fiap.contratAI_spring.service.DuplicateAnalysisService;
+import com.fiap.contratAI_spring.service.LlmMetrics;
+import com.fiap.contratAI_spring.service.RevisionAnalysisService;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class ContractAnalysisListener {
 
-    private final Set<String> processingMessages = ConcurrentHashMap.newKeySet();
-    private final ContractAIService contractAIService;
+    private static final Logger log = LoggerFactory.getLogger(ContractAnalysisListener.class);
+
+    /**
+     * Tag {@code operation} de {@code analysis.completed}.
+     */
+    private static final String OPERATION_CONTRACT = "analyze";
+    private static final String OPERATION_REVISION = "analyze-revision";
+
+    private final DuplicateAnalysisService duplicateAnalysisService;
     private final ContractRepository contractRepository;
     private final UserRepository userRepository;
+    private final AnalysisJobService analysisJobService;
+    private final RevisionAnalysisService revisionAnalysisService;
+    private final ContractContentStore contentStore;
+    private final LlmMetrics metrics;
+    private final FairShareGate fairShareGate;
+    private final long fairShareWaitMs;
+    private final long fairShareBatchWaitMs;
+    private final AnalysisRetryPublisher retryPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor batchExecutor;
 
-    public ContractAnalysisListener(ContractAIService contractAIService,
+    public ContractAnalysisListener(DuplicateAnalysisService duplicateAnalysisService,
                                    ContractRepository contractRepository,
-                                   UserRepository userRepository) {
-        this.contractAIService = contractAIService;
+                                   UserRepository userRepository,
+                                   AnalysisJobService analysisJobService,
+                                   RevisionAnalysisService revisionAnalysisService,
+                                   ContractContentStore contentStore,
+                                   LlmMetrics metrics,
+                                   FairShareGate fairShareGate,
+                                   @Value("${analysis.fair-share.wait-ms:200}") long fairShareWaitMs,
+                                   @Value("${analysis.fair-share.batch-wait-ms:60000}") long fairShareBatchWaitMs,
+                                   AnalysisRetryPublisher retryPublisher,
+                                   PlatformTransactionManager transactionManager,
+                                   @Qualifier(AsyncConfig.ANALYSIS_BATCH_EXECUTOR) Executor batchExecutor) {
+        this.duplicateAnalysisService = duplicateAnalysisService;
         this.contractRepository = contractRepository;
         this.userRepository = userRepository;
+        this.analysisJobService = analysisJobService;
+        this.revisionAnalysisService = revisionAnalysisService;
+        this.contentStore = contentStore;
+        this.metrics = metrics;
+        this.fairShareGate = fairShareGate;
+        this.fairShareWaitMs = fairShareWaitMs;
+        this.fairShareBatchWaitMs = fairShareBatchWaitMs;
+        this.retryPublisher = retryPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchExecutor = batchExecutor;
     }
 
-    @RabbitListener(queues = RabbitMQConfig.QUEUE_NAME)
-    public void processContractAnalysis(String message) {
-        String messageHash = String.valueOf(message.hashCode());
-        
-        if (!processingMessages.add(messageHash)) {
-            System.out.println("[DEDUP] Mensagem duplicada detectada, ignorando: " + messageHash);
-            return;
-        }
-        
-        System.out.println("[INICIO] Processando mensagem: " + messageHash);
-        System.out.println("[FILA] Mensagens em processamento simultâneo: " + processingMessages.size());
-        System.out.println("Recebido para processamento assíncrono: " + message);
-
+    /**
+     * Processa uma mensagem. Se o dono já ocupa sua parcela da capacidade ({@link FairShareGate}) por mais de
+     * {@code analysis.fair-share.wait-ms}, a mensagem vai para a fila de espera (que a devolve ao fim da fila, sem
+     * contar tentativa) e o consumidor segue para a próxima.
+     * Falhas transitórias do LLM são reagendadas com backoff e as demais vão para a DLQ
+     * ({@link AnalysisRetryPublisher}); o contrato só é marcado como FAILED quando a mensagem vai para a DLQ.
+     * Chamadas recusadas pelo circuit breaker também passam pela fila de espera, sem contar tentativa.
+     * Mensagens de revisão ({@code revisionId}) seguem o mesmo caminho e são analisadas pelo {@link RevisionAnalysisService}.
+     */
+    @RabbitListener(id = RabbitMQConfig.ANALYSIS_LISTENER_ID, queues = RabbitMQConfig.QUEUE_NAME,
+            autoStartup = "#{!${analysis.batch.enabled:false}}")
+    public void processContractAnalysis(Message amqpMessage) {
+        // contratos idênticos em processamento simultâneo compartilham a chamada ao LLM (single-flight no serviço)
+        String message = new String(amqpMessage.getBody(), StandardCharsets.UTF_8);
+        Contract contract = null;
+        AnalysisMessage parsed = null;
+        Timer.Sample processing = metrics.analysisStarted();
+        boolean success = false;
+        boolean deferred = false;
+        boolean retried = false;
+        Long admittedOwner = null;
         try {
-            JsonObject json = JsonParser.parseString(message).getAsJsonObject();
-            String contractText = json.get("contract").getAsString();
-            Long userId = json.get("userId").getAsLong();
+            parsed = parseMessage(message);
+            if (!fairShareGate.tryAcquire(parsed.userId(), fairShareWaitMs, TimeUnit.MILLISECONDS)) {
+                deferred = true;
+                defer(amqpMessage, message, parsed.userId());
+                return;
+            }
+            admittedOwner = parsed.userId();
+            recordQueueWait(amqpMessage, parsed);
+            if (parsed.revision()) {
+                log.info("Recebido para processamento assíncrono: revisão {}", parsed.revisionId());
+                revisionAnalysisService.analyze(parsed.revisionId());
+                success = true;
+                return;
+            }
+            log.info("Recebido para processamento assíncrono: contrato {} (mensagem com {} caracteres{})",
+                    parsed.contractId(), message.length(), parsed.claimCheck() ? ", claim-check" : "");
+            String contractText;
+            Long userId = parsed.userId();
+
+            if (parsed.contractId() != null) {
+                Long contractId = parsed.contractId();
+                if (parsed.claimCheck()) {
+                    contract = transactionTemplate.execute(status -> {
+                        Contract found = contractRepository.findById(contractId)
+                                .orElseThrow(() -> new RuntimeException("Contrato não encontrado: " + contractId));
+                        contentStore.original(found); // carrega o blob LAZY dentro da transação
+                        return found;
+                    });
+                    contractText = verifiedOriginal(contract, parsed.sha256());
+                } else {
+                    contract = contractRepository.findById(contractId)
+                            .orElseThrow(() -> new RuntimeException("Contrato não encontrado: " + contractId));
+                    contractText = parsed.contract();
+                }
+            } else {
+                contractText = parsed.contract();
+
+                // mensagens enfileiradas antes da criação do contrato no envio
+                User user = userRepository.findById(userId)
+                        .orElseThrow(() -> new RuntimeException("Usuário não encontrado: " + userId));
+
+                contract = new Contract();
+                contentStore.setOriginal(contract, contractText);
+                contract.setOwner(user);
+                contract.setTitle("Contrato para Análise");
+                contract.setStatus(ContractStatus.PENDING);
+                contract = contractRepository.save(contract);
+
+                log.info("Contrato salvo no banco de dados com ID: {}", contract.getId());
+            }
+
+            log.info("Contrato extraído com sucesso. Tamanho: {} caracteres", contractText.length());
             
-            System.out.println("Contrato extraído com sucesso. Tamanho: " + contractText.length() + " caracteres");
+            String analysisResult = duplicateAnalysisService.analyze(contract.getId(), userId, contractText);
             
-            User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new RuntimeException("Usuário não encontrado: " + userId));
+            applyAnalysis(contract, contractText, analysisResult);
+            contractRepository.save(contract);
+            success = true;
             
+            log.info("Análise concluída e salva. ID: {}", contract.getId());
+        } catch (ImmediateRequeueAmqpException e) {
+            throw e;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            log.error("Erro ao processar contrato: {}", e.getMessage(), e);
+            // mensagens antigas sem contractId: o retry reaproveita o contrato já criado
+            String body = parsed != null && parsed.contractId() == null && contract != null && contract.getId() != null
+                    ? withContractId(message, contract.getId())
+                    : message;
+            AnalysisRetryPublisher.Outcome outcome;
+            try {
+                outcome = retryPublisher.handleFailure(amqpMessage, body, e);
+            } catch (RuntimeException publishError) {
+                // sem confirm do broker a cópia pode não existir: a original volta para a fila
+                log.error("Falha ao reagendar mensagem: {}", publishError.getMessage(), publishError);
+                retried = true;
+                throw new ImmediateRequeueAmqpException("Falha ao reagendar - mensagem devolvida à fila", publishError);
+            }
+            deferred = outcome == AnalysisRetryPublisher.Outcome.DEFERRED;
+            retried = outcome == AnalysisRetryPublisher.Outcome.RETRY;
+            if (deferred) {
+                log.warn("LLM indisponível (circuit breaker aberto); análise adiada sem contar tentativa");
+            } else if (retried) {
+                log.warn("Análise reagendada (tentativa {})", AnalysisRetryPublisher.attempt(amqpMessage) + 1);
+            } else {
+                metrics.recordDeadLettered();
+                markFailed(contract);
+                if (parsed != null && parsed.revision()) {
+                    revisionAnalysisService.markFailed(parsed.revisionId());
+                }
+            }
+        } finally {
+            if (admittedOwner != null) {
+                fairShareGate.release(admittedOwner);
+            }
+            if (deferred) {
+                metrics.analysisDeferred(processing);
+            } else if (retried) {
+                metrics.analysisRetried(processing);
+            } else {
+                metrics.analysisFinished(processing, operation(parsed), success);
+                if (contract != null && contract.getId() != null) {
+                    analysisJobService.notifyFinished(contract.getId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Modo em lote ({@code analysis.batch.enabled=true}): recebe até {@code analysis.batch.size}
+     * mensagens de uma vez. Contratos e usuários são buscados com uma consulta por lote, as análises
+     * rodam em paralelo no executor {@link AsyncConfig#ANALYSIS_BATCH_EXECUTOR} (as chamadas ao LLM limitadas pelo
+     * {@code AdaptiveConcurrencyLimiter} e, por dono, pelo {@link FairShareGate}, com espera de até
+     * {@code analysis.fair-share.batch-wait-ms} antes de adiar a mensagem) e os resultados são gravados
+     * em uma única transação com batch JDBC. Falhas de uma mensagem não afetam as demais: como no modo
+     * unitário, falhas transitórias são reagendadas e as demais vão para a DLQ com o contrato em FAILED,
+     * inclusive as que só falham ao gravar. Cada mensagem é confirmada individualmente; as que não puderam
+     * ser reagendadas nem enviadas à DLQ voltam para a fila.
+     */
+    @RabbitListener(id = RabbitMQConfig.ANALYSIS_BATCH_LISTENER_ID, queues = RabbitMQConfig.QUEUE_NAME,
+            containerFactory = RabbitMQConfig.BATCH_CONTAINER_FACTORY, autoStartup = "${analysis.batch.enabled:false}")
+    public void processContractAnalysisBatch(List<Message> messages, Channel channel) {
+        log.info("Lote recebido para processamento assíncrono: {} mensagens", messages.size());
+
+        List<BatchItem> items = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            BatchItem item = new BatchItem(message, metrics.analysisStarted());
+            try {
+                item.message = parseMessage(item.body);
+                recordQueueWait(message, item.message);
+            } catch (Exception e) {
+                item.fail(e);
+            }
+            items.add(item);
+        }
+
+        boolean completed = false;
+        try {
+            resolveContracts(items);
+            analyzeAll(items);
+            routeFailures(items);
+            saveResults(items);
+            // falhas ao gravar só aparecem depois do primeiro roteamento
+            markLateFailures(routeFailures(items));
+            completed = true;
+        } finally {
+            if (!completed) {
+                // erro inesperado no meio do lote: o que ainda não tem destino volta para a fila
+                for (BatchItem item : items) {
+                    if (!item.deferred && !item.retried) item.requeue();
+                }
+            }
+            acknowledge(items, channel);
+            int failed = 0;
+            int retried = 0;
+            int deferred = 0;
+            for (BatchItem item : items) {
+                if (item.deferred) {
+                    deferred++;
+                    metrics.analysisDeferred(item.processing);
+                    continue;
+                }
+                if (item.retried) {
+                    retried++;
+                    metrics.analysisRetried(item.processing);
+                    continue;
+                }
+                metrics.analysisFinished(item.processing, operation(item.message), item.error == null);
+                if (item.error != null) failed++;
+                if (item.contractId != null) {
+                    analysisJobService.notifyFinished(item.contractId);
+                }
+            }
+            log.info("Lote finalizado: {} analisados, {} reagendados, {} adiados, {} com falha",
+                    items.size() - failed - retried - deferred, retried, deferred, failed);
+        }
+    }
+
+    /**
+     * Confere a existência dos contratos e cria (em um único saveAll) os das mensagens antigas sem contractId.
+     */
+    private void resolveContracts(List<BatchItem> items) {
+        Set<Long> contractIds = new HashSet<>();
+        Set<Long> userIds = new HashSet<>();
+        for (BatchItem item : pending(items)) {
+            if (item.message.revision()) continue;
+            if (item.message.contractId() != null) {
+                contractIds.add(item.message.contractId());
+            } else {
+                userIds.add(item.message.userId());
+            }
+        }
+
+        if (!contractIds.isEmpty()) {
+            // em transação para que os originais das mensagens claim-check (blobs LAZY) possam ser lidos
+            Map<Long, Contract> found = transactionTemplate.execute(status -> {
+                Map<Long, Contract> byId = new HashMap<>();
+                contractRepository.findAllById(contractIds).forEach(c -> byId.put(c.getId(), c));
+                for (BatchItem item : pending(items)) {
+                    Contract contract = byId.get(item.message.contractId());
+                    if (contract != null && item.message.claimCheck()) {
+                        contentStore.original(contract);
+                    }
+                }
+                return byId;
+            });
+            for (BatchItem item : pending(items)) {
+                Long contractId = item.message.contractId();
+                if (contractId == null) continue;
+                Contract contract = found.get(contractId);
+                if (contract == null) {
+                    item.fail(new RuntimeException("Contrato não encontrado: " + contractId));
+                    continue;
+                }
+                item.contractId = contractId;
+                try {
+                    item.text = item.message.claimCheck()
+                            ? verifiedOriginal(contract, item.message.sha256())
+                            : item.message.contract();
+                } catch (Exception e) {
+                    item.fail(e);
+                }
+            }
+        }
+
+        if (userIds.isEmpty()) return;
+        Map<Long, User> users = new HashMap<>();
+        userRepository.findAllById(userIds).forEach(u -> users.put(u.getId(), u));
+
+        List<BatchItem> legacy = new ArrayList<>();
+        List<Contract> created = new ArrayList<>();
+        for (BatchItem item : pending(items)) {
+            if (item.contractId != null || item.message.revision()) continue;
+            User user = users.get(item.message.userId());
+            if (user == null) {
+                item.fail(new RuntimeException("Usuário não encontrado: " + item.message.userId()));
+                continue;
+            }
+            item.text = item.message.contract();
             Contract contract = new Contract();
-            contract.setContent(contractText);
+            contentStore.setOriginal(contract, item.text);
             contract.setOwner(user);
             contract.setTitle("Contrato para Análise");
             contract.setStatus(ContractStatus.PENDING);
-            contract = contractRepository.save(contract);
-            
-            System.out.println("Contrato salvo no banco de dados com ID: " + contract.getId());
-            
-            String analysisResult = contractAIService.analyzeContract(contractText);
-            
-            contract.setContent(contractText + "\n\n=== ANÁLISE ===\n" + analysisResult);
-            contract.setStatus(ContractStatus.ANALYZED);
+            legacy.add(item);
+            created.add(contract);
+        }
+        if (created.isEmpty()) return;
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> contractRepository.saveAll(created));
+            for (int i = 0; i < legacy.size(); i++) {
+                legacy.get(i).contractId = created.get(i).getId();
+            }
+        } catch (Exception e) {
+            legacy.forEach(item -> item.fail(e));
+        }
+    }
+
+    private void analyzeAll(List<BatchItem> items) {
+        List<BatchItem> toAnalyze = pending(items);
+        if (toAnalyze.isEmpty()) return;
+
+        List<FutureTask<String>> results = new ArrayList<>(toAnalyze.size());
+        for (BatchItem item : toAnalyze) {
+            FutureTask<String> task = new FutureTask<>(() -> {
+                Long owner = item.message.userId();
+                if (!fairShareGate.tryAcquire(owner, fairShareBatchWaitMs, TimeUnit.MILLISECONDS)) {
+                    item.deferred = true;
+                    return null;
+                }
+                try {
+                    if (item.message.revision()) {
+                        revisionAnalysisService.analyze(item.message.revisionId());
+                        return null;
+                    }
+                    return duplicateAnalysisService.analyze(item.contractId, owner, item.text);
+                } finally {
+                    fairShareGate.release(owner);
+                }
+            });
+            results.add(task);
+            batchExecutor.execute(task);
+        }
+        for (int i = 0; i < toAnalyze.size(); i++) {
+            BatchItem item = toAnalyze.get(i);
+            try {
+                item.analysis = results.get(i).get();
+            } catch (ExecutionException e) {
+                item.fail(e.getCause() != null ? e.getCause() : e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                item.fail(e);
+            }
+            if (item.deferred) {
+                try {
+                    retryPublisher.defer(item.amqpMessage, retryBody(item));
+                } catch (RuntimeException e) {
+                    log.error("Falha ao adiar mensagem do usuário {}; mensagem devolvida à fila: {}",
+                            item.message.userId(), e.getMessage(), e);
+                    item.deferred = false;
+                    item.requeue();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reagenda as falhas transitórias e envia as demais para a DLQ. Itens reagendados continuam PENDING.
+     * Se a publicação não for confirmada, a mensagem volta para a fila em vez de ser confirmada.
+     *
+     * @return itens enviados à DLQ nesta chamada
+     */
+    private List<BatchItem> routeFailures(List<BatchItem> items) {
+        List<BatchItem> deadLettered = new ArrayList<>();
+        for (BatchItem item : items) {
+            if (item.error == null || item.routed || item.requeued) continue;
+            item.routed = true;
+            AnalysisRetryPublisher.Outcome outcome;
+            try {
+                outcome = retryPublisher.handleFailure(item.amqpMessage, retryBody(item), item.error);
+            } catch (RuntimeException e) {
+                log.error("Falha ao reagendar mensagem do contrato {}; mensagem devolvida à fila: {}",
+                        item.contractId, e.getMessage(), e);
+                item.requeue();
+                continue;
+            }
+            item.deferred = outcome == AnalysisRetryPublisher.Outcome.DEFERRED;
+            item.retried = outcome == AnalysisRetryPublisher.Outcome.RETRY;
+            if (outcome == AnalysisRetryPublisher.Outcome.DEAD_LETTER) {
+                metrics.recordDeadLettered();
+                deadLettered.add(item);
+                if (item.message != null && item.message.revision()) {
+                    revisionAnalysisService.markFailed(item.message.revisionId());
+                }
+            }
+        }
+        return deadLettered;
+    }
+
+    /**
+     * Grava análises e falhas do lote em uma transação (um SELECT e updates em batch).
+     * Se a transação falhar, cada contrato é gravado isoladamente; os que ainda falharem ficam com erro
+     * para o segundo {@link #routeFailures}.
+     */
+    private void saveResults(List<BatchItem> items) {
+        List<BatchItem> toSave = items.stream()
+                .filter(item -> item.contractId != null && !item.retried && !item.deferred && !item.requeued)
+                .toList();
+        if (toSave.isEmpty()) return;
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<Long, Contract> contracts = new HashMap<>();
+                contractRepository.findAllById(toSave.stream().map(item -> item.contractId).toList())
+                        .forEach(c -> contracts.put(c.getId(), c));
+                for (BatchItem item : toSave) {
+                    applyResult(contracts.get(item.contractId), item);
+                }
+            });
+        } catch (Exception batchError) {
+            log.warn("Falha ao gravar o lote, gravando contratos individualmente: {}", batchError.getMessage());
+            for (BatchItem item : toSave) {
+                try {
+                    transactionTemplate.executeWithoutResult(status ->
+                            applyResult(contractRepository.findById(item.contractId).orElse(null), item));
+                } catch (Exception e) {
+                    item.fail(e);
+                }
+            }
+        }
+    }
+
+    private void applyResult(Contract contract, BatchItem item) {
+        if (contract == null) {
+            item.fail(new RuntimeException("Contrato não encontrado: " + item.contractId));
+            return;
+        }
+        if (item.error == null) {
+            applyAnalysis(contract, item.text, item.analysis);
+        } else {
+            contract.setStatus(ContractStatus.FAILED);
+        }
+    }
+
+    /**
+     * Marca como FAILED os contratos que só foram para a DLQ depois da gravação do lote.
+     */
+    private void markLateFailures(List<BatchItem> deadLettered) {
+        for (BatchItem item : deadLettered) {
+            if (item.contractId == null) continue;
+            try {
+                transactionTemplate.executeWithoutResult(status -> contractRepository.findById(item.contractId)
+                        .ifPresent(contract -> contract.setStatus(ContractStatus.FAILED)));
+            } catch (Exception e) {
+                log.error("Falha ao marcar contrato {} como FAILED: {}", item.contractId, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Confirma cada mensagem do lote, exceto as que voltam para a fila.
+     */
+    private static void acknowledge(List<BatchItem> items, Channel channel) {
+        for (BatchItem item : items) {
+            long tag = item.amqpMessage.getMessageProperties().getDeliveryTag();
+            try {
+                if (item.requeued) {
+                    channel.basicNack(tag, false, true);
+                } else {
+                    channel.basicAck(tag, false);
+                }
+            } catch (IOException e) {
+                // o canal caiu: o broker devolve à fila as mensagens não confirmadas
+                log.error("Falha ao confirmar mensagem {} do lote: {}", tag, e.getMessage(), e);
+            }
+        }
+    }
+
+    private static List<BatchItem> pending(List<BatchItem> items) {
+        return items.stream().filter(item -> item.error == null).toList();
+    }
+
+    /**
+     * Corpo a republicar (retry, DLQ ou fila de espera); mensagens antigas levam o contractId criado no lote.
+     */
+    private static String retryBody(BatchItem item) {
+        return item.message != null && item.message.contractId() == null && item.contractId != null
+                ? withContractId(item.body, item.contractId)
+                : item.body;
+    }
+
+    /**
+     * Manda para a fila de espera a mensagem de um dono no limite do fair-share. Se a publicação falhar,
+     * a mensagem volta para a fila (requeue) como último recurso.
+     */
+    private void defer(Message amqpMessage, String body, Long owner) {
+        try {
+            retryPublisher.defer(amqpMessage, body);
+            log.debug("Usuário {} no limite de análises simultâneas; mensagem adiada", owner);
+        } catch (RuntimeException e) {
+            throw new ImmediateRequeueAmqpException("Usuário " + owner
+                    + " no limite de análises simultâneas; falha ao adiar, mensagem devolvida à fila", e);
+        }
+    }
+
+    /**
+     * Espera na fila principal. Mensagens que voltaram de uma fila de retry ou de espera contam a partir do
+     * fim do TTL (o {@code time} do header {@code x-death} mais recente), não do envio original.
+     */
+    private void recordQueueWait(Message amqpMessage, AnalysisMessage parsed) {
+        List<Map<String, ?>> deaths = amqpMessage.getMessageProperties().getXDeathHeader();
+        if (deaths != null && !deaths.isEmpty() && deaths.get(0).get("time") instanceof Date requeuedAt) {
+            metrics.recordQueueWait(requeuedAt.getTime(), true);
+        } else if (parsed.enqueuedAt() != null) {
+            metrics.recordQueueWait(parsed.enqueuedAt(), false);
+        }
+    }
+
+    private static String operation(AnalysisMessage parsed) {
+        return parsed != null && parsed.revision() ? OPERATION_REVISION : OPERATION_CONTRACT;
+    }
+
+    /**
+     * Texto original de um contrato de mensagem claim-check, conferido com o SHA-256 enviado na mensagem.
+     * O contrato deve ter sido carregado com {@link ContractContentStore#original} dentro de uma transação.
+     */
+    private String verifiedOriginal(Contract contract, String expectedSha256) {
+        String text = contentStore.original(contract);
+        if (text == null || (expectedSha256 != null && !expectedSha256.equals(ContractContentStore.sha256(text)))) {
+            throw new IllegalStateException("Conteúdo do contrato " + contract.getId() + " não confere com o hash da mensagem.");
+        }
+        return text;
+    }
+
+    private void applyAnalysis(Contract contract, String contractText, String analysisResult) {
+        contentStore.setAnalysis(contract, contractText, analysisResult);
+        contract.setStatus(ContractStatus.ANALYZED);
+    }
+
+    /**
+     * Estado de uma mensagem dentro do lote.
+     */
+    private static final class BatchItem {
+        private final Message amqpMessage;
+        private final String body;
+        private final Timer.Sample processing;
+        private AnalysisMessage message;
+        private Long contractId;
+        private String text;
+        private String analysis;
+        private Throwable error;
+        private boolean retried;
+        private volatile boolean deferred;
+        /** Já passou por {@link #routeFailures}. */
+        private boolean routed;
+        /** Sem destino confirmado pelo broker: volta para a fila em vez de ser confirmada. */
+        private boolean requeued;
+
+        private BatchItem(Message amqpMessage, Timer.Sample processing) {
+            this.amqpMessage = amqpMessage;
+            this.body = new String(amqpMessage.getBody(), StandardCharsets.UTF_8);
+            this.processing = processing;
+        }
+
+        private void requeue() {
+            requeued = true;
+            retried = true;
+        }
+
+        private void fail(Throwable e) {
+            if (error == null) {
+                error = e;
+                log.error("Erro ao processar contrato {}: {}", contractId, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Conteúdo da mensagem enviada por {@link ContractAIService#sendContractForAnalysis}.
+     * {@code contractId} e {@code enqueuedAt} são nulos em mensagens antigas. Em mensagens claim-check
+     * {@code contract} é nulo e o texto é lido do banco e conferido com {@code sha256}. Mensagens de
+     * {@link ContractAIService#sendRevisionForAnalysis} trazem só {@code revisionId}, {@code userId} e {@code enqueuedAt}.
+     */
+    record AnalysisMessage(Long contractId, Long revisionId, String contract, String sha256, Long userId, Long enqueuedAt) {
+
+        boolean claimCheck() {
+            return contract == null;
+        }
+
+        boolean revision() {
+            return revisionId != null;
+        }
+    }
+
+    static AnalysisMessage parseMessage(String message) {
+        JsonObject json = JsonParser.parseString(message).getAsJsonObject();
+        Long contractId = optionalLong(json, "contractId");
+        Long revisionId = optionalLong(json, "revisionId");
+        String contract = optionalString(json, "contract");
+        if (contract == null && contractId == null && revisionId == null) {
+            throw new IllegalArgumentException("Mensagem sem contractId, revisionId nem conteúdo do contrato.");
+        }
+        return new AnalysisMessage(
+                contractId,
+                revisionId,
+                contract,
+                optionalString(json, "sha256"),
+                json.get("userId").getAsLong(),
+                optionalLong(json, "enqueuedAt"));
+    }
+
+    /**
+     * Acrescenta o contractId a uma mensagem antiga, para que o retry não crie outro contrato.
+     */
+    static String withContractId(String message, Long contractId) {
+        JsonObject json = JsonParser.parseString(message).getAsJsonObject();
+        json.addProperty("contractId", contractId);
+        return json.toString();
+    }
+
+    private static String optionalString(JsonObject json, String field) {
+        return json.has(field) && !json.get(field).isJsonNull() ? json.get(field).getAsString() : null;
+    }
+
+    private static Long optionalLong(JsonObject json, String field) {
+        return json.has(field) && !json.get(field).isJsonNull() ? json.get(field).getAsLong() : null;
+    }
+
+    private void markFailed(Contract contract) {
+        if (contract == null || contract.getId() == null) return;
+        try {
+            contract.setStatus(ContractStatus.FAILED);
             contractRepository.save(contract);
-            
-            System.out.println("Análise concluída e salva. ID: " + contract.getId());
         } catch (Exception e) {
-            System.err.println("Erro ao processar contrato: " + e.getMessage());
-            throw new RuntimeException("Falha no processamento - mensagem será descartada", e);
-        } finally {
-            processingMessages.remove(messageHash);
-            System.out.println("[FIM] Processamento finalizado. Mensagens restantes na fila: " + processingMessages.size());
+            log.error("Falha ao marcar contrato {} como FAILED: {}", contract.getId(), e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,87 @@
+package com.fiap.contratAI_spring.queue;
+
+import com.fiap.contratAI_spring.llm.AdaptiveConcurrencyLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limita quantas análises de um mesmo dono rodam ao mesmo tempo a uma fração
+ * ({@code analysis.fair-share.max-share}) da capacidade atual do LLM, o limite do
+ * {@link AdaptiveConcurrencyLimiter} (que parte de {@code ollama.max-in-flight} e vai até
+ * {@code llm.limiter.max-limit}), para que uma importação em massa não ocupe todos os slots enquanto
+ * outros usuários esperam. A parcela acompanha o limite: cresce com ele em vez de deixar capacidade ociosa.
+ *
+ * <p>Os dois modos do listener usam {@link #tryAcquire} com espera limitada; se o dono continuar no limite,
+ * a mensagem vai para a fila de espera ({@link AnalysisRetryPublisher#defer}) e o consumidor segue para
+ * mensagens de outros usuários.
+ */
+@Component
+public class FairShareGate {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final double maxShare;
+    private final Map<Long, Integer> running = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+
+    public FairShareGate(AdaptiveConcurrencyLimiter limiter,
+                         @Value("${analysis.fair-share.max-share:0.5}") double maxShare) {
+        this.limiter = limiter;
+        this.maxShare = Math.min(1.0, maxShare);
+    }
+
+    /**
+     * Análises simultâneas permitidas por dono com o limite atual do LLM.
+     */
+    public int perOwnerLimit() {
+        return Math.max(1, (int) Math.floor(Math.max(1, limiter.limit()) * maxShare));
+    }
+
+    /**
+     * Reserva um slot para o dono, aguardando no máximo {@code timeout}.
+     *
+     * @return {@code false} se o dono continuou no limite durante toda a espera
+     */
+    public boolean tryAcquire(Long owner, long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (running.getOrDefault(owner, 0) >= perOwnerLimit()) {
+                if (remaining <= 0) return false;
+                remaining = released.awaitNanos(remaining);
+            }
+            running.merge(owner, 1, Integer::sum);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(Long owner) {
+        lock.lock();
+        try {
+            running.computeIfPresent(owner, (key, count) -> count > 1 ? count - 1 : null);
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Análises em andamento do dono.
+     */
+    public int running(Long owner) {
+        lock.lock();
+        try {
+            return running.getOrDefault(owner, 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.fiap.contratAI_spring.repository;
+
+import com.fiap.contratAI_spring.model.AnalysisBatch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AnalysisBatchRepository extends JpaRepository<AnalysisBatch, Long> {
+}
@@ -0,0 +1,9 @@
+package com.fiap.contratAI_spring.repository;
+
+import com.fiap.contratAI_spring.model.ClauseFinding;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ClauseFindingRepository extends JpaRepository<ClauseFinding, String> {
+}
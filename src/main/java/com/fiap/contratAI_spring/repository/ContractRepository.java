@@ -1,10 +1,87 @@
-
 package com.fiap.contratAI_spring.repository;
 
+import com.fiap.contratAI_spring.dto.AnalysisJobDTO;
+import com.fiap.contratAI_spring.dto.ContractSummaryDTO;
+import com.fiap.contratAI_spring.dto.StatusCountDTO;
 import com.fiap.contratAI_spring.model.Contract;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface ContractRepository extends JpaRepository<Contract, Long> {
-}
\ No newline at end of file
+
+    @Query("select new com.fiap.contratAI_spring.dto.AnalysisJobDTO(c.id, c.status, c.createdAt, c.owner.id) " +
+            "from Contract c where c.id = :id")
+    Optional<AnalysisJobDTO> findJobById(@Param("id") Long id);
+
+    @Query("select new com.fiap.contratAI_spring.dto.AnalysisJobDTO(c.id, c.status, c.createdAt, c.owner.id) " +
+            "from Contract c where c.id in :ids")
+    List<AnalysisJobDTO> findJobsByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Página de contratos com owner e blobs de conteúdo no mesmo select, para montar o {@code ContractDTO}
+     * sem uma consulta por linha para cada associação LAZY.
+     */
+    @EntityGraph(attributePaths = {"owner", "originalBlob", "analysisBlob"})
+    @Query(value = "select c from Contract c", countQuery = "select count(c) from Contract c")
+    Page<Contract> findPageWithContent(Pageable pageable);
+
+    @Query("select c from Contract c join fetch c.owner where c.id = :id")
+    Optional<Contract> findWithOwnerById(@Param("id") Long id);
+
+    /**
+     * Ids em ordem crescente a partir de {@code afterId} (exclusivo), para percorrer a tabela em páginas.
+     */
+    @Query("select c.id from Contract c where c.id > :afterId order by c.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable limit);
+
+    /**
+     * Progresso de um lote de upload: quantidade de contratos por status, pelo índice {@code idx_contracts_batch_id}.
+     */
+    @Query("select new com.fiap.contratAI_spring.dto.StatusCountDTO(c.status, count(c)) " +
+            "from Contract c where c.batch.id = :batchId group by c.status")
+    List<StatusCountDTO> countStatusByBatchId(@Param("batchId") Long batchId);
+
+    /**
+     * Listagem resumida (sem o conteúdo), mais recentes primeiro, paginada por keyset em (createdAt, id).
+     * Primeiro busca só os ids pelo índice {@code idx_contracts_created_at_id} e depois os dados
+     * do resumo com o owner em um único join, evitando o N+1 e a leitura dos CLOBs.
+     *
+     * @param afterCreatedAt createdAt do último item da página anterior, ou {@code null} para a primeira página
+     * @param afterId id do último item da página anterior, ou {@code null} para a primeira página
+     */
+    default List<ContractSummaryDTO> findSummaryPage(LocalDateTime afterCreatedAt, Long afterId, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        List<Long> ids = afterCreatedAt == null
+                ? findSummaryIds(page)
+                : findSummaryIdsBefore(afterCreatedAt, afterId, page);
+        return ids.isEmpty() ? List.of() : findSummariesByIds(ids);
+    }
+
+    @Query("select c.id from Contract c order by c.createdAt desc, c.id desc")
+    List<Long> findSummaryIds(Pageable limit);
+
+    @Query("select c.id from Contract c " +
+            "where c.createdAt <= :createdAt and (c.createdAt < :createdAt or c.id < :id) " +
+            "order by c.createdAt desc, c.id desc")
+    List<Long> findSummaryIdsBefore(@Param("createdAt") LocalDateTime createdAt,
+                                    @Param("id") Long id,
+                                    Pageable limit);
+
+    @Query("select new com.fiap.contratAI_spring.dto.ContractSummaryDTO(c.id, c.title, c.status, c.createdAt, o.id, o.name, o.email) " +
+            "from Contract c join c.owner o " +
+            "where c.id in :ids " +
+            "order by c.createdAt desc, c.id desc")
+    List<ContractSummaryDTO> findSummariesByIds(@Param("ids") List<Long> ids);
+}
@@ -1,9 +1,20 @@
 package com.fiap.contratAI_spring.repository;
 
 import com.fiap.contratAI_spring.model.GeneratedContract;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface GeneratedContractRepository extends JpaRepository<GeneratedContract, Long> {
+
+    /**
+     * Ids em ordem crescente a partir de {@code afterId} (exclusivo), para percorrer a tabela em páginas.
+     */
+    @Query("select c.id from GeneratedContract c where c.id > :afterId order by c.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable limit);
 }
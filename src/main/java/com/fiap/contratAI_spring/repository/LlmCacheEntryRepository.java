@@ -0,0 +1,20 @@
+package com.fiap.contratAI_spring.repository;
+
+import com.fiap.contratAI_spring.model.LlmCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface LlmCacheEntryRepository extends JpaRepository<LlmCacheEntry, String> {
+
+    @Transactional
+    @Modifying
+    @Query("delete from LlmCacheEntry e where e.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,173 @@
+package com.fiap.contratAI_spring.search;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.KnnFloatVectorField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.KnnFloatVectorQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Índice ANN (HNSW do Lucene) com o embedding de cada {@link com.fiap.contratAI_spring.model.Contract}
+ * analisado pelo LLM, para achar contratos quase idênticos antes de uma nova análise.
+ *
+ * <p>Vetores são normalizados, então a similaridade é o produto escalar (cosseno). As buscas filtram por
+ * dono e modelo de embedding; com filtros muito seletivos o Lucene troca o grafo por busca exata.
+ * As inclusões ficam visíveis já na busca seguinte (near-real-time) e vão para o disco a cada
+ * {@code analysis.dedup.commit-interval-ms}.
+ */
+@Component
+public class ContractEmbeddingIndex implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ContractEmbeddingIndex.class);
+
+    static final String ID = "id";
+    static final String OWNER = "owner";
+    static final String MODEL = "model";
+    static final String VECTOR = "vector";
+
+    /**
+     * Vizinho encontrado, com a similaridade de cosseno (-1 a 1).
+     */
+    public record Neighbor(Long contractId, float similarity) {}
+
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final Timer searchTimer;
+
+    @Autowired
+    public ContractEmbeddingIndex(@Value("${analysis.dedup.index-path:./data/embedding-index}") String path,
+                                  MeterRegistry meterRegistry) throws IOException {
+        this(FSDirectory.open(Path.of(path)), meterRegistry);
+        log.info("Índice de embeddings em {} ({} vetores)", Path.of(path).toAbsolutePath(), size());
+    }
+
+    ContractEmbeddingIndex(Directory directory, MeterRegistry meterRegistry) throws IOException {
+        this.directory = directory;
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(new KeywordAnalyzer())
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        this.searcherManager = new SearcherManager(writer, null);
+        this.searchTimer = Timer.builder("analysis.dedup.search")
+                .description("Busca do vizinho mais próximo no índice de embeddings")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Inclui (ou substitui) o vetor do contrato. O vetor precisa estar normalizado.
+     */
+    public void add(Long contractId, Long ownerId, String model, float[] vector) {
+        Document doc = new Document();
+        doc.add(new StringField(ID, contractId.toString(), Field.Store.NO));
+        doc.add(new StoredField(ID, contractId));
+        doc.add(new StringField(OWNER, String.valueOf(ownerId), Field.Store.NO));
+        doc.add(new StringField(MODEL, model, Field.Store.NO));
+        doc.add(new KnnFloatVectorField(VECTOR, vector, VectorSimilarityFunction.DOT_PRODUCT));
+        try {
+            writer.updateDocument(new Term(ID, contractId.toString()), doc);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao indexar o embedding do contrato " + contractId, e);
+        }
+    }
+
+    public void delete(Long contractId) {
+        try {
+            writer.deleteDocuments(new Term(ID, contractId.toString()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao remover o embedding do contrato " + contractId, e);
+        }
+    }
+
+    /**
+     * Os {@code k} contratos do dono mais parecidos com {@code vector}, do mais para o menos parecido.
+     *
+     * @param excludeId contrato a ignorar (o próprio, em uma reanálise), ou {@code null}
+     */
+    public List<Neighbor> nearest(float[] vector, Long ownerId, String model, Long excludeId, int k) {
+        BooleanQuery.Builder filter = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(OWNER, String.valueOf(ownerId))), BooleanClause.Occur.FILTER)
+                .add(new TermQuery(new Term(MODEL, model)), BooleanClause.Occur.FILTER);
+        if (excludeId != null) {
+            filter.add(new TermQuery(new Term(ID, excludeId.toString())), BooleanClause.Occur.MUST_NOT);
+        }
+        Timer.Sample sample = Timer.start();
+        IndexSearcher searcher = null;
+        try {
+            // inclusões desde a última busca; sem mudanças é só uma verificação
+            searcherManager.maybeRefreshBlocking();
+            searcher = searcherManager.acquire();
+            TopDocs top = searcher.search(new KnnFloatVectorQuery(VECTOR, vector, k, filter.build()), k);
+            StoredFields storedFields = searcher.storedFields();
+            List<Neighbor> neighbors = new ArrayList<>(top.scoreDocs.length);
+            for (ScoreDoc hit : top.scoreDocs) {
+                long id = storedFields.document(hit.doc).getField(ID).numericValue().longValue();
+                // DOT_PRODUCT pontua (1 + cosseno) / 2
+                neighbors.add(new Neighbor(id, 2 * hit.score - 1));
+            }
+            return neighbors;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha na busca por embeddings", e);
+        } finally {
+            if (searcher != null) {
+                try {
+                    searcherManager.release(searcher);
+                } catch (IOException e) {
+                    log.warn("Falha ao liberar o searcher de embeddings: {}", e.getMessage());
+                }
+            }
+            sample.stop(searchTimer);
+        }
+    }
+
+    public int size() {
+        return writer.getDocStats().numDocs;
+    }
+
+    @Scheduled(fixedDelayString = "${analysis.dedup.commit-interval-ms:5000}")
+    public void commit() {
+        if (!writer.hasUncommittedChanges()) return;
+        try {
+            writer.commit();
+        } catch (IOException e) {
+            log.warn("Falha ao gravar o índice de embeddings: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+}
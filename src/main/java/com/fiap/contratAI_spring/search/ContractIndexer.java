@@ -0,0 +1,189 @@
+package com.fiap.contratAI_spring.search;
+
+import com.fiap.contratAI_spring.model.AlteredContract;
+import com.fiap.contratAI_spring.model.Contract;
+import com.fiap.contratAI_spring.model.GeneratedContract;
+import com.fiap.contratAI_spring.repository.AlteredContractRepository;
+import com.fiap.contratAI_spring.repository.ContractRepository;
+import com.fiap.contratAI_spring.repository.GeneratedContractRepository;
+import com.fiap.contratAI_spring.service.ContractContentStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mantém o {@link ContractSearchIndex} em dia com as tabelas de contratos.
+ *
+ * <p>O {@link ContractIndexingListener} enfileira o (tipo, id) de cada linha gravada ou removida; a cada
+ * {@code search.index.refresh-ms} as pendências são lidas do banco em lote, indexadas (ou removidas, se a
+ * linha não existe mais) e publicadas para as buscas. Várias gravações do mesmo contrato entre duas rodadas
+ * viram uma só reindexação. Na subida, um índice vazio (ou {@code search.index.rebuild-on-start=true}) é
+ * reconstruído a partir do banco em segundo plano.
+ */
+@Component
+public class ContractIndexer {
+
+    private static final Logger log = LoggerFactory.getLogger(ContractIndexer.class);
+
+    private record Pending(ContractKind kind, Long id) {}
+
+    private final ContractSearchIndex index;
+    private final ContractRepository contractRepository;
+    private final GeneratedContractRepository generatedContractRepository;
+    private final AlteredContractRepository alteredContractRepository;
+    private final ContractContentStore contentStore;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int batchSize;
+    private final boolean rebuildOnStart;
+    private final Set<Pending> pending = ConcurrentHashMap.newKeySet();
+
+    public ContractIndexer(ContractSearchIndex index,
+                           ContractRepository contractRepository,
+                           GeneratedContractRepository generatedContractRepository,
+                           AlteredContractRepository alteredContractRepository,
+                           ContractContentStore contentStore,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${search.index.batch-size:200}") int batchSize,
+                           @Value("${search.index.rebuild-on-start:false}") boolean rebuildOnStart) {
+        this.index = index;
+        this.contractRepository = contractRepository;
+        this.generatedContractRepository = generatedContractRepository;
+        this.alteredContractRepository = alteredContractRepository;
+        this.contentStore = contentStore;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.batchSize = Math.max(1, batchSize);
+        this.rebuildOnStart = rebuildOnStart;
+    }
+
+    public void enqueue(ContractKind kind, Long id) {
+        if (id != null) {
+            pending.add(new Pending(kind, id));
+        }
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Indexa as pendências acumuladas desde a última rodada.
+     */
+    @Scheduled(fixedDelayString = "${search.index.refresh-ms:1000}")
+    public void drain() {
+        if (pending.isEmpty()) return;
+        Map<ContractKind, List<Long>> byKind = new EnumMap<>(ContractKind.class);
+        Iterator<Pending> it = pending.iterator();
+        while (it.hasNext()) {
+            Pending next = it.next();
+            it.remove();
+            byKind.computeIfAbsent(next.kind(), k -> new ArrayList<>()).add(next.id());
+        }
+        byKind.forEach((kind, ids) -> {
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                List<Long> slice = ids.subList(from, Math.min(ids.size(), from + batchSize));
+                try {
+                    indexBatch(kind, slice);
+                } catch (RuntimeException e) {
+                    // volta para a fila e tenta de novo na próxima rodada
+                    log.warn("Falha ao indexar {} {} contrato(s): {}", slice.size(), kind, e.getMessage());
+                    slice.forEach(id -> enqueue(kind, id));
+                }
+            }
+        });
+        index.refresh();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfNeeded() {
+        if (!rebuildOnStart && !index.isEmpty()) return;
+        Thread.ofVirtual().name("search-index-rebuild").start(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.error("Falha ao reconstruir o índice de busca", e);
+            }
+        });
+    }
+
+    /**
+     * Reindexa todas as linhas das três tabelas, em páginas de {@code search.index.batch-size} ids.
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        int total = 0;
+        for (ContractKind kind : ContractKind.values()) {
+            Long afterId = 0L;
+            List<Long> ids;
+            while (!(ids = idsAfter(kind, afterId)).isEmpty()) {
+                indexBatch(kind, ids);
+                index.refresh();
+                total += ids.size();
+                afterId = ids.get(ids.size() - 1);
+            }
+        }
+        log.info("Índice de busca reconstruído: {} contrato(s) em {} ms", total, System.currentTimeMillis() - start);
+    }
+
+    private List<Long> idsAfter(ContractKind kind, Long afterId) {
+        PageRequest limit = PageRequest.of(0, batchSize);
+        return switch (kind) {
+            case CONTRACT -> contractRepository.findIdsAfter(afterId, limit);
+            case GENERATED -> generatedContractRepository.findIdsAfter(afterId, limit);
+            case ALTERED -> alteredContractRepository.findIdsAfter(afterId, limit);
+        };
+    }
+
+    private void indexBatch(ContractKind kind, List<Long> ids) {
+        Map<Long, IndexedContract> found = readOnlyTransaction.execute(status -> load(kind, ids));
+        for (Long id : ids) {
+            IndexedContract contract = found.get(id);
+            if (contract != null) {
+                index.index(contract);
+            } else {
+                index.delete(kind, id);
+            }
+        }
+    }
+
+    private Map<Long, IndexedContract> load(ContractKind kind, List<Long> ids) {
+        Map<Long, IndexedContract> found = new HashMap<>();
+        switch (kind) {
+            case CONTRACT -> {
+                for (Contract c : contractRepository.findAllById(ids)) {
+                    found.put(c.getId(), new IndexedContract(kind, c.getId(), c.getOwner().getId(), c.getTitle(),
+                            c.getStatus(), c.getCreatedAt(), contentStore.original(c)));
+                }
+            }
+            case GENERATED -> {
+                for (GeneratedContract c : generatedContractRepository.findAllById(ids)) {
+                    found.put(c.getId(), new IndexedContract(kind, c.getId(), c.getOwner().getId(), c.getTitle(),
+                            c.getStatus(), c.getCreatedAt(), contentStore.content(c)));
+                }
+            }
+            case ALTERED -> {
+                for (AlteredContract c : alteredContractRepository.findAllById(ids)) {
+                    found.put(c.getId(), new IndexedContract(kind, c.getId(), c.getOwner().getId(), c.getTitle(),
+                            c.getStatus(), c.getCreatedAt(), contentStore.content(c)));
+                }
+            }
+        }
+        return found;
+    }
+}
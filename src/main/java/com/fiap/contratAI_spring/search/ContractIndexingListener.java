@@ -0,0 +1,59 @@
+package com.fiap.contratAI_spring.search;
+
+import com.fiap.contratAI_spring.model.AlteredContract;
+import com.fiap.contratAI_spring.model.Contract;
+import com.fiap.contratAI_spring.model.GeneratedContract;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Avisa o {@link ContractIndexer} quando um {@link Contract}, {@link GeneratedContract} ou {@link AlteredContract}
+ * é gravado ou removido. O aviso só sai depois do commit, para o indexador não ler uma linha que ainda pode
+ * sofrer rollback. O indexador é opcional para que contextos só de JPA (ex.: {@code @DataJpaTest}) subam sem ele.
+ */
+@Component
+public class ContractIndexingListener {
+
+    private final ObjectProvider<ContractIndexer> indexer;
+
+    public ContractIndexingListener(ObjectProvider<ContractIndexer> indexer) {
+        this.indexer = indexer;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onContractChanged(Object entity) {
+        ContractKind kind;
+        Long id;
+        if (entity instanceof Contract contract) {
+            kind = ContractKind.CONTRACT;
+            id = contract.getId();
+        } else if (entity instanceof GeneratedContract generated) {
+            kind = ContractKind.GENERATED;
+            id = generated.getId();
+        } else if (entity instanceof AlteredContract altered) {
+            kind = ContractKind.ALTERED;
+            id = altered.getId();
+        } else {
+            return;
+        }
+        indexer.ifAvailable(target -> {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        target.enqueue(kind, id);
+                    }
+                });
+            } else {
+                target.enqueue(kind, id);
+            }
+        });
+    }
+}
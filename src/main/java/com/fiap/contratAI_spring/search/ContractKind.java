@@ -0,0 +1,10 @@
+package com.fiap.contratAI_spring.search;
+
+/**
+ * Tabela de origem de um documento do índice de busca.
+ */
+public enum ContractKind {
+    CONTRACT,
+    GENERATED,
+    ALTERED
+}
@@ -0,0 +1,306 @@
+package com.fiap.contratAI_spring.search;
+
+import com.fiap.contratAI_spring.dto.ContractSearchHitDTO;
+import com.fiap.contratAI_spring.dto.SearchResultDTO;
+import com.fiap.contratAI_spring.model.enums.ContractStatus;
+import com.fiap.contratAI_spring.service.ContractChunker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.br.BrazilianAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.grouping.GroupDocs;
+import org.apache.lucene.search.grouping.GroupingSearch;
+import org.apache.lucene.search.grouping.TopGroups;
+import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índice invertido (Lucene) dos contratos, com uma entrada por cláusula.
+ *
+ * <p>Cada contrato vira um bloco de documentos, um por cláusula ({@link ContractChunker#splitClauses}),
+ * todos com a mesma chave {@code <tipo>:<id>}; reindexar troca o bloco inteiro de forma atômica.
+ * A busca agrupa as cláusulas por contrato: o contrato é o resultado e as cláusulas que casaram vêm
+ * com os termos destacados. O texto passa pelo {@link BrazilianAnalyzer} (stopwords e stemming do
+ * português) e as posições dos termos ficam no índice, então o destaque não reanalisa o texto.
+ * As alterações ficam visíveis após {@link #refresh()} (near-real-time, sem commit a cada documento).
+ */
+@Component
+public class ContractSearchIndex implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ContractSearchIndex.class);
+
+    static final String KEY = "key";
+    static final String KIND = "kind";
+    static final String ID = "id";
+    static final String OWNER = "owner";
+    static final String OWNER_ID = "ownerId";
+    static final String TITLE = "title";
+    static final String STATUS = "status";
+    static final String CREATED_AT = "createdAt";
+    static final String CLAUSE = "clause";
+    static final String CLAUSE_NUMBER = "clauseNumber";
+
+    private static final int CLAUSES_PER_HIT = 3;
+    private static final int MAX_HEADING_CHARS = 120;
+    private static final int HIGHLIGHT_MAX_LENGTH = 20_000;
+
+    /**
+     * Texto da cláusula: armazenado (para o destaque) e com offsets nas postings.
+     */
+    private static final FieldType CLAUSE_TYPE = new FieldType(TextField.TYPE_STORED);
+
+    static {
+        CLAUSE_TYPE.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        CLAUSE_TYPE.freeze();
+    }
+
+    private final Analyzer analyzer = new BrazilianAnalyzer();
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final Timer queryTimer;
+
+    @Autowired
+    public ContractSearchIndex(@Value("${search.index.path:./data/search-index}") String path,
+                               MeterRegistry meterRegistry) throws IOException {
+        this(FSDirectory.open(Path.of(path)), meterRegistry);
+        log.info("Índice de busca em {} ({} documentos)", Path.of(path).toAbsolutePath(), writer.getDocStats().numDocs);
+    }
+
+    ContractSearchIndex(Directory directory, MeterRegistry meterRegistry) throws IOException {
+        this.directory = directory;
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer).setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        this.searcherManager = new SearcherManager(writer, null);
+        this.queryTimer = Timer.builder("search.query")
+                .description("Tempo das buscas no índice de contratos")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Indexa (ou reindexa) o contrato, substituindo todas as cláusulas anteriores.
+     */
+    public void index(IndexedContract contract) {
+        String key = key(contract.kind(), contract.id());
+        List<String> clauses = ContractChunker.splitClauses(contract.text());
+        if (clauses.isEmpty()) {
+            clauses = List.of("");
+        }
+        List<Document> documents = new ArrayList<>(clauses.size());
+        for (int i = 0; i < clauses.size(); i++) {
+            documents.add(document(key, contract, i + 1, clauses.get(i)));
+        }
+        try {
+            writer.updateDocuments(new Term(KEY, key), documents);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao indexar " + key, e);
+        }
+    }
+
+    public void delete(ContractKind kind, Long id) {
+        try {
+            writer.deleteDocuments(new Term(KEY, key(kind, id)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao remover " + key(kind, id) + " do índice", e);
+        }
+    }
+
+    /**
+     * Grava as alterações pendentes e as torna visíveis para as próximas buscas.
+     */
+    public void refresh() {
+        try {
+            writer.commit();
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao atualizar o índice de busca", e);
+        }
+    }
+
+    public boolean isEmpty() {
+        return writer.getDocStats().numDocs == 0;
+    }
+
+    /**
+     * Busca contratos com alguma cláusula que case com {@code text}, em ordem de relevância. Cada termo
+     * precisa aparecer na cláusula ou no título. A sintaxe é a do {@link SimpleQueryParser}:
+     * {@code "frase exata"}, {@code -excluir}, {@code prefix*} e {@code a | b}.
+     *
+     * @param ownerId só contratos deste usuário, ou {@code null} para todos
+     * @param kind só contratos deste tipo, ou {@code null} para todos
+     */
+    public SearchResultDTO search(String text, Long ownerId, ContractKind kind, int page, int size) {
+        Timer.Sample sample = Timer.start();
+        try {
+            SimpleQueryParser parser = new SimpleQueryParser(analyzer, Map.of(TITLE, 2f, CLAUSE, 1f));
+            parser.setDefaultOperator(BooleanClause.Occur.MUST);
+            Query textQuery = parser.parse(text);
+            if (textQuery == null) {
+                // só stopwords ou operadores
+                return new SearchResultDTO(List.of(), 0, page, size);
+            }
+            BooleanQuery.Builder builder = new BooleanQuery.Builder().add(textQuery, BooleanClause.Occur.MUST);
+            if (ownerId != null) {
+                builder.add(new TermQuery(new Term(OWNER, ownerId.toString())), BooleanClause.Occur.FILTER);
+            }
+            if (kind != null) {
+                builder.add(new TermQuery(new Term(KIND, kind.name())), BooleanClause.Occur.FILTER);
+            }
+            return search(builder.build(), textQuery, page, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha na busca", e);
+        } finally {
+            sample.stop(queryTimer);
+        }
+    }
+
+    private SearchResultDTO search(Query query, Query textQuery, int page, int size) throws IOException {
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            GroupingSearch grouping = new GroupingSearch(KEY);
+            grouping.setGroupSort(Sort.RELEVANCE);
+            grouping.setSortWithinGroup(Sort.RELEVANCE);
+            grouping.setGroupDocsLimit(CLAUSES_PER_HIT);
+            grouping.setAllGroups(true);
+            TopGroups<BytesRef> groups = grouping.search(searcher, query, page * size, size);
+            if (groups == null || groups.groups.length == 0) {
+                long total = groups != null && groups.totalGroupCount != null ? groups.totalGroupCount : 0;
+                return new SearchResultDTO(List.of(), total, page, size);
+            }
+
+            // destaque de todas as cláusulas da página em uma chamada
+            List<Integer> docIds = new ArrayList<>();
+            for (GroupDocs<BytesRef> group : groups.groups) {
+                for (ScoreDoc doc : group.scoreDocs) {
+                    docIds.add(doc.doc);
+                }
+            }
+            int[] ids = docIds.stream().mapToInt(Integer::intValue).toArray();
+            String[] highlights = highlighter(searcher)
+                    .highlightFields(new String[]{CLAUSE}, textQuery, ids, new int[]{1})
+                    .get(CLAUSE);
+
+            StoredFields storedFields = searcher.storedFields();
+            List<ContractSearchHitDTO> hits = new ArrayList<>(groups.groups.length);
+            int next = 0;
+            for (GroupDocs<BytesRef> group : groups.groups) {
+                Document first = storedFields.document(group.scoreDocs[0].doc);
+                List<ContractSearchHitDTO.ClauseMatch> clauses = new ArrayList<>();
+                for (ScoreDoc doc : group.scoreDocs) {
+                    String highlight = highlights[next++];
+                    if (highlight == null) continue; // casou só pelo título
+                    Document clause = doc.doc == group.scoreDocs[0].doc ? first : storedFields.document(doc.doc);
+                    clauses.add(new ContractSearchHitDTO.ClauseMatch(
+                            clause.getField(CLAUSE_NUMBER).numericValue().intValue(),
+                            heading(clause.get(CLAUSE)),
+                            highlight));
+                }
+                hits.add(new ContractSearchHitDTO(
+                        ContractKind.valueOf(first.get(KIND)),
+                        first.getField(ID).numericValue().longValue(),
+                        first.get(TITLE),
+                        first.get(STATUS) != null ? ContractStatus.valueOf(first.get(STATUS)) : null,
+                        first.getField(CREATED_AT) != null
+                                ? LocalDateTime.ofInstant(Instant.ofEpochMilli(first.getField(CREATED_AT).numericValue().longValue()), ZoneOffset.UTC)
+                                : null,
+                        first.getField(OWNER_ID).numericValue().longValue(),
+                        group.maxScore,
+                        clauses));
+            }
+            return new SearchResultDTO(hits, groups.totalGroupCount, page, size);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    private UnifiedHighlighter highlighter(IndexSearcher searcher) {
+        return UnifiedHighlighter.builder(searcher, analyzer)
+                .withFormatter(new DefaultPassageFormatter("<mark>", "</mark>", "… ", true))
+                .withMaxLength(HIGHLIGHT_MAX_LENGTH)
+                .withMaxNoHighlightPassages(0)
+                .build();
+    }
+
+    private static Document document(String key, IndexedContract contract, int clauseNumber, String clause) {
+        Document doc = new Document();
+        doc.add(new StringField(KEY, key, Field.Store.NO));
+        doc.add(new SortedDocValuesField(KEY, new BytesRef(key)));
+        doc.add(new StringField(KIND, contract.kind().name(), Field.Store.YES));
+        doc.add(new StoredField(ID, contract.id()));
+        doc.add(new StringField(OWNER, String.valueOf(contract.ownerId()), Field.Store.NO));
+        doc.add(new StoredField(OWNER_ID, contract.ownerId() != null ? contract.ownerId() : -1L));
+        if (contract.title() != null) {
+            doc.add(new TextField(TITLE, contract.title(), Field.Store.YES));
+        }
+        if (contract.status() != null) {
+            doc.add(new StoredField(STATUS, contract.status().name()));
+        }
+        if (contract.createdAt() != null) {
+            doc.add(new StoredField(CREATED_AT, contract.createdAt().toInstant(ZoneOffset.UTC).toEpochMilli()));
+        }
+        doc.add(new StoredField(CLAUSE_NUMBER, clauseNumber));
+        doc.add(new Field(CLAUSE, clause, CLAUSE_TYPE));
+        return doc;
+    }
+
+    /**
+     * Primeira linha da cláusula, ex.: "CLÁUSULA QUINTA – DA MULTA".
+     */
+    private static String heading(String clause) {
+        String trimmed = clause.strip();
+        int newline = trimmed.indexOf('\n');
+        String line = newline >= 0 ? trimmed.substring(0, newline).strip() : trimmed;
+        return line.length() > MAX_HEADING_CHARS ? line.substring(0, MAX_HEADING_CHARS) + "…" : line;
+    }
+
+    static String key(ContractKind kind, Long id) {
+        return kind.name() + ":" + id;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+}
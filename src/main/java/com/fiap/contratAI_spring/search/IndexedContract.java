@@ -0,0 +1,18 @@
+package com.fiap.contratAI_spring.search;
+
+import com.fiap.contratAI_spring.model.enums.ContractStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Dados de um contrato (de qualquer uma das três tabelas) no formato indexado por {@link ContractSearchIndex}.
+ */
+public record IndexedContract(
+        ContractKind kind,
+        Long id,
+        Long ownerId,
+        String title,
+        ContractStatus status,
+        LocalDateTime createdAt,
+        String text
+) {}
@@ -0,0 +1,167 @@
+package com.fiap.contratAI_spring.service;
+
+import com.fiap.contratAI_spring.dto.AnalysisJobDTO;
+import com.fiap.contratAI_spring.model.Contract;
+import com.fiap.contratAI_spring.model.enums.ContractStatus;
+import com.fiap.contratAI_spring.repository.ContractRepository;
+import com.fiap.contratAI_spring.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ciclo de vida das análises assíncronas: cria o {@link Contract} em PENDING no momento do envio,
+ * expõe o status e notifica quem aguarda (long-poll) quando o listener conclui a análise.
+ * As notificações são locais à instância; análises concluídas em outra instância são vistas por uma
+ * consulta periódica ao banco dos contratos aguardados.
+ */
+@Service
+public class AnalysisJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisJobService.class);
+
+    /** Ids por consulta no poll; o Oracle aceita no máximo 1000 itens num IN. */
+    private static final int POLL_BATCH = 500;
+
+    private final ContractRepository contractRepository;
+    private final UserRepository userRepository;
+    private final ContractAIService contractAIService;
+    private final ContractContentStore contentStore;
+    private final AnalysisPriorityPolicy priorityPolicy;
+
+    /** Um futuro por long-poll em andamento, removido ao concluir, expirar ou desistir. */
+    private final Map<Long, List<CompletableFuture<AnalysisJobDTO>>> waiters = new ConcurrentHashMap<>();
+
+    public AnalysisJobService(ContractRepository contractRepository,
+                              UserRepository userRepository,
+                              ContractAIService contractAIService,
+                              ContractContentStore contentStore,
+                              AnalysisPriorityPolicy priorityPolicy) {
+        this.contractRepository = contractRepository;
+        this.userRepository = userRepository;
+        this.contractAIService = contractAIService;
+        this.contentStore = contentStore;
+        this.priorityPolicy = priorityPolicy;
+    }
+
+    /**
+     * Cria o contrato em PENDING e o envia para a fila de análise, com prioridade definida
+     * pelas roles do usuário e pelo tamanho do contrato.
+     *
+     * @param authorities authorities de quem enviou, usadas pela {@link AnalysisPriorityPolicy}
+     * @return status inicial do job, com o id do contrato
+     */
+    public AnalysisJobDTO submit(String rawContract, Long userId, Collection<? extends GrantedAuthority> authorities) {
+        if (rawContract == null || rawContract.isBlank()) {
+            throw new IllegalArgumentException("Conteúdo do contrato é obrigatório para análise.");
+        }
+
+        Contract contract = new Contract();
+        contentStore.setOriginal(contract, rawContract);
+        contract.setOwner(userRepository.getReferenceById(userId));
+        contract.setTitle("Contrato para Análise");
+        contract.setStatus(ContractStatus.PENDING);
+        contract = contractRepository.save(contract);
+
+        try {
+            contractAIService.sendContractForAnalysis(contract.getId(), rawContract, userId,
+                    priorityPolicy.priorityFor(authorities, rawContract.length()));
+        } catch (RuntimeException e) {
+            contract.setStatus(ContractStatus.FAILED);
+            contractRepository.save(contract);
+            throw e;
+        }
+
+        return toJob(contract, userId);
+    }
+
+    public Optional<AnalysisJobDTO> findJob(Long contractId) {
+        return contractRepository.findJobById(contractId);
+    }
+
+    /**
+     * Futuro completado quando a análise sair de PENDING.
+     * Já vem completo se o contrato não estiver mais pendente. Quem desistir de esperar
+     * (timeout do long-poll, cliente desconectado) deve chamar {@link #stopWaiting(Long, CompletableFuture)}.
+     */
+    public CompletableFuture<AnalysisJobDTO> awaitCompletion(Long contractId) {
+        CompletableFuture<AnalysisJobDTO> future = new CompletableFuture<>();
+        waiters.compute(contractId, (id, futures) -> {
+            List<CompletableFuture<AnalysisJobDTO>> list = futures == null ? new ArrayList<>() : futures;
+            list.add(future);
+            return list;
+        });
+
+        // confere depois de registrar para não perder uma conclusão concorrente
+        findJob(contractId)
+                .filter(job -> job.status() != ContractStatus.PENDING)
+                .ifPresent(job -> complete(contractId, job));
+        return future;
+    }
+
+    /**
+     * Remove um futuro de {@link #awaitCompletion(Long)} que não será mais usado.
+     */
+    public void stopWaiting(Long contractId, CompletableFuture<AnalysisJobDTO> future) {
+        waiters.computeIfPresent(contractId, (id, futures) -> {
+            futures.remove(future);
+            return futures.isEmpty() ? null : futures;
+        });
+    }
+
+    /**
+     * Confere no banco os contratos aguardados, para concluir os long-polls de análises
+     * que terminaram em outra instância (sem {@link #notifyFinished(Long)} local).
+     */
+    @Scheduled(fixedDelayString = "${analysis.status.poll-interval-ms:2000}")
+    public void pollFinished() {
+        if (waiters.isEmpty()) return;
+        List<Long> ids = new ArrayList<>(waiters.keySet());
+        try {
+            for (int from = 0; from < ids.size(); from += POLL_BATCH) {
+                contractRepository.findJobsByIds(ids.subList(from, Math.min(ids.size(), from + POLL_BATCH))).stream()
+                        .filter(job -> job.status() != ContractStatus.PENDING)
+                        .forEach(job -> complete(job.id(), job));
+            }
+        } catch (Exception e) {
+            log.warn("Falha ao conferir análises aguardadas: {}", e.getMessage());
+        }
+    }
+
+    int waitingContracts() {
+        return waiters.size();
+    }
+
+    /**
+     * Chamado pelo listener quando a análise termina (com sucesso ou falha).
+     */
+    public void notifyFinished(Long contractId) {
+        if (!waiters.containsKey(contractId)) return;
+        try {
+            findJob(contractId).ifPresent(job -> complete(contractId, job));
+        } catch (Exception e) {
+            log.warn("Falha ao notificar conclusão da análise {}: {}", contractId, e.getMessage());
+        }
+    }
+
+    private void complete(Long contractId, AnalysisJobDTO job) {
+        List<CompletableFuture<AnalysisJobDTO>> futures = waiters.remove(contractId);
+        if (futures != null) {
+            futures.forEach(future -> future.complete(job));
+        }
+    }
+
+    private static AnalysisJobDTO toJob(Contract contract, Long ownerId) {
+        return new AnalysisJobDTO(contract.getId(), contract.getStatus(), contract.getCreatedAt(), ownerId);
+    }
+}
@@ -0,0 +1,69 @@
+package com.fiap.contratAI_spring.service;
+
+import com.fiap.contratAI_spring.config.RabbitMQConfig;
+import com.fiap.contratAI_spring.model.enums.RoleName;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * Prioridade (0 a {@link RabbitMQConfig#MAX_PRIORITY}) das mensagens da fila de análise.
+ *
+ * <p>Parte de uma base por role — pedidos interativos de LAWYER à frente dos de ADMIN, que também
+ * faz importações em massa — e perde um nível a cada vez que o contrato dobra de tamanho acima de
+ * {@code analysis.priority.large-contract-chars}. Envios em lote usam {@link #BULK_PRIORITY}.
+ * Só tem efeito com {@code analysis.priority.enabled=true}.
+ */
+@Component
+public class AnalysisPriorityPolicy {
+
+    public static final int BULK_PRIORITY = 0;
+
+    private static final int LAWYER_PRIORITY = 8;
+    private static final int CLIENT_PRIORITY = 6;
+    private static final int ADMIN_PRIORITY = 5;
+    private static final int MAX_SIZE_PENALTY = 3;
+
+    private final int largeContractChars;
+
+    public AnalysisPriorityPolicy(@Value("${analysis.priority.large-contract-chars:50000}") int largeContractChars) {
+        this.largeContractChars = Math.max(1, largeContractChars);
+    }
+
+    /**
+     * @param authorities authorities do usuário ({@code ROLE_LAWYER}, ...)
+     * @param contractChars tamanho do contrato em caracteres
+     */
+    public int priorityFor(Collection<? extends GrantedAuthority> authorities, int contractChars) {
+        int base = 1;
+        for (GrantedAuthority authority : authorities) {
+            base = Math.max(base, basePriority(authority.getAuthority()));
+        }
+        return Math.max(1, Math.min(RabbitMQConfig.MAX_PRIORITY, base - sizePenalty(contractChars)));
+    }
+
+    private int sizePenalty(int contractChars) {
+        int penalty = 0;
+        long threshold = largeContractChars;
+        while (contractChars > threshold && penalty < MAX_SIZE_PENALTY) {
+            penalty++;
+            threshold *= 2;
+        }
+        return penalty;
+    }
+
+    private static int basePriority(String authority) {
+        if (authority == null || !authority.startsWith("ROLE_")) return 1;
+        try {
+            return switch (RoleName.valueOf(authority.substring("ROLE_".length()))) {
+                case LAWYER -> LAWYER_PRIORITY;
+                case CLIENT -> CLIENT_PRIORITY;
+                case ADMIN -> ADMIN_PRIORITY;
+            };
+        } catch (IllegalArgumentException e) {
+            return 1;
+        }
+    }
+}
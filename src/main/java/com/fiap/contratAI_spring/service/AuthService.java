@@ -19,11 +19,14 @@ public class AuthService {
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserService userService;
 
-    public AuthService(UserRepository userRepository, RoleRepository roleRepository, PasswordEncoder passwordEncoder) {
+    public AuthService(UserRepository userRepository, RoleRepository roleRepository, PasswordEncoder passwordEncoder,
+                       UserService userService) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.passwordEncoder = passwordEncoder;
+        this.userService = userService;
     }
 
     @Transactional
@@ -58,6 +61,7 @@ public class AuthService {
 
         user.setRoles(Collections.singleton(userRole));
 
-        return userRepository.save(user);
+        // o email pode ter pertencido a um usuário removido com credenciais ainda em cache
+        return userService.saveCredentials(user);
     }
 }
\ No newline at end of file
@@ -0,0 +1,222 @@
+package com.fiap.contratAI_spring.service;
+
+import com.fiap.contratAI_spring.dto.AnalysisBatchDTO;
+import com.fiap.contratAI_spring.dto.StatusCountDTO;
+import com.fiap.contratAI_spring.model.AnalysisBatch;
+import com.fiap.contratAI_spring.model.Contract;
+import com.fiap.contratAI_spring.model.User;
+import com.fiap.contratAI_spring.model.enums.ContractStatus;
+import com.fiap.contratAI_spring.repository.AnalysisBatchRepository;
+import com.fiap.contratAI_spring.repository.ContractRepository;
+import com.fiap.contratAI_spring.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Análise em lote a partir de um upload multipart/ZIP.
+ *
+ * <p>Os contratos extraídos pelo {@link ContractUploadReader} são gravados em grupos de até
+ * {@code analysis.bulk.chunk-size} contratos ou {@code analysis.bulk.chunk-max-chars} caracteres somados, o que
+ * vier primeiro (um {@code saveAll} por grupo, com o batch JDBC do Hibernate), e enviados
+ * à fila com a prioridade de lote e publisher confirms: o grupo inteiro é publicado antes de esperar os acks,
+ * e os contratos sem confirmação dentro de {@code analysis.bulk.confirm-timeout-ms} ficam FAILED.
+ * Só o grupo da vez fica no heap.
+ */
+@Service
+public class BulkAnalysisService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkAnalysisService.class);
+
+    private static final int MAX_TITLE_CHARS = 255;
+    private static final int MAX_SKIPPED_DETAILS = 100;
+
+    private final ContractRepository contractRepository;
+    private final AnalysisBatchRepository batchRepository;
+    private final UserRepository userRepository;
+    private final ContractAIService contractAIService;
+    private final ContractContentStore contentStore;
+    private final ContractUploadReader uploadReader;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final long chunkMaxChars;
+    private final long confirmTimeoutMs;
+
+    public BulkAnalysisService(ContractRepository contractRepository,
+                               AnalysisBatchRepository batchRepository,
+                               UserRepository userRepository,
+                               ContractAIService contractAIService,
+                               ContractContentStore contentStore,
+                               ContractUploadReader uploadReader,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${analysis.bulk.chunk-size:50}") int chunkSize,
+                               @Value("${analysis.bulk.chunk-max-chars:8000000}") long chunkMaxChars,
+                               @Value("${analysis.bulk.confirm-timeout-ms:10000}") long confirmTimeoutMs) {
+        this.contractRepository = contractRepository;
+        this.batchRepository = batchRepository;
+        this.userRepository = userRepository;
+        this.contractAIService = contractAIService;
+        this.contentStore = contentStore;
+        this.uploadReader = uploadReader;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.chunkMaxChars = Math.max(1, chunkMaxChars);
+        this.confirmTimeoutMs = Math.max(1, confirmTimeoutMs);
+    }
+
+    /**
+     * Cria o lote, grava e enfileira os contratos do upload.
+     *
+     * @return progresso inicial do lote; {@code totalContracts} é 0 se nenhum arquivo pôde ser analisado
+     */
+    public AnalysisBatchDTO submit(List<MultipartFile> files, Long userId) throws IOException {
+        AnalysisBatch batch = new AnalysisBatch();
+        batch.setOwner(userRepository.getReferenceById(userId));
+        AnalysisBatch saved = batchRepository.save(batch);
+
+        Ingestion ingestion = new Ingestion(saved, userId);
+        try {
+            uploadReader.read(files, ingestion);
+            ingestion.flush();
+        } finally {
+            saved.setTotalContracts(ingestion.total);
+            saved.setSkippedFiles(ingestion.skipped.size());
+            saved.setSkippedDetails(ingestion.skipped.isEmpty() ? null
+                    : String.join("\n", ingestion.skipped.subList(0, Math.min(MAX_SKIPPED_DETAILS, ingestion.skipped.size()))));
+            batchRepository.save(saved);
+        }
+
+        log.info("Lote {} recebido: {} contrato(s) enfileirado(s), {} arquivo(s) ignorado(s), {} sem confirmação do broker",
+                saved.getId(), ingestion.total, ingestion.skipped.size(), ingestion.unconfirmed);
+        return progress(saved.getId()).orElseThrow();
+    }
+
+    public Optional<AnalysisBatchDTO> progress(Long batchId) {
+        return batchRepository.findById(batchId).map(batch -> {
+            long pending = 0;
+            long analyzed = 0;
+            long failed = 0;
+            for (StatusCountDTO count : contractRepository.countStatusByBatchId(batchId)) {
+                switch (count.status()) {
+                    case PENDING -> pending = count.count();
+                    case ANALYZED -> analyzed = count.count();
+                    case FAILED -> failed = count.count();
+                }
+            }
+            List<String> skipped = batch.getSkippedDetails() == null ? List.of() : List.of(batch.getSkippedDetails().split("\n"));
+            return new AnalysisBatchDTO(batch.getId(), batch.getOwner().getId(), batch.getCreatedAt(),
+                    batch.getTotalContracts(), pending, analyzed, failed, batch.getSkippedFiles(), skipped);
+        });
+    }
+
+    /**
+     * Acumula os contratos do upload e os grava/publica a cada {@code chunkSize} contratos ou {@code chunkMaxChars}
+     * caracteres, para que um grupo de arquivos grandes não fique inteiro no heap.
+     */
+    private final class Ingestion implements ContractUploadReader.Sink {
+
+        private final AnalysisBatch batch;
+        private final Long userId;
+        private final User owner;
+        private final List<Contract> contracts = new ArrayList<>();
+        private final List<String> texts = new ArrayList<>();
+        private final List<String> skipped = new ArrayList<>();
+        private long pendingChars;
+        private int total;
+        private int unconfirmed;
+
+        private Ingestion(AnalysisBatch batch, Long userId) {
+            this.batch = batch;
+            this.userId = userId;
+            this.owner = userRepository.getReferenceById(userId);
+        }
+
+        @Override
+        public void contract(String name, String text) {
+            Contract contract = new Contract();
+            contentStore.setOriginal(contract, text);
+            contract.setOwner(owner);
+            contract.setBatch(batch);
+            contract.setTitle(name.length() > MAX_TITLE_CHARS ? name.substring(name.length() - MAX_TITLE_CHARS) : name);
+            contract.setStatus(ContractStatus.PENDING);
+            contracts.add(contract);
+            texts.add(text);
+            pendingChars += text.length();
+            if (contracts.size() >= chunkSize || pendingChars >= chunkMaxChars) {
+                flush();
+            }
+        }
+
+        @Override
+        public void skipped(String name, String reason) {
+            log.debug("Arquivo ignorado no lote {}: {} ({})", batch.getId(), name, reason);
+            skipped.add(name + ": " + reason);
+        }
+
+        private void flush() {
+            if (contracts.isEmpty()) return;
+            List<Contract> saved = transactionTemplate.execute(status -> contractRepository.saveAll(contracts));
+
+            List<CorrelationData> confirms = new ArrayList<>(saved.size());
+            for (int i = 0; i < saved.size(); i++) {
+                CorrelationData correlation = new CorrelationData(String.valueOf(saved.get(i).getId()));
+                try {
+                    contractAIService.sendContractForAnalysis(saved.get(i).getId(), texts.get(i), userId,
+                            AnalysisPriorityPolicy.BULK_PRIORITY, correlation);
+                } catch (RuntimeException e) {
+                    correlation.getFuture().completeExceptionally(e);
+                }
+                confirms.add(correlation);
+            }
+
+            List<Long> failed = new ArrayList<>();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+            for (CorrelationData correlation : confirms) {
+                if (!confirmed(correlation, deadline)) {
+                    failed.add(Long.valueOf(correlation.getId()));
+                }
+            }
+            if (!failed.isEmpty()) {
+                // pela entidade (e não update em massa) para os listeners de JPA, como o do índice de busca, verem a mudança
+                transactionTemplate.executeWithoutResult(status ->
+                        contractRepository.findAllById(failed).forEach(c -> c.setStatus(ContractStatus.FAILED)));
+                log.warn("Lote {}: {} contrato(s) sem confirmação do RabbitMQ marcados como FAILED", batch.getId(), failed.size());
+            }
+
+            total += saved.size();
+            unconfirmed += failed.size();
+            contracts.clear();
+            texts.clear();
+            pendingChars = 0;
+        }
+
+        private boolean confirmed(CorrelationData correlation, long deadline) {
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                CorrelationData.Confirm confirm = correlation.getFuture().get(remaining, TimeUnit.NANOSECONDS);
+                if (!confirm.isAck()) {
+                    log.warn("RabbitMQ recusou a mensagem do contrato {}: {}", correlation.getId(), confirm.getReason());
+                }
+                return confirm.isAck();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrompido aguardando confirmação do RabbitMQ.", e);
+            } catch (ExecutionException | TimeoutException e) {
+                return false;
+            }
+        }
+    }
+}
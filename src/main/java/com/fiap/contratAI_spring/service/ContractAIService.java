@@ -1,59 +1,158 @@
 package com.fiap.contratAI_spring.service;
 
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import com.google.gson.JsonSyntaxException;
 import com.google.gson.Gson;
+import io.micrometer.core.instrument.Timer;
+import com.fiap.contratAI_spring.config.AsyncConfig;
 import com.fiap.contratAI_spring.config.RabbitMQConfig;
+import com.fiap.contratAI_spring.llm.AdaptiveConcurrencyLimiter;
+import com.fiap.contratAI_spring.llm.LlmCircuitBreaker;
+import com.fiap.contratAI_spring.llm.LlmProvider;
+import com.fiap.contratAI_spring.llm.PromptBudgeter;
+import com.fiap.contratAI_spring.llm.PromptTemplate;
+import com.fiap.contratAI_spring.llm.PromptTemplateRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import okhttp3.*;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.time.Duration;
-import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 public class ContractAIService {
 
     private static final Logger log = LoggerFactory.getLogger(ContractAIService.class);
 
+    /**
+     * Operações (tag das métricas), que também dão nome aos templates de prompt em {@code prompts/*.tmpl}.
+     * O id da versão do template ({@code analyze-v1}) entra na chave do cache, então respostas de uma versão
+     * nunca são reaproveitadas por outra.
+     */
+    static final String OP_GENERATE = "generate";
+    static final String OP_ANALYZE = "analyze";
+    static final String OP_ANALYZE_CHUNK = "analyze-chunk";
+    static final String OP_ANALYZE_REDUCE = "analyze-reduce";
+    static final String OP_ANALYZE_CLAUSE = "analyze-clause";
+
     private final RabbitTemplate rabbitTemplate;
-    private final OkHttpClient httpClient;
-    private final String ollamaBaseUrl;
-    private final String modelName;
+    private final LlmResponseCache responseCache;
+    private final LlmMetrics metrics;
+    private final LlmProvider llmProvider;
+    private final LlmCircuitBreaker circuitBreaker;
+    private final PromptTemplateRegistry templates;
     private final Gson gson;
 
     /**
-     * Número máximo de caracteres permitidos no prompt enviado ao modelo.
-     * Se o contrato/termos excederem, serão truncados para evitar erros no endpoint da IA.
+     * Decide o que cabe no contexto do modelo, em tokens: quando o contrato vai por trechos, o tamanho de
+     * cada trecho e quanto dos termos, cláusulas e análises parciais entra no prompt.
+     */
+    private final PromptBudgeter budgeter;
+
+    /**
+     * Teto de segurança em caracteres para qualquer prompt, independente da contagem de tokens.
      */
     private final int maxPromptChars;
 
+    /**
+     * Limita o número de chamadas simultâneas ao Ollama, independentemente de quantos
+     * consumidores da fila ou threads HTTP estejam ativos. O limite se ajusta à latência observada.
+     */
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    /**
+     * Chamadas ao LLM em andamento por chave de cache, compartilhadas entre chamadores concorrentes.
+     */
+    private final ConcurrentHashMap<String, InFlightCall> inFlightCalls = new ConcurrentHashMap<>();
+    private final long inFlightWaitSeconds;
+
+    /**
+     * Timeout de uma requisição ao Ollama; quem aguarda uma chamada compartilhada espera no máximo a vaga
+     * de quem a iniciou mais este tempo.
+     */
+    private final long requestTimeoutMs;
+
+    /**
+     * Espera máxima por vaga nas gerações pedidas pela API: quem está do outro lado é um usuário,
+     * então é melhor responder 429 com {@code Retry-After} do que segurar a requisição por minutos.
+     */
+    private final long interactiveWaitMs;
+
+    /**
+     * Análise map-reduce de contratos maiores que o prompt: cada trecho é analisado em paralelo
+     * (até {@code chunkParallelism} por contrato) e um prompt final consolida os resultados.
+     */
+    private final boolean chunkedAnalysisEnabled;
+    private final int chunkParallelism;
+    private final int chunkOverlapChars;
+    private final Executor chunkExecutor;
+
+    /**
+     * Contratos até este tamanho (em caracteres) vão inline na mensagem; acima dele a mensagem leva
+     * só o id e o SHA-256 e o listener lê o texto do banco (claim-check).
+     */
+    private final int inlineThresholdChars;
+
     public ContractAIService(
             RabbitTemplate rabbitTemplate,
-            @Value("${ollama.base-url:http://localhost:11434}") String ollamaBaseUrl,
-            @Value("${ollama.model:gpt-oss:20b}") String modelName,
-            @Value("${ollama.max-prompt-chars:15000}") int maxPromptChars,
-            @Value("${okhttp.connect-timeout-seconds:30}") long connectTimeoutSeconds,
-            @Value("${okhttp.read-timeout-seconds:300}") long readTimeoutSeconds,
-            @Value("${okhttp.write-timeout-seconds:30}") long writeTimeoutSeconds
+            LlmResponseCache responseCache,
+            LlmMetrics metrics,
+            LlmProvider llmProvider,
+            LlmCircuitBreaker circuitBreaker,
+            AdaptiveConcurrencyLimiter concurrencyLimiter,
+            PromptTemplateRegistry templates,
+            PromptBudgeter budgeter,
+            @Value("${ollama.max-prompt-chars:1000000}") int maxPromptChars,
+            @Value("${ollama.in-flight-wait-seconds:600}") long inFlightWaitSeconds,
+            @Value("${okhttp.read-timeout-seconds:300}") long requestTimeoutSeconds,
+            @Value("${llm.limiter.interactive-wait-ms:5000}") long interactiveWaitMs,
+            @Value("${analysis.chunked.enabled:true}") boolean chunkedAnalysisEnabled,
+            @Value("${analysis.chunked.parallelism:4}") int chunkParallelism,
+            @Value("${analysis.chunked.overlap-chars:500}") int chunkOverlapChars,
+            @Value("${analysis.message.inline-threshold-chars:65536}") int inlineThresholdChars,
+            @Qualifier(AsyncConfig.LLM_CHUNK_EXECUTOR) Executor chunkExecutor
     ) {
         this.rabbitTemplate = rabbitTemplate;
-        this.ollamaBaseUrl = ollamaBaseUrl.endsWith("/") ? ollamaBaseUrl.substring(0, ollamaBaseUrl.length()-1) : ollamaBaseUrl;
-        this.modelName = modelName;
+        this.responseCache = responseCache;
+        this.metrics = metrics;
+        this.llmProvider = llmProvider;
+        this.circuitBreaker = circuitBreaker;
         this.maxPromptChars = Math.max(1000, maxPromptChars); // segurança mínima
-
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(connectTimeoutSeconds, TimeUnit.SECONDS)
-                .readTimeout(readTimeoutSeconds, TimeUnit.SECONDS)
-                .writeTimeout(writeTimeoutSeconds, TimeUnit.SECONDS)
-                .build();
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.templates = templates;
+        this.budgeter = budgeter;
+        templates.require(OP_GENERATE, "terms");
+        templates.require(OP_ANALYZE, "contract");
+        templates.require(OP_ANALYZE_CHUNK, "part", "parts", "chunk");
+        templates.require(OP_ANALYZE_REDUCE, "parts", "findings");
+        templates.require(OP_ANALYZE_CLAUSE, "clause");
+        this.inFlightWaitSeconds = inFlightWaitSeconds;
+        this.requestTimeoutMs = TimeUnit.SECONDS.toMillis(requestTimeoutSeconds);
+        this.interactiveWaitMs = Math.max(0, interactiveWaitMs);
+        this.chunkedAnalysisEnabled = chunkedAnalysisEnabled;
+        this.chunkParallelism = Math.max(1, chunkParallelism);
+        this.chunkOverlapChars = Math.max(0, chunkOverlapChars);
+        this.chunkExecutor = chunkExecutor;
+        this.inlineThresholdChars = Math.max(0, inlineThresholdChars);
 
         this.gson = new Gson();
     }
@@ -71,20 +170,85 @@ public class ContractAIService {
             throw new IllegalArgumentException("Parâmetro 'terms' é obrigatório.");
         }
 
-        String prompt = "Gere um rascunho de contrato de " + terms + " em português brasileiro, " +
-                "incluindo cláusulas de rescisão e foro de eleição.";
+        Prompt prompt = buildGeneratePrompt(terms);
 
-        prompt = sanitizeAndTruncate(prompt);
-
-        String response = callOllamaAPI(prompt);
+        String response = cachedCall(OP_GENERATE, prompt.template(), prompt.text());
 
         log.info("Contrato gerado (len={}): returned {} characters", response.length(), response.length());
         return response;
     }
 
+    /**
+     * Gera um rascunho de contrato em modo streaming.
+     * Cada token recebido do Ollama é repassado a {@code onToken} assim que chega. Se {@code onToken} falhar
+     * (cliente desconectado), a geração é abortada, a menos que chamadas idênticas aguardem o mesmo resultado:
+     * nesse caso ela segue até a última desistir ou a geração terminar.
+     *
+     * @param terms descrição/termos para gerar o contrato
+     * @param onToken consumidor chamado a cada fragmento de texto recebido
+     * @return texto completo gerado pela IA
+     */
+    public String generateContractStream(String terms, Consumer<String> onToken) {
+        if (terms == null || terms.isBlank()) {
+            throw new IllegalArgumentException("Parâmetro 'terms' é obrigatório.");
+        }
+
+        Prompt prompt = buildGeneratePrompt(terms);
+
+        String cacheKey = LlmResponseCache.key(llmProvider.modelName(), prompt.template(), prompt.text());
+        Optional<String> cached = responseCache.get(cacheKey);
+        if (cached.isPresent()) {
+            onToken.accept(cached.get());
+            return cached.get();
+        }
+
+        // se outra geração idêntica estiver em andamento, o texto chega de uma vez ao final
+        AtomicBoolean streamed = new AtomicBoolean();
+        // se o consumidor de quem iniciou a chamada falhar (cliente desconectado), a geração só continua
+        // enquanto houver chamadas idênticas aguardando o resultado; sem ninguém, o stream do Ollama é abortado
+        AtomicReference<RuntimeException> sinkFailure = new AtomicReference<>();
+        Consumer<String> sink = token -> {
+            if (sinkFailure.get() == null) {
+                try {
+                    onToken.accept(token);
+                    return;
+                } catch (RuntimeException e) {
+                    sinkFailure.set(e);
+                }
+            }
+            InFlightCall call = inFlightCalls.get(cacheKey);
+            if (call == null || call.waiters.get() == 0) {
+                throw new GenerationAbandonedException(sinkFailure.get());
+            }
+        };
+        String response;
+        try {
+            response = singleFlight(OP_GENERATE, cacheKey, () -> {
+                streamed.set(true);
+                String generated = streamLlm(OP_GENERATE, prompt.template(), prompt.text(), sink);
+                responseCache.put(cacheKey, llmProvider.modelName(), prompt.template(), generated);
+                return generated;
+            });
+        } catch (GenerationAbandonedException e) {
+            log.debug("Consumidor do streaming falhou sem chamadas compartilhadas; geração abortada: {}",
+                    e.getCause().getMessage());
+            throw (RuntimeException) e.getCause();
+        }
+        if (sinkFailure.get() != null) {
+            throw sinkFailure.get();
+        }
+        if (!streamed.get()) {
+            onToken.accept(response);
+        }
+
+        log.info("Contrato gerado via streaming: returned {} characters", response.length());
+        return response;
+    }
+
     /**
      * Analisa um contrato e retorna o resultado.
      * Usa um prompt com instruções claras para a IA.
+     * Contratos que não cabem em um único prompt (em tokens, ver {@link PromptBudgeter}) são analisados por trechos (map-reduce).
      *
      * @param rawContract texto completo do contrato a ser analisado
      * @return resultado da análise
@@ -94,127 +258,468 @@ public class ContractAIService {
             throw new IllegalArgumentException("Conteúdo do contrato é obrigatório para análise.");
         }
 
-        String prompt = String.format("""
-                Você é um assistente jurídico especializado em análise de contratos.
-                Analise o seguinte contrato e retorne:
-                1) As três cláusulas mais arriscadas para a parte mais fraca, com breve justificativa.
-                2) Uma sugestão de refatoração para a cláusula mais complexa.
-                
-                CONTRATO:
-                %s
-                """, rawContract);
+        PromptTemplate template = templates.select(OP_ANALYZE, rawContract);
+        int available = budgeter.available(OP_ANALYZE, template);
+        int contractTokens = budgeter.count(rawContract);
+        if (chunkedAnalysisEnabled && (contractTokens > available || template.literalLength() + rawContract.length() > maxPromptChars)) {
+            return analyzeContractChunked(rawContract, contractTokens);
+        }
 
-        prompt = sanitizeAndTruncate(prompt);
+        Timer.Sample buildSample = metrics.start();
+        String prompt = template.render(maxPromptChars, Map.of("contract", budgeter.fit(OP_ANALYZE, rawContract, available)));
+        metrics.recordPromptBuild(OP_ANALYZE, template.id(), buildSample);
 
-        String response = callOllamaAPI(prompt);
+        String response = cachedCall(OP_ANALYZE, template.id(), prompt);
 
         log.info("Análise realizada (len={}): returned {} characters", response.length(), response.length());
         return response;
     }
 
+    /**
+     * Map: analisa cada trecho em paralelo (limitado a {@code chunkParallelism} por contrato).
+     * Reduce: consolida as análises parciais no mesmo formato da análise simples.
+     */
+    private String analyzeContractChunked(String rawContract, int contractTokens) {
+        // a mesma entrada escolhe a mesma variante de cada template em todas as etapas
+        PromptTemplate chunkTemplate = templates.select(OP_ANALYZE_CHUNK, rawContract);
+        int chunkTokens = budgeter.available(OP_ANALYZE_CHUNK, chunkTemplate);
+
+        // trechos dimensionados pela densidade de tokens do próprio contrato; a sobreposição entra no limite
+        int chunkChars = Math.min(budgeter.charsFor(rawContract, contractTokens, chunkTokens),
+                maxPromptChars - chunkTemplate.literalLength() - 20);
+        ContractChunker chunker = new ContractChunker(Math.max(500, chunkChars - chunkOverlapChars), chunkOverlapChars);
+        List<String> chunks = chunker.chunk(sanitize(rawContract));
+        log.info("Contrato com {} tokens ({} caracteres) excede o prompt; analisando em {} trechos",
+                contractTokens, rawContract.length(), chunks.size());
+
+        List<Prompt> prompts = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            prompts.add(new Prompt(chunkTemplate.id(), chunkTemplate.render(maxPromptChars, Map.of("part", i + 1,
+                    "parts", chunks.size(), "chunk", budgeter.fit(OP_ANALYZE_CHUNK, chunks.get(i), chunkTokens)))));
+        }
+        List<String> partials = cachedCalls(OP_ANALYZE_CHUNK, prompts);
+
+        String response = reduce(rawContract, partials);
+
+        log.info("Análise por trechos consolidada ({} trechos): returned {} characters", chunks.size(), response.length());
+        return response;
+    }
+
+    /**
+     * Reduce hierárquico: agrupa as análises parciais em prompts de consolidação que cabem no orçamento.
+     * Enquanto sobrar mais de um grupo, cada grupo é consolidado numa análise intermediária e as
+     * intermediárias são agrupadas de novo, até que todas caibam num único prompt final.
+     */
+    private String reduce(String rawContract, List<String> partials) {
+        PromptTemplate template = templates.select(OP_ANALYZE_REDUCE, rawContract);
+        int budget = budgeter.available(OP_ANALYZE_REDUCE, template);
+        int charBudget = maxPromptChars - template.literalLength();
+
+        List<Finding> findings = new ArrayList<>(partials.size());
+        for (int i = 0; i < partials.size(); i++) {
+            findings.add(new Finding(i + 1, i + 1, partials.get(i)));
+        }
+        for (int level = 1; ; level++) {
+            List<List<Finding>> groups = group(findings, budget, charBudget);
+            List<Prompt> prompts = new ArrayList<>(groups.size());
+            for (List<Finding> group : groups) {
+                StringBuilder text = new StringBuilder();
+                group.forEach(finding -> text.append(finding.header()).append(finding.text()).append("\n\n"));
+                prompts.add(new Prompt(template.id(), template.render(maxPromptChars,
+                        Map.of("parts", group.size(), "findings", text))));
+            }
+            if (prompts.size() == 1) {
+                return cachedCall(OP_ANALYZE_REDUCE, template.id(), prompts.get(0).text());
+            }
+
+            log.info("Consolidação nível {}: {} análises parciais em {} grupos", level, findings.size(), groups.size());
+            List<String> merged = cachedCalls(OP_ANALYZE_REDUCE, prompts);
+            List<Finding> next = new ArrayList<>(groups.size());
+            for (int i = 0; i < groups.size(); i++) {
+                List<Finding> group = groups.get(i);
+                next.add(new Finding(group.get(0).from(), group.get(group.size() - 1).to(), merged.get(i)));
+            }
+            findings = next;
+        }
+    }
+
+    /**
+     * Empacota as análises em ordem em grupos que cabem no prompt de consolidação. Cada análise ocupa no
+     * máximo metade do espaço, então todo grupo (exceto talvez o último) junta pelo menos duas e o número
+     * de grupos cai a cada nível.
+     */
+    private List<List<Finding>> group(List<Finding> findings, int budget, int charBudget) {
+        List<List<Finding>> groups = new ArrayList<>();
+        List<Finding> current = new ArrayList<>();
+        int tokens = 0;
+        int chars = 0;
+        for (Finding finding : findings) {
+            String header = finding.header();
+            int headerTokens = budgeter.count(header) + 1;
+            CharSequence text = budgeter.fit(OP_ANALYZE_REDUCE, finding.text(), Math.max(1, budget / 2 - headerTokens));
+            int maxChars = Math.max(0, charBudget / 2 - header.length() - 2);
+            if (text.length() > maxChars) {
+                text = text.subSequence(0, maxChars);
+            }
+            int findingTokens = headerTokens + budgeter.count(text);
+            int findingChars = header.length() + text.length() + 2;
+            if (!current.isEmpty() && (tokens + findingTokens > budget || chars + findingChars > charBudget)) {
+                groups.add(current);
+                current = new ArrayList<>();
+                tokens = 0;
+                chars = 0;
+            }
+            current.add(new Finding(finding.from(), finding.to(), text));
+            tokens += findingTokens;
+            chars += findingChars;
+        }
+        groups.add(current);
+        return groups;
+    }
+
+    /**
+     * Análise de um trecho, ou consolidação intermediária dos trechos {@code from} a {@code to}.
+     */
+    private record Finding(int from, int to, CharSequence text) {
+        String header() {
+            return from == to ? "--- TRECHO " + from + " ---\n" : "--- TRECHOS " + from + " A " + to + " ---\n";
+        }
+    }
+
+    /**
+     * Analisa cada cláusula isoladamente, em paralelo (até {@code analysis.chunked.parallelism} por vez).
+     * Usado na análise incremental de revisões, que só envia as cláusulas alteradas.
+     *
+     * @return análise de cada cláusula, na ordem recebida
+     */
+    public List<String> analyzeClauses(List<String> clauses) {
+        List<Prompt> prompts = new ArrayList<>(clauses.size());
+        for (String clause : clauses) {
+            PromptTemplate template = templates.select(OP_ANALYZE_CLAUSE, clause);
+            CharSequence fitted = budgeter.fit(OP_ANALYZE_CLAUSE, clause, budgeter.available(OP_ANALYZE_CLAUSE, template));
+            prompts.add(new Prompt(template.id(), template.render(maxPromptChars, Map.of("clause", fitted))));
+        }
+        return cachedCalls(OP_ANALYZE_CLAUSE, prompts);
+    }
+
+    /**
+     * Versão do template com que {@link #analyzeClauses(List)} analisa esta cláusula.
+     */
+    public String clauseTemplateVersion(String clause) {
+        return templates.select(OP_ANALYZE_CLAUSE, clause).id();
+    }
+
+    /**
+     * Nome do modelo em uso, para chaves de caches que guardam respostas do LLM.
+     */
+    public String modelName() {
+        return llmProvider.modelName();
+    }
+
     /**
      * Envia o contrato para análise assíncrona via RabbitMQ.
-     * Monta JSON de forma segura usando Gson.
+     * Monta JSON de forma segura usando Gson. Contratos acima de {@code analysis.message.inline-threshold-chars}
+     * não vão no corpo da mensagem: o listener os lê do banco pelo id e confere o SHA-256.
      *
+     * @param contractId id do {@link com.fiap.contratAI_spring.model.Contract} já criado em PENDING
      * @param rawContract conteúdo do contrato
      * @param userId id do usuário que solicitou
+     * @param priority prioridade da mensagem, ver {@link AnalysisPriorityPolicy}
+     */
+    public void sendContractForAnalysis(Long contractId, String rawContract, Long userId, int priority) {
+        sendContractForAnalysis(contractId, rawContract, userId, priority, null);
+    }
+
+    /**
+     * Como {@link #sendContractForAnalysis(Long, String, Long, int)}, com o confirm do broker entregue em
+     * {@code correlation} ({@code spring.rabbitmq.publisher-confirm-type=CORRELATED}).
+     *
+     * @param correlation dados de correlação cujo {@link CorrelationData#getFuture()} completa com o ack/nack,
+     *                    ou {@code null} para não acompanhar a confirmação
      */
-    public void sendContractForAnalysis(String rawContract, Long userId) {
+    public void sendContractForAnalysis(Long contractId, String rawContract, Long userId, int priority, CorrelationData correlation) {
         if (rawContract == null) rawContract = "";
         if (userId == null) throw new IllegalArgumentException("userId não pode ser nulo.");
 
-        JsonObject json = new JsonObject();
-        json.addProperty("contract", rawContract);
-        json.addProperty("userId", userId);
-
-        String message = gson.toJson(json);
+        String message = buildAnalysisMessage(contractId, rawContract, userId);
 
         log.debug("Enviando mensagem ao RabbitMQ exchange='{}' routingKey='{}' size={}", RabbitMQConfig.EXCHANGE_NAME, RabbitMQConfig.ROUTING_KEY, message.length());
 
         try {
-            rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE_NAME, RabbitMQConfig.ROUTING_KEY, message);
+            rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE_NAME, RabbitMQConfig.ROUTING_KEY, message, m -> {
+                m.getMessageProperties().setPriority(priority);
+                return m;
+            }, correlation);
         } catch (Exception e) {
             log.error("Falha ao enviar mensagem para RabbitMQ: {}", e.getMessage(), e);
             throw new RuntimeException("Falha ao enfileirar contrato para análise.", e);
         }
     }
 
+    /**
+     * Envia uma revisão ({@link com.fiap.contratAI_spring.model.AlteredContract}) já gravada em PENDING para
+     * a fila de análise. A mensagem leva só o id: o listener lê os textos do banco.
+     *
+     * @param priority prioridade da mensagem, ver {@link AnalysisPriorityPolicy}
+     */
+    public void sendRevisionForAnalysis(Long revisionId, Long userId, int priority) {
+        if (revisionId == null || userId == null) throw new IllegalArgumentException("revisionId e userId são obrigatórios.");
+
+        JsonObject json = new JsonObject();
+        json.addProperty("revisionId", revisionId);
+        json.addProperty("userId", userId);
+        json.addProperty("enqueuedAt", System.currentTimeMillis());
+        String message = gson.toJson(json);
+
+        try {
+            rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE_NAME, RabbitMQConfig.ROUTING_KEY, message, m -> {
+                m.getMessageProperties().setPriority(priority);
+                return m;
+            });
+        } catch (Exception e) {
+            log.error("Falha ao enviar revisão {} para RabbitMQ: {}", revisionId, e.getMessage(), e);
+            throw new RuntimeException("Falha ao enfileirar revisão para análise.", e);
+        }
+    }
+
     // -------------------------
     // internal helpers
     // -------------------------
 
+    String buildAnalysisMessage(Long contractId, String rawContract, Long userId) {
+        JsonObject json = new JsonObject();
+        json.addProperty("contractId", contractId);
+        // sem id não há de onde o listener ler o texto: vai inline independente do tamanho
+        if (contractId == null || rawContract.length() <= inlineThresholdChars) {
+            json.addProperty("contract", rawContract);
+        } else {
+            json.addProperty("sha256", ContractContentStore.sha256(rawContract));
+            json.addProperty("length", rawContract.length());
+        }
+        json.addProperty("userId", userId);
+        json.addProperty("enqueuedAt", System.currentTimeMillis());
+        return gson.toJson(json);
+    }
+
+    /**
+     * Prompt pronto para envio e o id da versão do template que o montou.
+     */
+    private record Prompt(String template, String text) {}
+
+    private Prompt buildGeneratePrompt(String terms) {
+        Timer.Sample sample = metrics.start();
+        PromptTemplate template = templates.select(OP_GENERATE, terms);
+        CharSequence fitted = budgeter.fit(OP_GENERATE, terms, budgeter.available(OP_GENERATE, template));
+        String prompt = template.render(maxPromptChars, Map.of("terms", fitted));
+        metrics.recordPromptBuild(OP_GENERATE, template.id(), sample);
+        return new Prompt(template.id(), prompt);
+    }
+
     /**
-     * Faz a chamada HTTP ao serviço Ollama (endpoint /api/generate).
-     * Faz parsing seguro da resposta e trata erros comuns.
+     * Consulta o cache de respostas antes de chamar o Ollama e armazena o resultado em caso de miss.
      *
+     * @param operation operação (tag das métricas)
+     * @param templateVersion versão do template usado para montar o prompt
      * @param prompt prompt já sanitizado e truncado
-     * @return string de resposta retornada pela IA
+     * @return resposta da IA (do cache ou da chamada)
      */
-    private String callOllamaAPI(String prompt) {
-        Instant start = Instant.now();
-        log.debug("Chamando Ollama (model='{}') promptLen={}", modelName, prompt.length());
+    private String cachedCall(String operation, String templateVersion, String prompt) {
+        String cacheKey = LlmResponseCache.key(llmProvider.modelName(), templateVersion, prompt);
+        Optional<String> cached = responseCache.get(cacheKey);
+        if (cached.isPresent()) {
+            log.debug("Resposta obtida do cache (template='{}')", templateVersion);
+            return cached.get();
+        }
 
+        return singleFlight(operation, cacheKey, () -> {
+            String response = callLlm(operation, templateVersion, prompt);
+            responseCache.put(cacheKey, llmProvider.modelName(), templateVersion, response);
+            return response;
+        });
+    }
+
+    /**
+     * {@link #cachedCall} de vários prompts no {@code chunkExecutor}, com no máximo {@code chunkParallelism}
+     * em andamento. Na primeira falha as chamadas restantes são canceladas e a exceção é repassada.
+     *
+     * @return respostas na ordem dos prompts
+     */
+    private List<String> cachedCalls(String operation, List<Prompt> prompts) {
+        Semaphore window = new Semaphore(chunkParallelism);
+        List<CompletableFuture<String>> calls = new ArrayList<>(prompts.size());
         try {
-            JsonObject requestBody = new JsonObject();
-            requestBody.addProperty("model", modelName);
-            requestBody.addProperty("prompt", prompt);
-            requestBody.addProperty("stream", false);
+            for (Prompt prompt : prompts) {
+                window.acquire();
+                CompletableFuture<String> call = CompletableFuture.supplyAsync(
+                        () -> cachedCall(operation, prompt.template(), prompt.text()), chunkExecutor);
+                call.whenComplete((r, e) -> window.release());
+                calls.add(call);
+            }
+            CompletableFuture.allOf(calls.toArray(new CompletableFuture[0])).join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            calls.forEach(c -> c.cancel(true));
+            throw new RuntimeException("Interrompido durante a análise por trechos.", e);
+        } catch (CompletionException e) {
+            calls.forEach(c -> c.cancel(true));
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw cause instanceof RuntimeException re ? re : new RuntimeException(cause.getMessage(), cause);
+        }
+        return calls.stream().map(CompletableFuture::join).toList();
+    }
 
-            RequestBody body = RequestBody.create(requestBody.toString(), MediaType.parse("application/json; charset=utf-8"));
+    /**
+     * Garante uma única chamada ao LLM por chave em andamento: quem chega enquanto a chamada
+     * de mesma chave (modelo + template + prompt) ainda não terminou espera e recebe o mesmo
+     * resultado (ou a mesma exceção). A resposta vai para o cache antes de a chave sair do mapa,
+     * então chamadas posteriores a encontram lá; quem consultou o cache pouco antes disso e só
+     * depois registrou a chave confere o cache de novo em vez de repetir a chamada.
+     */
+    private String singleFlight(String operation, String cacheKey, Supplier<String> call) {
+        while (true) {
+            InFlightCall mine = new InFlightCall();
+            InFlightCall existing = inFlightCalls.putIfAbsent(cacheKey, mine);
+            if (existing == null) {
+                try {
+                    Optional<String> cached = responseCache.getFromMemory(cacheKey);
+                    String response = cached.isPresent() ? cached.get() : call.get();
+                    mine.result.complete(response);
+                    return response;
+                } catch (RuntimeException e) {
+                    mine.result.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    inFlightCalls.remove(cacheKey, mine);
+                }
+            }
 
-            Request request = new Request.Builder()
-                    .url(ollamaBaseUrl + "/api/generate")
-                    .post(body)
-                    .build();
+            metrics.recordCoalesced(operation);
+            log.debug("Chamada idêntica em andamento; aguardando o resultado compartilhado ({})", operation);
+            existing.waiters.incrementAndGet();
+            try {
+                return awaitShared(existing.result, acquireWaitMs(operation) + requestTimeoutMs);
+            } catch (GenerationAbandonedException e) {
+                // o cliente de quem iniciou desconectou antes de esta espera ser vista: faz a própria chamada
+                log.debug("Chamada compartilhada abortada por quem a iniciou; repetindo ({})", operation);
+            } finally {
+                existing.waiters.decrementAndGet();
+            }
+        }
+    }
 
-            try (Response response = httpClient.newCall(request).execute()) {
-                if (response == null) {
-                    throw new IOException("Resposta nula do Ollama.");
-                }
+    private static String awaitShared(CompletableFuture<String> shared, long timeoutMs) {
+        try {
+            return shared.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrompido aguardando chamada compartilhada ao LLM.", e);
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Tempo esgotado aguardando chamada compartilhada ao LLM (" + timeoutMs + "ms).", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw cause instanceof RuntimeException re ? re : new RuntimeException(cause.getMessage(), cause);
+        }
+    }
 
-                String responseBody = response.body() != null ? response.body().string() : "";
-                if (!response.isSuccessful()) {
-                    log.error("Ollama retornou status não-sucesso: {} body={}", response.code(), responseBody);
-                    throw new IOException("Erro na chamada Ollama: HTTP " + response.code());
-                }
+    /**
+     * Chamada ao LLM em andamento e quantos chamadores, além de quem a iniciou, aguardam o resultado.
+     */
+    private static final class InFlightCall {
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private final AtomicInteger waiters = new AtomicInteger();
+    }
 
-                JsonObject jsonResponse;
-                try {
-                    jsonResponse = JsonParser.parseString(responseBody).getAsJsonObject();
-                } catch (JsonSyntaxException | IllegalStateException ex) {
-                    log.error("Resposta inválida do Ollama (não é JSON): {}", responseBody);
-                    throw new IOException("Resposta inválida do Ollama: " + ex.getMessage(), ex);
-                }
+    /**
+     * Geração em streaming abortada porque o consumidor de quem a iniciou falhou e ninguém mais aguardava;
+     * a causa é a falha do consumidor.
+     */
+    private static final class GenerationAbandonedException extends RuntimeException {
+        private GenerationAbandonedException(RuntimeException cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
 
-                if (jsonResponse.has("response") && !jsonResponse.get("response").isJsonNull()) {
-                    String result = jsonResponse.get("response").getAsString();
-                    log.debug("Ollama respondeu com {} chars em {}ms", result.length(), Duration.between(start, Instant.now()).toMillis());
-                    return result;
-                } else if (jsonResponse.has("error")) {
-                    String error = jsonResponse.get("error").toString();
-                    log.error("Ollama retornou erro no JSON: {}", error);
-                    throw new IOException("Erro da API Ollama: " + error);
+    /**
+     * Chama o provedor de LLM respeitando o limite global de chamadas simultâneas.
+     */
+    private String callLlm(String operation, String templateVersion, String prompt) {
+        metrics.recordPromptSize(operation, templateVersion, prompt.length());
+        metrics.recordPromptTokens(operation, templateVersion, budgeter.count(prompt));
+        AdaptiveConcurrencyLimiter.Permit permit = acquirePermit(operation);
+        try {
+            circuitBreaker.acquirePermission();
+            String response;
+            try {
+                response = llmProvider.generate(operation, prompt);
+            } catch (RuntimeException e) {
+                circuitBreaker.onFailure(e);
+                permit.onDropped();
+                throw e;
+            }
+            circuitBreaker.onSuccess();
+            permit.onSuccess(response.length());
+            metrics.recordResponseSize(operation, templateVersion, response.length());
+            return response;
+        } finally {
+            // circuito aberto ou erro inesperado: só devolve a vaga (não faz nada se já foi liberada)
+            permit.onIgnore();
+        }
+    }
+
+    private String streamLlm(String operation, String templateVersion, String prompt, Consumer<String> onToken) {
+        metrics.recordPromptSize(operation, templateVersion, prompt.length());
+        metrics.recordPromptTokens(operation, templateVersion, budgeter.count(prompt));
+        AdaptiveConcurrencyLimiter.Permit permit = acquirePermit(operation);
+        try {
+            circuitBreaker.acquirePermission();
+            // falha de quem consome os tokens (ex.: cliente desconectou) não indica problema no LLM
+            AtomicBoolean consumerFailed = new AtomicBoolean();
+            String response;
+            try {
+                response = llmProvider.generateStream(operation, prompt, token -> {
+                    try {
+                        onToken.accept(token);
+                    } catch (RuntimeException e) {
+                        consumerFailed.set(true);
+                        throw e;
+                    }
+                });
+            } catch (RuntimeException e) {
+                if (consumerFailed.get()) {
+                    circuitBreaker.onSuccess();
                 } else {
-                    log.error("Resposta do Ollama não contém 'response' nem 'error': {}", jsonResponse);
-                    throw new IOException("Resposta inesperada da API Ollama.");
+                    circuitBreaker.onFailure(e);
+                    permit.onDropped();
                 }
+                throw e;
             }
-        } catch (IOException e) {
-            log.error("Erro na chamada ao Ollama: {}", e.getMessage(), e);
-            throw new RuntimeException("Erro ao chamar API do Ollama: " + e.getMessage(), e);
+            circuitBreaker.onSuccess();
+            permit.onSuccess(response.length());
+            metrics.recordResponseSize(operation, templateVersion, response.length());
+            return response;
         } finally {
-            log.debug("Tempo total chamada Ollama: {}ms", Duration.between(start, Instant.now()).toMillis());
+            permit.onIgnore();
         }
     }
 
-    private String sanitizeAndTruncate(String text) {
-        if (text == null) return "";
-        String cleaned = text.replace("\r\n", "\n").replace("\r", "\n");
-        cleaned = cleaned.replace("\u0000", ""); 
-        if (cleaned.length() > maxPromptChars) {
-            log.warn("Prompt excedeu maxPromptChars ({}). Truncando de {} para {} caracteres.", maxPromptChars, cleaned.length(), maxPromptChars);
-            cleaned = cleaned.substring(0, maxPromptChars);
+    /**
+     * Gerações vindas da API esperam pouco pela vaga; análises da fila podem esperar bem mais,
+     * já que ninguém está bloqueado do outro lado.
+     */
+    private AdaptiveConcurrencyLimiter.Permit acquirePermit(String operation) {
+        try {
+            return concurrencyLimiter.acquire(acquireWaitMs(operation));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrompido aguardando capacidade do Ollama.", e);
         }
-        return cleaned;
+    }
+
+    private long acquireWaitMs(String operation) {
+        return OP_GENERATE.equals(operation) ? interactiveWaitMs : inFlightWaitSeconds * 1000;
+    }
+
+    static String sanitize(String text) {
+        return PromptTemplate.sanitize(text, Integer.MAX_VALUE);
     }
 }
@@ -0,0 +1,143 @@
+package com.fiap.contratAI_spring.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Divide contratos longos em trechos respeitando os limites das cláusulas.
+ * Cada trecho (exceto o primeiro) começa com uma sobreposição do final do trecho anterior,
+ * para que cláusulas que se referenciam não percam contexto.
+ */
+public class ContractChunker {
+
+    /**
+     * Início de cláusula: "CLÁUSULA PRIMEIRA", "Cláusula 2ª", "Art. 3", "Artigo 4", "5.", "5.1 -", "6)".
+     */
+    private static final Pattern CLAUSE_START = Pattern.compile(
+            "(?m)^[ \\t]*(?:CL[ÁA]USULA|Cl[áa]usula|ART(?:IGO)?\\.?|Art(?:igo)?\\.?|\\d+(?:\\.\\d+)*\\s*[.)\\-–º°ª])");
+
+    /**
+     * Rótulo de numeração no início da cláusula (já em minúsculas): "cláusula décima quinta", "cláusula 5ª",
+     * "art. 5º", "artigo v", "5.1 -". Fica fora da impressão digital para que renumerar não conte como alteração.
+     */
+    private static final Pattern CLAUSE_LABEL = Pattern.compile(
+            "^(?:(?:cl[áa]usula|art(?:igo)?\\.?)\\s*(?:(?:e\\s+)?(?:primeir[oa]|segund[oa]|terceir[oa]|quart[oa]|quint[oa]"
+                    + "|sext[oa]|s[ée]tim[oa]|oitav[oa]|non[oa]|d[ée]cim[oa]|vig[ée]sim[oa]|trig[ée]sim[oa]|quadrag[ée]sim[oa]"
+                    + "|[úu]nic[oa]|\\d+\\s*[ºª°]?|[ivxlc]+\\b)\\s*)+|\\d+(?:\\.\\d+)*\\s*[.)\\-–º°ª])");
+
+    private final int maxChunkChars;
+    private final int overlapChars;
+
+    public ContractChunker(int maxChunkChars, int overlapChars) {
+        if (maxChunkChars <= 0) {
+            throw new IllegalArgumentException("maxChunkChars deve ser positivo.");
+        }
+        this.maxChunkChars = maxChunkChars;
+        this.overlapChars = Math.max(0, Math.min(overlapChars, maxChunkChars / 2));
+    }
+
+    /**
+     * Separa o texto em cláusulas. O preâmbulo antes da primeira cláusula vira o primeiro segmento.
+     */
+    public static List<String> splitClauses(String text) {
+        List<String> clauses = new ArrayList<>();
+        if (text == null || text.isEmpty()) return clauses;
+
+        Matcher matcher = CLAUSE_START.matcher(text);
+        int start = 0;
+        while (matcher.find()) {
+            if (matcher.start() > start) {
+                addIfNotBlank(clauses, text.substring(start, matcher.start()));
+            }
+            start = matcher.start();
+        }
+        addIfNotBlank(clauses, text.substring(start));
+        return clauses;
+    }
+
+    /**
+     * Impressão digital da cláusula: SHA-256 do texto sem o rótulo de numeração, em minúsculas e com
+     * espaços colapsados. Cláusulas iguais em revisões diferentes do contrato têm a mesma impressão
+     * mesmo se renumeradas ou reformatadas.
+     */
+    public static String clauseFingerprint(String clause) {
+        String normalized = clause.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        normalized = CLAUSE_LABEL.matcher(normalized).replaceFirst("").strip();
+        return ContractContentStore.sha256(normalized);
+    }
+
+    /**
+     * Agrupa as cláusulas em trechos de até {@code maxChunkChars} caracteres (mais a sobreposição).
+     * Cláusulas maiores que o limite são quebradas em parágrafos e, em último caso, por tamanho.
+     */
+    public List<String> chunk(String text) {
+        List<String> pieces = new ArrayList<>();
+        for (String clause : splitClauses(text)) {
+            if (clause.length() <= maxChunkChars) {
+                pieces.add(clause);
+            } else {
+                splitOversized(clause, pieces);
+            }
+        }
+
+        List<String> chunks = new ArrayList<>();
+        StringBuilder current = new StringBuilder(maxChunkChars + overlapChars);
+        String overlap = "";
+        for (String piece : pieces) {
+            if (current.length() > overlap.length() && current.length() + piece.length() > maxChunkChars + overlap.length()) {
+                String finished = current.toString();
+                chunks.add(finished);
+                overlap = tail(finished);
+                current.setLength(0);
+                current.append(overlap);
+            }
+            current.append(piece);
+        }
+        if (current.length() > overlap.length()) {
+            chunks.add(current.toString());
+        }
+        return chunks;
+    }
+
+    private void splitOversized(String clause, List<String> pieces) {
+        StringBuilder current = new StringBuilder();
+        for (String paragraph : clause.split("(?<=\n\n)")) {
+            if (current.length() + paragraph.length() > maxChunkChars && current.length() > 0) {
+                pieces.add(current.toString());
+                current.setLength(0);
+            }
+            if (paragraph.length() > maxChunkChars) {
+                for (int i = 0; i < paragraph.length(); i += maxChunkChars) {
+                    pieces.add(paragraph.substring(i, Math.min(paragraph.length(), i + maxChunkChars)));
+                }
+            } else {
+                current.append(paragraph);
+            }
+        }
+        if (current.length() > 0) {
+            pieces.add(current.toString());
+        }
+    }
+
+    /**
+     * Últimos {@code overlapChars} caracteres do trecho, alinhados ao início de uma linha quando possível.
+     */
+    private String tail(String chunk) {
+        if (overlapChars == 0) return "";
+        int from = Math.max(0, chunk.length() - overlapChars);
+        int lineStart = chunk.indexOf('\n', from);
+        if (lineStart >= 0 && lineStart < chunk.length() - 1) {
+            from = lineStart + 1;
+        }
+        return chunk.substring(from);
+    }
+
+    private static void addIfNotBlank(List<String> clauses, String clause) {
+        if (!clause.isBlank()) {
+            clauses.add(clause);
+        }
+    }
+}
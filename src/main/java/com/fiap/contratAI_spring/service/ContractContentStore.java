@@ -0,0 +1,174 @@
+package com.fiap.contratAI_spring.service;
+
+import com.fiap.contratAI_spring.model.AlteredContract;
+import com.fiap.contratAI_spring.model.ContentBlob;
+import com.fiap.contratAI_spring.model.Contract;
+import com.fiap.contratAI_spring.model.GeneratedContract;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Ponto único de leitura e escrita dos corpos de contrato.
+ *
+ * <ul>
+ *   <li>{@code contracts.storage.mode=inline}: comportamento original, um {@code @Lob} com o texto
+ *   e a análise concatenados.</li>
+ *   <li>{@code contracts.storage.mode=compressed}: original e análise em {@link ContentBlob}s separados,
+ *   comprimidos e carregados sob demanda.</li>
+ * </ul>
+ * A leitura aceita os dois formatos, então a troca de modo não exige migrar linhas antigas.
+ * Deve ser chamada dentro de uma transação (ou com a sessão aberta) para carregar os blobs LAZY.
+ */
+@Component
+public class ContractContentStore {
+
+    public static final String ANALYSIS_SEPARATOR = "\n\n=== ANÁLISE ===\n";
+
+    private final boolean compressed;
+
+    public ContractContentStore(@Value("${contracts.storage.mode:inline}") String mode) {
+        this.compressed = switch (mode.trim().toLowerCase()) {
+            case "inline" -> false;
+            case "compressed" -> true;
+            default -> throw new IllegalArgumentException("contracts.storage.mode inválido: " + mode + " (use inline ou compressed)");
+        };
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    // -------------------------
+    // Contract
+    // -------------------------
+
+    public void setOriginal(Contract contract, String text) {
+        if (compressed) {
+            contract.setContent(null);
+            contract.setOriginalBlob(blob(text));
+        } else {
+            contract.setContent(text);
+        }
+    }
+
+    public void setAnalysis(Contract contract, String original, String analysis) {
+        // contratos gravados fora da linha continuam fora da linha mesmo após voltar ao modo inline
+        if (compressed || contract.getOriginalBlob() != null) {
+            if (contract.getOriginalBlob() == null) {
+                contract.setOriginalBlob(blob(original));
+            }
+            contract.setContent(null);
+            contract.setAnalysisBlob(blob(analysis));
+        } else {
+            contract.setContent(original + ANALYSIS_SEPARATOR + analysis);
+        }
+    }
+
+    /**
+     * Texto original enviado para análise, sem a análise.
+     */
+    public String original(Contract contract) {
+        if (contract.getOriginalBlob() != null) {
+            return contract.getOriginalBlob().getText();
+        }
+        String content = contract.getContent();
+        if (content == null) return null;
+        int separator = content.lastIndexOf(ANALYSIS_SEPARATOR);
+        return separator >= 0 ? content.substring(0, separator) : content;
+    }
+
+    /**
+     * Análise gravada, sem o texto original, ou {@code null} se o contrato ainda não foi analisado.
+     */
+    public String analysis(Contract contract) {
+        if (contract.getOriginalBlob() != null) {
+            return contract.getAnalysisBlob() != null ? contract.getAnalysisBlob().getText() : null;
+        }
+        String content = contract.getContent();
+        if (content == null) return null;
+        int separator = content.lastIndexOf(ANALYSIS_SEPARATOR);
+        return separator >= 0 ? content.substring(separator + ANALYSIS_SEPARATOR.length()) : null;
+    }
+
+    /**
+     * Conteúdo no formato exposto pela API: original seguido da análise, quando houver.
+     */
+    public String content(Contract contract) {
+        if (contract.getOriginalBlob() == null) {
+            return contract.getContent();
+        }
+        String original = contract.getOriginalBlob().getText();
+        return contract.getAnalysisBlob() == null
+                ? original
+                : original + ANALYSIS_SEPARATOR + contract.getAnalysisBlob().getText();
+    }
+
+    // -------------------------
+    // GeneratedContract / AlteredContract
+    // -------------------------
+
+    public void setContent(GeneratedContract contract, String text) {
+        if (compressed) {
+            contract.setContent(null);
+            contract.setContentBlob(blob(text));
+        } else {
+            contract.setContent(text);
+        }
+    }
+
+    public String content(GeneratedContract contract) {
+        return contract.getContentBlob() != null ? contract.getContentBlob().getText() : contract.getContent();
+    }
+
+    public void setContent(AlteredContract contract, String text) {
+        if (compressed) {
+            contract.setContent(null);
+            contract.setContentBlob(blob(text));
+        } else {
+            contract.setContent(text);
+        }
+    }
+
+    public String content(AlteredContract contract) {
+        return contract.getContentBlob() != null ? contract.getContentBlob().getText() : contract.getContent();
+    }
+
+    public void setAnalysis(AlteredContract contract, String analysis) {
+        if (compressed || contract.getContentBlob() != null) {
+            contract.setAnalysis(null);
+            contract.setAnalysisBlob(blob(analysis));
+        } else {
+            contract.setAnalysis(analysis);
+        }
+    }
+
+    /**
+     * Análise incremental da revisão, ou {@code null} se ainda não foi analisada.
+     */
+    public String analysis(AlteredContract contract) {
+        return contract.getAnalysisBlob() != null ? contract.getAnalysisBlob().getText() : contract.getAnalysis();
+    }
+
+    static ContentBlob blob(String text) {
+        String value = text != null ? text : "";
+        ContentBlob blob = new ContentBlob();
+        blob.setText(value);
+        blob.setTextLength(value.length());
+        blob.setSha256(sha256(value));
+        return blob;
+    }
+
+    public static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+}
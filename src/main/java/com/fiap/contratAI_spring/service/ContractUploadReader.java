@@ -0,0 +1,137 @@
+package com.fiap.contratAI_spring.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Extrai os contratos de um upload multipart: cada parte é um arquivo de texto ou um ZIP com arquivos
+ * de texto. As partes chegam em arquivos temporários ({@code spring.servlet.multipart.file-size-threshold=0})
+ * e o ZIP é lido entrada a entrada, então só o contrato da vez fica no heap, limitado a
+ * {@code analysis.bulk.max-file-bytes}.
+ */
+@Component
+public class ContractUploadReader {
+
+    private static final Charset FALLBACK_CHARSET = Charset.forName("windows-1252");
+    private static final List<String> TEXT_EXTENSIONS = List.of(".txt", ".md");
+    private static final List<String> ZIP_CONTENT_TYPES = List.of("application/zip", "application/x-zip-compressed");
+
+    /**
+     * Recebe os contratos na ordem do upload.
+     */
+    public interface Sink {
+        void contract(String name, String text);
+
+        void skipped(String name, String reason);
+    }
+
+    private final int maxFileBytes;
+    private final int maxFiles;
+
+    public ContractUploadReader(@Value("${analysis.bulk.max-file-bytes:5242880}") int maxFileBytes,
+                                @Value("${analysis.bulk.max-files:1000}") int maxFiles) {
+        this.maxFileBytes = Math.max(1, maxFileBytes);
+        this.maxFiles = Math.max(1, maxFiles);
+    }
+
+    public void read(List<MultipartFile> files, Sink sink) throws IOException {
+        int[] accepted = {0};
+        for (MultipartFile file : files) {
+            String name = file.getOriginalFilename() != null ? file.getOriginalFilename() : file.getName();
+            if (isZip(name, file.getContentType())) {
+                readZip(name, file, sink, accepted);
+            } else {
+                try (InputStream in = file.getInputStream()) {
+                    accept(name, in, sink, accepted);
+                }
+            }
+        }
+    }
+
+    private void readZip(String zipName, MultipartFile file, Sink sink, int[] accepted) throws IOException {
+        try (ZipInputStream zip = new ZipInputStream(file.getInputStream(), StandardCharsets.UTF_8)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                String entryName = entry.getName();
+                if (entry.isDirectory() || isMetadata(entryName)) continue;
+                accept(zipName + "/" + entryName, zip, sink, accepted);
+            }
+        } catch (ZipException | IllegalArgumentException e) {
+            // ZIP corrompido ou nomes fora de UTF-8: as entradas já lidas continuam no lote
+            sink.skipped(zipName, "ZIP inválido: " + e.getMessage());
+        }
+    }
+
+    private void accept(String name, InputStream in, Sink sink, int[] accepted) throws IOException {
+        if (accepted[0] >= maxFiles) {
+            sink.skipped(name, "limite de " + maxFiles + " contratos por lote atingido");
+            return;
+        }
+        if (!isText(name)) {
+            sink.skipped(name, "formato não suportado (envie .txt, .md ou .zip)");
+            return;
+        }
+        // lê no máximo um byte além do limite: entradas maiores (ou ZIP bombs) não chegam a ocupar o heap
+        byte[] bytes = in.readNBytes(maxFileBytes + 1);
+        if (bytes.length > maxFileBytes) {
+            sink.skipped(name, "maior que " + maxFileBytes + " bytes");
+            return;
+        }
+        String text = decode(bytes);
+        if (text.isBlank()) {
+            sink.skipped(name, "arquivo vazio");
+            return;
+        }
+        accepted[0]++;
+        sink.contract(name, text);
+    }
+
+    /**
+     * UTF-8 quando válido; senão Windows-1252, comum em documentos exportados no Windows.
+     */
+    static String decode(byte[] bytes) {
+        String text;
+        try {
+            text = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(bytes))
+                    .toString();
+        } catch (CharacterCodingException e) {
+            text = new String(bytes, FALLBACK_CHARSET);
+        }
+        return text.startsWith("\uFEFF") ? text.substring(1) : text;
+    }
+
+    private static boolean isZip(String name, String contentType) {
+        return lower(name).endsWith(".zip") || (contentType != null && ZIP_CONTENT_TYPES.contains(lower(contentType)));
+    }
+
+    private static boolean isText(String name) {
+        String lower = lower(name);
+        return TEXT_EXTENSIONS.stream().anyMatch(lower::endsWith);
+    }
+
+    private static boolean isMetadata(String entryName) {
+        String base = entryName.substring(entryName.lastIndexOf('/') + 1);
+        return entryName.startsWith("__MACOSX/") || base.startsWith(".");
+    }
+
+    private static String lower(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+}
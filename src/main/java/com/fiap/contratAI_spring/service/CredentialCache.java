@@ -0,0 +1,158 @@
+package com.fiap.contratAI_spring.service;
+
+import com.fiap.contratAI_spring.model.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache de credenciais já verificadas pelo BCrypt.
+ * Guarda apenas um HMAC-SHA256 (chave aleatória por processo) de usuário + senha, junto com o principal.
+ * Uma requisição com as mesmas credenciais dentro do TTL é autenticada sem consultar o banco nem rodar o BCrypt.
+ */
+@Component
+public class CredentialCache {
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final Duration ttl;
+    private final SecretKeySpec hmacKey;
+
+    private final Map<String, CachedCredential> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public CredentialCache(
+            MeterRegistry meterRegistry,
+            @Value("${security.credential-cache.enabled:true}") boolean enabled,
+            @Value("${security.credential-cache.max-entries:10000}") int maxEntries,
+            @Value("${security.credential-cache.ttl-seconds:300}") long ttlSeconds
+    ) {
+        this.enabled = enabled;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.hmacKey = new SecretKeySpec(key, "HmacSHA256");
+
+        this.hits = Counter.builder("security.credential.cache").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("security.credential.cache").tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * Retorna o principal se as credenciais forem idênticas às verificadas anteriormente e ainda válidas.
+     */
+    public Optional<UserDetails> lookup(String username, String rawPassword) {
+        if (!enabled || username == null || rawPassword == null) return Optional.empty();
+
+        byte[] digest = digest(username, rawPassword);
+        lock.lock();
+        try {
+            CachedCredential cached = entries.get(username);
+            if (cached != null) {
+                if (cached.isExpired(ttl)) {
+                    entries.remove(username);
+                } else if (MessageDigest.isEqual(cached.digest(), digest)) {
+                    hits.increment();
+                    return Optional.of(cached.principal());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public void put(String username, String rawPassword, UserDetails principal) {
+        if (!enabled || username == null || rawPassword == null) return;
+
+        byte[] digest = digest(username, rawPassword);
+        lock.lock();
+        try {
+            entries.put(username, new CachedCredential(digest, principal, System.nanoTime()));
+            while (entries.size() > maxEntries) {
+                entries.remove(entries.keySet().iterator().next());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove as credenciais em cache do usuário. Deve ser chamado quando senha ou roles mudarem.
+     */
+    public void evict(String username) {
+        lock.lock();
+        try {
+            entries.remove(username);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove as credenciais do usuário pelo email e pelo id, agora e de novo após o commit da transação
+     * corrente, para que um login concorrente não guarde o estado anterior à alteração.
+     */
+    public void evictUser(User user) {
+        evict(user.getEmail());
+        evictUserId(user.getId());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(user.getEmail());
+                    evictUserId(user.getId());
+                }
+            });
+        }
+    }
+
+    public void evictUserId(Long userId) {
+        if (userId == null) return;
+        lock.lock();
+        try {
+            entries.values().removeIf(c -> c.principal() instanceof AuthenticatedUser user && userId.equals(user.getId()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private byte[] digest(String username, String rawPassword) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(hmacKey);
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(rawPassword.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 indisponível na JVM.", e);
+        }
+    }
+
+    private record CachedCredential(byte[] digest, UserDetails principal, long storedAtNanos) {
+        boolean isExpired(Duration ttl) {
+            return System.nanoTime() - storedAtNanos > ttl.toNanos();
+        }
+    }
+}
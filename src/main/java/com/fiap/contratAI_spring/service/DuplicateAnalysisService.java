@@ -0,0 +1,194 @@
+package com.fiap.contratAI_spring.service;
+
+import com.fiap.contratAI_spring.llm.EmbeddingProvider;
+import com.fiap.contratAI_spring.model.enums.ContractStatus;
+import com.fiap.contratAI_spring.repository.ContractRepository;
+import com.fiap.contratAI_spring.search.ContractEmbeddingIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Evita analisar de novo contratos que são instâncias do mesmo modelo e diferem só em nomes e valores.
+ *
+ * <p>Antes da análise, o texto vira um embedding ({@link EmbeddingProvider}) e o contrato mais parecido do
+ * mesmo dono é buscado no {@link ContractEmbeddingIndex}. Com similaridade de cosseno a partir de
+ * {@code analysis.dedup.threshold}, a análise daquele contrato é reaproveitada sem chamar o LLM, precedida
+ * das linhas deste contrato que não existem no outro, para o leitor conferir se os valores mudam as
+ * conclusões. A similaridade só indica o candidato: a análise é reaproveitada apenas se os textos diferem
+ * em até {@value #MAX_DIFF_LINES} linhas curtas (nomes, valores, prazos) em cada sentido. Uma linha longa
+ * diferente, de qualquer lado, é texto de cláusula, e o contrato vai para o LLM.
+ * Só contratos analisados pelo LLM entram no índice, então uma análise reaproveitada nunca
+ * serve de base para outra. Falhas no embedding só desligam o atalho: o contrato segue para o LLM.
+ */
+@Service
+public class DuplicateAnalysisService {
+
+    private static final Logger log = LoggerFactory.getLogger(DuplicateAnalysisService.class);
+
+    private static final int MAX_DIFF_LINES = 10;
+    private static final int MAX_DIFF_LINE_CHARS = 200;
+
+    private final ContractAIService contractAIService;
+    private final EmbeddingProvider embeddingProvider;
+    private final ContractEmbeddingIndex index;
+    private final ContractRepository contractRepository;
+    private final ContractContentStore contentStore;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final double threshold;
+    private final Counter reused;
+    private final Counter analyzed;
+    private final Counter unavailable;
+
+    public DuplicateAnalysisService(ContractAIService contractAIService,
+                                    EmbeddingProvider embeddingProvider,
+                                    ContractEmbeddingIndex index,
+                                    ContractRepository contractRepository,
+                                    ContractContentStore contentStore,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${analysis.dedup.enabled:false}") boolean enabled,
+                                    @Value("${analysis.dedup.threshold:0.97}") double threshold) {
+        this.contractAIService = contractAIService;
+        this.embeddingProvider = embeddingProvider;
+        this.index = index;
+        this.contractRepository = contractRepository;
+        this.contentStore = contentStore;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.reused = outcome(meterRegistry, "reused");
+        this.analyzed = outcome(meterRegistry, "analyzed");
+        this.unavailable = outcome(meterRegistry, "unavailable");
+    }
+
+    private static Counter outcome(MeterRegistry registry, String outcome) {
+        return Counter.builder("analysis.dedup")
+                .description("Análises resolvidas pela detecção de duplicatas")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    /**
+     * Análise do contrato: reaproveitada de um quase duplicado do mesmo dono, ou feita pelo LLM
+     * ({@link ContractAIService#analyzeContract(String)}).
+     *
+     * @param contractId contrato sendo analisado (excluído da busca e indexado depois da análise)
+     */
+    public String analyze(Long contractId, Long ownerId, String text) {
+        if (!enabled || contractId == null || ownerId == null) {
+            return contractAIService.analyzeContract(text);
+        }
+
+        float[] vector = null;
+        try {
+            vector = embeddingProvider.embed(text);
+            String reusedAnalysis = reuse(contractId, ownerId, vector, text);
+            if (reusedAnalysis != null) {
+                reused.increment();
+                return reusedAnalysis;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Detecção de duplicatas indisponível para o contrato {}: {}", contractId, e.getMessage());
+            unavailable.increment();
+        }
+
+        String analysis = contractAIService.analyzeContract(text);
+        analyzed.increment();
+        if (vector != null) {
+            try {
+                index.add(contractId, ownerId, embeddingProvider.modelName(), vector);
+            } catch (RuntimeException e) {
+                log.warn("Falha ao indexar o embedding do contrato {}: {}", contractId, e.getMessage());
+            }
+        }
+        return analysis;
+    }
+
+    private String reuse(Long contractId, Long ownerId, float[] vector, String text) {
+        for (ContractEmbeddingIndex.Neighbor neighbor : index.nearest(vector, ownerId, embeddingProvider.modelName(), contractId, 3)) {
+            if (neighbor.similarity() < threshold) break;
+            Reference reference = readOnlyTransaction.execute(status -> contractRepository.findById(neighbor.contractId())
+                    .filter(c -> c.getStatus() == ContractStatus.ANALYZED && ownerId.equals(c.getOwner().getId()))
+                    .map(c -> new Reference(contentStore.original(c), contentStore.analysis(c)))
+                    .orElse(null));
+            if (reference == null || reference.analysis() == null) {
+                // removido ou reanalisado com falha desde a indexação
+                index.delete(neighbor.contractId());
+                continue;
+            }
+            List<String> added = differingLines(text, reference.original());
+            List<String> removed = differingLines(reference.original(), text);
+            if (!onlyNamesAndValues(added) || !onlyNamesAndValues(removed)) {
+                log.info("Contrato {} parecido com o {} (similaridade {}), mas com cláusulas diferentes; análise pelo LLM",
+                        contractId, neighbor.contractId(), String.format(Locale.ROOT, "%.3f", neighbor.similarity()));
+                return null;
+            }
+            log.info("Contrato {} quase idêntico ao {} (similaridade {}); análise reaproveitada sem chamar o LLM",
+                    contractId, neighbor.contractId(), String.format(Locale.ROOT, "%.3f", neighbor.similarity()));
+            return reuseNote(neighbor, added) + reference.analysis();
+        }
+        return null;
+    }
+
+    /**
+     * Diferenças que não pedem nova análise: poucas linhas, todas curtas como as de partes e valores.
+     */
+    static boolean onlyNamesAndValues(List<String> differences) {
+        return differences.size() <= MAX_DIFF_LINES
+                && differences.stream().allMatch(line -> line.length() <= MAX_DIFF_LINE_CHARS);
+    }
+
+    private record Reference(String original, String analysis) {}
+
+    private static String reuseNote(ContractEmbeddingIndex.Neighbor neighbor, List<String> differences) {
+        StringBuilder note = new StringBuilder()
+                .append("ANÁLISE REAPROVEITADA do contrato #").append(neighbor.contractId())
+                .append(" (similaridade ").append(String.format(Locale.ROOT, "%.3f", neighbor.similarity())).append(").\n");
+        if (differences.isEmpty()) {
+            note.append("Os textos diferem apenas em espaços e quebras de linha.\n");
+        } else {
+            note.append("Trechos deste contrato que não aparecem no de referência; confira se alteram as conclusões:\n");
+            differences.forEach(line -> note.append("- ").append(line).append('\n'));
+        }
+        return note.append('\n').toString();
+    }
+
+    /**
+     * Linhas de {@code text} ausentes em {@code reference}, ignorando espaços, na ordem em que aparecem;
+     * no máximo {@value #MAX_DIFF_LINES} + 1, o suficiente para saber se passou do limite.
+     */
+    static List<String> differingLines(String text, String reference) {
+        Set<String> known = new HashSet<>();
+        if (reference != null) {
+            for (String line : reference.split("\\R")) {
+                known.add(normalizeLine(line));
+            }
+        }
+        List<String> differences = new ArrayList<>();
+        for (String line : text.split("\\R")) {
+            String normalized = normalizeLine(line);
+            if (normalized.isEmpty() || known.contains(normalized)) continue;
+            differences.add(normalized);
+            if (differences.size() > MAX_DIFF_LINES) break;
+        }
+        return differences;
+    }
+
+    private static String normalizeLine(String line) {
+        return line.strip().replaceAll("\\s+", " ");
+    }
+}
@@ -0,0 +1,215 @@
+package com.fiap.contratAI_spring.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Métricas do caminho de chamada ao LLM e do pipeline da fila de análise.
+ * Todas as métricas do LLM são marcadas com {@code model} e {@code operation}
+ * (generate, analyze, analyze-chunk, analyze-reduce, analyze-clause); as de prompt e resposta também com
+ * {@code template}, a versão do template de prompt, para comparar versões em teste A/B.
+ */
+@Component
+public class LlmMetrics {
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private final MeterRegistry registry;
+    private final String modelName;
+    private final AtomicInteger analysesInFlight = new AtomicInteger();
+
+    public LlmMetrics(MeterRegistry registry, @Value("${ollama.model:gpt-oss:20b}") String modelName) {
+        this.registry = registry;
+        this.modelName = modelName;
+        Gauge.builder("analysis.inflight", analysesInFlight, AtomicInteger::get)
+                .description("Análises da fila em processamento")
+                .register(registry);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    public void recordPromptBuild(String operation, String template, Timer.Sample sample) {
+        sample.stop(Timer.builder("llm.prompt.build")
+                .tag("model", modelName)
+                .tag("operation", operation)
+                .tag("template", template)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    /**
+     * @param outcome success, http_error, llm_error ou io_error
+     */
+    public void recordRoundTrip(String operation, String outcome, Timer.Sample sample) {
+        sample.stop(timer("llm.http.roundtrip", operation, outcome));
+    }
+
+    public void recordParse(String operation, Timer.Sample sample) {
+        sample.stop(timer("llm.response.parse", operation, null));
+    }
+
+    public void recordFirstToken(String operation, Duration elapsed) {
+        timer("llm.stream.first-token", operation, null).record(elapsed);
+    }
+
+    /**
+     * Chamada que reaproveitou uma chamada idêntica já em andamento (single-flight).
+     */
+    public void recordCoalesced(String operation) {
+        Counter.builder("llm.coalesced")
+                .description("Chamadas ao LLM atendidas por uma chamada idêntica em andamento")
+                .tag("model", modelName)
+                .tag("operation", operation)
+                .register(registry)
+                .increment();
+    }
+
+    public void recordPromptSize(String operation, String template, int chars) {
+        summary("llm.prompt.size", operation, template).record(chars);
+    }
+
+    public void recordResponseSize(String operation, String template, int chars) {
+        summary("llm.response.size", operation, template).record(chars);
+    }
+
+    /**
+     * Tokens do prompt estimados pelo {@link com.fiap.contratAI_spring.llm.PromptBudgeter} antes do envio.
+     */
+    public void recordPromptTokens(String operation, String template, int tokens) {
+        DistributionSummary.builder("llm.prompt.tokens")
+                .baseUnit("tokens")
+                .tag("model", modelName)
+                .tag("operation", operation)
+                .tag("template", template)
+                .publishPercentiles(PERCENTILES)
+                .register(registry)
+                .record(tokens);
+    }
+
+    /**
+     * Tokens contados pelo modelo ({@code type} prompt ou completion); valores negativos (não informados) são ignorados.
+     */
+    public void recordTokenUsage(String operation, int promptTokens, int completionTokens) {
+        if (promptTokens >= 0) tokens(operation, "prompt").record(promptTokens);
+        if (completionTokens >= 0) tokens(operation, "completion").record(completionTokens);
+    }
+
+    // -------------------------
+    // fila de análise
+    // -------------------------
+
+    /**
+     * Tempo entre a entrada da mensagem na fila principal e o início do processamento pelo listener.
+     * Retries e adiamentos ({@code redelivered}) contam a partir da volta à fila, não do envio original,
+     * para que o TTL das filas de espera não apareça como espera na fila.
+     */
+    public void recordQueueWait(long queuedAtMillis, boolean redelivered) {
+        long waitMillis = Math.max(0, System.currentTimeMillis() - queuedAtMillis);
+        Timer.builder("analysis.queue.wait")
+                .tag("redelivered", String.valueOf(redelivered))
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(waitMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public Timer.Sample analysisStarted() {
+        analysesInFlight.incrementAndGet();
+        return start();
+    }
+
+    /**
+     * @param operation {@code analyze} para contratos, {@code analyze-revision} para revisões
+     */
+    public void analysisFinished(Timer.Sample sample, String operation, boolean success) {
+        analysesInFlight.decrementAndGet();
+        String outcome = success ? "success" : "failure";
+        sample.stop(Timer.builder("analysis.processing")
+                .tag("model", modelName)
+                .tag("outcome", outcome)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .register(registry));
+        Counter.builder("analysis.completed")
+                .tag("model", modelName)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Mensagem adiada para a fila de espera porque o dono já ocupava sua parcela da capacidade (fair-share).
+     * Não conta como análise concluída.
+     */
+    public void analysisDeferred(Timer.Sample sample) {
+        analysesInFlight.decrementAndGet();
+        Counter.builder("analysis.deferred")
+                .description("Mensagens adiadas pelo controle de fair-share")
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Falha transitória reagendada em uma fila de retry. Não conta como análise concluída.
+     */
+    public void analysisRetried(Timer.Sample sample) {
+        analysesInFlight.decrementAndGet();
+        Counter.builder("analysis.retried")
+                .description("Análises reagendadas após falha transitória")
+                .register(registry)
+                .increment();
+    }
+
+    public void recordDeadLettered() {
+        Counter.builder("analysis.dead-lettered")
+                .description("Mensagens de análise enviadas para a DLQ")
+                .register(registry)
+                .increment();
+    }
+
+    private Timer timer(String name, String operation, String outcome) {
+        Timer.Builder builder = Timer.builder(name)
+                .tag("model", modelName)
+                .tag("operation", operation)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram();
+        if (outcome != null) {
+            builder.tag("outcome", outcome);
+        }
+        return builder.register(registry);
+    }
+
+    private DistributionSummary tokens(String operation, String type) {
+        return DistributionSummary.builder("llm.tokens")
+                .baseUnit("tokens")
+                .tag("model", modelName)
+                .tag("operation", operation)
+                .tag("type", type)
+                .publishPercentiles(PERCENTILES)
+                .register(registry);
+    }
+
+    private DistributionSummary summary(String name, String operation, String template) {
+        return DistributionSummary.builder(name)
+                .baseUnit("chars")
+                .tag("model", modelName)
+                .tag("operation", operation)
+                .tag("template", template)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
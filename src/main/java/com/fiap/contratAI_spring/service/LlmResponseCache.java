@@ -0,0 +1,214 @@
+package com.fiap.contratAI_spring.service;
+
+import com.fiap.contratAI_spring.model.LlmCacheEntry;
+import com.fiap.contratAI_spring.repository.LlmCacheEntryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache de respostas do LLM endereçado pelo conteúdo do prompt.
+ * Possui um nível em memória (LRU limitado por tamanho e TTL) e um nível persistente opcional no Oracle.
+ */
+@Component
+public class LlmResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmResponseCache.class);
+
+    private final LlmCacheEntryRepository repository;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final Duration ttl;
+    private final boolean persistentEnabled;
+    private final Duration persistentTtl;
+
+    private final Map<String, CachedResponse> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    /**
+     * ReentrantLock em vez de synchronized: não prende (pin) a thread carregadora quando
+     * o cache é acessado a partir de virtual threads.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Counter memoryHits;
+    private final Counter persistentHits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
+
+    public LlmResponseCache(
+            LlmCacheEntryRepository repository,
+            MeterRegistry meterRegistry,
+            @Value("${llm.cache.enabled:true}") boolean enabled,
+            @Value("${llm.cache.max-entries:500}") int maxEntries,
+            @Value("${llm.cache.ttl-minutes:720}") long ttlMinutes,
+            @Value("${llm.cache.persistent.enabled:false}") boolean persistentEnabled,
+            @Value("${llm.cache.persistent.ttl-days:30}") long persistentTtlDays
+    ) {
+        this.repository = repository;
+        this.enabled = enabled;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.persistentEnabled = persistentEnabled;
+        this.persistentTtl = Duration.ofDays(persistentTtlDays);
+
+        this.memoryHits = Counter.builder("llm.cache.hits").tag("tier", "memory").register(meterRegistry);
+        this.persistentHits = Counter.builder("llm.cache.hits").tag("tier", "persistent").register(meterRegistry);
+        this.misses = Counter.builder("llm.cache.misses").register(meterRegistry);
+        this.sizeEvictions = Counter.builder("llm.cache.evictions").tag("cause", "size").register(meterRegistry);
+        this.expiredEvictions = Counter.builder("llm.cache.evictions").tag("cause", "expired").register(meterRegistry);
+        Gauge.builder("llm.cache.size", this, LlmResponseCache::size).register(meterRegistry);
+    }
+
+    /**
+     * Monta a chave do cache: SHA-256 de (modelo, versão do template, prompt sanitizado).
+     */
+    public static String key(String modelName, String templateVersion, String prompt) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(modelName.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(templateVersion.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(prompt.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível na JVM.", e);
+        }
+    }
+
+    public Optional<String> get(String key) {
+        if (!enabled) return Optional.empty();
+
+        Optional<String> inMemory = getFromMemory(key);
+        if (inMemory.isPresent()) return inMemory;
+
+        if (persistentEnabled) {
+            try {
+                Optional<LlmCacheEntry> stored = repository.findById(key);
+                if (stored.isPresent()) {
+                    LlmCacheEntry entry = stored.get();
+                    if (entry.getCreatedAt().plus(persistentTtl).isAfter(LocalDateTime.now())) {
+                        persistentHits.increment();
+                        putInMemory(key, entry.getResponse());
+                        return Optional.of(entry.getResponse());
+                    }
+                    repository.delete(entry);
+                    expiredEvictions.increment();
+                }
+            } catch (Exception e) {
+                log.warn("Falha ao consultar cache persistente: {}", e.getMessage());
+            }
+        }
+
+        misses.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Consulta só o nível em memória, sem contar miss. Serve para conferir de novo uma chave logo antes
+     * de chamar o LLM, quando uma chamada idêntica pode ter acabado de gravar a resposta.
+     */
+    public Optional<String> getFromMemory(String key) {
+        if (!enabled) return Optional.empty();
+
+        lock.lock();
+        try {
+            CachedResponse cached = entries.get(key);
+            if (cached != null) {
+                if (!cached.isExpired(ttl)) {
+                    memoryHits.increment();
+                    return Optional.of(cached.response());
+                }
+                entries.remove(key);
+                expiredEvictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return Optional.empty();
+    }
+
+    public void put(String key, String modelName, String templateVersion, String response) {
+        if (!enabled || response == null) return;
+
+        putInMemory(key, response);
+
+        if (persistentEnabled) {
+            try {
+                LlmCacheEntry entry = new LlmCacheEntry();
+                entry.setCacheKey(key);
+                entry.setModelName(modelName);
+                entry.setTemplateVersion(templateVersion);
+                entry.setResponse(response);
+                repository.save(entry);
+            } catch (Exception e) {
+                log.warn("Falha ao gravar no cache persistente: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Remove do nível persistente as entradas vencidas. A leitura só apaga a chave consultada;
+     * sem esta limpeza, respostas que nunca mais são pedidas ficariam na tabela para sempre.
+     */
+    @Scheduled(initialDelayString = "${llm.cache.persistent.purge-interval-ms:3600000}",
+            fixedDelayString = "${llm.cache.persistent.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        if (!enabled || !persistentEnabled) return;
+        try {
+            int removed = repository.deleteCreatedBefore(LocalDateTime.now().minus(persistentTtl));
+            if (removed > 0) {
+                expiredEvictions.increment(removed);
+                log.info("Cache persistente: {} entradas vencidas removidas.", removed);
+            }
+        } catch (Exception e) {
+            log.warn("Falha ao limpar o cache persistente: {}", e.getMessage());
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void putInMemory(String key, String response) {
+        lock.lock();
+        try {
+            entries.put(key, new CachedResponse(response, System.nanoTime()));
+            while (entries.size() > maxEntries) {
+                String eldest = entries.keySet().iterator().next();
+                entries.remove(eldest);
+                sizeEvictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record CachedResponse(String response, long storedAtNanos) {
+        boolean isExpired(Duration ttl) {
+            return System.nanoTime() - storedAtNanos > ttl.toNanos();
+        }
+    }
+}
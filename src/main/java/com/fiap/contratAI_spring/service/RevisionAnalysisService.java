@@ -0,0 +1,286 @@
+package com.fiap.contratAI_spring.service;
+
+import com.fiap.contratAI_spring.dto.RevisionDTO;
+import com.fiap.contratAI_spring.model.AlteredContract;
+import com.fiap.contratAI_spring.model.ClauseFinding;
+import com.fiap.contratAI_spring.model.Contract;
+import com.fiap.contratAI_spring.model.enums.ContractStatus;
+import com.fiap.contratAI_spring.repository.AlteredContractRepository;
+import com.fiap.contratAI_spring.repository.ClauseFindingRepository;
+import com.fiap.contratAI_spring.repository.ContractRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Análise incremental de revisões ({@link AlteredContract}) de um contrato já enviado.
+ *
+ * <p>Original e revisão são divididos em cláusulas ({@link ContractChunker#splitClauses(String)}) e comparados
+ * pela impressão digital de cada uma ({@link ContractChunker#clauseFingerprint(String)}), que ignora numeração
+ * e espaços. Só as cláusulas novas ou alteradas são analisadas, e cada análise fica gravada em
+ * {@link ClauseFinding}: a mesma cláusula em outra revisão não volta ao LLM. O relatório junta essas análises
+ * às cláusulas removidas e à análise do original, que continua valendo para as cláusulas sem alteração.
+ * Se o original ainda não foi analisado, todas as cláusulas da revisão passam pela análise por cláusula.
+ *
+ * <p>A análise roda pela fila de análise, como a dos contratos: {@link #submit} publica o id da revisão e o
+ * {@link com.fiap.contratAI_spring.queue.ContractAnalysisListener} chama {@link #analyze(Long)}, com o mesmo
+ * fair-share, retry/DLQ e pausa pelo circuit breaker. A revisão só fica FAILED quando a mensagem vai para a DLQ.
+ */
+@Service
+public class RevisionAnalysisService {
+
+    private static final Logger log = LoggerFactory.getLogger(RevisionAnalysisService.class);
+
+    private static final int MAX_TITLE_CHARS = 120;
+    private static final int MAX_HEADING_CHARS = 120;
+
+    private final ContractAIService contractAIService;
+    private final ContractRepository contractRepository;
+    private final AlteredContractRepository alteredContractRepository;
+    private final ClauseFindingRepository clauseFindingRepository;
+    private final ContractContentStore contentStore;
+    private final UserService userService;
+    private final AnalysisPriorityPolicy priorityPolicy;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter unchanged;
+    private final Counter cached;
+    private final Counter analyzed;
+
+    public RevisionAnalysisService(ContractAIService contractAIService,
+                                   ContractRepository contractRepository,
+                                   AlteredContractRepository alteredContractRepository,
+                                   ClauseFindingRepository clauseFindingRepository,
+                                   ContractContentStore contentStore,
+                                   UserService userService,
+                                   AnalysisPriorityPolicy priorityPolicy,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry) {
+        this.contractAIService = contractAIService;
+        this.contractRepository = contractRepository;
+        this.alteredContractRepository = alteredContractRepository;
+        this.clauseFindingRepository = clauseFindingRepository;
+        this.contentStore = contentStore;
+        this.userService = userService;
+        this.priorityPolicy = priorityPolicy;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.unchanged = outcome(meterRegistry, "unchanged");
+        this.cached = outcome(meterRegistry, "cached");
+        this.analyzed = outcome(meterRegistry, "analyzed");
+    }
+
+    private static Counter outcome(MeterRegistry registry, String outcome) {
+        return Counter.builder("analysis.revision.clauses")
+                .description("Cláusulas de revisões por origem da análise")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    /**
+     * Grava a revisão em PENDING e a envia para a fila de análise, com a prioridade das roles de quem enviou.
+     *
+     * @param authorities authorities de quem enviou: ADMIN revisa qualquer contrato; também definem a prioridade
+     * @return a revisão criada, ou vazio se o original não existe ou não é visível para o usuário
+     */
+    public Optional<RevisionDTO> submit(Long originalContractId, String text, String title, Long userId,
+                                        Collection<? extends GrantedAuthority> authorities) {
+        boolean admin = authorities.stream().anyMatch(a -> "ROLE_ADMIN".equals(a.getAuthority()));
+        Optional<RevisionDTO> revision = Optional.ofNullable(transactionTemplate.execute(status ->
+                contractRepository.findWithOwnerById(originalContractId)
+                        .filter(original -> admin || original.getOwner().getId().equals(userId))
+                        .map(original -> toDto(alteredContractRepository.save(newRevision(original, text, title, userId))))
+                        .orElse(null)));
+        revision.ifPresent(r -> {
+            try {
+                contractAIService.sendRevisionForAnalysis(r.id(), userId, priorityPolicy.priorityFor(authorities, text.length()));
+            } catch (RuntimeException e) {
+                markFailed(r.id());
+                throw e;
+            }
+        });
+        return revision;
+    }
+
+    private AlteredContract newRevision(Contract original, String text, String title, Long userId) {
+        AlteredContract revision = new AlteredContract();
+        contentStore.setContent(revision, text);
+        revision.setOwner(userService.getUserReference(userId));
+        String name = title != null && !title.isBlank() ? title.strip() : "Revisão de: " + original.getTitle();
+        revision.setTitle(name.length() > MAX_TITLE_CHARS ? name.substring(0, MAX_TITLE_CHARS) : name);
+        revision.setStatus(ContractStatus.PENDING);
+        revision.setOriginalContractId(original.getId());
+        return revision;
+    }
+
+    public Optional<RevisionDTO> find(Long revisionId) {
+        return Optional.ofNullable(transactionTemplate.execute(status ->
+                alteredContractRepository.findById(revisionId).map(this::toDto).orElse(null)));
+    }
+
+    /**
+     * Analisa a revisão e grava o relatório (ANALYZED). Falhas do LLM são propagadas para o listener da fila
+     * decidir entre retry e DLQ; revisões que não existem mais são ignoradas.
+     */
+    public void analyze(Long revisionId) {
+        Sources sources = transactionTemplate.execute(status -> alteredContractRepository.findById(revisionId)
+                .map(revision -> {
+                    Contract original = contractRepository.findById(revision.getOriginalContractId()).orElse(null);
+                    return new Sources(contentStore.content(revision), revision.getOriginalContractId(),
+                            original != null ? contentStore.original(original) : null,
+                            original != null ? contentStore.analysis(original) : null);
+                })
+                .orElse(null));
+        if (sources == null) {
+            log.warn("Revisão {} não encontrada; análise ignorada", revisionId);
+            return;
+        }
+
+        Report report = report(sources);
+        transactionTemplate.executeWithoutResult(status -> alteredContractRepository.findById(revisionId).ifPresent(revision -> {
+            contentStore.setAnalysis(revision, report.text());
+            revision.setChangedClauses(report.changed());
+            revision.setRemovedClauses(report.removed());
+            revision.setAnalyzedClauses(report.analyzed());
+            revision.setStatus(ContractStatus.ANALYZED);
+        }));
+        log.info("Revisão {} do contrato {} analisada: {} cláusulas alteradas, {} removidas, {} enviadas ao LLM",
+                revisionId, sources.originalContractId(), report.changed(), report.removed(), report.analyzed());
+    }
+
+    /**
+     * Marca a revisão como FAILED (mensagem na DLQ ou falha ao enfileirar).
+     */
+    public void markFailed(Long revisionId) {
+        transactionTemplate.executeWithoutResult(status -> alteredContractRepository.findById(revisionId)
+                .ifPresent(revision -> revision.setStatus(ContractStatus.FAILED)));
+    }
+
+    private record Sources(String revised, Long originalContractId, String original, String originalAnalysis) {}
+
+    private record Report(String text, int changed, int removed, int analyzed) {}
+
+    private Report report(Sources sources) {
+        Map<String, String> revised = byFingerprint(sources.revised());
+        Map<String, String> original = byFingerprint(sources.original());
+        boolean reuseOriginal = sources.originalAnalysis() != null;
+
+        Map<String, String> changed = new LinkedHashMap<>();
+        revised.forEach((fingerprint, clause) -> {
+            if (!reuseOriginal || !original.containsKey(fingerprint)) changed.put(fingerprint, clause);
+        });
+        List<String> removed = original.entrySet().stream()
+                .filter(e -> !revised.containsKey(e.getKey()))
+                .map(Map.Entry::getValue)
+                .toList();
+        unchanged.increment(revised.size() - changed.size());
+
+        Findings findings = findings(changed);
+
+        StringBuilder text = new StringBuilder("ANÁLISE INCREMENTAL da revisão do contrato #")
+                .append(sources.originalContractId()).append(": ")
+                .append(changed.size()).append(" de ").append(revised.size()).append(" cláusulas ")
+                .append(reuseOriginal ? "novas ou alteradas" : "analisadas (o original não tem análise)")
+                .append(", ").append(removed.size()).append(" removidas.\n");
+        if (!changed.isEmpty()) {
+            text.append("\n=== CLÁUSULAS NOVAS OU ALTERADAS ===\n");
+            changed.forEach((fingerprint, clause) -> text.append("\n» ").append(heading(clause)).append('\n')
+                    .append(findings.byFingerprint().get(fingerprint).strip()).append('\n'));
+        }
+        if (!removed.isEmpty()) {
+            text.append("\n=== CLÁUSULAS REMOVIDAS ===\n");
+            removed.forEach(clause -> text.append("- ").append(heading(clause)).append('\n'));
+        }
+        if (reuseOriginal) {
+            text.append("\n=== ANÁLISE DO CONTRATO ORIGINAL (vale para as cláusulas não alteradas) ===\n")
+                    .append(sources.originalAnalysis());
+        }
+        return new Report(text.toString(), changed.size(), removed.size(), findings.analyzed());
+    }
+
+    private record Findings(Map<String, String> byFingerprint, int analyzed) {}
+
+    /**
+     * Análise de cada cláusula: do {@link ClauseFinding} gravado ou, para as que faltam, do LLM em paralelo.
+     */
+    private Findings findings(Map<String, String> clauses) {
+        String model = contractAIService.modelName();
+        Map<String, String> versions = new HashMap<>();
+        clauses.forEach((fingerprint, clause) -> versions.put(fingerprint, contractAIService.clauseTemplateVersion(clause)));
+        List<String> keys = clauses.keySet().stream()
+                .map(fingerprint -> LlmResponseCache.key(model, versions.get(fingerprint), fingerprint))
+                .toList();
+
+        Map<String, String> byFingerprint = new HashMap<>();
+        for (ClauseFinding stored : clauseFindingRepository.findAllById(keys)) {
+            byFingerprint.put(stored.getFingerprint(), stored.getFinding());
+        }
+        cached.increment(byFingerprint.size());
+
+        List<String> missing = new ArrayList<>();
+        clauses.keySet().stream().filter(f -> !byFingerprint.containsKey(f)).forEach(missing::add);
+        if (missing.isEmpty()) {
+            return new Findings(byFingerprint, 0);
+        }
+        List<String> results = contractAIService.analyzeClauses(missing.stream().map(clauses::get).toList());
+        analyzed.increment(missing.size());
+        for (int i = 0; i < missing.size(); i++) {
+            String fingerprint = missing.get(i);
+            byFingerprint.put(fingerprint, results.get(i));
+            String version = versions.get(fingerprint);
+            store(LlmResponseCache.key(model, version, fingerprint), fingerprint, model, version, results.get(i));
+        }
+        return new Findings(byFingerprint, missing.size());
+    }
+
+    private void store(String key, String fingerprint, String model, String version, String finding) {
+        try {
+            ClauseFinding entry = new ClauseFinding();
+            entry.setFindingKey(key);
+            entry.setFingerprint(fingerprint);
+            entry.setModelName(model);
+            entry.setTemplateVersion(version);
+            entry.setFinding(finding);
+            clauseFindingRepository.save(entry);
+        } catch (Exception e) {
+            // outra revisão pode ter gravado a mesma cláusula; a análise em mãos continua valendo
+            log.warn("Falha ao gravar a análise da cláusula {}: {}", fingerprint, e.getMessage());
+        }
+    }
+
+    /**
+     * Cláusulas do texto por impressão digital, na ordem do texto. Cláusulas repetidas aparecem uma vez.
+     */
+    private static Map<String, String> byFingerprint(String text) {
+        Map<String, String> clauses = new LinkedHashMap<>();
+        for (String clause : ContractChunker.splitClauses(text)) {
+            clauses.putIfAbsent(ContractChunker.clauseFingerprint(clause), clause);
+        }
+        return clauses;
+    }
+
+    /**
+     * Primeira linha da cláusula, para identificá-la no relatório.
+     */
+    private static String heading(String clause) {
+        String line = clause.strip().lines().findFirst().orElse("").strip();
+        return line.length() > MAX_HEADING_CHARS ? line.substring(0, MAX_HEADING_CHARS) + "…" : line;
+    }
+
+    private RevisionDTO toDto(AlteredContract revision) {
+        return new RevisionDTO(revision.getId(), revision.getOriginalContractId(), revision.getOwner().getId(),
+                revision.getTitle(), revision.getStatus(), revision.getCreatedAt(), revision.getChangedClauses(),
+                revision.getRemovedClauses(), revision.getAnalyzedClauses(), contentStore.analysis(revision));
+    }
+}
@@ -0,0 +1,61 @@
+package com.fiap.contratAI_spring.service;
+
+import com.fiap.contratAI_spring.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Invalida o {@link CredentialCache} quando um {@link User} é alterado (senha, email) ou removido.
+ * Registrado como listener de eventos do Hibernate a partir daqui, para que a entidade não dependa da camada de serviço.
+ * O evento de update não dispara quando só a coleção de roles muda; essas alterações passam por
+ * {@link UserService#saveCredentials(User)}, que invalida explicitamente.
+ * O cache é opcional para que contextos sem a camada de segurança subam normalmente.
+ */
+@Component
+public class UserCacheInvalidationListener implements PostUpdateEventListener, PostDeleteEventListener {
+
+    private final ObjectProvider<CredentialCache> credentialCache;
+
+    @Autowired
+    public UserCacheInvalidationListener(EntityManagerFactory entityManagerFactory,
+                                         ObjectProvider<CredentialCache> credentialCache) {
+        this(credentialCache);
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().requireService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    UserCacheInvalidationListener(ObjectProvider<CredentialCache> credentialCache) {
+        this.credentialCache = credentialCache;
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof User user) onUserChanged(user);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof User user) onUserChanged(user);
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    void onUserChanged(User user) {
+        credentialCache.ifAvailable(cache -> cache.evictUser(user));
+    }
+}
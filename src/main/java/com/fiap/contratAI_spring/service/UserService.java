@@ -2,15 +2,18 @@ package com.fiap.contratAI_spring.service;
 
 import com.fiap.contratAI_spring.model.User;
 import com.fiap.contratAI_spring.repository.UserRepository;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 @Service
 public class UserService {
 
     private final UserRepository userRepository;
+    private final CredentialCache credentialCache;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, CredentialCache credentialCache) {
         this.userRepository = userRepository;
+        this.credentialCache = credentialCache;
     }
 
     public Long getUserIdByUsername(String email) {
@@ -23,4 +26,32 @@ public class UserService {
         return userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("Usuário logado não encontrado no banco de dados: " + email));
     }
+
+    /**
+     * Id do usuário logado. Usa o id carregado no principal e só consulta o banco
+     * se o principal não for um {@link AuthenticatedUser}.
+     */
+    public Long getUserId(UserDetails userDetails) {
+        if (userDetails instanceof AuthenticatedUser authenticated && authenticated.getId() != null) {
+            return authenticated.getId();
+        }
+        return getUserIdByUsername(userDetails.getUsername());
+    }
+
+    /**
+     * Salva alterações de senha ou roles e remove as credenciais do usuário do {@link CredentialCache}.
+     * Use em vez de {@code userRepository.save}: só mudar a coleção de roles não dispara {@code @PostUpdate}.
+     */
+    public User saveCredentials(User user) {
+        User saved = userRepository.save(user);
+        credentialCache.evictUser(saved);
+        return saved;
+    }
+
+    /**
+     * Referência (proxy) ao usuário, sem consulta ao banco. Suficiente para associar como owner.
+     */
+    public User getUserReference(Long userId) {
+        return userRepository.getReferenceById(userId);
+    }
 }
@@ -0,0 +1,108 @@
+package com.fiap.contratAI_spring.controller;
+
+import com.fiap.contratAI_spring.llm.LlmUnavailableException;
+import com.fiap.contratAI_spring.model.GeneratedContract;
+import com.fiap.contratAI_spring.repository.ContractRepository;
+import com.fiap.contratAI_spring.repository.GeneratedContractRepository;
+import com.fiap.contratAI_spring.search.ContractSearchIndex;
+import com.fiap.contratAI_spring.service.AnalysisJobService;
+import com.fiap.contratAI_spring.service.BulkAnalysisService;
+import com.fiap.contratAI_spring.service.ContractAIService;
+import com.fiap.contratAI_spring.service.ContractContentStore;
+import com.fiap.contratAI_spring.service.RevisionAnalysisService;
+import com.fiap.contratAI_spring.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class ContractControllerStreamTest {
+
+    private final ContractAIService aiService = mock(ContractAIService.class);
+    private final GeneratedContractRepository generatedRepository = mock(GeneratedContractRepository.class);
+    private final UserService userService = mock(UserService.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        UserDetails user = User.withUsername("cliente@example.com").password("x").roles("CLIENT").build();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+        when(userService.getUserId(any(UserDetails.class))).thenReturn(7L);
+
+        ContractController controller = new ContractController(aiService, mock(ContractRepository.class), generatedRepository,
+                userService, mock(AnalysisJobService.class), mock(BulkAnalysisService.class), new ContractContentStore("inline"),
+                mock(ContractSearchIndex.class), mock(RevisionAnalysisService.class), new SyncTaskExecutor(), 10_000);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver())
+                .build();
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void streamsEachTokenAndFinishesWithSavedId() throws Exception {
+        when(aiService.generateContractStream(eq("locação residencial"), any())).thenAnswer(invocation -> {
+            Consumer<String> onToken = invocation.getArgument(1);
+            onToken.accept("CONTRATO");
+            onToken.accept(" DE LOCAÇÃO");
+            return "CONTRATO DE LOCAÇÃO";
+        });
+        when(generatedRepository.save(any(GeneratedContract.class))).thenAnswer(invocation -> {
+            GeneratedContract saved = invocation.getArgument(0);
+            saved.setId(42L);
+            return saved;
+        });
+
+        String body = stream("locação residencial");
+
+        assertEquals("event:token\ndata:CONTRATO\n\nevent:token\ndata: DE LOCAÇÃO\n\nevent:done\ndata:42\n\n", body);
+    }
+
+    @Test
+    void reportsSaveFailureAndBusyLlmAsEvents() throws Exception {
+        when(aiService.generateContractStream(eq("compra e venda"), any())).thenAnswer(invocation -> {
+            Consumer<String> onToken = invocation.getArgument(1);
+            onToken.accept("CONTRATO");
+            return "CONTRATO";
+        });
+        when(generatedRepository.save(any(GeneratedContract.class))).thenThrow(new IllegalStateException("banco fora"));
+        assertTrue(stream("compra e venda").endsWith("event:done\ndata:\n\n"), "o texto gerado chega mesmo sem salvar");
+
+        when(aiService.generateContractStream(eq("permuta"), any())).thenThrow(new LlmUnavailableException("ocupado", 30));
+        String busy = stream("permuta");
+        assertTrue(busy.startsWith("event:error\nretry:30000\n"), busy);
+    }
+
+    private String stream(String terms) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/v1/contracts/generate/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"terms\":\"" + terms + "\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return result.getResponse().getContentAsString();
+    }
+}
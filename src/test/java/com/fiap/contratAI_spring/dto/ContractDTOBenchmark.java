@@ -0,0 +1,71 @@
+package com.fiap.contratAI_spring.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fiap.contratAI_spring.model.Contract;
+import com.fiap.contratAI_spring.model.User;
+import com.fiap.contratAI_spring.model.enums.ContractStatus;
+import com.fiap.contratAI_spring.service.ContractContentStore;
+import com.fiap.contratAI_spring.support.ContractPayloads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapeamento {@link Contract} → {@link ContractDTO} e serialização JSON da resposta do detalhe.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContractDTOBenchmark {
+
+    @Param({"10240", "262144", "2097152"})
+    public int payloadChars;
+
+    private Contract contract;
+    private ObjectMapper objectMapper;
+    private final ContractContentStore contentStore = new ContractContentStore("inline");
+
+    @Setup
+    public void setUp() {
+        User owner = new User();
+        owner.setId(1L);
+        owner.setName("Maria Souza");
+        owner.setEmail("maria@example.com");
+
+        contract = new Contract();
+        contract.setId(1L);
+        contract.setTitle("Contrato de Prestação de Serviços");
+        contract.setContent(ContractPayloads.contractOfSize(payloadChars));
+        contract.setStatus(ContractStatus.ANALYZED);
+        contract.setCreatedAt(LocalDateTime.now());
+        contract.setOwner(owner);
+
+        objectMapper = JsonMapper.builder().findAndAddModules().build();
+    }
+
+    @Benchmark
+    public ContractDTO map() {
+        return new ContractDTO(contract, contentStore.content(contract));
+    }
+
+    @Benchmark
+    public String mapAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(new ContractDTO(contract, contentStore.content(contract)));
+    }
+}
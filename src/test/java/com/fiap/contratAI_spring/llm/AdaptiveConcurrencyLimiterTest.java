@@ -0,0 +1,120 @@
+package com.fiap.contratAI_spring.llm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final int CHARS = 1000;
+    private static final long FAST_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    void shrinksOnLatencySpikesAndGrowsBackWhenLatencyRecovers() throws InterruptedException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 8, 1, 2.0, 0.5, 10, registry);
+        assertEquals(8, limiter.limit());
+
+        // referência: resposta rápida com o limite em uso
+        complete(limiter, 8, FAST_NANOS);
+        assertEquals(8, limiter.limit());
+
+        // Ollama saturado: latência por caractere 5x maior derruba o limite pela metade a cada amostra
+        complete(limiter, 1, FAST_NANOS * 5);
+        assertEquals(4, limiter.limit());
+        complete(limiter, 1, FAST_NANOS * 5);
+        assertEquals(2, limiter.limit());
+        assertEquals(2.0, registry.get("llm.limiter.limit").gauge().value());
+
+        // latência normal com o limite cheio: +1 a cada "limite" respostas
+        for (int i = 0; i < 20; i++) {
+            complete(limiter, limiter.limit(), FAST_NANOS);
+        }
+        assertTrue(limiter.limit() > 2, "o limite deveria voltar a crescer, atual " + limiter.limit());
+        assertTrue(limiter.limit() <= 8);
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void growsAboveTheStartingLimitUpToTheMax() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 6, 1, 2.0, 0.5, 10, new SimpleMeterRegistry());
+        assertEquals(4, limiter.limit());
+
+        for (int i = 0; i < 20; i++) {
+            complete(limiter, limiter.limit(), FAST_NANOS);
+        }
+        assertEquals(6, limiter.limit(), "ollama.max-in-flight é só o ponto de partida");
+    }
+
+    @Test
+    void doesNotGrowWhenIdleAndShrinksOnErrors() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 8, 4, 2.0, 0.5, 10, new SimpleMeterRegistry());
+        complete(limiter, 1, FAST_NANOS);
+        complete(limiter, 1, FAST_NANOS * 3);
+        assertEquals(4, limiter.limit());
+
+        // uma chamada por vez não prova que cabem mais
+        for (int i = 0; i < 20; i++) {
+            complete(limiter, 1, FAST_NANOS);
+        }
+        assertEquals(4, limiter.limit());
+
+        limiter.acquire(0).onDropped();
+        assertEquals(4, limiter.limit(), "nunca abaixo de llm.limiter.min-limit");
+
+        // respostas curtas só liberam a vaga
+        AdaptiveConcurrencyLimiter.Permit shortAnswer = limiter.acquire(0);
+        shortAnswer.onSuccess(AdaptiveConcurrencyLimiter.MIN_SAMPLE_CHARS - 1, FAST_NANOS * 100);
+        shortAnswer.onDropped(); // já liberada: sem efeito
+        assertEquals(4, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void queuesUntilDeadlineAndFastFailsWhenFull() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 2.0, 0.9, 1, registry);
+        AdaptiveConcurrencyLimiter.Permit held = limiter.acquire(0);
+
+        LlmOverloadedException fastFail = assertThrows(LlmOverloadedException.class, () -> limiter.acquire(0));
+        assertTrue(fastFail.getRetryAfterSeconds() >= 1);
+        assertThrows(LlmOverloadedException.class, () -> limiter.acquire(50), "prazo esgotado");
+
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.acquire(5_000);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (limiter.waiting() == 0) {
+            Thread.sleep(5);
+        }
+        assertThrows(LlmOverloadedException.class, () -> limiter.acquire(5_000), "fila de espera cheia");
+        assertFalse(waiter.isDone());
+
+        held.onIgnore();
+        waiter.get(5, TimeUnit.SECONDS).onIgnore();
+        assertEquals(3.0, registry.get("llm.limiter.rejected").counter().count());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    private static void complete(AdaptiveConcurrencyLimiter limiter, int concurrent, long latencyNanos) throws InterruptedException {
+        AdaptiveConcurrencyLimiter.Permit[] others = new AdaptiveConcurrencyLimiter.Permit[Math.max(0, concurrent - 1)];
+        for (int i = 0; i < others.length; i++) {
+            others[i] = limiter.acquire(0);
+        }
+        AdaptiveConcurrencyLimiter.Permit last = limiter.acquire(0);
+        last.onSuccess(CHARS, latencyNanos);
+        for (AdaptiveConcurrencyLimiter.Permit other : others) {
+            other.onIgnore();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.fiap.contratAI_spring.llm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LlmCircuitBreakerTest {
+
+    private static final RuntimeException FAILURE = new RuntimeException("Ollama fora do ar");
+
+    @Test
+    void opensAfterConsecutiveFailuresAndClosesAfterSuccessfulProbe() throws InterruptedException {
+        LlmCircuitBreaker breaker = new LlmCircuitBreaker(3, 50, new SimpleMeterRegistry());
+        List<LlmCircuitBreaker.State> transitions = new ArrayList<>();
+        breaker.addListener(transitions::add);
+
+        for (int i = 0; i < 3; i++) {
+            breaker.acquirePermission();
+            breaker.onFailure(FAILURE);
+        }
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.state());
+        assertThrows(LlmUnavailableException.class, breaker::acquirePermission);
+
+        Thread.sleep(80);
+        breaker.acquirePermission(); // chamada de teste
+        assertEquals(LlmCircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertThrows(LlmUnavailableException.class, breaker::acquirePermission, "só uma chamada de teste por vez");
+
+        breaker.onSuccess();
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.state());
+        breaker.acquirePermission();
+        assertEquals(List.of(LlmCircuitBreaker.State.OPEN, LlmCircuitBreaker.State.HALF_OPEN, LlmCircuitBreaker.State.CLOSED),
+                transitions);
+    }
+
+    @Test
+    void failedProbeReopensAndSuccessResetsFailureCount() throws InterruptedException {
+        LlmCircuitBreaker breaker = new LlmCircuitBreaker(2, 50, new SimpleMeterRegistry());
+
+        breaker.onFailure(FAILURE);
+        breaker.onSuccess();
+        breaker.onFailure(FAILURE);
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.state());
+
+        breaker.onFailure(FAILURE);
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.state());
+
+        Thread.sleep(80);
+        breaker.acquirePermission();
+        breaker.onFailure(FAILURE);
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.state());
+        assertThrows(LlmUnavailableException.class, breaker::acquirePermission);
+    }
+}
@@ -0,0 +1,94 @@
+package com.fiap.contratAI_spring.llm;
+
+import com.fiap.contratAI_spring.service.LlmMetrics;
+import com.fiap.contratAI_spring.support.StubOllamaServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OllamaEndpointPoolTest {
+
+    @Test
+    void picksHostWithFewestOutstandingRequests() {
+        OllamaEndpointPool pool = newPool(List.of("http://a:11434", "http://b:11434", "http://c:11434"));
+
+        OllamaEndpointPool.Endpoint first = pool.acquire(null);
+        OllamaEndpointPool.Endpoint second = pool.acquire(null);
+        OllamaEndpointPool.Endpoint third = pool.acquire(null);
+        assertNotSame(first, second);
+        assertNotSame(second, third);
+        assertNotSame(first, third);
+
+        pool.release(second, true);
+        assertSame(second, pool.acquire(null));
+    }
+
+    @Test
+    void unreachableHostLeavesRotationUntilHealthCheckPasses() {
+        OllamaEndpointPool pool = newPool(List.of("http://a:11434", "http://b:11434"));
+
+        OllamaEndpointPool.Endpoint down = pool.acquire(null);
+        pool.release(down, false);
+        assertFalse(down.healthy());
+
+        for (int i = 0; i < 5; i++) {
+            OllamaEndpointPool.Endpoint chosen = pool.acquire(null);
+            assertNotSame(down, chosen);
+            pool.release(chosen, true);
+        }
+    }
+
+    @Test
+    void spreadsLoadAcrossHostsAndFailsOverFromDeadHost() throws Exception {
+        try (StubOllamaServer gpu1 = new StubOllamaServer(50);
+             StubOllamaServer gpu2 = new StubOllamaServer(50)) {
+            String dead = deadUrl();
+            OllamaEndpointPool pool = newPool(List.of(gpu1.baseUrl(), gpu2.baseUrl(), dead));
+            OllamaLlmProvider provider = new OllamaLlmProvider(pool, new LlmMetrics(new SimpleMeterRegistry(), "stub"), "stub", 8192);
+
+            int calls = 60;
+            try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<String>> results = new ArrayList<>();
+                for (int i = 0; i < calls; i++) {
+                    int n = i;
+                    results.add(callers.submit(() -> provider.generate("analyze", "prompt " + n)));
+                }
+                for (Future<String> result : results) {
+                    assertEquals("ANÁLISE STUB", result.get());
+                }
+            }
+
+            assertEquals(calls, gpu1.requests() + gpu2.requests());
+            assertTrue(gpu1.requests() >= calls / 4, "gpu1 recebeu " + gpu1.requests());
+            assertTrue(gpu2.requests() >= calls / 4, "gpu2 recebeu " + gpu2.requests());
+
+            pool.checkHealth();
+            for (OllamaEndpointPool.Endpoint endpoint : pool.endpoints()) {
+                assertEquals(!endpoint.baseUrl().equals(dead), endpoint.healthy(), endpoint.baseUrl());
+            }
+        }
+    }
+
+    private static String deadUrl() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return "http://127.0.0.1:" + socket.getLocalPort();
+        }
+    }
+
+    private static OllamaEndpointPool newPool(List<String> urls) {
+        return new OllamaEndpointPool(urls, new SimpleMeterRegistry(), 16, 5, 1000, 2, 30, 5);
+    }
+}
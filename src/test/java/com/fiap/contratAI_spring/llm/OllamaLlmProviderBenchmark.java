@@ -0,0 +1,55 @@
+package com.fiap.contratAI_spring.llm;
+
+import com.fiap.contratAI_spring.service.LlmMetrics;
+import com.fiap.contratAI_spring.support.ContractPayloads;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.Request;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Montagem e serialização do corpo de /api/generate pelo {@link OllamaLlmProvider}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OllamaLlmProviderBenchmark {
+
+    @Param({"10240", "262144", "2097152"})
+    public int payloadChars;
+
+    private OllamaLlmProvider provider;
+    private String prompt;
+
+    @Setup
+    public void setUp() {
+        OllamaEndpointPool pool = new OllamaEndpointPool(List.of("http://localhost:11434"), new SimpleMeterRegistry(), 1, 1, 1000, 5, 30, 5);
+        provider = new OllamaLlmProvider(pool, new LlmMetrics(new SimpleMeterRegistry(), "stub"), "stub", 8192);
+        prompt = ContractPayloads.contractOfSize(payloadChars);
+    }
+
+    @Benchmark
+    public Buffer buildGenerateRequest() throws IOException {
+        Request request = provider.buildGenerateRequest("http://localhost:11434", prompt, false);
+        Buffer sink = new Buffer();
+        request.body().writeTo(sink);
+        return sink;
+    }
+}
@@ -0,0 +1,110 @@
+package com.fiap.contratAI_spring.llm;
+
+import com.fiap.contratAI_spring.support.ContractPayloads;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara a decodificação antiga (corpo inteiro em String + árvore {@code JsonObject}) com a
+ * leitura em streaming do {@link OllamaResponseReader}, para respostas únicas e NDJSON.
+ * Rodar com {@code mvn -Pbenchmark verify -Djmh.args="OllamaResponseReaderBenchmark -prof gc"}
+ * e comparar {@code gc.alloc.rate.norm} (bytes por operação).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OllamaResponseReaderBenchmark {
+
+    /** Tamanho da resposta gerada: 10 KB, 256 KB e 2 MB. */
+    @Param({"10240", "262144", "2097152"})
+    public int payloadChars;
+
+    /** Caracteres por fragmento no NDJSON (o Ollama envia poucos tokens por linha). */
+    private static final int STREAM_TOKEN_CHARS = 16;
+
+    private byte[] generateBody;
+    private byte[] streamBody;
+
+    @Setup
+    public void setUp() {
+        String text = ContractPayloads.contractOfSize(payloadChars);
+
+        JsonObject single = new JsonObject();
+        single.addProperty("model", "stub");
+        single.addProperty("created_at", "2025-01-01T00:00:00Z");
+        single.addProperty("response", text);
+        single.addProperty("done", true);
+        single.addProperty("total_duration", 123456789L);
+        generateBody = single.toString().getBytes(StandardCharsets.UTF_8);
+
+        StringBuilder ndjson = new StringBuilder(payloadChars * 5);
+        for (int i = 0; i < text.length(); i += STREAM_TOKEN_CHARS) {
+            JsonObject line = new JsonObject();
+            line.addProperty("model", "stub");
+            line.addProperty("created_at", "2025-01-01T00:00:00Z");
+            line.addProperty("response", text.substring(i, Math.min(text.length(), i + STREAM_TOKEN_CHARS)));
+            line.addProperty("done", false);
+            ndjson.append(line).append('\n');
+        }
+        ndjson.append("{\"model\":\"stub\",\"response\":\"\",\"done\":true,\"total_duration\":123456789}\n");
+        streamBody = ndjson.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String generateTreeModel() {
+        // equivalente a response.body().string() + JsonParser.parseString
+        String body = new String(generateBody, StandardCharsets.UTF_8);
+        return JsonParser.parseString(body).getAsJsonObject().get("response").getAsString();
+    }
+
+    @Benchmark
+    public String generateStreaming() throws IOException {
+        return OllamaResponseReader.readGenerate(reader(generateBody));
+    }
+
+    @Benchmark
+    public String ndjsonPerLineTreeModel(Blackhole bh) {
+        // equivalente ao laço antigo com readUtf8Line + JsonParser.parseString por linha
+        String body = new String(streamBody, StandardCharsets.UTF_8);
+        StringBuilder result = new StringBuilder();
+        for (String line : body.split("\n")) {
+            JsonObject chunk = JsonParser.parseString(line).getAsJsonObject();
+            String token = chunk.get("response").getAsString();
+            result.append(token);
+            bh.consume(token);
+            if (chunk.get("done").getAsBoolean()) break;
+        }
+        return result.toString();
+    }
+
+    @Benchmark
+    public String ndjsonStreaming(Blackhole bh) throws IOException {
+        return OllamaResponseReader.readStream(reader(streamBody), 8 * 1024, () -> { }, bh::consume);
+    }
+
+    private static Reader reader(byte[] body) {
+        return new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,83 @@
+package com.fiap.contratAI_spring.llm;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OllamaResponseReaderTest {
+
+    @Test
+    void readsResponseAndSkipsOtherFields() throws IOException {
+        String body = """
+                {"model":"m","context":[1,2,3],"response":"Cláusula \\"única\\"\\n","done":true,"total_duration":10}
+                """;
+
+        assertEquals("Cláusula \"única\"\n", OllamaResponseReader.readGenerate(new StringReader(body)));
+    }
+
+    @Test
+    void reportsErrorAndMissingResponse() {
+        IOException error = assertThrows(IOException.class,
+                () -> OllamaResponseReader.readGenerate(new StringReader("{\"error\":\"model not found\"}")));
+        assertTrue(error.getMessage().contains("model not found"));
+
+        assertThrows(IOException.class, () -> OllamaResponseReader.readGenerate(new StringReader("{\"done\":true}")));
+        assertThrows(IOException.class, () -> OllamaResponseReader.readGenerate(new StringReader("<html>")));
+    }
+
+    @Test
+    void streamsTokensUntilDone() throws IOException {
+        String ndjson = """
+                {"response":"","done":false}
+                {"response":"Olá","done":null}
+
+                {"response":", mundo","done":"false","context":[1]}
+                {"response":"","done":true,"context":[1,2]}
+                {"response":"ignorado","done":false}
+                """;
+        List<String> tokens = new ArrayList<>();
+        AtomicInteger firstTokens = new AtomicInteger();
+
+        String result = OllamaResponseReader.readStream(new StringReader(ndjson), 4, firstTokens::incrementAndGet, tokens::add);
+
+        assertEquals("Olá, mundo", result);
+        assertEquals(List.of("Olá", ", mundo"), tokens);
+        assertEquals(1, firstTokens.get());
+    }
+
+    @Test
+    void readsTokenUsageReportedByModel() throws IOException {
+        OllamaResponseReader.Usage usage = new OllamaResponseReader.Usage();
+        OllamaResponseReader.readGenerate(new StringReader(
+                "{\"response\":\"ok\",\"done\":true,\"prompt_eval_count\":812,\"eval_count\":96}"), usage);
+        assertEquals(812, usage.promptTokens);
+        assertEquals(96, usage.completionTokens);
+
+        String ndjson = """
+                {"response":"a","done":false}
+                {"response":"","done":true,"eval_count":12}
+                """;
+        OllamaResponseReader.Usage streamed = new OllamaResponseReader.Usage();
+        OllamaResponseReader.readStream(new StringReader(ndjson), 16, () -> { }, t -> { }, streamed);
+        assertEquals(-1, streamed.promptTokens, "prompt vindo do cache de contexto não informa a contagem");
+        assertEquals(12, streamed.completionTokens);
+    }
+
+    @Test
+    void streamErrorIsDistinguishedFromMalformedInput() {
+        assertThrows(OllamaResponseReader.OllamaStreamErrorException.class,
+                () -> OllamaResponseReader.readStream(new StringReader("{\"response\":\"a\"}\n{\"error\":\"boom\"}\n"), 16, () -> { }, t -> { }));
+        IOException malformed = assertThrows(IOException.class,
+                () -> OllamaResponseReader.readStream(new StringReader("{\"response\":"), 16, () -> { }, t -> { }));
+        assertFalse(malformed instanceof OllamaResponseReader.OllamaStreamErrorException);
+    }
+}
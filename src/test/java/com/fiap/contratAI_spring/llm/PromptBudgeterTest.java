@@ -0,0 +1,77 @@
+package com.fiap.contratAI_spring.llm;
+
+import com.fiap.contratAI_spring.support.ContractPayloads;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromptBudgeterTest {
+
+    @Test
+    void reservesOutputAndTemplateTokens() throws IOException {
+        PromptBudgeter budgeter = new PromptBudgeter(new EstimatingTokenizer(3.5), new SimpleMeterRegistry(),
+                1000, 200, "generate=500", 0.1, 16);
+        PromptTemplate analyze = new PromptTemplateRegistry("classpath*:prompts/*.tmpl", "", "").get("analyze");
+
+        assertEquals(720, budgeter.promptTokens("analyze"));
+        assertEquals(450, budgeter.promptTokens("generate"));
+        int templateTokens = budgeter.templateTokens(analyze);
+        assertTrue(templateTokens > 20 && templateTokens < analyze.literalLength(), "tokens do template: " + templateTokens);
+        assertEquals(720 - templateTokens, budgeter.available("analyze", analyze));
+
+        assertThrows(IllegalStateException.class, () -> new PromptBudgeter(new EstimatingTokenizer(3.5),
+                new SimpleMeterRegistry(), 1000, 200, "generate=1200", 0.05, 16));
+    }
+
+    @Test
+    void cachesCountsByContentAndFitsToBudget() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PromptBudgeter budgeter = new PromptBudgeter(exact(new EstimatingTokenizer(3.5)), registry, 8192, 1024, "", 0.05, 16);
+        String contract = ContractPayloads.contractOfSize(20_000);
+
+        int tokens = budgeter.count(contract);
+        assertEquals(tokens, budgeter.count(new String(contract.toCharArray())));
+        assertEquals(1.0, registry.get("llm.tokenizer.cache").tag("result", "miss").counter().count());
+        assertEquals(1.0, registry.get("llm.tokenizer.cache").tag("result", "hit").counter().count());
+
+        // a estimativa custa o mesmo que o hash: conta direto, sem cache
+        SimpleMeterRegistry estimateRegistry = new SimpleMeterRegistry();
+        PromptBudgeter estimating = new PromptBudgeter(new EstimatingTokenizer(3.5), estimateRegistry, 8192, 1024, "", 0.05, 16);
+        assertEquals(tokens, estimating.count(contract));
+        assertEquals(0.0, estimateRegistry.get("llm.tokenizer.cache").tag("result", "miss").counter().count());
+
+        CharSequence fitted = budgeter.fit("analyze", contract, 500);
+        assertTrue(contract.startsWith(fitted.toString()));
+        int fittedTokens = budgeter.tokenizer().count(fitted);
+        assertTrue(fittedTokens <= 500 && fittedTokens > 490, "tokens após o corte: " + fittedTokens);
+        assertSame(contract, budgeter.fit("analyze", contract, tokens));
+    }
+
+    /**
+     * Tokenizador que se apresenta como exato, para exercitar o cache.
+     */
+    private static Tokenizer exact(Tokenizer delegate) {
+        return new Tokenizer() {
+            @Override
+            public String name() {
+                return "exato";
+            }
+
+            @Override
+            public int count(CharSequence text) {
+                return delegate.count(text);
+            }
+
+            @Override
+            public int prefixLength(CharSequence text, int maxTokens) {
+                return delegate.prefixLength(text, maxTokens);
+            }
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package com.fiap.contratAI_spring.llm;
+
+import com.fiap.contratAI_spring.support.ContractPayloads;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromptTemplateRegistryTest {
+
+    /** Template de análise como era montado antes do registro, com {@code String.format}. */
+    private static final String LEGACY_ANALYZE_TEMPLATE = """
+            Você é um assistente jurídico especializado em análise de contratos.
+            Analise o seguinte contrato e retorne:
+            1) As três cláusulas mais arriscadas para a parte mais fraca, com breve justificativa.
+            2) Uma sugestão de refatoração para a cláusula mais complexa.
+            
+            CONTRATO:
+            %s
+            """;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void rendersTheSamePromptAsTheLegacyFormatAndSanitize() throws IOException {
+        PromptTemplateRegistry registry = new PromptTemplateRegistry("classpath*:prompts/*.tmpl", "", "");
+        String contract = ContractPayloads.contractOfSize(20_000) + "\rfim\u0000";
+        String legacy = String.format(LEGACY_ANALYZE_TEMPLATE, contract)
+                .replace("\r\n", "\n").replace("\r", "\n").replace("\u0000", "");
+
+        PromptTemplate analyze = registry.get("analyze");
+        assertEquals("analyze-v1", analyze.id());
+        // mesmo texto, mesma chave de cache: respostas gravadas antes do registro continuam valendo
+        assertEquals(legacy, analyze.render(Integer.MAX_VALUE, Map.of("contract", contract)));
+        assertEquals(legacy.substring(0, 5000), analyze.render(5000, Map.of("contract", contract)));
+        assertEquals(analyze.literalLength(), analyze.render(Integer.MAX_VALUE, Map.of("contract", "")).length());
+    }
+
+    @Test
+    void picksLatestVersionUnlessPinnedAndSplitsExperimentsDeterministically() throws IOException {
+        Files.writeString(dir.resolve("resumo-v1.tmpl"), "Resuma: {{texto}}");
+        Files.writeString(dir.resolve("resumo-v2.tmpl"), "Resuma em tópicos:\r\n{{texto}}");
+        Files.writeString(dir.resolve("leia-me.txt"), "ignorado");
+        String location = "file:" + dir + "/*.tmpl";
+
+        assertEquals("resumo-v2", new PromptTemplateRegistry(location, "", "").get("resumo").id());
+        assertEquals("Resuma em tópicos:\nA\nB", new PromptTemplateRegistry(location, "", "").get("resumo")
+                .render(100, Map.of("texto", "A\r\nB")));
+
+        PromptTemplateRegistry pinned = new PromptTemplateRegistry(location, "resumo=resumo-v1", "resumo=resumo-v2:20");
+        assertEquals("resumo-v1", pinned.get("resumo").id());
+        long variant = IntStream.range(0, 10_000)
+                .filter(i -> pinned.select("resumo", "contrato " + i).id().equals("resumo-v2"))
+                .count();
+        assertTrue(variant > 1_700 && variant < 2_300, variant + " de 10000 na variante");
+        assertEquals(pinned.select("resumo", "contrato 42").id(), pinned.select("resumo", "contrato 42").id());
+
+        pinned.require("resumo", "texto");
+        assertThrows(IllegalStateException.class, () -> pinned.require("resumo", "contrato"));
+        assertThrows(IllegalArgumentException.class, () -> pinned.get("resumo").render(100, Map.of()));
+        assertThrows(IllegalStateException.class, () -> pinned.get("inexistente"));
+        assertThrows(IllegalArgumentException.class, () -> new PromptTemplateRegistry(location, "resumo=resumo-v9", ""));
+        assertThrows(IllegalArgumentException.class, () -> new PromptTemplateRegistry(location, "", "resumo=resumo-v2"));
+    }
+}
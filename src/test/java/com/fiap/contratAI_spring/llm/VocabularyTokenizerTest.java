@@ -0,0 +1,52 @@
+package com.fiap.contratAI_spring.llm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VocabularyTokenizerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void segmentsByLongestTokenAndFallsBackToBytes() throws IOException {
+        Path vocab = dir.resolve("modelo.vocab");
+        Files.writeString(vocab, String.join("\n",
+                "<unk>\t0", "<0xE2>\t0", "▁contrato\t-1.0", "▁de\t-2.0", "▁loca\t-3.0", "▁locação\t-3.5"));
+        Tokenizer tokenizer = new VocabularyTokenizer(vocab.toString());
+
+        assertEquals(3, tokenizer.count(" contrato de locação"));
+        assertEquals(3, tokenizer.count(" contrato de loca"));
+        assertEquals(3, tokenizer.count("€"), "fora do vocabulário: um token por byte UTF-8");
+        assertEquals(4, tokenizer.count(" contrato€"));
+
+        assertEquals(" contrato de".length(), tokenizer.prefixLength(" contrato de locação", 2));
+        assertEquals(" contrato".length(), tokenizer.prefixLength(" contrato€", 3), "o caractere não é dividido");
+        assertEquals(" contrato de locação".length(), tokenizer.prefixLength(" contrato de locação", 10));
+    }
+
+    @Test
+    void decodesByteLevelHuggingFaceVocabulary() throws IOException {
+        // "ç" = C3 A7 e "ã" = C3 A3, que no byte-level do GPT-2 aparecem como "Ã§" e "Ã£"
+        Path json = dir.resolve("tokenizer.json");
+        Files.writeString(json, """
+                {"version":"1.0","added_tokens":[{"id":5,"content":"<|endoftext|>"}],
+                 "model":{"type":"BPE","vocab":{"Ġcontrato":0,"Ġloca":1,"Ã§":2,"Ã£o":3,"ĠlocaÃ§Ã£o":4,
+                   "<|endoftext|>":5,"Ã":6},"merges":["Ġ l"]}}
+                """);
+
+        assertEquals(List.of(" contrato", " loca", "ç", "ão", " locação"),
+                VocabularyTokenizer.decode(List.of("Ġcontrato", "Ġloca", "Ã§", "Ã£o", "ĠlocaÃ§Ã£o", "<|endoftext|>", "Ã")));
+
+        Tokenizer tokenizer = new VocabularyTokenizer("file:" + json);
+        assertEquals(2, tokenizer.count(" contrato locação"));
+        assertEquals(5, tokenizer.count(" contrato locaçã"), "\"ã\" sem o \"o\" custa um token por byte");
+    }
+}
@@ -0,0 +1,90 @@
+package com.fiap.contratAI_spring.queue;
+
+import com.fiap.contratAI_spring.config.RabbitMQConfig;
+import com.fiap.contratAI_spring.llm.LlmCircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnalysisConsumerPauserTest {
+
+    private static final long OPEN_MS = 200;
+
+    @Test
+    void halfOpenResumesASingleConsumerAndClosedRestoresTheRest() throws Exception {
+        LlmCircuitBreaker breaker = new LlmCircuitBreaker(1, OPEN_MS, new SimpleMeterRegistry());
+        SimpleMessageListenerContainer container = mock(SimpleMessageListenerContainer.class);
+        when(container.isRunning()).thenReturn(true);
+        RabbitListenerEndpointRegistry registry = mock(RabbitListenerEndpointRegistry.class);
+        when(registry.getListenerContainer(RabbitMQConfig.ANALYSIS_LISTENER_ID)).thenReturn(container);
+        AnalysisConsumerPauser pauser = new AnalysisConsumerPauser(breaker, registry, 2, 4, 1);
+
+        breaker.onFailure(new RuntimeException("Ollama fora do ar"));
+        verify(container, timeout(1000)).stop();
+        assertTrue(pauser.isPaused());
+
+        Thread.sleep(OPEN_MS + 50);
+        pauser.resumeIfClosed();
+        pauser.resumeIfClosed();
+        verify(container).setConcurrentConsumers(1);
+        verify(container).setMaxConcurrentConsumers(1);
+        verify(container, times(1)).start();
+        assertTrue(pauser.isPaused(), "no HALF_OPEN só o consumidor de teste volta");
+
+        // a chamada de teste passa: o circuito fecha e a concorrência configurada volta
+        breaker.acquirePermission();
+        breaker.onSuccess();
+        verify(container, timeout(1000)).setConcurrentConsumers(2);
+        verify(container).setMaxConcurrentConsumers(4);
+        assertFalse(pauser.isPaused());
+        verify(container, times(1)).start();
+    }
+
+    @Test
+    void circuitRejectionsWaitWithoutSpendingAnAttempt() {
+        LlmCircuitBreaker breaker = new LlmCircuitBreaker(1, 60_000, new SimpleMeterRegistry());
+        breaker.onFailure(new RuntimeException("Ollama fora do ar"));
+        RuntimeException rejected = assertThrows(RuntimeException.class, breaker::acquirePermission);
+
+        RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+        doAnswer(inv -> inv.<CorrelationData>getArgument(3).getFuture().complete(new CorrelationData.Confirm(true, null)))
+                .when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+        AnalysisRetryPublisher publisher = new AnalysisRetryPublisher(rabbitTemplate, List.of(5000L), 2000, 1000);
+        Message message = MessageBuilder.withBody("{}".getBytes(StandardCharsets.UTF_8))
+                .setHeader(AnalysisRetryPublisher.ATTEMPT_HEADER, 1)
+                .build();
+
+        assertEquals(AnalysisRetryPublisher.Outcome.DEFERRED,
+                publisher.handleFailure(message, "{}", new RuntimeException("Erro ao chamar o LLM", rejected)));
+        ArgumentCaptor<Message> sent = ArgumentCaptor.forClass(Message.class);
+        verify(rabbitTemplate).send(eq(RabbitMQConfig.RETRY_EXCHANGE_NAME), eq(RabbitMQConfig.deferQueueName(2000)),
+                sent.capture(), any(CorrelationData.class));
+        assertEquals(1, AnalysisRetryPublisher.attempt(sent.getValue()));
+        verify(rabbitTemplate, never()).send(eq(RabbitMQConfig.RETRY_EXCHANGE_NAME), eq(RabbitMQConfig.retryQueueName(5000L)),
+                any(Message.class), any(CorrelationData.class));
+    }
+}
@@ -0,0 +1,86 @@
+package com.fiap.contratAI_spring.queue;
+
+import com.fiap.contratAI_spring.config.RabbitMQConfig;
+import com.fiap.contratAI_spring.model.AlteredContract;
+import com.fiap.contratAI_spring.model.enums.ContractStatus;
+import com.fiap.contratAI_spring.repository.AlteredContractRepository;
+import com.fiap.contratAI_spring.repository.ContractRepository;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.GetResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.ChannelCallback;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.support.RabbitExceptionTranslator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnalysisDeadLetterServiceTest {
+
+    @Test
+    void replayResetsTheRevisionToPendingAndRestoresItWhenTheRepublishFails() throws Exception {
+        ContractRepository contractRepository = mock(ContractRepository.class);
+        AlteredContractRepository alteredContractRepository = mock(AlteredContractRepository.class);
+        AlteredContract revision = new AlteredContract();
+        revision.setId(77L);
+        revision.setStatus(ContractStatus.FAILED);
+        when(alteredContractRepository.findById(77L)).thenReturn(Optional.of(revision));
+
+        Channel channel = mock(Channel.class);
+        when(channel.basicGet(RabbitMQConfig.DEAD_LETTER_QUEUE_NAME, false))
+                .thenReturn(deadLetter(1, "{\"revisionId\":77,\"userId\":5}"), (GetResponse) null);
+        RabbitTemplate rabbitTemplate = rabbitTemplate(channel);
+        AnalysisDeadLetterService service = new AnalysisDeadLetterService(
+                rabbitTemplate, contractRepository, alteredContractRepository, 1000);
+
+        assertEquals(List.of(), service.replay(10, null), "revisões não têm contrato a listar");
+        assertEquals(ContractStatus.PENDING, revision.getStatus());
+        verify(channel).basicAck(1, false);
+        verify(contractRepository, never()).findById(anyLong());
+
+        revision.setStatus(ContractStatus.FAILED);
+        when(channel.basicGet(RabbitMQConfig.DEAD_LETTER_QUEUE_NAME, false))
+                .thenReturn(deadLetter(2, "{\"revisionId\":77,\"userId\":5}"));
+        doThrow(new IOException("sem confirm")).when(channel).waitForConfirmsOrDie(anyLong());
+
+        assertThrows(AmqpException.class, () -> service.replay(10, null));
+        assertEquals(ContractStatus.FAILED, revision.getStatus(), "a mensagem continua na DLQ, a revisão também");
+        verify(channel).basicNack(2, false, true);
+        verify(channel, never()).basicAck(eq(2L), eq(false));
+    }
+
+    private static GetResponse deadLetter(long tag, String body) {
+        return new GetResponse(new Envelope(tag, false, "", RabbitMQConfig.DEAD_LETTER_QUEUE_NAME),
+                new AMQP.BasicProperties.Builder().build(), body.getBytes(StandardCharsets.UTF_8), 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RabbitTemplate rabbitTemplate(Channel channel) {
+        RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+        when(rabbitTemplate.execute(any(ChannelCallback.class)))
+                .thenAnswer(invocation -> {
+                    try {
+                        return ((ChannelCallback<Object>) invocation.getArgument(0)).doInRabbit(channel);
+                    } catch (Exception e) {
+                        throw RabbitExceptionTranslator.convertRabbitAccessException(e);
+                    }
+                });
+        return rabbitTemplate;
+    }
+}
@@ -0,0 +1,49 @@
+package com.fiap.contratAI_spring.queue;
+
+import com.fiap.contratAI_spring.support.ContractPayloads;
+import com.google.gson.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse da mensagem recebida pelo {@link ContractAnalysisListener}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalysisMessageBenchmark {
+
+    @Param({"10240", "262144", "2097152"})
+    public int payloadChars;
+
+    private String message;
+
+    @Setup
+    public void setUp() {
+        JsonObject json = new JsonObject();
+        json.addProperty("contractId", 1L);
+        json.addProperty("contract", ContractPayloads.contractOfSize(payloadChars));
+        json.addProperty("userId", 1L);
+        json.addProperty("enqueuedAt", System.currentTimeMillis());
+        message = json.toString();
+    }
+
+    @Benchmark
+    public ContractAnalysisListener.AnalysisMessage parseMessage() {
+        return ContractAnalysisListener.parseMessage(message);
+    }
+}
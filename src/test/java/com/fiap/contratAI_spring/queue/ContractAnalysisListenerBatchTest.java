@@ -0,0 +1,260 @@
+package com.fiap.contratAI_spring.queue;
+
+import com.fiap.contratAI_spring.config.RabbitMQConfig;
+import com.fiap.contratAI_spring.llm.AdaptiveConcurrencyLimiter;
+import com.fiap.contratAI_spring.model.Contract;
+import com.fiap.contratAI_spring.model.User;
+import com.fiap.contratAI_spring.model.enums.ContractStatus;
+import com.fiap.contratAI_spring.repository.ContractRepository;
+import com.fiap.contratAI_spring.repository.UserRepository;
+import com.fiap.contratAI_spring.service.AnalysisJobService;
+import com.fiap.contratAI_spring.service.ContractAIService;
+import com.fiap.contratAI_spring.service.ContractContentStore;
+import com.fiap.contratAI_spring.service.DuplicateAnalysisService;
+import com.fiap.contratAI_spring.service.LlmMetrics;
+import com.fiap.contratAI_spring.service.RevisionAnalysisService;
+import com.google.gson.JsonObject;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ContractAnalysisListenerBatchTest {
+
+    private static final int CONTRACTS = 20;
+    private static final int CLAIM_CHECKED = 5;
+    private static final int HASH_MISMATCH = 7;
+    private static final int TRANSIENT_FAILURE = 9;
+
+    @Autowired
+    private ContractRepository contractRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final SimpleMeterRegistry metricsRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void cleanUp() {
+        contractRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void batchIsolatesFailuresAndWritesInFewStatements() throws Exception {
+        User owner = newUser("lote@example.com");
+        List<String> messages = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < CONTRACTS; i++) {
+            String text = i == 3 ? "contrato que provoca falha"
+                    : i == TRANSIENT_FAILURE ? "contrato com timeout"
+                    : "contrato " + i;
+            Contract contract = new Contract();
+            contract.setTitle("Contrato " + i);
+            contract.setContent(text);
+            contract.setOwner(owner);
+            contract.setStatus(ContractStatus.PENDING);
+            contract = contractRepository.save(contract);
+            ids.add(contract.getId());
+            if (i == CLAIM_CHECKED) {
+                messages.add(claimCheckMessage(contract.getId(), ContractContentStore.sha256(text), owner.getId()));
+            } else if (i == HASH_MISMATCH) {
+                messages.add(claimCheckMessage(contract.getId(), ContractContentStore.sha256("outro texto"), owner.getId()));
+            } else {
+                messages.add(message(contract.getId(), text, owner.getId()));
+            }
+        }
+        messages.add(message(null, "contrato antigo sem id", owner.getId()));
+        messages.add(message(999_999L, "contrato inexistente", owner.getId()));
+        messages.add(message(null, "usuário inexistente", 999_999L));
+        messages.add("{não é json");
+        // revisão: o texto fica no banco e a análise é do RevisionAnalysisService
+        messages.add("{\"revisionId\":77,\"userId\":" + owner.getId() + "}");
+
+        ContractAIService aiService = mock(ContractAIService.class);
+        when(aiService.analyzeContract(anyString())).thenAnswer(inv -> {
+            String text = inv.getArgument(0);
+            if (text.contains("falha")) throw new RuntimeException("resposta inválida do LLM");
+            if (text.contains("timeout")) throw new RuntimeException("Erro ao chamar API do Ollama", new SocketTimeoutException("timeout"));
+            return "ANÁLISE OK";
+        });
+        RevisionAnalysisService revisionService = mock(RevisionAnalysisService.class);
+        RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+        doAnswer(inv -> inv.<CorrelationData>getArgument(3).getFuture().complete(new CorrelationData.Confirm(true, null)))
+                .when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+        ContractContentStore contentStore = new ContractContentStore("inline");
+        DuplicateAnalysisService analysis = new DuplicateAnalysisService(aiService, null, null, contractRepository,
+                contentStore, transactionManager, new SimpleMeterRegistry(), false, 0.97);
+        ContractAnalysisListener listener = listener(analysis, revisionService, contentStore, rabbitTemplate);
+        Channel channel = mock(Channel.class);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<Message> batch = deliveries(messages);
+        // a revisão voltou de uma fila de retry: a espera conta da volta à fila principal
+        batch.get(batch.size() - 1).getMessageProperties().setHeader("x-death",
+                List.of(Map.of("time", new Date(), "queue", RabbitMQConfig.retryQueueName(5000L))));
+        listener.processContractAnalysisBatch(batch, channel);
+
+        long statements = statistics.getPrepareStatementCount();
+        for (int i = 0; i < CONTRACTS; i++) {
+            Contract saved = contractRepository.findById(ids.get(i)).orElseThrow();
+            if (i == 3 || i == HASH_MISMATCH) {
+                assertEquals(ContractStatus.FAILED, saved.getStatus());
+            } else if (i == TRANSIENT_FAILURE) {
+                assertEquals(ContractStatus.PENDING, saved.getStatus());
+            } else {
+                assertEquals(ContractStatus.ANALYZED, saved.getStatus());
+                assertTrue(saved.getContent().endsWith("=== ANÁLISE ===\nANÁLISE OK"));
+            }
+        }
+        List<Contract> legacy = contractRepository.findAll().stream()
+                .filter(c -> c.getContent().startsWith("contrato antigo sem id"))
+                .toList();
+        assertEquals(1, legacy.size());
+        assertEquals(ContractStatus.ANALYZED, legacy.get(0).getStatus());
+
+        // timeout vai para a fila de retry; falha do LLM, hash divergente, contrato/usuário inexistentes e JSON inválido para a DLQ
+        verify(rabbitTemplate, times(1)).send(eq(RabbitMQConfig.RETRY_EXCHANGE_NAME), eq(RabbitMQConfig.retryQueueName(5000L)), any(Message.class), any(CorrelationData.class));
+        verify(rabbitTemplate, times(5)).send(eq(RabbitMQConfig.RETRY_EXCHANGE_NAME), eq(RabbitMQConfig.DEAD_LETTER_ROUTING_KEY), any(Message.class), any(CorrelationData.class));
+        verify(revisionService).analyze(77L);
+        verify(channel, times(messages.size())).basicAck(anyLong(), eq(false));
+        assertEquals(1.0, metricsRegistry.get("analysis.completed").tag("operation", "analyze-revision").counter().count());
+        assertEquals(1, metricsRegistry.get("analysis.queue.wait").tag("redelivered", "true").timer().count());
+        verify(channel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+
+        // 2 SELECTs de contratos + 1 de usuários + insert/sequence do legado + updates em batch
+        assertTrue(statements <= 8, "esperado poucos statements por lote, observado " + statements);
+    }
+
+    @Test
+    void unconfirmedRepublishRequeuesOnlyThatDelivery() throws Exception {
+        User owner = newUser("nack@example.com");
+        List<String> messages = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        for (String text : List.of("contrato ok", "contrato com timeout")) {
+            Contract contract = new Contract();
+            contract.setTitle(text);
+            contract.setContent(text);
+            contract.setOwner(owner);
+            contract.setStatus(ContractStatus.PENDING);
+            contract = contractRepository.save(contract);
+            ids.add(contract.getId());
+            messages.add(message(contract.getId(), text, owner.getId()));
+        }
+        ContractAIService aiService = mock(ContractAIService.class);
+        when(aiService.analyzeContract(anyString())).thenAnswer(inv -> {
+            if (inv.<String>getArgument(0).contains("timeout")) {
+                throw new RuntimeException("Erro ao chamar API do Ollama", new SocketTimeoutException("timeout"));
+            }
+            return "ANÁLISE OK";
+        });
+        // o broker recusa a cópia para a fila de retry
+        RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+        doAnswer(inv -> inv.<CorrelationData>getArgument(3).getFuture().complete(new CorrelationData.Confirm(false, "nack")))
+                .when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+        ContractContentStore contentStore = new ContractContentStore("inline");
+        DuplicateAnalysisService analysis = new DuplicateAnalysisService(aiService, null, null, contractRepository,
+                contentStore, transactionManager, new SimpleMeterRegistry(), false, 0.97);
+        Channel channel = mock(Channel.class);
+
+        listener(analysis, mock(RevisionAnalysisService.class), contentStore, rabbitTemplate)
+                .processContractAnalysisBatch(deliveries(messages), channel);
+
+        verify(channel).basicAck(1L, false);
+        verify(channel).basicNack(2L, false, true);
+        assertEquals(ContractStatus.ANALYZED, contractRepository.findById(ids.get(0)).orElseThrow().getStatus());
+        assertEquals(ContractStatus.PENDING, contractRepository.findById(ids.get(1)).orElseThrow().getStatus());
+    }
+
+    private ContractAnalysisListener listener(DuplicateAnalysisService analysis, RevisionAnalysisService revisionService,
+                                              ContractContentStore contentStore, RabbitTemplate rabbitTemplate) {
+        return new ContractAnalysisListener(analysis, contractRepository, userRepository,
+                mock(AnalysisJobService.class), revisionService, contentStore, new LlmMetrics(metricsRegistry, "stub"),
+                new FairShareGate(new AdaptiveConcurrencyLimiter(4, 4, 1, 2.0, 0.9, 100, new SimpleMeterRegistry()), 0.5), 1000, 60_000, new AnalysisRetryPublisher(rabbitTemplate, List.of(5000L), 2000, 1000),
+                transactionManager, task -> Thread.ofVirtual().start(task));
+    }
+
+    /**
+     * Entregas com delivery tags 1..n, como o container do modo em lote as repassa.
+     */
+    private static List<Message> deliveries(List<String> bodies) {
+        List<Message> deliveries = new ArrayList<>();
+        for (String body : bodies) {
+            Message message = MessageBuilder.withBody(body.getBytes(StandardCharsets.UTF_8)).build();
+            message.getMessageProperties().setDeliveryTag(deliveries.size() + 1);
+            deliveries.add(message);
+        }
+        return deliveries;
+    }
+
+    private static String message(Long contractId, String text, Long userId) {
+        JsonObject json = new JsonObject();
+        json.addProperty("contractId", contractId);
+        json.addProperty("contract", text);
+        json.addProperty("userId", userId);
+        json.addProperty("enqueuedAt", System.currentTimeMillis());
+        return json.toString();
+    }
+
+    private static String claimCheckMessage(Long contractId, String sha256, Long userId) {
+        JsonObject json = new JsonObject();
+        json.addProperty("contractId", contractId);
+        json.addProperty("sha256", sha256);
+        json.addProperty("userId", userId);
+        return json.toString();
+    }
+
+    private User newUser(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setName("Teste");
+        user.setPassword("x");
+        return userRepository.save(user);
+    }
+}
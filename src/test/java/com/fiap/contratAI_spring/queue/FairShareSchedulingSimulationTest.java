@@ -0,0 +1,237 @@
+package com.fiap.contratAI_spring.queue;
+
+import com.fiap.contratAI_spring.config.RabbitMQConfig;
+import com.fiap.contratAI_spring.llm.AdaptiveConcurrencyLimiter;
+import com.fiap.contratAI_spring.model.Contract;
+import com.fiap.contratAI_spring.repository.ContractRepository;
+import com.fiap.contratAI_spring.repository.UserRepository;
+import com.fiap.contratAI_spring.service.AnalysisJobService;
+import com.fiap.contratAI_spring.service.ContractContentStore;
+import com.fiap.contratAI_spring.service.DuplicateAnalysisService;
+import com.fiap.contratAI_spring.service.LlmMetrics;
+import com.fiap.contratAI_spring.service.RevisionAnalysisService;
+import com.google.gson.JsonObject;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Roda o {@link ContractAnalysisListener} real sobre uma fila FIFO (prioridade desligada, o padrão): um ADMIN
+ * enfileira um backlog grande e, durante o processamento dele, advogados enviam contratos. As mensagens
+ * adiadas pelo fair-share passam pela fila de espera (simulada a partir do {@code RabbitTemplate}) e voltam
+ * ao fim da fila; o LLM é um semáforo com a capacidade de {@code ollama.max-in-flight}.
+ */
+class FairShareSchedulingSimulationTest {
+
+    private static final int LLM_CAPACITY = 4;
+    private static final int CONSUMERS = 6;
+    private static final long SERVICE_MS = 20;
+    private static final long WAIT_MS = 5;
+    private static final long DEFER_MS = 50;
+    private static final int BULK_MESSAGES = 200;
+    private static final int INTERACTIVE_MESSAGES = 30;
+    private static final long ADMIN_ID = 1L;
+
+    private final ContractRepository contractRepository = mock(ContractRepository.class);
+    private final DuplicateAnalysisService analysis = mock(DuplicateAnalysisService.class);
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final FairShareGate gate = new FairShareGate(
+            new AdaptiveConcurrencyLimiter(LLM_CAPACITY, LLM_CAPACITY, 1, 2.0, 0.9, 100, new SimpleMeterRegistry()), 0.5);
+
+    @Test
+    void interactiveLatencyStaysBoundedUnderBulkBacklogWithoutPriority() throws Exception {
+        LinkedBlockingDeque<Message> queue = new LinkedBlockingDeque<>();
+        ScheduledExecutorService deferQueue = Executors.newSingleThreadScheduledExecutor();
+        AtomicInteger deferrals = new AtomicInteger();
+        AtomicInteger headRequeues = new AtomicInteger();
+        // fila de espera: a mensagem expira e volta ao fim da fila principal
+        doAnswer(invocation -> {
+            Message deferred = invocation.getArgument(2);
+            deferrals.incrementAndGet();
+            deferQueue.schedule(() -> queue.addLast(deferred), DEFER_MS, TimeUnit.MILLISECONDS);
+            return confirm(invocation.getArgument(3));
+        }).when(rabbitTemplate).send(eq(RabbitMQConfig.RETRY_EXCHANGE_NAME), eq(RabbitMQConfig.deferQueueName(DEFER_MS)),
+                any(Message.class), any(CorrelationData.class));
+
+        Map<Long, Long> enqueuedAt = new ConcurrentHashMap<>();
+        ConcurrentLinkedQueue<Long> interactiveLatenciesMs = new ConcurrentLinkedQueue<>();
+        AtomicInteger bulkDone = new AtomicInteger();
+        AtomicInteger maxAdminRunning = new AtomicInteger();
+        CountDownLatch interactiveDone = new CountDownLatch(INTERACTIVE_MESSAGES);
+        Semaphore llm = new Semaphore(LLM_CAPACITY, true);
+        when(analysis.analyze(anyLong(), anyLong(), anyString())).thenAnswer(invocation -> {
+            Long contractId = invocation.getArgument(0);
+            Long owner = invocation.getArgument(1);
+            maxAdminRunning.accumulateAndGet(gate.running(ADMIN_ID), Math::max);
+            llm.acquire();
+            try {
+                Thread.sleep(SERVICE_MS);
+            } finally {
+                llm.release();
+            }
+            if (owner == ADMIN_ID) {
+                bulkDone.incrementAndGet();
+            } else {
+                interactiveLatenciesMs.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - enqueuedAt.get(contractId)));
+                interactiveDone.countDown();
+            }
+            return "ANÁLISE";
+        });
+        when(contractRepository.findById(anyLong())).thenAnswer(invocation -> {
+            Contract contract = new Contract();
+            contract.setId(invocation.getArgument(0));
+            return Optional.of(contract);
+        });
+        ContractAnalysisListener listener = listener(WAIT_MS, 60_000);
+
+        for (long id = 1; id <= BULK_MESSAGES; id++) {
+            enqueuedAt.put(id, System.nanoTime());
+            queue.addLast(message(id, ADMIN_ID));
+        }
+        List<Thread> consumers = new ArrayList<>();
+        for (int c = 0; c < CONSUMERS; c++) {
+            consumers.add(Thread.ofVirtual().start(() -> {
+                try {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        Message message = queue.pollFirst(50, TimeUnit.MILLISECONDS);
+                        if (message == null) continue;
+                        try {
+                            listener.processContractAnalysis(message);
+                        } catch (ImmediateRequeueAmqpException e) {
+                            headRequeues.incrementAndGet();
+                            queue.addFirst(message);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+
+        // advogados enviam contratos enquanto o backlog do ADMIN é processado, atrás dele na fila
+        for (int i = 0; i < INTERACTIVE_MESSAGES; i++) {
+            Thread.sleep(30);
+            long id = 10_000 + i;
+            enqueuedAt.put(id, System.nanoTime());
+            queue.addLast(message(id, 100L + i % 3));
+        }
+
+        assertTrue(interactiveDone.await(30, TimeUnit.SECONDS), "análises interativas não concluíram");
+        int bulkDoneWhenInteractiveFinished = bulkDone.get();
+        // a interrupção dos consumidores no fim do teste devolve as mensagens em andamento à fila
+        int headRequeuesWhenInteractiveFinished = headRequeues.get();
+        consumers.forEach(Thread::interrupt);
+        for (Thread consumer : consumers) {
+            consumer.join();
+        }
+        deferQueue.shutdownNow();
+
+        long maxLatency = interactiveLatenciesMs.stream().mapToLong(Long::longValue).max().orElseThrow();
+        // o backlog do ADMIN sozinho leva BULK_MESSAGES * SERVICE_MS / limite = 2s; as interativas não esperam por ele
+        assertTrue(maxLatency < BULK_MESSAGES * SERVICE_MS / gate.perOwnerLimit() / 2, "latência interativa máxima " + maxLatency + "ms");
+        assertTrue(bulkDoneWhenInteractiveFinished < BULK_MESSAGES, "o backlog deveria seguir pendente durante o teste");
+        assertTrue(bulkDoneWhenInteractiveFinished > 0, "o backlog também deve progredir");
+        assertEquals(gate.perOwnerLimit(), maxAdminRunning.get(), "ADMIN não pode passar da sua parcela");
+        assertTrue(deferrals.get() > 0, "mensagens do ADMIN no limite deveriam ir para a fila de espera");
+        assertEquals(0, headRequeuesWhenInteractiveFinished, "nenhuma mensagem deveria voltar à cabeça da fila");
+    }
+
+    @Test
+    void batchModeDefersOwnersStillAtTheLimitAfterTheWait() throws Exception {
+        List<Message> deferred = new ArrayList<>();
+        doAnswer(invocation -> deferred.add(invocation.getArgument(2)) && confirm(invocation.getArgument(3)))
+                .when(rabbitTemplate).send(eq(RabbitMQConfig.RETRY_EXCHANGE_NAME), eq(RabbitMQConfig.deferQueueName(DEFER_MS)),
+                        any(Message.class), any(CorrelationData.class));
+        when(analysis.analyze(anyLong(), anyLong(), anyString())).thenAnswer(invocation -> {
+            Thread.sleep(300);
+            return "ANÁLISE";
+        });
+        List<Contract> contracts = new ArrayList<>();
+        List<Message> messages = new ArrayList<>();
+        for (long id = 1; id <= 4; id++) {
+            Contract contract = new Contract();
+            contract.setId(id);
+            contracts.add(contract);
+            messages.add(message(id, ADMIN_ID));
+        }
+        when(contractRepository.findAllById(any())).thenReturn(contracts);
+
+        // limite de 2 por dono e espera de 50ms: duas análises rodam, as outras duas são adiadas
+        Channel channel = mock(Channel.class);
+        listener(WAIT_MS, 50).processContractAnalysisBatch(messages, channel);
+
+        assertEquals(2, deferred.size());
+        assertEquals(2, contracts.stream().filter(c -> c.getStatus() != null).count(), "só as analisadas são gravadas");
+        // as adiadas já estão na fila de espera: todas as entregas são confirmadas
+        verify(channel, times(4)).basicAck(anyLong(), eq(false));
+    }
+
+    @Test
+    void perOwnerShareFollowsTheAdaptiveLimit() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = mock(AdaptiveConcurrencyLimiter.class);
+        when(limiter.limit()).thenReturn(LLM_CAPACITY);
+        FairShareGate adaptive = new FairShareGate(limiter, 0.5);
+        assertTrue(adaptive.tryAcquire(ADMIN_ID, 0, TimeUnit.MILLISECONDS));
+        assertTrue(adaptive.tryAcquire(ADMIN_ID, 0, TimeUnit.MILLISECONDS));
+        assertFalse(adaptive.tryAcquire(ADMIN_ID, 0, TimeUnit.MILLISECONDS), "metade de 4");
+
+        // o limitador subiu até llm.limiter.max-limit: a parcela sobe junto
+        when(limiter.limit()).thenReturn(8);
+        assertEquals(4, adaptive.perOwnerLimit());
+        assertTrue(adaptive.tryAcquire(ADMIN_ID, 0, TimeUnit.MILLISECONDS));
+    }
+
+    private ContractAnalysisListener listener(long waitMs, long batchWaitMs) {
+        return new ContractAnalysisListener(analysis, contractRepository, mock(UserRepository.class),
+                mock(AnalysisJobService.class), mock(RevisionAnalysisService.class), new ContractContentStore("inline"),
+                new LlmMetrics(new SimpleMeterRegistry(), "stub"), gate, waitMs, batchWaitMs,
+                new AnalysisRetryPublisher(rabbitTemplate, List.of(5000L), DEFER_MS, 1000), mock(PlatformTransactionManager.class),
+                task -> Thread.ofVirtual().start(task));
+    }
+
+    private static boolean confirm(CorrelationData correlation) {
+        return correlation.getFuture().complete(new CorrelationData.Confirm(true, null));
+    }
+
+    private static Message message(long contractId, long owner) {
+        JsonObject json = new JsonObject();
+        json.addProperty("contractId", contractId);
+        json.addProperty("contract", "contrato " + contractId);
+        json.addProperty("userId", owner);
+        return MessageBuilder.withBody(json.toString().getBytes(StandardCharsets.UTF_8)).build();
+    }
+}
@@ -0,0 +1,172 @@
+package com.fiap.contratAI_spring.repository;
+
+import com.fiap.contratAI_spring.dto.ContractSummaryDTO;
+import com.fiap.contratAI_spring.model.Contract;
+import com.fiap.contratAI_spring.model.User;
+import com.fiap.contratAI_spring.model.enums.ContractStatus;
+import com.fiap.contratAI_spring.service.ContractContentStore;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {"spring.jpa.show-sql=false", "spring.jpa.properties.hibernate.generate_statistics=true"})
+class ContractRepositoryTest {
+
+    @Autowired
+    private ContractRepository contractRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void keysetPagesWalkAllContractsNewestFirst() {
+        User owner = newUser("keyset@example.com");
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 10, 0);
+        for (int i = 0; i < 5; i++) {
+            Contract contract = new Contract();
+            contract.setTitle("Contrato " + i);
+            contract.setContent("conteúdo " + i);
+            contract.setOwner(owner);
+            contract.setStatus(ContractStatus.PENDING);
+            // dois contratos com o mesmo createdAt para exercitar o desempate por id
+            contract.setCreatedAt(base.plusMinutes(i / 2));
+            contractRepository.save(contract);
+        }
+
+        List<ContractSummaryDTO> seen = new ArrayList<>(contractRepository.findSummaryPage(null, null, 2));
+        while (seen.size() < 5) {
+            ContractSummaryDTO last = seen.get(seen.size() - 1);
+            List<ContractSummaryDTO> next = contractRepository.findSummaryPage(last.createdAt(), last.id(), 2);
+            assertTrue(!next.isEmpty(), "a paginação não deveria terminar antes de todos os contratos");
+            seen.addAll(next);
+        }
+
+        assertEquals(5, seen.stream().map(ContractSummaryDTO::id).distinct().count());
+        for (int i = 1; i < seen.size(); i++) {
+            ContractSummaryDTO prev = seen.get(i - 1);
+            ContractSummaryDTO cur = seen.get(i);
+            assertTrue(prev.createdAt().isAfter(cur.createdAt())
+                    || (prev.createdAt().isEqual(cur.createdAt()) && prev.id() > cur.id()));
+        }
+        assertEquals("keyset@example.com", seen.get(0).ownerEmail());
+    }
+
+    @Test
+    void contentPageLoadsOwnersAndBlobsWithoutPerRowQueries() {
+        ContractContentStore store = new ContractContentStore("compressed");
+        for (int i = 0; i < 5; i++) {
+            Contract contract = new Contract();
+            contract.setTitle("Contrato " + i);
+            contract.setOwner(newUser("blob" + i + "@example.com"));
+            contract.setStatus(ContractStatus.ANALYZED);
+            store.setOriginal(contract, "original " + i);
+            store.setAnalysis(contract, "original " + i, "análise " + i);
+            contractRepository.save(contract);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Page<Contract> page = contractRepository.findPageWithContent(PageRequest.of(0, 3, Sort.by("id")));
+        List<String> contents = page.map(store::content).getContent();
+        page.forEach(c -> c.getOwner().getEmail());
+
+        assertEquals(3, contents.size());
+        assertEquals("original 0" + ContractContentStore.ANALYSIS_SEPARATOR + "análise 0", contents.get(0));
+        assertEquals(2, statistics.getPrepareStatementCount(), "esperado só o select da página e o count");
+    }
+
+    /**
+     * Compara a paginação por offset com entidades completas (endpoint antigo) com a listagem
+     * resumida por keyset, em uma página profunda de uma tabela com 1M de contratos.
+     * Execute com {@code -Dbenchmark=true} (opcionalmente {@code -Dbenchmark.rows=N}).
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void benchmarkDeepPageOffsetVersusKeyset() {
+        int rows = Integer.getInteger("benchmark.rows", 1_000_000);
+        int owners = 1_000;
+        int pageSize = 50;
+        String content = "CLÁUSULA PRIMEIRA - ".repeat(50);
+
+        for (int u = 1; u <= owners; u++) {
+            jdbcTemplate.update("insert into users (id, email, name, password) values (?, ?, ?, ?)",
+                    1_000_000 + u, "bench" + u + "@example.com", "Bench " + u, "x");
+        }
+        LocalDateTime base = LocalDateTime.of(2020, 1, 1, 0, 0);
+        List<Object[]> batch = new ArrayList<>(10_000);
+        for (int i = 1; i <= rows; i++) {
+            batch.add(new Object[]{i, "Contrato " + i, content, "ANALYZED",
+                    Timestamp.valueOf(base.plusSeconds(i)), 1_000_000 + (i % owners) + 1});
+            if (batch.size() == 10_000 || i == rows) {
+                jdbcTemplate.batchUpdate("insert into contracts (id, title, content, status, created_at, user_id) values (?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+
+        int deepPage = (rows / pageSize) * 9 / 10;
+
+        // como no endpoint antigo (open-in-view): o owner de cada linha é carregado sob demanda
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long start = System.nanoTime();
+        Page<Contract> offsetPage = tx.execute(status -> {
+            Page<Contract> page = contractRepository.findAll(
+                    PageRequest.of(deepPage, pageSize, Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"))));
+            page.forEach(c -> c.getOwner().getEmail());
+            return page;
+        });
+        long offsetMs = (System.nanoTime() - start) / 1_000_000;
+
+        Contract cursor = offsetPage.getContent().get(0);
+        start = System.nanoTime();
+        List<ContractSummaryDTO> keysetPage = contractRepository.findSummaryPage(
+                cursor.getCreatedAt(), cursor.getId(), pageSize);
+        long keysetMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(pageSize, keysetPage.size());
+        assertTrue(keysetMs < offsetMs, "keyset (" + keysetMs + "ms) deveria ser mais rápido que offset com entidades ("
+                + offsetMs + "ms) na página " + deepPage + " de " + rows + " linhas");
+
+        jdbcTemplate.update("delete from contracts");
+        jdbcTemplate.update("delete from users where id > 1000000");
+    }
+
+    private User newUser(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setName("Teste");
+        user.setPassword("x");
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,108 @@
+package com.fiap.contratAI_spring.search;
+
+import com.fiap.contratAI_spring.llm.EmbeddingProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latência da busca do vizinho mais próximo no {@link ContractEmbeddingIndex} (HNSW) contra a varredura
+ * exata de todos os vetores, com 10 mil e 100 mil contratos de um mesmo dono. O recall do HNSW é
+ * verificado no {@code ContractEmbeddingIndexTest}.
+ * Rodar com {@code mvn -Pbenchmark verify -Djmh.args="ContractEmbeddingIndexBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContractEmbeddingIndexBenchmark {
+
+    /** Dimensões do nomic-embed-text. */
+    private static final int DIMENSIONS = 768;
+    private static final int QUERIES = 256;
+
+    @Param({"10000", "100000"})
+    public int vectors;
+
+    private ContractEmbeddingIndex index;
+    private float[][] data;
+    private float[][] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        float[][] templates = new float[vectors / 50][];
+        for (int i = 0; i < templates.length; i++) {
+            templates[i] = vector(random, null);
+        }
+        index = new ContractEmbeddingIndex(new ByteBuffersDirectory(), new SimpleMeterRegistry());
+        data = new float[vectors][];
+        for (int i = 0; i < vectors; i++) {
+            data[i] = vector(random, templates[i % templates.length]);
+            index.add((long) i, 1L, "benchmark", data[i]);
+        }
+        queries = new float[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = vector(random, templates[random.nextInt(templates.length)]);
+        }
+        index.nearest(queries[0], 1L, "benchmark", null, 1); // publica as inclusões
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        index.destroy();
+    }
+
+    @Benchmark
+    public List<ContractEmbeddingIndex.Neighbor> hnsw() {
+        return index.nearest(queries[next++ & (QUERIES - 1)], 1L, "benchmark", null, 3);
+    }
+
+    @Benchmark
+    public int bruteForce() {
+        float[] query = queries[next++ & (QUERIES - 1)];
+        int best = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < data.length; i++) {
+            double score = 0;
+            float[] candidate = data[i];
+            for (int d = 0; d < DIMENSIONS; d++) {
+                score += candidate[d] * query[d];
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static float[] vector(Random random, float[] template) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            float gaussian = (float) random.nextGaussian();
+            vector[i] = template == null ? gaussian : template[i] * (float) Math.sqrt(DIMENSIONS) + 0.5f * gaussian;
+        }
+        return EmbeddingProvider.normalize(vector);
+    }
+}
@@ -0,0 +1,118 @@
+package com.fiap.contratAI_spring.search;
+
+import com.fiap.contratAI_spring.llm.EmbeddingProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContractEmbeddingIndexTest {
+
+    private static final String MODEL = "teste";
+    private static final int DIMENSIONS = 384;
+
+    @Test
+    void approximateNeighborsMatchExactSearch() throws IOException {
+        int vectors = 5_000;
+        int queries = 200;
+        int k = 10;
+        Random random = new Random(42);
+        // modelos de contrato (centros) com variações em volta, como instâncias do mesmo template
+        float[][] centers = new float[100][];
+        for (int i = 0; i < centers.length; i++) {
+            centers[i] = randomVector(random, null, 0);
+        }
+        float[][] data = new float[vectors][];
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ContractEmbeddingIndex index = new ContractEmbeddingIndex(new ByteBuffersDirectory(), registry);
+        try {
+            for (int i = 0; i < vectors; i++) {
+                data[i] = randomVector(random, centers[i % centers.length], 0.5f);
+                index.add((long) i, 1L, MODEL, data[i]);
+            }
+
+            int found = 0;
+            for (int q = 0; q < queries; q++) {
+                float[] query = randomVector(random, centers[q % centers.length], 0.5f);
+                Set<Long> expected = exactTopK(data, query, k);
+                for (ContractEmbeddingIndex.Neighbor neighbor : index.nearest(query, 1L, MODEL, null, k)) {
+                    if (expected.contains(neighbor.contractId())) found++;
+                }
+            }
+            double recall = (double) found / (queries * k);
+            double meanMs = registry.get("analysis.dedup.search").timer().mean(TimeUnit.MILLISECONDS);
+            assertTrue(recall >= 0.9, "recall@" + k + " = " + recall + " em " + vectors + " vetores de " + DIMENSIONS + " dimensões");
+            assertTrue(meanMs < 200, "busca média de " + meanMs + " ms em " + vectors + " vetores");
+        } finally {
+            index.destroy();
+        }
+    }
+
+    @Test
+    void filtersByOwnerAndModelAndExcludesTheContractItself() throws IOException {
+        Random random = new Random(7);
+        float[] template = randomVector(random, null, 0);
+        ContractEmbeddingIndex index = new ContractEmbeddingIndex(new ByteBuffersDirectory(), new SimpleMeterRegistry());
+        try {
+            index.add(1L, 10L, MODEL, template);
+            index.add(2L, 20L, MODEL, template);
+            index.add(3L, 10L, "outro-modelo", template);
+            index.add(4L, 10L, MODEL, randomVector(random, template, 0.3f));
+
+            List<ContractEmbeddingIndex.Neighbor> own = index.nearest(template, 10L, MODEL, null, 5);
+            assertEquals(List.of(1L, 4L), own.stream().map(ContractEmbeddingIndex.Neighbor::contractId).toList());
+            assertEquals(1.0, own.get(0).similarity(), 1e-4);
+            assertTrue(own.get(1).similarity() < 1);
+
+            assertEquals(List.of(4L), index.nearest(template, 10L, MODEL, 1L, 5).stream()
+                    .map(ContractEmbeddingIndex.Neighbor::contractId).toList());
+
+            index.delete(4L);
+            assertEquals(0, index.nearest(template, 10L, MODEL, 1L, 5).size());
+            assertEquals(3, index.size());
+        } finally {
+            index.destroy();
+        }
+    }
+
+    private static Set<Long> exactTopK(float[][] data, float[] query, int k) {
+        double[] scores = new double[data.length];
+        for (int i = 0; i < data.length; i++) {
+            scores[i] = dot(data[i], query);
+        }
+        Set<Long> top = new HashSet<>();
+        IntStream.range(0, data.length).boxed()
+                .sorted(Comparator.comparingDouble(i -> -scores[i]))
+                .limit(k)
+                .forEach(i -> top.add((long) i));
+        return top;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static float[] randomVector(Random random, float[] center, float noise) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            float gaussian = (float) random.nextGaussian();
+            vector[i] = center == null ? gaussian : center[i] * (float) Math.sqrt(DIMENSIONS) + noise * gaussian;
+        }
+        return EmbeddingProvider.normalize(vector);
+    }
+}
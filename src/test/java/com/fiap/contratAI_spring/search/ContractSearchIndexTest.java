@@ -0,0 +1,130 @@
+package com.fiap.contratAI_spring.search;
+
+import com.fiap.contratAI_spring.dto.ContractSearchHitDTO;
+import com.fiap.contratAI_spring.dto.SearchResultDTO;
+import com.fiap.contratAI_spring.model.enums.ContractStatus;
+import com.fiap.contratAI_spring.support.ContractPayloads;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContractSearchIndexTest {
+
+    private static final String LEASE = """
+            CONTRATO DE LOCAÇÃO RESIDENCIAL
+
+            CLÁUSULA PRIMEIRA – DO OBJETO
+            O LOCADOR cede ao LOCATÁRIO o imóvel situado na Rua das Flores, 10, para fins residenciais.
+
+            CLÁUSULA SEGUNDA – DA MULTA
+            A rescisão antecipada do contrato sujeitará o LOCATÁRIO à multa de três aluguéis.
+            """;
+
+    private SimpleMeterRegistry registry;
+    private ContractSearchIndex index;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        registry = new SimpleMeterRegistry();
+        index = new ContractSearchIndex(new ByteBuffersDirectory(), registry);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        index.destroy();
+    }
+
+    @Test
+    void findsClausesIgnoringAccentsAndInflectionAndHighlightsThem() {
+        index.index(contract(ContractKind.CONTRACT, 1L, 10L, "Locação Rua das Flores", LEASE));
+        index.refresh();
+
+        SearchResultDTO result = index.search("rescisao multas", null, null, 0, 10);
+
+        assertEquals(1, result.totalHits());
+        ContractSearchHitDTO hit = result.items().get(0);
+        assertEquals(ContractKind.CONTRACT, hit.kind());
+        assertEquals(1L, hit.id());
+        assertEquals(10L, hit.ownerId());
+        assertEquals(ContractStatus.ANALYZED, hit.status());
+        assertEquals(1, hit.clauses().size(), "só a cláusula da multa tem os dois termos");
+        ContractSearchHitDTO.ClauseMatch clause = hit.clauses().get(0);
+        assertEquals(3, clause.number(), "o preâmbulo é o trecho 1");
+        assertEquals("CLÁUSULA SEGUNDA – DA MULTA", clause.heading());
+        assertTrue(clause.highlight().contains("<mark>rescisão</mark>"), clause.highlight());
+        assertTrue(clause.highlight().contains("<mark>multa</mark>"), clause.highlight());
+
+        // termo do título com termo da cláusula
+        assertEquals(1, index.search("flores aluguéis", null, null, 0, 10).totalHits());
+        assertEquals(0, index.search("rescisão -locatário", null, null, 0, 10).totalHits());
+        assertEquals(0, index.search("de a o", null, null, 0, 10).totalHits(), "só stopwords");
+    }
+
+    @Test
+    void filtersByOwnerAndKind() {
+        index.index(contract(ContractKind.CONTRACT, 1L, 10L, "Locação A", LEASE));
+        index.index(contract(ContractKind.GENERATED, 1L, 20L, "Locação B", LEASE));
+        index.index(contract(ContractKind.ALTERED, 2L, 10L, "Locação C", LEASE));
+        index.refresh();
+
+        assertEquals(3, index.search("multa", null, null, 0, 10).totalHits());
+        SearchResultDTO own = index.search("multa", 10L, null, 0, 10);
+        assertEquals(2, own.totalHits());
+        assertTrue(own.items().stream().allMatch(hit -> hit.ownerId() == 10L));
+        SearchResultDTO generated = index.search("multa", null, ContractKind.GENERATED, 0, 10);
+        assertEquals(1, generated.totalHits());
+        assertEquals(20L, generated.items().get(0).ownerId());
+    }
+
+    @Test
+    void reindexReplacesOldClausesAndDeleteRemovesContract() {
+        index.index(contract(ContractKind.CONTRACT, 1L, 10L, "Locação", LEASE));
+        index.refresh();
+        assertEquals(1, index.search("rescisão", null, null, 0, 10).totalHits());
+
+        index.index(contract(ContractKind.CONTRACT, 1L, 10L, "Locação",
+                LEASE.replace("A rescisão antecipada", "A denúncia antecipada")));
+        index.refresh();
+        assertEquals(0, index.search("rescisão", null, null, 0, 10).totalHits(), "cláusula antiga deveria sumir");
+        assertEquals(1, index.search("denúncia", null, null, 0, 10).totalHits());
+
+        index.delete(ContractKind.CONTRACT, 1L);
+        index.refresh();
+        assertTrue(index.isEmpty());
+    }
+
+    @Test
+    void pagesManyContractsQuickly() {
+        String text = ContractPayloads.contractOfSize(8_000);
+        for (long id = 1; id <= 2_000; id++) {
+            index.index(contract(ContractKind.CONTRACT, id, id % 50, "Prestação de serviços " + id, text));
+        }
+        index.refresh();
+
+        index.search("rescisão multa", null, null, 0, 20); // aquecimento
+        SearchResultDTO first = index.search("rescisão multa", null, null, 0, 20);
+        SearchResultDTO second = index.search("rescisão multa", null, null, 1, 20);
+
+        assertEquals(2_000, first.totalHits());
+        assertEquals(20, first.items().size());
+        assertTrue(first.items().stream().allMatch(hit -> hit.clauses().size() == 3), "no máximo 3 cláusulas por contrato");
+        assertTrue(second.items().stream().noneMatch(hit -> first.items().stream().anyMatch(f -> f.id().equals(hit.id()))));
+
+        // margem folgada para CI; o alvo de produção (< 50 ms) é acompanhado pelo timer search.query
+        double meanMs = registry.get("search.query").timer().mean(TimeUnit.MILLISECONDS);
+        assertTrue(meanMs < 1_000, "busca média de " + meanMs + " ms");
+    }
+
+    private static IndexedContract contract(ContractKind kind, Long id, Long ownerId, String title, String text) {
+        return new IndexedContract(kind, id, ownerId, title, ContractStatus.ANALYZED, LocalDateTime.of(2026, 1, 2, 3, 4), text);
+    }
+}
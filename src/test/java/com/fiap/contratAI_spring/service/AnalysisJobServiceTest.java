@@ -0,0 +1,59 @@
+package com.fiap.contratAI_spring.service;
+
+import com.fiap.contratAI_spring.dto.AnalysisJobDTO;
+import com.fiap.contratAI_spring.model.enums.ContractStatus;
+import com.fiap.contratAI_spring.repository.ContractRepository;
+import com.fiap.contratAI_spring.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AnalysisJobServiceTest {
+
+    private final ContractRepository repository = mock(ContractRepository.class);
+    private final AnalysisJobService service = new AnalysisJobService(repository, mock(UserRepository.class),
+            mock(ContractAIService.class), new ContractContentStore("inline"), mock(AnalysisPriorityPolicy.class));
+
+    @Test
+    void abandonedWaitsAreRemoved() {
+        when(repository.findJobById(1L)).thenReturn(Optional.of(job(1L, ContractStatus.PENDING)));
+
+        CompletableFuture<AnalysisJobDTO> first = service.awaitCompletion(1L);
+        CompletableFuture<AnalysisJobDTO> second = service.awaitCompletion(1L);
+        service.stopWaiting(1L, first);
+        assertEquals(1, service.waitingContracts(), "o outro long-poll continua aguardando");
+
+        service.stopWaiting(1L, second);
+        assertEquals(0, service.waitingContracts());
+        assertFalse(first.isDone() || second.isDone());
+    }
+
+    @Test
+    void pollCompletesAnalysesFinishedOnAnotherInstance() {
+        when(repository.findJobById(2L)).thenReturn(Optional.of(job(2L, ContractStatus.PENDING)));
+        when(repository.findJobById(3L)).thenReturn(Optional.of(job(3L, ContractStatus.PENDING)));
+        CompletableFuture<AnalysisJobDTO> analyzed = service.awaitCompletion(2L);
+        CompletableFuture<AnalysisJobDTO> pending = service.awaitCompletion(3L);
+
+        when(repository.findJobsByIds(anyCollection()))
+                .thenReturn(List.of(job(2L, ContractStatus.ANALYZED), job(3L, ContractStatus.PENDING)));
+        service.pollFinished();
+
+        assertEquals(ContractStatus.ANALYZED, analyzed.join().status());
+        assertFalse(pending.isDone());
+        assertEquals(1, service.waitingContracts());
+    }
+
+    private static AnalysisJobDTO job(Long id, ContractStatus status) {
+        return new AnalysisJobDTO(id, status, LocalDateTime.now(), 7L);
+    }
+}
@@ -0,0 +1,148 @@
+package com.fiap.contratAI_spring.service;
+
+import com.fiap.contratAI_spring.config.RabbitMQConfig;
+import com.fiap.contratAI_spring.llm.AdaptiveConcurrencyLimiter;
+import com.fiap.contratAI_spring.llm.EstimatingTokenizer;
+import com.fiap.contratAI_spring.llm.LlmCircuitBreaker;
+import com.fiap.contratAI_spring.llm.LlmProvider;
+import com.fiap.contratAI_spring.llm.OllamaEndpointPool;
+import com.fiap.contratAI_spring.llm.OllamaLlmProvider;
+import com.fiap.contratAI_spring.llm.PromptBudgeter;
+import com.fiap.contratAI_spring.llm.PromptTemplateRegistry;
+import com.fiap.contratAI_spring.support.StubOllamaServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Carga contra um Ollama simulado: mostra que a vazão de análises escala com o número de
+ * consumidores e que {@code ollama.max-in-flight} é respeitado. Sem broker no teste, os consumidores são
+ * threads; o container que os cria e escala é conferido a partir da factory de {@link RabbitMQConfig}.
+ */
+class AnalysisThroughputLoadTest {
+
+    private static final long LATENCY_MS = 150;
+    private static final int CONTRACTS = 24;
+
+    @Test
+    void throughputScalesWithConsumers() throws Exception {
+        try (StubOllamaServer stub = new StubOllamaServer(LATENCY_MS)) {
+            double single = run(stub, 1, 1);
+            double parallel = run(stub, 4, 4);
+
+            assertTrue(parallel > single * 2.5, String.format(Locale.ROOT,
+                    "vazão com 4 consumidores (%.1f/s) deveria passar de 2,5x a de 1 (%.1f/s)", parallel, single));
+        }
+    }
+
+    @Test
+    void inFlightLimitCapsConcurrentOllamaCalls() throws Exception {
+        try (StubOllamaServer stub = new StubOllamaServer(LATENCY_MS)) {
+            run(stub, 8, 2);
+            assertTrue(stub.maxInFlight() <= 2, "no máximo 2 chamadas simultâneas, observado " + stub.maxInFlight());
+        }
+    }
+
+    @Test
+    void containerScalesBetweenConcurrentAndMaxConsumers() {
+        RabbitMQConfig config = new RabbitMQConfig();
+        SimpleMessageListenerContainer container = config.rabbitListenerContainerFactory(
+                mock(ConnectionFactory.class), 2, 6, 1, 10_000, 60_000, 10, false).createListenerContainer(endpoint());
+
+        // começa com 2, sobe um consumidor por vez (a cada 10s com mensagens) até 6 e desliga os ociosos
+        assertEquals(2, ReflectionTestUtils.getField(container, "concurrentConsumers"));
+        assertEquals(6, ReflectionTestUtils.getField(container, "maxConcurrentConsumers"));
+        assertEquals(1, ReflectionTestUtils.getField(container, "consecutiveActiveTrigger"));
+        assertEquals(10, ReflectionTestUtils.getField(container, "consecutiveIdleTrigger"));
+        assertEquals(10_000L, ReflectionTestUtils.getField(container, "startConsumerMinInterval"));
+        assertEquals(60_000L, ReflectionTestUtils.getField(container, "stopConsumerMinInterval"));
+        assertEquals(1, ReflectionTestUtils.getField(container, "prefetchCount"));
+
+        // max abaixo de concurrent não reduz os consumidores iniciais; virtual threads trocam o executor
+        SimpleMessageListenerContainer virtual = config.rabbitListenerContainerFactory(
+                mock(ConnectionFactory.class), 4, 1, 1, 10_000, 60_000, 10, true).createListenerContainer(endpoint());
+        assertEquals(4, ReflectionTestUtils.getField(virtual, "maxConcurrentConsumers"));
+        assertInstanceOf(VirtualThreadTaskExecutor.class, ReflectionTestUtils.getField(virtual, "taskExecutor"));
+    }
+
+    private static SimpleRabbitListenerEndpoint endpoint() {
+        SimpleRabbitListenerEndpoint endpoint = new SimpleRabbitListenerEndpoint();
+        endpoint.setId("analise-teste");
+        endpoint.setQueueNames(RabbitMQConfig.QUEUE_NAME);
+        endpoint.setMessageListener(message -> { });
+        return endpoint;
+    }
+
+    /**
+     * Processa {@link #CONTRACTS} análises com {@code consumers} threads, como o container do RabbitMQ faria.
+     *
+     * @return análises por segundo
+     */
+    private double run(StubOllamaServer stub, int consumers, int maxInFlight) throws Exception {
+        ContractAIService service = newService(stub.baseUrl(), maxInFlight);
+        ExecutorService pool = Executors.newFixedThreadPool(consumers);
+        try {
+            long start = System.nanoTime();
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < CONTRACTS; i++) {
+                String contract = "CLÁUSULA PRIMEIRA - contrato de teste número " + i + " (" + System.nanoTime() + ")";
+                results.add(pool.submit(() -> service.analyzeContract(contract)));
+            }
+            for (Future<String> result : results) {
+                assertEquals("ANÁLISE STUB", result.get());
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return CONTRACTS / seconds;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    static ContractAIService newService(String baseUrl, int maxInFlight) {
+        return newService(baseUrl, maxInFlight, 8192);
+    }
+
+    static ContractAIService newService(String baseUrl, int maxInFlight, int contextTokens) {
+        return newService(List.of(baseUrl), maxInFlight, contextTokens);
+    }
+
+    static PromptTemplateRegistry promptTemplates() {
+        try {
+            return new PromptTemplateRegistry("classpath*:prompts/*.tmpl", "", "");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static ContractAIService newService(List<String> baseUrls, int maxInFlight, int contextTokens) {
+        LlmResponseCache cache = new LlmResponseCache(null, new SimpleMeterRegistry(), false, 1, 1, false, 1);
+        LlmMetrics metrics = new LlmMetrics(new SimpleMeterRegistry(), "stub");
+        OllamaEndpointPool pool = new OllamaEndpointPool(baseUrls, new SimpleMeterRegistry(), 16, 5, 1000, 5, 30, 5);
+        LlmProvider provider = new OllamaLlmProvider(pool, metrics, "stub", contextTokens);
+        LlmCircuitBreaker circuitBreaker = new LlmCircuitBreaker(5, 30_000, new SimpleMeterRegistry());
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(maxInFlight, maxInFlight, 1, 2.0, 0.9, 100_000, new SimpleMeterRegistry());
+        PromptBudgeter budgeter = new PromptBudgeter(new EstimatingTokenizer(3.5), new SimpleMeterRegistry(),
+                contextTokens, 256, "", 0.05, 64);
+        return new ContractAIService(null, cache, metrics, provider, circuitBreaker, limiter, promptTemplates(), budgeter,
+                1_000_000, 60, 300, 60_000,
+                true, 4, 200, 65536, Executors.newVirtualThreadPerTaskExecutor());
+    }
+}
@@ -0,0 +1,158 @@
+package com.fiap.contratAI_spring.service;
+
+import com.fiap.contratAI_spring.dto.AnalysisBatchDTO;
+import com.fiap.contratAI_spring.model.Contract;
+import com.fiap.contratAI_spring.model.User;
+import com.fiap.contratAI_spring.model.enums.ContractStatus;
+import com.fiap.contratAI_spring.repository.AnalysisBatchRepository;
+import com.fiap.contratAI_spring.repository.ContractRepository;
+import com.fiap.contratAI_spring.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BulkAnalysisServiceTest {
+
+    @Autowired
+    private ContractRepository contractRepository;
+
+    @Autowired
+    private AnalysisBatchRepository batchRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        contractRepository.deleteAll();
+        batchRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void zipUploadCreatesContractsInChunksAndFailsUnconfirmedOnes() throws IOException {
+        User owner = newUser("lote-upload@example.com");
+
+        byte[] zip = zip(
+                "contratos/locacao.txt", "CONTRATO DE LOCAÇÃO".getBytes(StandardCharsets.UTF_8),
+                "contratos/servicos.txt", "CONTRATO DE PRESTAÇÃO DE SERVIÇOS".getBytes(Charset.forName("windows-1252")),
+                "contratos/nack.txt", "contrato recusado pelo broker".getBytes(StandardCharsets.UTF_8),
+                "contratos/vazio.txt", "   ".getBytes(StandardCharsets.UTF_8),
+                "contratos/scan.pdf", new byte[]{'%', 'P', 'D', 'F'},
+                "__MACOSX/contratos/._locacao.txt", new byte[]{0, 1},
+                "contratos/grande.md", "x".repeat(2_000).getBytes(StandardCharsets.UTF_8));
+        MockMultipartFile zipPart = new MockMultipartFile("files", "lote.zip", "application/zip", zip);
+        MockMultipartFile textPart = new MockMultipartFile("files", "aditivo.txt", "text/plain",
+                "ADITIVO CONTRATUAL".getBytes(StandardCharsets.UTF_8));
+
+        ContractAIService aiService = mock(ContractAIService.class);
+        doAnswer(inv -> {
+            String text = inv.getArgument(1);
+            CorrelationData correlation = inv.getArgument(4);
+            correlation.getFuture().complete(new CorrelationData.Confirm(!text.contains("recusado"), "nack de teste"));
+            return null;
+        }).when(aiService).sendContractForAnalysis(anyLong(), anyString(), anyLong(), anyInt(), any(CorrelationData.class));
+
+        BulkAnalysisService service = new BulkAnalysisService(contractRepository, batchRepository, userRepository, aiService,
+                new ContractContentStore("inline"), new ContractUploadReader(1_000, 100), transactionManager, 2, 1_000_000, 1_000);
+
+        AnalysisBatchDTO batch = service.submit(List.of(zipPart, textPart), owner.getId());
+
+        assertEquals(4, batch.totalContracts());
+        assertEquals(3, batch.pending());
+        assertEquals(1, batch.failed());
+        assertEquals(3, batch.skippedFiles(), "vazio, pdf e grande demais; metadados do macOS nem contam");
+        assertTrue(batch.skipped().stream().anyMatch(s -> s.startsWith("lote.zip/contratos/scan.pdf")));
+        verify(aiService, times(4)).sendContractForAnalysis(anyLong(), anyString(), eq(owner.getId()),
+                eq(AnalysisPriorityPolicy.BULK_PRIORITY), any(CorrelationData.class));
+
+        List<Contract> contracts = new TransactionTemplate(transactionManager).execute(status ->
+                contractRepository.findAll().stream().peek(c -> c.getBatch().getId()).toList());
+        assertEquals(4, contracts.size());
+        assertTrue(contracts.stream().allMatch(c -> batch.id().equals(c.getBatch().getId())));
+        assertTrue(contracts.stream().anyMatch(c -> "CONTRATO DE PRESTAÇÃO DE SERVIÇOS".equals(c.getContent())),
+                "arquivo em Windows-1252 deveria ser decodificado");
+        assertEquals(ContractStatus.FAILED, contracts.stream()
+                .filter(c -> c.getTitle().endsWith("nack.txt")).findFirst().orElseThrow().getStatus());
+
+        assertEquals(batch, service.progress(batch.id()).orElseThrow());
+    }
+
+    @Test
+    void chunksAreAlsoFlushedByTotalSize() throws IOException {
+        User owner = newUser("lote-tamanho@example.com");
+        List<MultipartFile> parts = List.of(
+                new MockMultipartFile("files", "a.txt", "text/plain", "a".repeat(20).getBytes(StandardCharsets.UTF_8)),
+                new MockMultipartFile("files", "b.txt", "text/plain", "b".repeat(20).getBytes(StandardCharsets.UTF_8)),
+                new MockMultipartFile("files", "c.txt", "text/plain", "c".repeat(20).getBytes(StandardCharsets.UTF_8)));
+
+        // contratos já gravados no momento de cada publicação
+        List<Long> savedWhenPublished = new ArrayList<>();
+        ContractAIService aiService = mock(ContractAIService.class);
+        doAnswer(inv -> {
+            savedWhenPublished.add(contractRepository.count());
+            inv.<CorrelationData>getArgument(4).getFuture().complete(new CorrelationData.Confirm(true, null));
+            return null;
+        }).when(aiService).sendContractForAnalysis(anyLong(), anyString(), anyLong(), anyInt(), any(CorrelationData.class));
+
+        BulkAnalysisService service = new BulkAnalysisService(contractRepository, batchRepository, userRepository, aiService,
+                new ContractContentStore("inline"), new ContractUploadReader(1_000, 100), transactionManager, 50, 30, 1_000);
+        service.submit(parts, owner.getId());
+
+        assertEquals(List.of(2L, 2L, 3L), savedWhenPublished, "o grupo fecha ao passar de 30 caracteres, não de 50 arquivos");
+    }
+
+    private static byte[] zip(Object... nameAndBytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < nameAndBytes.length; i += 2) {
+                zip.putNextEntry(new ZipEntry((String) nameAndBytes[i]));
+                zip.write((byte[]) nameAndBytes[i + 1]);
+                zip.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private User newUser(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setName("Teste");
+        user.setPassword("x");
+        return userRepository.save(user);
+    }
+}
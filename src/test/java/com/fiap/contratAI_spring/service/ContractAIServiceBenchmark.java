@@ -0,0 +1,76 @@
+package com.fiap.contratAI_spring.service;
+
+import com.fiap.contratAI_spring.llm.PromptTemplate;
+import com.fiap.contratAI_spring.support.ContractPayloads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caminhos quentes do {@link ContractAIService} que não dependem do Ollama: montagem do prompt
+ * e serialização da mensagem da fila. Montagem da requisição e parse da resposta ficam
+ * nos benchmarks do pacote {@code llm}. {@code formatAndSanitize} é a montagem anterior ao
+ * {@link PromptTemplate} ({@code String.format} e um {@code replace} por regra), mantida como referência.
+ * Rodar com {@code mvn -Pbenchmark verify}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContractAIServiceBenchmark {
+
+    /** 10 KB, 256 KB e 2 MB. */
+    @Param({"10240", "262144", "2097152"})
+    public int payloadChars;
+
+    private static final String LEGACY_ANALYZE_TEMPLATE = """
+            Você é um assistente jurídico especializado em análise de contratos.
+            Analise o seguinte contrato e retorne:
+            1) As três cláusulas mais arriscadas para a parte mais fraca, com breve justificativa.
+            2) Uma sugestão de refatoração para a cláusula mais complexa.
+            
+            CONTRATO:
+            %s
+            """;
+
+    private ContractAIService service;
+    private PromptTemplate analyzeTemplate;
+    private String contract;
+
+    @Setup
+    public void setUp() {
+        // limite acima do maior payload para medir o custo proporcional ao tamanho do contrato
+        service = AnalysisThroughputLoadTest.newService("http://localhost:11434", 1);
+        analyzeTemplate = AnalysisThroughputLoadTest.promptTemplates().get(ContractAIService.OP_ANALYZE);
+        contract = ContractPayloads.contractOfSize(payloadChars);
+    }
+
+    @Benchmark
+    public String renderAnalyzePrompt() {
+        return analyzeTemplate.render(Integer.MAX_VALUE, Map.of("contract", contract));
+    }
+
+    @Benchmark
+    public String formatAndSanitize() {
+        String prompt = String.format(LEGACY_ANALYZE_TEMPLATE, contract);
+        return prompt.replace("\r\n", "\n").replace("\r", "\n").replace("\u0000", "");
+    }
+
+    @Benchmark
+    public String buildAnalysisMessage() {
+        return service.buildAnalysisMessage(1L, contract, 1L);
+    }
+}
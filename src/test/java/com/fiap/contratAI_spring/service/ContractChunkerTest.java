@@ -0,0 +1,117 @@
+package com.fiap.contratAI_spring.service;
+
+import com.fiap.contratAI_spring.llm.EstimatingTokenizer;
+import com.fiap.contratAI_spring.llm.Tokenizer;
+import com.fiap.contratAI_spring.support.StubOllamaServer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContractChunkerTest {
+
+    @Test
+    void splitsOnClauseHeadings() {
+        String text = """
+                CONTRATO DE LOCAÇÃO
+                Entre as partes abaixo.
+                CLÁUSULA PRIMEIRA - DO OBJETO
+                O imóvel situado na rua X.
+                CLÁUSULA SEGUNDA - DO PRAZO
+                12 meses.
+                Art. 3 O foro é o da comarca de São Paulo.
+                """;
+
+        List<String> clauses = ContractChunker.splitClauses(text);
+
+        assertEquals(4, clauses.size());
+        assertTrue(clauses.get(0).startsWith("CONTRATO DE LOCAÇÃO"));
+        assertTrue(clauses.get(1).startsWith("CLÁUSULA PRIMEIRA"));
+        assertTrue(clauses.get(3).startsWith("Art. 3"));
+    }
+
+    @Test
+    void fingerprintIgnoresNumberingAndWhitespace() {
+        String body = "O LOCATÁRIO pagará multa de 3 aluguéis em caso de rescisão antecipada.";
+        String fingerprint = ContractChunker.clauseFingerprint("CLÁUSULA QUINTA - DA MULTA\n" + body);
+
+        assertEquals(fingerprint, ContractChunker.clauseFingerprint("CLÁUSULA DÉCIMA QUINTA - DA MULTA\n" + body));
+        assertEquals(fingerprint, ContractChunker.clauseFingerprint("Cláusula 6ª -  DA MULTA\r\n  " + body + "\n"));
+        assertEquals(ContractChunker.clauseFingerprint("Art. 5º " + body), ContractChunker.clauseFingerprint("Art. 12 " + body));
+        assertEquals(ContractChunker.clauseFingerprint("5. " + body), ContractChunker.clauseFingerprint("7.2 - " + body));
+        assertTrue(!fingerprint.equals(ContractChunker.clauseFingerprint(
+                "CLÁUSULA QUINTA - DA MULTA\n" + body.replace("3 aluguéis", "6 aluguéis"))));
+    }
+
+    @Test
+    void chunksRespectLimitAndCoverWholeContract() {
+        String contract = longContract(60);
+        ContractChunker chunker = new ContractChunker(1000, 150);
+
+        List<String> chunks = chunker.chunk(contract);
+
+        assertTrue(chunks.size() > 1);
+        for (String chunk : chunks) {
+            assertTrue(chunk.length() <= 1000 + 150, "trecho com " + chunk.length() + " caracteres");
+        }
+        for (int i = 1; i <= 60; i++) {
+            String heading = "CLÁUSULA " + i + " -";
+            assertTrue(chunks.stream().anyMatch(c -> c.contains(heading)), "cláusula ausente: " + heading);
+        }
+        assertTrue(chunks.get(chunks.size() - 1).contains("CLÁUSULA 60 -"), "a última cláusula deve ser analisada");
+    }
+
+    @Test
+    void chunksAfterTheFirstStartWithOverlap() {
+        ContractChunker chunker = new ContractChunker(1000, 150);
+        List<String> chunks = chunker.chunk(longContract(30));
+
+        String firstTail = chunks.get(0).substring(chunks.get(0).length() - 40);
+        assertTrue(chunks.get(1).contains(firstTail));
+    }
+
+    @Test
+    void longContractIsAnalyzedByMapReduce() throws Exception {
+        try (StubOllamaServer stub = new StubOllamaServer(10)) {
+            ContractAIService service = AnalysisThroughputLoadTest.newService(stub.baseUrl(), 4, 2000);
+
+            String result = service.analyzeContract(longContract(80));
+
+            assertEquals("ANÁLISE STUB", result);
+            assertTrue(stub.requests() > 2, "esperado um pedido por trecho mais o reduce, obtido " + stub.requests());
+            assertTrue(stub.maxInFlight() > 1, "os trechos deveriam ser analisados em paralelo");
+        }
+    }
+
+    @Test
+    void manyPartialsAreReducedInLevelsWithinTheContext() throws Exception {
+        try (StubOllamaServer stub = new StubOllamaServer(5)) {
+            ContractAIService service = AnalysisThroughputLoadTest.newService(stub.baseUrl(), 4, 1000);
+
+            assertEquals("ANÁLISE STUB", service.analyzeContract(longContract(2000)));
+
+            // mesmo orçamento do serviço: (1000 - 256 de saída) * 0,95
+            Tokenizer tokenizer = new EstimatingTokenizer(3.5);
+            List<String> prompts = stub.prompts();
+            for (String prompt : prompts) {
+                assertTrue(tokenizer.count(prompt) <= 706, "prompt com " + tokenizer.count(prompt) + " tokens");
+            }
+            List<String> reduces = prompts.stream().filter(p -> p.contains("--- TRECHO")).toList();
+            assertTrue(reduces.size() > 2, "esperadas consolidações intermediárias, obtidas " + reduces.size());
+            assertEquals(1, reduces.stream().filter(p -> !p.contains("--- TRECHO ")).count(),
+                    "só a consolidação final junta apenas análises intermediárias");
+        }
+    }
+
+    private static String longContract(int clauses) {
+        StringBuilder sb = new StringBuilder("CONTRATO DE PRESTAÇÃO DE SERVIÇOS\n\n");
+        for (int i = 1; i <= clauses; i++) {
+            sb.append("CLÁUSULA ").append(i).append(" - ")
+                    .append("O CONTRATANTE pagará multa de ").append(i).append("% em caso de atraso, ")
+                    .append("sem prejuízo das demais penalidades previstas neste instrumento.\n\n");
+        }
+        return sb.toString();
+    }
+}
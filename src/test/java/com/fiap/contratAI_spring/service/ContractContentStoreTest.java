@@ -0,0 +1,116 @@
+package com.fiap.contratAI_spring.service;
+
+import com.fiap.contratAI_spring.model.CompressedTextConverter;
+import com.fiap.contratAI_spring.model.ContentBlob;
+import com.fiap.contratAI_spring.model.Contract;
+import com.fiap.contratAI_spring.model.User;
+import com.fiap.contratAI_spring.model.enums.ContractStatus;
+import com.fiap.contratAI_spring.repository.ContractRepository;
+import com.fiap.contratAI_spring.repository.UserRepository;
+import com.fiap.contratAI_spring.support.ContractPayloads;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ContractContentStoreTest {
+
+    @Autowired
+    private ContractRepository contractRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final ContractContentStore store = new ContractContentStore("compressed");
+
+    @AfterEach
+    void cleanUp() {
+        contractRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void converterRoundTripsAndCompressesLargeText() {
+        CompressedTextConverter converter = new CompressedTextConverter();
+        String large = ContractPayloads.contractOfSize(64 * 1024);
+
+        byte[] stored = converter.convertToDatabaseColumn(large);
+        assertTrue(stored.length < large.getBytes(StandardCharsets.UTF_8).length / 2,
+                "esperava compressão, gravou " + stored.length + " bytes");
+        assertEquals(large, converter.convertToEntityAttribute(stored));
+
+        String small = "cláusula curta";
+        assertEquals(small, converter.convertToEntityAttribute(converter.convertToDatabaseColumn(small)));
+        assertEquals("", converter.convertToEntityAttribute(converter.convertToDatabaseColumn("")));
+    }
+
+    @Test
+    void compressedModeStoresBodiesOffRowAndSummaryNeverLoadsThem() {
+        User owner = new User();
+        owner.setName("Dono");
+        owner.setEmail("blob@example.com");
+        owner.setPassword("x");
+        User savedOwner = userRepository.save(owner);
+
+        String original = ContractPayloads.contractOfSize(32 * 1024);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long id = tx.execute(status -> {
+            Contract contract = new Contract();
+            contract.setTitle("Contrato grande");
+            contract.setOwner(savedOwner);
+            contract.setStatus(ContractStatus.PENDING);
+            store.setOriginal(contract, original);
+            contract = contractRepository.save(contract);
+            store.setAnalysis(contract, original, "ANÁLISE");
+            contract.setStatus(ContractStatus.ANALYZED);
+            return contract.getId();
+        });
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        assertEquals(1, contractRepository.findSummaryPage(null, null, 10).size());
+        assertEquals(0, statistics.getEntityStatistics(ContentBlob.class.getName()).getLoadCount());
+
+        tx.executeWithoutResult(status -> {
+            Contract contract = contractRepository.findById(id).orElseThrow();
+            assertNull(contract.getContent());
+            assertEquals(original.length(), contract.getOriginalBlob().getTextLength());
+            assertEquals(ContractContentStore.sha256(original), contract.getOriginalBlob().getSha256());
+            assertEquals(original, store.original(contract));
+            assertEquals(original + ContractContentStore.ANALYSIS_SEPARATOR + "ANÁLISE", store.content(contract));
+        });
+    }
+
+    @Test
+    void readsLegacyInlineContent() {
+        Contract contract = new Contract();
+        contract.setContent("texto" + ContractContentStore.ANALYSIS_SEPARATOR + "análise");
+
+        assertEquals("texto", store.original(contract));
+        assertEquals(contract.getContent(), store.content(contract));
+    }
+}
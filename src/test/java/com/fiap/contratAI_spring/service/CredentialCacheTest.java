@@ -0,0 +1,118 @@
+package com.fiap.contratAI_spring.service;
+
+import com.fiap.contratAI_spring.model.Role;
+import com.fiap.contratAI_spring.model.User;
+import com.fiap.contratAI_spring.model.enums.RoleName;
+import com.fiap.contratAI_spring.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CredentialCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CredentialCache cache = new CredentialCache(registry, true, 2, 300);
+
+    @Test
+    void matchesOnlyTheSamePasswordAndIsBounded() {
+        UserDetails ana = principal(1L, "ana@example.com");
+        cache.put("ana@example.com", "segredo", ana);
+
+        assertSame(ana, cache.lookup("ana@example.com", "segredo").orElseThrow());
+        assertEquals(Optional.empty(), cache.lookup("ana@example.com", "outra"));
+        assertEquals(Optional.empty(), cache.lookup("bia@example.com", "segredo"));
+
+        cache.put("bia@example.com", "x", principal(2L, "bia@example.com"));
+        cache.put("caio@example.com", "x", principal(3L, "caio@example.com"));
+        assertEquals(Optional.empty(), cache.lookup("ana@example.com", "segredo"), "a mais antiga sai pelo limite");
+
+        assertEquals(1.0, registry.get("security.credential.cache").tag("result", "hit").counter().count());
+        assertEquals(3.0, registry.get("security.credential.cache").tag("result", "miss").counter().count());
+
+        CredentialCache expiring = new CredentialCache(new SimpleMeterRegistry(), true, 10, 0);
+        expiring.put("ana@example.com", "segredo", ana);
+        assertEquals(Optional.empty(), expiring.lookup("ana@example.com", "segredo"));
+    }
+
+    @Test
+    void providerAuthenticatesRepeatedCredentialsFromCache() {
+        AuthenticationProvider delegate = mock(AuthenticationProvider.class);
+        UserDetails ana = principal(1L, "ana@example.com");
+        when(delegate.authenticate(any())).thenReturn(
+                UsernamePasswordAuthenticationToken.authenticated(ana, null, ana.getAuthorities()));
+        CachingAuthenticationProvider provider = new CachingAuthenticationProvider(delegate, cache);
+
+        Authentication first = provider.authenticate(token("ana@example.com", "segredo"));
+        Authentication second = provider.authenticate(token("ana@example.com", "segredo"));
+
+        assertSame(ana, first.getPrincipal());
+        assertSame(ana, second.getPrincipal());
+        assertTrue(second.isAuthenticated());
+        verify(delegate, times(1)).authenticate(any());
+    }
+
+    @Test
+    void roleOrPasswordChangesEvictTheUser() {
+        cache.put("ana@example.com", "segredo", principal(1L, "ana@example.com"));
+        cache.put("bia@example.com", "segredo", principal(2L, "bia@example.com"));
+
+        // só as roles mudam: o listener de entidade não dispara, quem invalida é o UserService
+        User ana = user(1L, "ana@example.com");
+        ana.setRoles(Set.of(role(RoleName.ADMIN)));
+        UserRepository repository = mock(UserRepository.class);
+        when(repository.save(ana)).thenReturn(ana);
+        new UserService(repository, cache).saveCredentials(ana);
+        assertEquals(Optional.empty(), cache.lookup("ana@example.com", "segredo"));
+
+        // email trocado: o principal em cache ainda é encontrado pelo id
+        @SuppressWarnings("unchecked")
+        ObjectProvider<CredentialCache> provider = mock(ObjectProvider.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<CredentialCache>>getArgument(0).accept(cache);
+            return null;
+        }).when(provider).ifAvailable(any());
+        new UserCacheInvalidationListener(provider).onUserChanged(user(2L, "beatriz@example.com"));
+        assertEquals(Optional.empty(), cache.lookup("bia@example.com", "segredo"));
+    }
+
+    private static UserDetails principal(Long id, String email) {
+        return new AuthenticatedUser(id, email, "{bcrypt}hash", List.of(new SimpleGrantedAuthority("ROLE_CLIENT")));
+    }
+
+    private static UsernamePasswordAuthenticationToken token(String username, String password) {
+        return UsernamePasswordAuthenticationToken.unauthenticated(username, password);
+    }
+
+    private static User user(Long id, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        return user;
+    }
+
+    private static Role role(RoleName name) {
+        Role role = new Role();
+        role.setName(name);
+        return role;
+    }
+}
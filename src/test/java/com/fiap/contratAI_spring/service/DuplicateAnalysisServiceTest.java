@@ -0,0 +1,137 @@
+package com.fiap.contratAI_spring.service;
+
+import com.fiap.contratAI_spring.llm.StubEmbeddingProvider;
+import com.fiap.contratAI_spring.model.Contract;
+import com.fiap.contratAI_spring.model.User;
+import com.fiap.contratAI_spring.model.enums.ContractStatus;
+import com.fiap.contratAI_spring.repository.ContractRepository;
+import com.fiap.contratAI_spring.repository.UserRepository;
+import com.fiap.contratAI_spring.search.ContractEmbeddingIndex;
+import com.fiap.contratAI_spring.support.ContractPayloads;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DuplicateAnalysisServiceTest {
+
+    private static final String BODY = ContractPayloads.contractOfSize(6_000);
+
+    @Autowired
+    private ContractRepository contractRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path indexDir;
+
+    @AfterEach
+    void cleanUp() {
+        contractRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void reusesAnalysisOfNearDuplicateFromSameOwnerOnly() throws IOException {
+        User owner = newUser("dedup-dono@example.com");
+        User other = newUser("dedup-outro@example.com");
+        ContractContentStore contentStore = new ContractContentStore("inline");
+        ContractAIService aiService = mock(ContractAIService.class);
+        when(aiService.analyzeContract(anyString())).thenReturn("ANÁLISE DO LLM");
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ContractEmbeddingIndex index = new ContractEmbeddingIndex(indexDir.toString(), registry);
+        DuplicateAnalysisService service = new DuplicateAnalysisService(aiService, new StubEmbeddingProvider(), index,
+                contractRepository, contentStore, transactionManager, registry, true, 0.97);
+
+        try {
+            String first = "LOCADOR: João da Silva, CPF 111.111.111-11. Aluguel mensal de R$ 1.500,00.\n" + BODY;
+            Contract analyzed = save(owner, first, contentStore);
+            String analysis = service.analyze(analyzed.getId(), owner.getId(), first);
+            assertEquals("ANÁLISE DO LLM", analysis);
+            contentStore.setAnalysis(analyzed, first, analysis);
+            analyzed.setStatus(ContractStatus.ANALYZED);
+            contractRepository.save(analyzed);
+
+            // mesmo modelo, outras partes e valores
+            String second = "LOCADOR: Maria Souza, CPF 222.222.222-22. Aluguel mensal de R$ 2.300,00.\n" + BODY;
+            Contract duplicate = save(owner, second, contentStore);
+            String reused = service.analyze(duplicate.getId(), owner.getId(), second);
+            assertTrue(reused.startsWith("ANÁLISE REAPROVEITADA do contrato #" + analyzed.getId()), reused);
+            assertTrue(reused.contains("- LOCADOR: Maria Souza, CPF 222.222.222-22. Aluguel mensal de R$ 2.300,00."), reused);
+            assertTrue(reused.endsWith("ANÁLISE DO LLM"), reused);
+            verify(aiService, times(1)).analyzeContract(anyString());
+
+            // o mesmo texto de outro usuário não enxerga a análise do primeiro
+            Contract foreign = save(other, second, contentStore);
+            assertEquals("ANÁLISE DO LLM", service.analyze(foreign.getId(), other.getId(), second));
+
+            // contrato diferente do mesmo dono vai para o LLM
+            String unrelated = "CONTRATO DE COMPRA E VENDA DE VEÍCULO\nO VENDEDOR transfere ao COMPRADOR o veículo descrito.";
+            Contract different = save(owner, unrelated, contentStore);
+            assertEquals("ANÁLISE DO LLM", service.analyze(different.getId(), owner.getId(), unrelated));
+
+            // mesmas partes e valores, mas uma cláusula reescrita no fim: parecido o bastante, e ainda assim vai para o LLM
+            String amended = first + "\nCLÁUSULA FINAL - O LOCATÁRIO renuncia expressamente ao direito de preferência na "
+                    + "aquisição do imóvel e responde sozinho por quaisquer multas, encargos e reparos estruturais, "
+                    + "inclusive os decorrentes de vícios ocultos anteriores à locação.";
+            StubEmbeddingProvider embeddings = new StubEmbeddingProvider();
+            assertTrue(dot(embeddings.embed(first), embeddings.embed(amended)) >= 0.97, "o embedding sozinho reaproveitaria");
+            Contract changed = save(owner, amended, contentStore);
+            assertEquals("ANÁLISE DO LLM", service.analyze(changed.getId(), owner.getId(), amended));
+
+            verify(aiService, times(4)).analyzeContract(anyString());
+            assertEquals(1.0, registry.get("analysis.dedup").tag("outcome", "reused").counter().count());
+            assertEquals(4.0, registry.get("analysis.dedup").tag("outcome", "analyzed").counter().count());
+            assertEquals(4, index.size(), "a análise reaproveitada não entra no índice");
+        } finally {
+            index.destroy();
+        }
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private Contract save(User owner, String text, ContractContentStore contentStore) {
+        Contract contract = new Contract();
+        contentStore.setOriginal(contract, text);
+        contract.setOwner(owner);
+        contract.setTitle("Locação");
+        contract.setStatus(ContractStatus.PENDING);
+        return contractRepository.save(contract);
+    }
+
+    private User newUser(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setName("Teste");
+        user.setPassword("x");
+        return userRepository.save(user);
+    }
+}
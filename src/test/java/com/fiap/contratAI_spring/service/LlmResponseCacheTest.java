@@ -0,0 +1,103 @@
+package com.fiap.contratAI_spring.service;
+
+import com.fiap.contratAI_spring.model.LlmCacheEntry;
+import com.fiap.contratAI_spring.repository.LlmCacheEntryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LlmResponseCacheTest {
+
+    @Test
+    void keyCoversModelTemplateAndPromptAndMemoryTierIsBounded() {
+        String key = LlmResponseCache.key("llama3", "analyze-v1", "contrato");
+        assertEquals(key, LlmResponseCache.key("llama3", "analyze-v1", "contrato"));
+        assertNotEquals(key, LlmResponseCache.key("gpt-oss", "analyze-v1", "contrato"));
+        assertNotEquals(key, LlmResponseCache.key("llama3", "analyze-v2", "contrato"));
+        assertNotEquals(key, LlmResponseCache.key("llama3", "analyze-v1", "contrato "));
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        LlmResponseCache cache = new LlmResponseCache(null, registry, true, 2, 60, false, 1);
+        cache.put("a", "m", "t", "A");
+        cache.put("b", "m", "t", "B");
+        assertEquals(Optional.of("A"), cache.get("a")); // "b" passa a ser o menos recente
+        cache.put("c", "m", "t", "C");
+
+        assertEquals(Optional.empty(), cache.get("b"));
+        assertEquals(Optional.of("C"), cache.get("c"));
+        assertEquals(2, cache.size());
+        assertEquals(2.0, registry.get("llm.cache.hits").tag("tier", "memory").counter().count());
+        assertEquals(1.0, registry.get("llm.cache.misses").counter().count());
+        assertEquals(1.0, registry.get("llm.cache.evictions").tag("cause", "size").counter().count());
+    }
+
+    @Test
+    void persistentTierIsReadOnMemoryMissAndExpiresByTtl() {
+        LlmCacheEntryRepository repository = mock(LlmCacheEntryRepository.class);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        LlmResponseCache cache = new LlmResponseCache(repository, registry, true, 10, 60, true, 30);
+
+        LlmCacheEntry fresh = entry("fresh", LocalDateTime.now().minusDays(1));
+        LlmCacheEntry stale = entry("stale", LocalDateTime.now().minusDays(31));
+        when(repository.findById("fresh")).thenReturn(Optional.of(fresh));
+        when(repository.findById("stale")).thenReturn(Optional.of(stale));
+
+        assertEquals(Optional.of("resposta fresh"), cache.get("fresh"));
+        assertEquals(Optional.of("resposta fresh"), cache.get("fresh"), "a segunda leitura vem da memória");
+        verify(repository, times(1)).findById("fresh");
+
+        assertEquals(Optional.empty(), cache.get("stale"));
+        verify(repository).delete(stale);
+        assertEquals(1.0, registry.get("llm.cache.hits").tag("tier", "persistent").counter().count());
+        assertEquals(1.0, registry.get("llm.cache.evictions").tag("cause", "expired").counter().count());
+
+        cache.put("novo", "m", "analyze-v1", "R");
+        verify(repository).save(any(LlmCacheEntry.class));
+
+        LlmResponseCache disabled = new LlmResponseCache(repository, new SimpleMeterRegistry(), false, 10, 60, true, 30);
+        disabled.put("x", "m", "t", "X");
+        assertEquals(Optional.empty(), disabled.get("x"));
+        verify(repository, never()).findById("x");
+    }
+
+    @Test
+    void scheduledPurgeDeletesExpiredRowsThatAreNeverReadAgain() {
+        LlmCacheEntryRepository repository = mock(LlmCacheEntryRepository.class);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        LlmResponseCache cache = new LlmResponseCache(repository, registry, true, 10, 60, true, 30);
+        ArgumentCaptor<LocalDateTime> cutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        when(repository.deleteCreatedBefore(cutoff.capture())).thenReturn(3);
+
+        LocalDateTime before = LocalDateTime.now().minusDays(30);
+        cache.purgeExpired();
+
+        assertFalse(cutoff.getValue().isBefore(before), "o corte é a idade máxima do nível persistente");
+        assertFalse(cutoff.getValue().isAfter(LocalDateTime.now().minusDays(30)));
+        assertEquals(3.0, registry.get("llm.cache.evictions").tag("cause", "expired").counter().count());
+
+        LlmCacheEntryRepository unused = mock(LlmCacheEntryRepository.class);
+        new LlmResponseCache(unused, new SimpleMeterRegistry(), true, 10, 60, false, 30).purgeExpired();
+        verify(unused, never()).deleteCreatedBefore(any());
+    }
+
+    private static LlmCacheEntry entry(String key, LocalDateTime createdAt) {
+        LlmCacheEntry entry = new LlmCacheEntry();
+        entry.setCacheKey(key);
+        entry.setResponse("resposta " + key);
+        entry.setCreatedAt(createdAt);
+        return entry;
+    }
+}
@@ -0,0 +1,229 @@
+package com.fiap.contratAI_spring.service;
+
+import com.fiap.contratAI_spring.dto.RevisionDTO;
+import com.fiap.contratAI_spring.model.Contract;
+import com.fiap.contratAI_spring.model.User;
+import com.fiap.contratAI_spring.model.enums.ContractStatus;
+import com.fiap.contratAI_spring.repository.AlteredContractRepository;
+import com.fiap.contratAI_spring.repository.ClauseFindingRepository;
+import com.fiap.contratAI_spring.repository.ContractRepository;
+import com.fiap.contratAI_spring.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RevisionAnalysisServiceTest {
+
+    private static final int CLAUSES = 40;
+    private static final List<GrantedAuthority> LAWYER = List.of(new SimpleGrantedAuthority("ROLE_LAWYER"));
+    private static final List<GrantedAuthority> ADMIN = List.of(new SimpleGrantedAuthority("ROLE_ADMIN"));
+
+    @Autowired
+    private ContractRepository contractRepository;
+
+    @Autowired
+    private AlteredContractRepository alteredContractRepository;
+
+    @Autowired
+    private ClauseFindingRepository clauseFindingRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<List<String>> llmCalls = new ArrayList<>();
+
+    private final List<Long> queued = new ArrayList<>();
+
+    private boolean failLlm;
+
+    private SimpleMeterRegistry lastRegistry;
+
+    @AfterEach
+    void cleanUp() {
+        alteredContractRepository.deleteAll();
+        clauseFindingRepository.deleteAll();
+        contractRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void sendsOnlyChangedClausesAndReusesStoredFindings() {
+        RevisionAnalysisService service = service();
+        SimpleMeterRegistry registry = lastRegistry;
+        User owner = newUser("revisao-dono@example.com");
+        Contract original = saveAnalyzed(owner, contract(0, null));
+
+        // duas cláusulas alteradas em um contrato de 40
+        String edited = contract(0, null)
+                .replace("Obrigação específica número 7.", "Obrigação específica número 7, com prazo de 5 dias.")
+                .replace("Obrigação específica número 31.", "Obrigação específica número 31, salvo força maior.");
+        RevisionDTO revision = deliver(service, service.submit(original.getId(), edited, null, owner.getId(), LAWYER).orElseThrow());
+
+        assertEquals(ContractStatus.ANALYZED, revision.status());
+        assertEquals(1, llmCalls.size());
+        assertEquals(2, llmCalls.get(0).size(), "só as cláusulas alteradas vão para o LLM");
+        assertTrue(llmCalls.get(0).get(0).contains("número 7, com prazo"));
+        assertEquals(2, revision.changedClauses());
+        assertEquals(2, revision.removedClauses());
+        assertEquals(2, revision.analyzedClauses());
+        assertTrue(revision.analysis().startsWith("ANÁLISE INCREMENTAL da revisão do contrato #" + original.getId()
+                + ": 2 de " + (CLAUSES + 1) + " cláusulas novas ou alteradas, 2 removidas."), revision.analysis());
+        assertTrue(revision.analysis().contains("ACHADO: CLÁUSULA 7ª"), revision.analysis());
+        assertTrue(revision.analysis().endsWith("ANÁLISE COMPLETA DO ORIGINAL"), revision.analysis());
+
+        // a mesma edição em outra revisão usa as análises gravadas
+        RevisionDTO again = deliver(service, service.submit(original.getId(), edited, "Segunda via", owner.getId(), LAWYER).orElseThrow());
+        assertEquals(1, llmCalls.size(), "nenhuma chamada nova ao LLM");
+        assertEquals(0, again.analyzedClauses());
+        assertEquals(2, again.changedClauses());
+        assertEquals("Segunda via", again.title());
+
+        assertEquals(2.0, registry.get("analysis.revision.clauses").tag("outcome", "analyzed").counter().count());
+        assertEquals(2.0, registry.get("analysis.revision.clauses").tag("outcome", "cached").counter().count());
+        assertEquals(2.0 * (CLAUSES - 1), registry.get("analysis.revision.clauses").tag("outcome", "unchanged").counter().count());
+    }
+
+    @Test
+    void renumberingAfterAnInsertedClauseCountsOnlyTheNewOne() {
+        RevisionAnalysisService service = service();
+        User owner = newUser("revisao-renumera@example.com");
+        Contract original = saveAnalyzed(owner, contract(0, null));
+
+        // nova cláusula na posição 10 empurra a numeração das 31 seguintes
+        RevisionDTO revision = deliver(service, service.submit(original.getId(),
+                contract(10, "Fica vedada a sublocação sem anuência do LOCADOR."), null, owner.getId(), LAWYER).orElseThrow());
+
+        assertEquals(1, revision.changedClauses());
+        assertEquals(0, revision.removedClauses());
+        assertEquals(List.of(1), llmCalls.stream().map(List::size).toList());
+        assertTrue(llmCalls.get(0).get(0).contains("sublocação"));
+    }
+
+    @Test
+    void onlyTheOwnerOrAdminCanReviseAndUnanalyzedOriginalsAreAnalyzedPerClause() {
+        RevisionAnalysisService service = service();
+        User owner = newUser("revisao-original@example.com");
+        User other = newUser("revisao-intruso@example.com");
+        Contract pending = new Contract();
+        new ContractContentStore("inline").setOriginal(pending, contract(0, null));
+        pending.setOwner(owner);
+        pending.setTitle("Locação");
+        pending.setStatus(ContractStatus.PENDING);
+        pending = contractRepository.save(pending);
+
+        assertFalse(service.submit(pending.getId(), "texto", null, other.getId(), LAWYER).isPresent());
+
+        RevisionDTO revision = deliver(service, service.submit(pending.getId(), contract(0, null), null, other.getId(), ADMIN).orElseThrow());
+        assertEquals(CLAUSES + 1, revision.changedClauses(), "sem análise do original todas as cláusulas são analisadas");
+        assertEquals(CLAUSES + 1, revision.analyzedClauses());
+        assertFalse(revision.analysis().contains("ANÁLISE DO CONTRATO ORIGINAL"));
+    }
+
+    @Test
+    void llmFailuresAreLeftToTheQueueAndOnlyTheDeadLetterMarksFailed() {
+        RevisionAnalysisService service = service();
+        User owner = newUser("revisao-falha@example.com");
+        Contract original = saveAnalyzed(owner, contract(0, null));
+        RevisionDTO submitted = service.submit(original.getId(), contract(10, "Cláusula nova."), null, owner.getId(), LAWYER)
+                .orElseThrow();
+        failLlm = true;
+
+        assertThrows(RuntimeException.class, () -> deliver(service, submitted));
+        assertEquals(ContractStatus.PENDING, service.find(submitted.id()).orElseThrow().status(), "o retry ainda pode analisá-la");
+
+        service.markFailed(submitted.id());
+        assertEquals(ContractStatus.FAILED, service.find(submitted.id()).orElseThrow().status());
+    }
+
+    private RevisionAnalysisService service() {
+        ContractAIService aiService = mock(ContractAIService.class);
+        when(aiService.modelName()).thenReturn("teste");
+        when(aiService.clauseTemplateVersion(anyString())).thenReturn("analyze-clause-v1");
+        when(aiService.analyzeClauses(anyList())).thenAnswer(invocation -> {
+            List<String> clauses = invocation.getArgument(0);
+            if (failLlm) throw new RuntimeException("Erro ao chamar API do Ollama");
+            llmCalls.add(List.copyOf(clauses));
+            return clauses.stream().map(c -> "ACHADO: " + c.lines().findFirst().orElse("")).toList();
+        });
+        lastRegistry = new SimpleMeterRegistry();
+        RevisionAnalysisService service = new RevisionAnalysisService(aiService, contractRepository, alteredContractRepository,
+                clauseFindingRepository, new ContractContentStore("inline"), new UserService(userRepository, mock(CredentialCache.class)),
+                new AnalysisPriorityPolicy(50_000), transactionManager, lastRegistry);
+        doAnswer(invocation -> queued.add(invocation.getArgument(0)))
+                .when(aiService).sendRevisionForAnalysis(anyLong(), anyLong(), anyInt());
+        return service;
+    }
+
+    /**
+     * Faz o papel do listener da fila: a revisão precisa ter sido publicada, e então é analisada.
+     */
+    private RevisionDTO deliver(RevisionAnalysisService service, RevisionDTO submitted) {
+        assertEquals(ContractStatus.PENDING, submitted.status());
+        assertTrue(queued.remove(submitted.id()), "revisão " + submitted.id() + " não foi publicada na fila");
+        service.analyze(submitted.id());
+        return service.find(submitted.id()).orElseThrow();
+    }
+
+    /**
+     * Contrato com preâmbulo e {@link #CLAUSES} cláusulas distintas; com {@code insertAt} > 0, {@code inserted}
+     * entra como nova cláusula naquela posição e as seguintes são renumeradas.
+     */
+    private static String contract(int insertAt, String inserted) {
+        StringBuilder text = new StringBuilder("CONTRATO DE LOCAÇÃO RESIDENCIAL\nEntre as partes qualificadas abaixo.\n");
+        int number = 1;
+        for (int i = 1; i <= CLAUSES; i++) {
+            if (i == insertAt) {
+                text.append("CLÁUSULA ").append(number++).append("ª - DA SUBLOCAÇÃO\n").append(inserted).append('\n');
+            }
+            text.append("CLÁUSULA ").append(number++).append("ª - DAS OBRIGAÇÕES ").append(i).append('\n')
+                    .append("Obrigação específica número ").append(i).append(".\n")
+                    .append("O descumprimento sujeita a parte infratora às penalidades previstas neste contrato.\n");
+        }
+        return text.toString();
+    }
+
+    private Contract saveAnalyzed(User owner, String text) {
+        ContractContentStore contentStore = new ContractContentStore("inline");
+        Contract contract = new Contract();
+        contentStore.setAnalysis(contract, text, "ANÁLISE COMPLETA DO ORIGINAL");
+        contract.setOwner(owner);
+        contract.setTitle("Locação");
+        contract.setStatus(ContractStatus.ANALYZED);
+        return contractRepository.save(contract);
+    }
+
+    private User newUser(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setName("Teste");
+        user.setPassword("x");
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,100 @@
+package com.fiap.contratAI_spring.service;
+
+import com.fiap.contratAI_spring.support.StubOllamaServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Chamadas concorrentes com o mesmo prompt devem compartilhar uma única requisição ao Ollama.
+ */
+class SingleFlightTest {
+
+    private static final int CALLERS = 20;
+
+    @Test
+    void identicalConcurrentGenerationsShareOneCall() throws Exception {
+        try (StubOllamaServer stub = new StubOllamaServer(500);
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            ContractAIService service = AnalysisThroughputLoadTest.newService(stub.baseUrl(), 4);
+
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return service.generateContract("locação residencial");
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                assertEquals("ANÁLISE STUB", result.get());
+            }
+
+            assertEquals(1, stub.requests());
+        }
+    }
+
+    @Test
+    void streamingCallerReceivesSharedResultAsSingleToken() throws Exception {
+        try (StubOllamaServer stub = new StubOllamaServer(500);
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            ContractAIService service = AnalysisThroughputLoadTest.newService(stub.baseUrl(), 4);
+
+            Future<String> leader = executor.submit(() -> service.generateContract("compra e venda"));
+            Thread.sleep(100);
+            List<String> tokens = new ArrayList<>();
+            String streamed = service.generateContractStream("compra e venda", tokens::add);
+
+            assertEquals("ANÁLISE STUB", leader.get());
+            assertEquals("ANÁLISE STUB", streamed);
+            assertEquals(List.of("ANÁLISE STUB"), tokens);
+            assertEquals(1, stub.requests());
+        }
+    }
+
+    @Test
+    void disconnectedStreamingLeaderDoesNotFailFollowers() throws Exception {
+        try (StubOllamaServer stub = new StubOllamaServer(500);
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            ContractAIService service = AnalysisThroughputLoadTest.newService(stub.baseUrl(), 4);
+
+            Future<String> leader = executor.submit(() -> service.generateContractStream("permuta", token -> {
+                throw new UncheckedIOException(new IOException("cliente desconectado"));
+            }));
+            Thread.sleep(100);
+            String follower = service.generateContract("permuta");
+
+            assertEquals("ANÁLISE STUB", follower);
+            ExecutionException failure = assertThrows(ExecutionException.class, leader::get);
+            assertInstanceOf(UncheckedIOException.class, failure.getCause());
+            assertEquals(1, stub.requests());
+        }
+    }
+
+    @Test
+    void disconnectedStreamingCallerAloneAbortsTheGeneration() throws Exception {
+        try (StubOllamaServer stub = new StubOllamaServer(50)) {
+            ContractAIService service = AnalysisThroughputLoadTest.newService(stub.baseUrl(), 4);
+
+            assertThrows(UncheckedIOException.class, () -> service.generateContractStream("doação", token -> {
+                throw new UncheckedIOException(new IOException("cliente desconectado"));
+            }));
+            // abortada, a geração não chega ao cache: a próxima chamada vai de novo ao Ollama
+            assertEquals("ANÁLISE STUB", service.generateContract("doação"));
+            assertEquals(2, stub.requests());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.fiap.contratAI_spring.service;
+
+import com.fiap.contratAI_spring.config.AsyncConfig;
+import com.fiap.contratAI_spring.support.StubOllamaServer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Carga contra um Ollama lento simulado, pelo executor de streaming que a aplicação monta com
+ * {@code spring.threads.virtual.enabled=true}: milhares de gerações ficam em andamento ao mesmo tempo
+ * sem esgotar nenhum pool, e nenhuma virtual thread fica presa (pinned) ao carrier durante a chamada ao Ollama.
+ */
+class VirtualThreadGenerationLoadTest {
+
+    private static final int GENERATIONS = 2000;
+    private static final long LATENCY_MS = 2000;
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(AsyncConfig.class);
+
+    @Test
+    void virtualThreadsAreOptIn() {
+        contextRunner.run(context -> assertThat(context.getBean(AsyncConfig.LLM_STREAM_EXECUTOR))
+                .isInstanceOf(ThreadPoolTaskExecutor.class));
+        contextRunner.withPropertyValues("spring.threads.virtual.enabled=true")
+                .run(context -> {
+                    assertThat(context.getBean(AsyncConfig.LLM_STREAM_EXECUTOR)).isInstanceOf(VirtualThreadTaskExecutor.class);
+                    assertThat(context.getBean(AsyncConfig.LLM_CHUNK_EXECUTOR)).isInstanceOf(VirtualThreadTaskExecutor.class);
+                });
+    }
+
+    @Test
+    void thousandsOfConcurrentGenerationsOnVirtualThreads() throws Exception {
+        contextRunner.withPropertyValues("spring.threads.virtual.enabled=true").run(context -> {
+            TaskExecutor executor = context.getBean(AsyncConfig.LLM_STREAM_EXECUTOR, TaskExecutor.class);
+            ConcurrentLinkedQueue<String> pinned = new ConcurrentLinkedQueue<>();
+            AtomicInteger platformThreads = new AtomicInteger();
+
+            try (StubOllamaServer stub = new StubOllamaServer(LATENCY_MS);
+                 RecordingStream recording = new RecordingStream()) {
+                recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ofMillis(20)).withStackTrace();
+                recording.onEvent("jdk.VirtualThreadPinned", event -> {
+                    if (event.getThread() != null && event.getThread().getJavaName().startsWith("llm-stream-")) {
+                        pinned.add(describe(event));
+                    }
+                });
+                recording.startAsync();
+
+                ContractAIService service = AnalysisThroughputLoadTest.newService(stub.baseUrl(), GENERATIONS);
+                long start = System.nanoTime();
+                List<CompletableFuture<String>> results = new ArrayList<>();
+                for (int i = 0; i < GENERATIONS; i++) {
+                    String terms = "prestação de serviços número " + i;
+                    CompletableFuture<String> result = new CompletableFuture<>();
+                    // como o controller faz com /generate/stream
+                    executor.execute(() -> {
+                        if (!Thread.currentThread().isVirtual()) platformThreads.incrementAndGet();
+                        try {
+                            result.complete(service.generateContractStream(terms, token -> { }));
+                        } catch (RuntimeException e) {
+                            result.completeExceptionally(e);
+                        }
+                    });
+                    results.add(result);
+                }
+                for (CompletableFuture<String> result : results) {
+                    assertEquals("ANÁLISE STUB", result.get());
+                }
+                long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+                recording.stop();
+
+                assertEquals(0, platformThreads.get(), "as gerações deveriam rodar em virtual threads");
+                assertTrue(stub.maxInFlight() >= 1000, "esperado >= 1000 chamadas simultâneas, observado " + stub.maxInFlight());
+                assertTrue(elapsedMs < LATENCY_MS * 10, "as gerações deveriam sobrepor-se, levou " + elapsedMs + "ms");
+                assertTrue(pinned.isEmpty(), "virtual threads presas ao carrier:\n" + String.join("\n", pinned));
+            }
+        });
+    }
+
+    private static String describe(RecordedEvent event) {
+        List<RecordedFrame> frames = event.getStackTrace() == null ? List.of() : event.getStackTrace().getFrames();
+        return event.getDuration().toMillis() + "ms em " + frames.stream().limit(8)
+                .map(f -> f.getMethod().getType().getName() + "." + f.getMethod().getName())
+                .collect(Collectors.joining(" <- "));
+    }
+}
@@ -0,0 +1,40 @@
+package com.fiap.contratAI_spring.support;
+
+/**
+ * Gera textos de contrato sintéticos, com cláusulas numeradas, acentos e quebras CRLF,
+ * no tamanho pedido (aproximado em caracteres).
+ */
+public final class ContractPayloads {
+
+    private static final String PREAMBLE = """
+            CONTRATO DE PRESTAÇÃO DE SERVIÇOS\r
+            \r
+            Pelo presente instrumento particular, de um lado EMPRESA CONTRATANTE LTDA., inscrita no CNPJ sob \
+            o nº 00.000.000/0001-00, e de outro lado PRESTADOR DE SERVIÇOS S.A., têm entre si justo e \
+            contratado o seguinte:\r
+            \r
+            """;
+
+    private static final String CLAUSE_BODY = """
+            O CONTRATADO obriga-se a executar os serviços descritos no Anexo I com zelo, diligência e \
+            observância às normas técnicas aplicáveis, respondendo por perdas e danos decorrentes de culpa ou \
+            dolo. A rescisão antecipada sem justa causa sujeitará a parte infratora à multa compensatória de \
+            20% (vinte por cento) do valor remanescente, sem prejuízo de indenização suplementar.\r
+            Parágrafo único. As partes elegem o foro da Comarca de São Paulo/SP para dirimir quaisquer dúvidas.\r
+            \r
+            """;
+
+    private ContractPayloads() {
+    }
+
+    public static String contractOfSize(int chars) {
+        StringBuilder sb = new StringBuilder(chars + CLAUSE_BODY.length() + 64);
+        sb.append(PREAMBLE);
+        int clause = 1;
+        while (sb.length() < chars) {
+            sb.append("CLÁUSULA ").append(clause++).append("ª - DAS OBRIGAÇÕES\r\n").append(CLAUSE_BODY);
+        }
+        sb.setLength(chars);
+        return sb.toString();
+    }
+}
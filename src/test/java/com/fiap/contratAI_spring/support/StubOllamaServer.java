@@ -0,0 +1,87 @@
+package com.fiap.contratAI_spring.support;
+
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Servidor HTTP mínimo que imita os endpoints /api/generate (com uma latência fixa) e /api/tags do Ollama.
+ * Registra quantas requisições estiveram em andamento ao mesmo tempo e os prompts recebidos.
+ */
+public class StubOllamaServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final ConcurrentLinkedQueue<String> prompts = new ConcurrentLinkedQueue<>();
+
+    public StubOllamaServer(long latencyMillis) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/generate", exchange -> {
+            int current = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(current, Math::max);
+            requests.incrementAndGet();
+            try {
+                String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                prompts.add(JsonParser.parseString(request).getAsJsonObject().get("prompt").getAsString());
+                Thread.sleep(latencyMillis);
+                byte[] body = "{\"model\":\"stub\",\"response\":\"ANÁLISE STUB\",\"done\":true}".getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                exchange.sendResponseHeaders(500, -1);
+            } finally {
+                inFlight.decrementAndGet();
+                exchange.close();
+            }
+        });
+        server.createContext("/api/tags", exchange -> {
+            byte[] body = "{\"models\":[{\"name\":\"stub\"}]}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            exchange.close();
+        });
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public int maxInFlight() {
+        return maxInFlight.get();
+    }
+
+    public int requests() {
+        return requests.get();
+    }
+
+    public List<String> prompts() {
+        return List.copyOf(prompts);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}